@@ -0,0 +1,7 @@
+<%@ page import="org.opencms.workplace.tools.database.*" %><%
+
+	// initialize the list dialog
+	CmsSqlStatisticsList wpList = new CmsSqlStatisticsList(pageContext, request, response);
+	// perform the list actions 
+	wpList.displayDialog();
+%>
\ No newline at end of file
@@ -0,0 +1,256 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.workplace.tools.database;
+
+import org.opencms.db.CmsSqlQueryStatistics;
+import org.opencms.db.CmsSqlStatistics;
+import org.opencms.jsp.CmsJspActionElement;
+import org.opencms.main.CmsRuntimeException;
+import org.opencms.main.OpenCms;
+import org.opencms.workplace.list.A_CmsListDialog;
+import org.opencms.workplace.list.CmsListColumnAlignEnum;
+import org.opencms.workplace.list.CmsListColumnDefinition;
+import org.opencms.workplace.list.CmsListIndependentAction;
+import org.opencms.workplace.list.CmsListItem;
+import org.opencms.workplace.list.CmsListMetadata;
+import org.opencms.workplace.list.CmsListOrderEnum;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.jsp.PageContext;
+
+/**
+ * Shows the execution statistics of the named SQL queries.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsSqlStatisticsList extends A_CmsListDialog {
+
+    /** list column id constant. */
+    public static final String LIST_COLUMN_AVERAGE = "ca";
+
+    /** list column id constant. */
+    public static final String LIST_COLUMN_COUNT = "cc";
+
+    /** list column id constant. */
+    public static final String LIST_COLUMN_ERRORS = "ce";
+
+    /** list column id constant. */
+    public static final String LIST_COLUMN_KEY = "ck";
+
+    /** list column id constant. */
+    public static final String LIST_COLUMN_MAX = "cx";
+
+    /** list column id constant. */
+    public static final String LIST_COLUMN_MEDIAN = "cm";
+
+    /** list column id constant. */
+    public static final String LIST_COLUMN_P95 = "c95";
+
+    /** list column id constant. */
+    public static final String LIST_COLUMN_P99 = "c99";
+
+    /** list column id constant. */
+    public static final String LIST_COLUMN_ROWS = "cr";
+
+    /** list column id constant. */
+    public static final String LIST_COLUMN_TOTAL = "ct";
+
+    /** list independent action id constant. */
+    public static final String LIST_IACTION_RESET = "iar";
+
+    /** list id constant. */
+    public static final String LIST_ID = "lsqs";
+
+    /**
+     * Public constructor.<p>
+     *
+     * @param jsp an initialized JSP action element
+     */
+    public CmsSqlStatisticsList(CmsJspActionElement jsp) {
+
+        super(
+            jsp,
+            LIST_ID,
+            Messages.get().container(Messages.GUI_SQLSTATS_LIST_NAME_0),
+            LIST_COLUMN_TOTAL,
+            CmsListOrderEnum.ORDER_DESCENDING,
+            LIST_COLUMN_KEY);
+    }
+
+    /**
+     * Public constructor with JSP variables.<p>
+     *
+     * @param context the JSP page context
+     * @param req the JSP request
+     * @param res the JSP response
+     */
+    public CmsSqlStatisticsList(PageContext context, HttpServletRequest req, HttpServletResponse res) {
+
+        this(new CmsJspActionElement(context, req, res));
+    }
+
+    /**
+     * @see org.opencms.workplace.list.A_CmsListDialog#executeListIndepActions()
+     */
+    @Override
+    public void executeListIndepActions() {
+
+        if (LIST_IACTION_RESET.equals(getParamListAction())) {
+            CmsSqlStatistics.getInstance().reset();
+            refreshList();
+        }
+        super.executeListIndepActions();
+    }
+
+    /**
+     * @see org.opencms.workplace.list.A_CmsListDialog#executeListMultiActions()
+     */
+    @Override
+    public void executeListMultiActions() throws CmsRuntimeException {
+
+        throwListUnsupportedActionException();
+    }
+
+    /**
+     * @see org.opencms.workplace.list.A_CmsListDialog#executeListSingleActions()
+     */
+    @Override
+    public void executeListSingleActions() throws CmsRuntimeException {
+
+        throwListUnsupportedActionException();
+    }
+
+    /**
+     * @see org.opencms.workplace.list.A_CmsListDialog#fillDetails(java.lang.String)
+     */
+    @Override
+    protected void fillDetails(String detailId) {
+
+        // no details
+    }
+
+    /**
+     * @see org.opencms.workplace.list.A_CmsListDialog#getListItems()
+     */
+    @Override
+    protected List<CmsListItem> getListItems() {
+
+        List<CmsListItem> ret = new ArrayList<CmsListItem>();
+        for (CmsSqlQueryStatistics stats : OpenCms.getSqlManager().getQueryStatistics()) {
+            CmsListItem item = getList().newItem(stats.getKey());
+            item.set(LIST_COLUMN_KEY, stats.getKey());
+            item.set(LIST_COLUMN_COUNT, new Long(stats.getCount()));
+            item.set(LIST_COLUMN_TOTAL, new Long(stats.getTotalTime()));
+            item.set(LIST_COLUMN_AVERAGE, new Double(Math.round(stats.getAverageTime() * 100) / 100.0));
+            item.set(LIST_COLUMN_MEDIAN, new Long(stats.getMedianTime()));
+            item.set(LIST_COLUMN_P95, new Long(stats.getPercentile95Time()));
+            item.set(LIST_COLUMN_P99, new Long(stats.getPercentile99Time()));
+            item.set(LIST_COLUMN_MAX, new Long(stats.getMaxTime()));
+            item.set(LIST_COLUMN_ROWS, new Long(stats.getRows()));
+            item.set(LIST_COLUMN_ERRORS, new Long(stats.getErrors()));
+            ret.add(item);
+        }
+        return ret;
+    }
+
+    /**
+     * @see org.opencms.workplace.CmsWorkplace#initMessages()
+     */
+    @Override
+    protected void initMessages() {
+
+        // add specific dialog resource bundle
+        addMessages(Messages.get().getBundleName());
+        // add default resource bundles
+        super.initMessages();
+    }
+
+    /**
+     * @see org.opencms.workplace.list.A_CmsListDialog#setColumns(org.opencms.workplace.list.CmsListMetadata)
+     */
+    @Override
+    protected void setColumns(CmsListMetadata metadata) {
+
+        CmsListColumnDefinition keyCol = new CmsListColumnDefinition(LIST_COLUMN_KEY);
+        keyCol.setName(Messages.get().container(Messages.GUI_SQLSTATS_LIST_COLS_KEY_0));
+        keyCol.setWidth("28%");
+        metadata.addColumn(keyCol);
+
+        addNumberColumn(metadata, LIST_COLUMN_COUNT, Messages.GUI_SQLSTATS_LIST_COLS_COUNT_0);
+        addNumberColumn(metadata, LIST_COLUMN_TOTAL, Messages.GUI_SQLSTATS_LIST_COLS_TOTAL_0);
+        addNumberColumn(metadata, LIST_COLUMN_AVERAGE, Messages.GUI_SQLSTATS_LIST_COLS_AVERAGE_0);
+        addNumberColumn(metadata, LIST_COLUMN_MEDIAN, Messages.GUI_SQLSTATS_LIST_COLS_MEDIAN_0);
+        addNumberColumn(metadata, LIST_COLUMN_P95, Messages.GUI_SQLSTATS_LIST_COLS_P95_0);
+        addNumberColumn(metadata, LIST_COLUMN_P99, Messages.GUI_SQLSTATS_LIST_COLS_P99_0);
+        addNumberColumn(metadata, LIST_COLUMN_MAX, Messages.GUI_SQLSTATS_LIST_COLS_MAX_0);
+        addNumberColumn(metadata, LIST_COLUMN_ROWS, Messages.GUI_SQLSTATS_LIST_COLS_ROWS_0);
+        addNumberColumn(metadata, LIST_COLUMN_ERRORS, Messages.GUI_SQLSTATS_LIST_COLS_ERRORS_0);
+    }
+
+    /**
+     * @see org.opencms.workplace.list.A_CmsListDialog#setIndependentActions(org.opencms.workplace.list.CmsListMetadata)
+     */
+    @Override
+    protected void setIndependentActions(CmsListMetadata metadata) {
+
+        CmsListIndependentAction resetAction = new CmsListIndependentAction(LIST_IACTION_RESET);
+        resetAction.setName(Messages.get().container(Messages.GUI_SQLSTATS_IA_RESET_NAME_0));
+        resetAction.setHelpText(Messages.get().container(Messages.GUI_SQLSTATS_IA_RESET_HELP_0));
+        resetAction.setIconPath(ICON_DELETE);
+        metadata.addIndependentAction(resetAction);
+    }
+
+    /**
+     * @see org.opencms.workplace.list.A_CmsListDialog#setMultiActions(org.opencms.workplace.list.CmsListMetadata)
+     */
+    @Override
+    protected void setMultiActions(CmsListMetadata metadata) {
+
+        // no multi actions
+    }
+
+    /**
+     * Adds a right aligned column for a number.<p>
+     *
+     * @param metadata the list metadata
+     * @param id the id of the column
+     * @param nameKey the message key of the column name
+     */
+    private void addNumberColumn(CmsListMetadata metadata, String id, String nameKey) {
+
+        CmsListColumnDefinition col = new CmsListColumnDefinition(id);
+        col.setName(Messages.get().container(nameKey));
+        col.setWidth("8%");
+        col.setAlign(CmsListColumnAlignEnum.ALIGN_RIGHT);
+        metadata.addColumn(col);
+    }
+}
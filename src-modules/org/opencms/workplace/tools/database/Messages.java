@@ -202,6 +202,51 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String GUI_MESSAGEBOX_STATICEXPORT1_0 = "GUI_MESSAGEBOX_STATICEXPORT1_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String GUI_SQLSTATS_ADMIN_TOOL_HELP_0 = "GUI_SQLSTATS_ADMIN_TOOL_HELP_0";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String GUI_SQLSTATS_ADMIN_TOOL_NAME_0 = "GUI_SQLSTATS_ADMIN_TOOL_NAME_0";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String GUI_SQLSTATS_IA_RESET_HELP_0 = "GUI_SQLSTATS_IA_RESET_HELP_0";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String GUI_SQLSTATS_IA_RESET_NAME_0 = "GUI_SQLSTATS_IA_RESET_NAME_0";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String GUI_SQLSTATS_LIST_COLS_AVERAGE_0 = "GUI_SQLSTATS_LIST_COLS_AVERAGE_0";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String GUI_SQLSTATS_LIST_COLS_COUNT_0 = "GUI_SQLSTATS_LIST_COLS_COUNT_0";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String GUI_SQLSTATS_LIST_COLS_ERRORS_0 = "GUI_SQLSTATS_LIST_COLS_ERRORS_0";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String GUI_SQLSTATS_LIST_COLS_KEY_0 = "GUI_SQLSTATS_LIST_COLS_KEY_0";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String GUI_SQLSTATS_LIST_COLS_MAX_0 = "GUI_SQLSTATS_LIST_COLS_MAX_0";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String GUI_SQLSTATS_LIST_COLS_MEDIAN_0 = "GUI_SQLSTATS_LIST_COLS_MEDIAN_0";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String GUI_SQLSTATS_LIST_COLS_P95_0 = "GUI_SQLSTATS_LIST_COLS_P95_0";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String GUI_SQLSTATS_LIST_COLS_P99_0 = "GUI_SQLSTATS_LIST_COLS_P99_0";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String GUI_SQLSTATS_LIST_COLS_ROWS_0 = "GUI_SQLSTATS_LIST_COLS_ROWS_0";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String GUI_SQLSTATS_LIST_COLS_TOTAL_0 = "GUI_SQLSTATS_LIST_COLS_TOTAL_0";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String GUI_SQLSTATS_LIST_NAME_0 = "GUI_SQLSTATS_LIST_NAME_0";
+
     /** Message constant for key in the resource bundle. */
     public static final String GUI_STATEXP_ADMIN_TOOL_HELP_0 = "GUI_STATEXP_ADMIN_TOOL_HELP_0";
 
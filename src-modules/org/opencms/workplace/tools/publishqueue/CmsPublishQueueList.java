@@ -285,10 +285,11 @@ public class CmsPublishQueueList extends A_CmsListDialog {
         // number of jobs in list
         int number = 1;
 
-        // get the current job to display it at the top of the publish queue
+        // get the running jobs to display them at the top of the publish queue
         if (OpenCms.getPublishManager().isRunning()) {
-            CmsPublishJobRunning currentJob = OpenCms.getPublishManager().getCurrentPublishJob();
-            if (currentJob != null) {
+            Iterator itRunning = OpenCms.getPublishManager().getRunningPublishJobs().iterator();
+            while (itRunning.hasNext()) {
+                CmsPublishJobRunning currentJob = (CmsPublishJobRunning)itRunning.next();
                 CmsListItem item = getList().newItem(currentJob.getPublishList().getPublishHistoryId().toString());
                 item.set(LIST_COLUMN_STATE, new Integer(STATE_PROCEED));
                 item.set(LIST_COLUMN_NUMBER, new Integer(number));
@@ -44,6 +44,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 
@@ -83,6 +84,9 @@ public class CmsADEConfigCacheState {
     /** The configurations from the sitemap / VFS. */
     private Map<String, CmsADEConfigDataInternal> m_siteConfigurationsByPath = new HashMap<String, CmsADEConfigDataInternal>();
 
+    /** The configuration objects which have already been created for this state, by the wrapped configuration bean. */
+    private Map<CmsADEConfigDataInternal, CmsADEConfigData> m_wrappedConfigurations = new ConcurrentHashMap<CmsADEConfigDataInternal, CmsADEConfigData>();
+
     /**
      * Creates a new configuration cache state.<p>
      *
@@ -481,13 +485,13 @@ public class CmsADEConfigCacheState {
     }
 
     /**
-     * Wraps the internal config data into a bean which manages the lookup of inherited configurations.<p>
+     * Creates a new bean which manages the lookup of inherited configurations for the internal config data.<p>
      *
      * @param data the config data to wrap
      *
      * @return the wrapper object
      */
-    private CmsADEConfigData wrap(CmsADEConfigDataInternal data) {
+    private CmsADEConfigData createWrapper(CmsADEConfigDataInternal data) {
 
         String path = data.getBasePath();
         List<CmsADEConfigDataInternal> configList = Lists.newArrayList();
@@ -515,4 +519,24 @@ public class CmsADEConfigCacheState {
         }
         return new CmsADEConfigData(data, this, new CmsADEConfigurationSequence(configList));
     }
+
+    /**
+     * Wraps the internal config data into a bean which manages the lookup of inherited configurations.<p>
+     *
+     * The wrapper is created only once per cache state, so the merged configuration of a sub-sitemap is
+     * computed once and then shared until the state is replaced.<p>
+     *
+     * @param data the config data to wrap
+     *
+     * @return the wrapper object
+     */
+    private CmsADEConfigData wrap(CmsADEConfigDataInternal data) {
+
+        CmsADEConfigData result = m_wrappedConfigurations.get(data);
+        if (result == null) {
+            result = createWrapper(data);
+            m_wrappedConfigurations.put(data, result);
+        }
+        return result;
+    }
 }
@@ -40,6 +40,7 @@ import org.opencms.loader.CmsLoaderException;
 import org.opencms.main.CmsException;
 import org.opencms.main.CmsLog;
 import org.opencms.main.OpenCms;
+import org.opencms.util.CmsPair;
 import org.opencms.util.CmsStringUtil;
 import org.opencms.util.CmsUUID;
 import org.opencms.xml.CmsXmlContentDefinition;
@@ -175,16 +176,37 @@ public class CmsADEConfigData {
     /** The wrapped configuration bean containing the actual data. */
     protected CmsADEConfigDataInternal m_data;
 
+    /** The cached active external formatters, together with the formatter cache state they were computed from. */
+    private volatile CmsPair<CmsFormatterConfigurationCacheState, Map<CmsUUID, I_CmsFormatterBean>> m_activeFormatters;
+
     /** The cache state to which the wrapped configuration bean belongs. */
     private CmsADEConfigCacheState m_cache;
 
     /** The configuration sequence (contains the list of all sitemap configuration data beans to be used for inheritance). */
     private CmsADEConfigurationSequence m_configSequence;
 
+    /** The cached parent configuration. */
+    private volatile Optional<CmsADEConfigData> m_parentConfig;
+
+    /** The cached property configuration. */
+    private volatile List<CmsPropertyConfig> m_propertyConfiguration;
+
+    /** The cached property configuration by property name. */
+    private volatile Map<String, CmsXmlContentProperty> m_propertyConfigurationMap;
+
+    /** The cached resource type configurations. */
+    private volatile List<CmsResourceTypeConfig> m_resourceTypes;
+
+    /** The cached resource type configurations by type name. */
+    private volatile Map<String, CmsResourceTypeConfig> m_resourceTypesByName;
+
     /**
      * Creates a new configuration data object, based on an internal configuration data bean and a
      * configuration cache state.<p>
      *
+     * Configuration data objects which belong to a cache state are shared by all requests until the
+     * cache state is replaced, so the merged results of the inheritance chain are only computed once.<p>
+     *
      * @param data the internal configuration data bean
      * @param cache the configuration cache state
      * @param configSequence the configuration sequence
@@ -291,8 +313,17 @@ public class CmsADEConfigData {
     public Map<CmsUUID, I_CmsFormatterBean> getActiveFormatters() {
 
         CmsFormatterConfigurationCacheState cacheState = getCachedFormatters();
+        CmsPair<CmsFormatterConfigurationCacheState, Map<CmsUUID, I_CmsFormatterBean>> cached = m_activeFormatters;
+        if ((cached != null) && (cached.getFirst() == cacheState)) {
+            return cached.getSecond();
+        }
         Map<CmsUUID, I_CmsFormatterBean> result = Maps.newHashMap(cacheState.getAutoEnabledFormatters());
         applyAllFormatterChanges(result, cacheState);
+        if (isMemoized()) {
+            // the formatter cache is updated independently of the ADE configuration, so remember which state was used
+            result = Collections.unmodifiableMap(result);
+            m_activeFormatters = CmsPair.create(cacheState, result);
+        }
         return result;
     }
 
@@ -636,6 +667,10 @@ public class CmsADEConfigData {
      */
     public List<CmsPropertyConfig> getPropertyConfiguration() {
 
+        List<CmsPropertyConfig> cached = m_propertyConfiguration;
+        if (cached != null) {
+            return cached;
+        }
         CmsADEConfigData parentData = parent();
         List<CmsPropertyConfig> parentProperties;
         if ((parentData != null) && !m_data.isDiscardInheritedProperties()) {
@@ -647,6 +682,10 @@ public class CmsADEConfigData {
             parentProperties,
             m_data.getOwnPropertyConfigurations(),
             false);
+        if (isMemoized()) {
+            result = Collections.unmodifiableList(result);
+            m_propertyConfiguration = result;
+        }
         return result;
     }
 
@@ -657,10 +696,18 @@ public class CmsADEConfigData {
      */
     public Map<String, CmsXmlContentProperty> getPropertyConfigurationAsMap() {
 
-        Map<String, CmsXmlContentProperty> result = new LinkedHashMap<String, CmsXmlContentProperty>();
+        Map<String, CmsXmlContentProperty> result = m_propertyConfigurationMap;
+        if (result != null) {
+            return result;
+        }
+        result = new LinkedHashMap<String, CmsXmlContentProperty>();
         for (CmsPropertyConfig propConf : getPropertyConfiguration()) {
             result.put(propConf.getName(), propConf.getPropertyData());
         }
+        if (isMemoized()) {
+            result = Collections.unmodifiableMap(result);
+            m_propertyConfigurationMap = result;
+        }
         return result;
     }
 
@@ -683,6 +730,11 @@ public class CmsADEConfigData {
      */
     public CmsResourceTypeConfig getResourceType(String typeName) {
 
+        if (isMemoized()) {
+            // makes sure the type map has been computed
+            getResourceTypes();
+            return m_resourceTypesByName.get(typeName);
+        }
         for (CmsResourceTypeConfig type : getResourceTypes()) {
             if (typeName.equals(type.getTypeName())) {
                 return type;
@@ -698,10 +750,26 @@ public class CmsADEConfigData {
      */
     public List<CmsResourceTypeConfig> getResourceTypes() {
 
-        List<CmsResourceTypeConfig> result = internalGetResourceTypes(true);
+        List<CmsResourceTypeConfig> result = m_resourceTypes;
+        if (result != null) {
+            return result;
+        }
+        result = internalGetResourceTypes(true);
         for (CmsResourceTypeConfig config : result) {
             config.initialize(getCms());
         }
+        if (isMemoized()) {
+            Map<String, CmsResourceTypeConfig> typesByName = new HashMap<String, CmsResourceTypeConfig>();
+            for (CmsResourceTypeConfig config : result) {
+                if (!typesByName.containsKey(config.getTypeName())) {
+                    typesByName.put(config.getTypeName(), config);
+                }
+            }
+            // the map must be visible before the list, since getResourceType() relies on it
+            m_resourceTypesByName = typesByName;
+            result = Collections.unmodifiableList(result);
+            m_resourceTypes = result;
+        }
         return result;
     }
 
@@ -869,13 +937,20 @@ public class CmsADEConfigData {
      */
     public CmsADEConfigData parent() {
 
-        Optional<CmsADEConfigurationSequence> parentPath = m_configSequence.getParent();
-        if (parentPath.isPresent()) {
-            CmsADEConfigDataInternal internalData = parentPath.get().getConfig();
-            return new CmsADEConfigData(internalData, m_cache, parentPath.get());
-        } else {
-            return null;
+        Optional<CmsADEConfigData> parentConfig = m_parentConfig;
+        if (parentConfig == null) {
+            Optional<CmsADEConfigurationSequence> parentPath = m_configSequence.getParent();
+            if (parentPath.isPresent()) {
+                CmsADEConfigDataInternal internalData = parentPath.get().getConfig();
+                parentConfig = Optional.of(new CmsADEConfigData(internalData, m_cache, parentPath.get()));
+            } else {
+                parentConfig = Optional.absent();
+            }
+            if (isMemoized()) {
+                m_parentConfig = parentConfig;
+            }
         }
+        return parentConfig.orNull();
     }
 
     /**
@@ -1145,4 +1220,17 @@ public class CmsADEConfigData {
         }
         return result;
     }
+
+    /**
+     * Checks whether the merged results of this configuration can be cached.<p>
+     *
+     * This is the case for configuration objects which belong to a cache state, since the cache state
+     * is immutable and replaced as a whole when the configuration changes.<p>
+     *
+     * @return <code>true</code> if the merged results of this configuration can be cached
+     */
+    private boolean isMemoized() {
+
+        return m_cache != null;
+    }
 }
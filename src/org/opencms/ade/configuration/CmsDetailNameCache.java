@@ -53,6 +53,10 @@ import com.google.common.collect.Sets;
 
 /**
  * A cache which stores structure ids for URL names.<p>
+ *
+ * Changes are applied to the map of URL names in place, so an update only touches the entries
+ * of the changed resources. Only a complete reload creates a new map. The map is registered with
+ * the memory monitor, which reports its size; the time needed for the updates is logged.<p>
  */
 public class CmsDetailNameCache implements I_CmsGlobalConfigurationCache {
 
@@ -65,8 +69,11 @@ public class CmsDetailNameCache implements I_CmsGlobalConfigurationCache {
     /** The CMS context used by this cache. */
     private CmsObject m_cms;
 
-    /** The internal map from URL names to structure ids. */
-    private CmsManyToOneMap<String, CmsUUID> m_detailIdCache = new CmsManyToOneMap<String, CmsUUID>();
+    /** The internal map from URL names to structure ids, only changed by the thread executing the updates. */
+    private volatile CmsManyToOneMap<String, CmsUUID> m_detailIdCache = new CmsManyToOneMap<String, CmsUUID>();
+
+    /** The duration of the last update in milliseconds. */
+    private volatile long m_lastUpdateMillis;
 
     /** The set of structure ids for which the URL names have to be updated. */
     private Set<CmsUUID> m_updateSet = Sets.newHashSet();
@@ -101,6 +108,26 @@ public class CmsDetailNameCache implements I_CmsGlobalConfigurationCache {
         return m_detailIdCache.get(name);
     }
 
+    /**
+     * Returns the duration of the last update or reload in milliseconds.<p>
+     *
+     * @return the duration of the last update
+     */
+    public long getLastUpdateMillis() {
+
+        return m_lastUpdateMillis;
+    }
+
+    /**
+     * Returns the number of URL names in the cache.<p>
+     *
+     * @return the number of URL names
+     */
+    public int getSize() {
+
+        return m_detailIdCache.size();
+    }
+
     /**
      * Initializes the cache by scheduling the update actions and loading the initial cache contents.<p>
      */
@@ -165,15 +192,16 @@ public class CmsDetailNameCache implements I_CmsGlobalConfigurationCache {
                 reload();
             } else {
                 LOG.info("Updating detail name cache. Number of changed files: " + copiedIds.size());
-                CmsManyToOneMap<String, CmsUUID> cacheCopy = new CmsManyToOneMap<String, CmsUUID>(m_detailIdCache);
+                long start = System.currentTimeMillis();
                 for (CmsUUID id : copiedIds) {
-                    Set<String> urlNames = getUrlNames(id);
-                    cacheCopy.removeValue(id);
-                    for (String urlName : urlNames) {
-                        cacheCopy.put(urlName, id);
-                    }
+                    m_detailIdCache.replaceKeys(id, getUrlNames(id));
                 }
-                m_detailIdCache = cacheCopy;
+                m_lastUpdateMillis = System.currentTimeMillis() - start;
+                LOG.info(
+                    "Updated detail name cache in "
+                        + m_lastUpdateMillis
+                        + " ms. Number of URL names: "
+                        + m_detailIdCache.size());
             }
         }
     }
@@ -234,12 +262,18 @@ public class CmsDetailNameCache implements I_CmsGlobalConfigurationCache {
 
         CmsManyToOneMap<String, CmsUUID> newMap = new CmsManyToOneMap<String, CmsUUID>();
         try {
+            long start = System.currentTimeMillis();
             List<CmsUrlNameMappingEntry> mappings = m_cms.readUrlNameMappings(CmsUrlNameMappingFilter.ALL);
             LOG.info("Initializing detail name cache with " + mappings.size() + " entries");
             for (CmsUrlNameMappingEntry entry : mappings) {
                 newMap.put(entry.getName(), entry.getStructureId());
             }
             m_detailIdCache = newMap;
+            m_lastUpdateMillis = System.currentTimeMillis() - start;
+            OpenCms.getMemoryMonitor().register(
+                CmsDetailNameCache.class.getName()
+                    + (m_cms.getRequestContext().getCurrentProject().isOnlineProject() ? ".online" : ".offline"),
+                newMap.getForwardMap());
         } catch (Exception e) {
             LOG.error(e.getLocalizedMessage(), e);
         }
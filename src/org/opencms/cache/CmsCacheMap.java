@@ -0,0 +1,525 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Lock;
+
+import com.google.common.base.Predicate;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ForwardingConcurrentMap;
+import com.google.common.util.concurrent.Striped;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Concurrent cache with a map interface, used for the caches of the OpenCms core.<p>
+ *
+ * The cache is based on a segmented guava cache, so reads do not block and writes only lock
+ * one segment. Entries are evicted in least recently used order, either when the configured
+ * number of entries is reached, or when the total weight of the entries exceeds the configured
+ * maximum weight.<p>
+ *
+ * Caches limited by weight use a single segment, because guava divides the maximum weight
+ * among the segments and would evict every entry heavier than the share of its segment,
+ * e.g. a long resource list, right after it has been added.<p>
+ *
+ * In contrast to the plain map view of a guava cache, lookups with {@link #get(Object)} are
+ * counted in the cache statistics, which also contain the number of evictions and the time
+ * spent in loading values with {@link #get(Object, Callable)}.<p>
+ *
+ * Entries added with {@link #put(Object, Object, Collection)} record the dependencies they were
+ * calculated from, e.g. the ids or paths of resources. When one of these changes, only the
+ * entries depending on it are removed with {@link #invalidateDependents(String)}.<p>
+ *
+ * A value read from its source can only be cached safely if no invalidation happened since it was read.
+ * Callers therefore take a {@link #snapshot()} before reading the value and pass it to
+ * {@link #put(Object, Object, Collection, long[])}, which drops the value if one of its dependencies
+ * has been invalidated in the meantime.<p>
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ *
+ * @since 10.5.0
+ */
+public class CmsCacheMap<K, V> extends ForwardingConcurrentMap<K, V> {
+
+    /**
+     * The dependencies of a cached value.<p>
+     *
+     * @param <V> the type of the value
+     */
+    private static class Registration<V> {
+
+        /** The dependencies. */
+        Collection<String> m_dependencies;
+
+        /** The cached value. */
+        V m_value;
+
+        /**
+         * Creates a new registration.<p>
+         *
+         * @param value the cached value
+         * @param dependencies the dependencies of the value
+         */
+        Registration(V value, Collection<String> dependencies) {
+
+            m_value = value;
+            m_dependencies = dependencies;
+        }
+    }
+
+    /**
+     * Removes the dependencies of evicted or removed entries.<p>
+     */
+    private class DependencyCleaner implements RemovalListener<K, V> {
+
+        /**
+         * Creates a new dependency cleaner.<p>
+         */
+        DependencyCleaner() {
+
+            // nothing to do
+        }
+
+        /**
+         * @see com.google.common.cache.RemovalListener#onRemoval(com.google.common.cache.RemovalNotification)
+         */
+        public void onRemoval(RemovalNotification<K, V> notification) {
+
+            if (m_removalListener != null) {
+                m_removalListener.onRemoval(notification);
+            }
+            K key = notification.getKey();
+            if ((key == null) || m_registrations.isEmpty()) {
+                return;
+            }
+            Registration<V> registration = m_registrations.get(key);
+            if ((registration == null) || (registration.m_value != notification.getValue())) {
+                // the entry has been cached again with new dependencies
+                return;
+            }
+            if ((notification.getCause() == RemovalCause.REPLACED) && (m_map.get(key) == registration.m_value)) {
+                // the same value has been cached again
+                return;
+            }
+            unregister(key, registration);
+        }
+    }
+
+    /** The number of segments of the cache. */
+    public static final int CONCURRENCY_LEVEL = 8;
+
+    /** The number of lock stripes for the dependency index. */
+    private static final int LOCK_STRIPES = 64;
+
+    /** The wrapped guava cache. */
+    private Cache<K, V> m_cache;
+
+    /** The keys of the entries depending on a dependency, with the dependency as key. */
+    private ConcurrentMap<String, Set<K>> m_dependents;
+
+    /** The invalidation counters of the dependencies, each shared by the dependencies of one hash bucket. */
+    private AtomicLongArray m_generations;
+
+    /** The locks for the dependency index. */
+    private Striped<Lock> m_locks;
+
+    /** The map view of the wrapped cache. */
+    private ConcurrentMap<K, V> m_map;
+
+    /** The maximum number of entries, or -1 if the cache is not limited by size. */
+    private long m_maxSize;
+
+    /** The maximum total weight of the entries, or -1 if the cache is not limited by weight. */
+    private long m_maxWeight;
+
+    /** The dependencies of the cached entries, with the cache key as key. */
+    private ConcurrentMap<K, Registration<V>> m_registrations;
+
+    /** The additional listener for removed entries, or <code>null</code>. */
+    private RemovalListener<K, V> m_removalListener;
+
+    /**
+     * Creates a new cache.<p>
+     *
+     * @param maxSize the maximum number of entries, or a negative value for an unlimited cache
+     */
+    public CmsCacheMap(long maxSize) {
+
+        this(maxSize, (RemovalListener<K, V>)null);
+    }
+
+    /**
+     * Creates a new cache which notifies a listener about removed entries.<p>
+     *
+     * The listener is called for evicted entries as well as for entries which are removed
+     * or replaced explicitly, after the lock of the cache segment has been released.<p>
+     *
+     * @param maxSize the maximum number of entries, or a negative value for an unlimited cache
+     * @param removalListener the listener for removed entries, may be <code>null</code>
+     */
+    public CmsCacheMap(long maxSize, RemovalListener<K, V> removalListener) {
+
+        m_removalListener = removalListener;
+        initDependencies();
+        CacheBuilder<K, V> builder = CacheBuilder.newBuilder().concurrencyLevel(
+            CONCURRENCY_LEVEL).recordStats().removalListener(new DependencyCleaner());
+        if (maxSize >= 0) {
+            builder.maximumSize(maxSize);
+            m_maxSize = maxSize;
+        } else {
+            m_maxSize = -1;
+        }
+        m_maxWeight = -1;
+        m_cache = builder.build();
+        m_map = m_cache.asMap();
+    }
+
+    /**
+     * Creates a new cache limited by the total weight of its entries.<p>
+     *
+     * Any entry not heavier than the maximum weight can be cached.<p>
+     *
+     * @param maxWeight the maximum total weight of the entries
+     * @param weigher the weigher which calculates the weight of an entry
+     */
+    public CmsCacheMap(long maxWeight, Weigher<? super K, ? super V> weigher) {
+
+        initDependencies();
+        m_maxSize = -1;
+        m_maxWeight = maxWeight;
+        // one segment, so the whole weight is available for each entry
+        CacheBuilder<K, V> builder = CacheBuilder.newBuilder().concurrencyLevel(1).recordStats().removalListener(
+            new DependencyCleaner());
+        m_cache = builder.maximumWeight(maxWeight).weigher(weigher).build();
+        m_map = m_cache.asMap();
+    }
+
+    /**
+     * @see com.google.common.collect.ForwardingMap#clear()
+     */
+    @Override
+    public void clear() {
+
+        // lets the callers which have read a value before the clear detect it
+        for (int i = 0; i < m_generations.length(); i++) {
+            m_generations.incrementAndGet(i);
+        }
+        super.clear();
+    }
+
+    /**
+     * Returns the cached value for the given key, if necessary loading it with the given loader.<p>
+     *
+     * Concurrent requests for the same missing key wait for the first loader instead of
+     * loading the value again.<p>
+     *
+     * @param key the key
+     * @param loader the loader for a missing value, must not return <code>null</code>
+     *
+     * @return the cached or loaded value
+     *
+     * @throws Exception the exception thrown by the loader
+     */
+    public V get(K key, Callable<? extends V> loader) throws Exception {
+
+        try {
+            return m_cache.get(key, loader);
+        } catch (ExecutionException e) {
+            throw (Exception)e.getCause();
+        } catch (UncheckedExecutionException e) {
+            throw (RuntimeException)e.getCause();
+        }
+    }
+
+    /**
+     * @see com.google.common.collect.ForwardingMap#get(java.lang.Object)
+     */
+    @Override
+    public V get(Object key) {
+
+        if (key == null) {
+            return null;
+        }
+        return m_cache.getIfPresent(key);
+    }
+
+    /**
+     * Returns the maximum number of entries.<p>
+     *
+     * @return the maximum number of entries, or -1 if the cache is not limited by size
+     */
+    public long getMaxSize() {
+
+        return m_maxSize;
+    }
+
+    /**
+     * Returns the maximum total weight of the entries.<p>
+     *
+     * @return the maximum total weight, or -1 if the cache is not limited by weight
+     */
+    public long getMaxWeight() {
+
+        return m_maxWeight;
+    }
+
+    /**
+     * Returns a snapshot of the statistics of this cache.<p>
+     *
+     * @return the cache statistics
+     */
+    public CacheStats getStats() {
+
+        return m_cache.stats();
+    }
+
+    /**
+     * Removes all entries with the given keys.<p>
+     *
+     * @param keys the keys to remove
+     */
+    public void invalidate(Iterable<?> keys) {
+
+        m_cache.invalidateAll(keys);
+    }
+
+    /**
+     * Removes all entries which depend on the given dependency.<p>
+     *
+     * @param dependency the dependency which has changed
+     *
+     * @return the number of removed entries
+     */
+    public int invalidateDependents(String dependency) {
+
+        Set<K> keys;
+        Lock lock = m_locks.get(dependency);
+        lock.lock();
+        try {
+            // lets a concurrent put detect that it may have been missed
+            m_generations.incrementAndGet(getGenerationIndex(dependency));
+            keys = m_dependents.remove(dependency);
+        } finally {
+            lock.unlock();
+        }
+        if (keys == null) {
+            return 0;
+        }
+        int count = 0;
+        for (K key : keys) {
+            if (m_map.remove(key) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Removes all entries whose key matches the given predicate.<p>
+     *
+     * The other entries stay in the cache, which makes this the better choice than
+     * {@link #clear()} if the keys affected by a change can be identified.<p>
+     *
+     * @param predicate the predicate for the keys to remove
+     *
+     * @return the number of removed entries
+     */
+    public int invalidateIf(Predicate<? super K> predicate) {
+
+        int count = 0;
+        Iterator<K> it = m_map.keySet().iterator();
+        while (it.hasNext()) {
+            if (predicate.apply(it.next())) {
+                it.remove();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Caches a value together with the dependencies it was calculated from.<p>
+     *
+     * Only invalidations of the dependencies while the value is added are detected. Use
+     * {@link #put(Object, Object, Collection, long[])} for values read from a source which may change
+     * before the value is added.<p>
+     *
+     * @param key the key
+     * @param value the value
+     * @param dependencies the dependencies of the value
+     *
+     * @return the previous value, or <code>null</code>
+     *
+     * @see #invalidateDependents(String)
+     */
+    public V put(K key, V value, Collection<String> dependencies) {
+
+        return put(key, value, dependencies, snapshot());
+    }
+
+    /**
+     * Caches a value together with the dependencies it was calculated from.<p>
+     *
+     * If one of the dependencies has been invalidated since the given snapshot was taken,
+     * or the cache has been cleared, the value is removed again, since it may be stale
+     * and the invalidation may have missed it.<p>
+     *
+     * @param key the key
+     * @param value the value
+     * @param dependencies the dependencies of the value
+     * @param snapshot the snapshot taken before the value was read
+     *
+     * @return the previous value, or <code>null</code>
+     *
+     * @see #snapshot()
+     */
+    public V put(K key, V value, Collection<String> dependencies, long[] snapshot) {
+
+        Registration<V> registration = new Registration<V>(value, dependencies);
+        // the registration must be replaced before the dependencies are added,
+        // so the cleanup of a concurrently removed old value does not remove them again
+        m_registrations.put(key, registration);
+        for (String dependency : dependencies) {
+            Lock lock = m_locks.get(dependency);
+            lock.lock();
+            try {
+                Set<K> keys = m_dependents.get(dependency);
+                if (keys == null) {
+                    keys = Collections.newSetFromMap(new ConcurrentHashMap<K, Boolean>());
+                    m_dependents.put(dependency, keys);
+                }
+                keys.add(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+        V previous = m_map.put(key, value);
+        for (String dependency : dependencies) {
+            int index = getGenerationIndex(dependency);
+            if (m_generations.get(index) != snapshot[index]) {
+                m_map.remove(key, value);
+                break;
+            }
+        }
+        return previous;
+    }
+
+    /**
+     * Returns a snapshot of the invalidation counters.<p>
+     *
+     * The snapshot must be taken before a value is read from its source, and passed to
+     * {@link #put(Object, Object, Collection, long[])} together with the value.<p>
+     *
+     * @return the snapshot of the invalidation counters
+     */
+    public long[] snapshot() {
+
+        long[] snapshot = new long[m_generations.length()];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = m_generations.get(i);
+        }
+        return snapshot;
+    }
+
+    /**
+     * @see com.google.common.collect.ForwardingConcurrentMap#delegate()
+     */
+    @Override
+    protected ConcurrentMap<K, V> delegate() {
+
+        return m_map;
+    }
+
+    /**
+     * Returns the index of the invalidation counter of a dependency.<p>
+     *
+     * @param dependency the dependency
+     *
+     * @return the index of the invalidation counter
+     */
+    private int getGenerationIndex(String dependency) {
+
+        return (dependency.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES;
+    }
+
+    /**
+     * Initializes the dependency index.<p>
+     */
+    private void initDependencies() {
+
+        m_dependents = new ConcurrentHashMap<String, Set<K>>();
+        m_generations = new AtomicLongArray(LOCK_STRIPES);
+        m_registrations = new ConcurrentHashMap<K, Registration<V>>();
+        m_locks = Striped.lock(LOCK_STRIPES);
+    }
+
+    /**
+     * Removes the dependencies of a removed entry from the dependency index.<p>
+     *
+     * @param key the key of the removed entry
+     * @param registration the dependencies of the removed entry
+     */
+    void unregister(K key, Registration<V> registration) {
+
+        for (String dependency : registration.m_dependencies) {
+            Lock lock = m_locks.get(dependency);
+            lock.lock();
+            try {
+                // the entry may have been cached again in the meantime, with new dependencies
+                if (m_registrations.get(key) == registration) {
+                    Set<K> keys = m_dependents.get(dependency);
+                    if (keys != null) {
+                        keys.remove(key);
+                        if (keys.isEmpty()) {
+                            m_dependents.remove(dependency);
+                        }
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        m_registrations.remove(key, registration);
+    }
+}
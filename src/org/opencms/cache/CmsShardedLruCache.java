@@ -0,0 +1,181 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.cache;
+
+/**
+ * LRU cache which is split into a number of independently locked shards.<p>
+ *
+ * Every cached object is always handled by the same shard, selected by its identity hash code.
+ * Each shard is a {@link CmsLruCache} with an equal part of the maximum cache costs, so threads
+ * adding, touching or removing different objects usually do not wait for each other, and a
+ * garbage collection run only locks the shard which exceeds its costs.<p>
+ *
+ * Since every shard evicts on its own, the least recently used objects are only removed
+ * approximately in the global LRU order.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsShardedLruCache extends CmsLruCache {
+
+    /** The shards of this cache. */
+    private CmsLruCache[] m_shards;
+
+    /**
+     * Creates a new sharded LRU cache.<p>
+     *
+     * @param theMaxCacheCosts the maximum cache costs of all cached objects
+     * @param theAvgCacheCosts the average cache costs of all cached objects
+     * @param theMaxObjectCosts the maximum allowed cache costs per object, or -1 for no limit
+     * @param shardCount the number of shards
+     */
+    public CmsShardedLruCache(long theMaxCacheCosts, long theAvgCacheCosts, int theMaxObjectCosts, int shardCount) {
+
+        super(theMaxCacheCosts, theAvgCacheCosts, theMaxObjectCosts);
+        int count = Math.max(1, shardCount);
+        m_shards = new CmsLruCache[count];
+        for (int i = 0; i < count; i++) {
+            m_shards[i] = new CmsLruCache(theMaxCacheCosts / count, theAvgCacheCosts / count, theMaxObjectCosts);
+        }
+    }
+
+    /**
+     * @see org.opencms.cache.CmsLruCache#add(org.opencms.cache.I_CmsLruCacheObject)
+     */
+    @Override
+    public boolean add(I_CmsLruCacheObject theCacheObject) {
+
+        if (theCacheObject == null) {
+            return false;
+        }
+        return getShard(theCacheObject).add(theCacheObject);
+    }
+
+    /**
+     * Removes all cached objects in this cache, one shard after the other.<p>
+     *
+     * @see org.opencms.cache.CmsLruCache#clear()
+     */
+    @Override
+    public void clear() {
+
+        for (int i = 0; i < m_shards.length; i++) {
+            m_shards[i].clear();
+        }
+    }
+
+    /**
+     * @see org.opencms.cache.CmsLruCache#getObjectCosts()
+     */
+    @Override
+    public int getObjectCosts() {
+
+        int costs = 0;
+        for (int i = 0; i < m_shards.length; i++) {
+            costs += m_shards[i].getObjectCosts();
+        }
+        return costs;
+    }
+
+    /**
+     * Returns the number of shards of this cache.<p>
+     *
+     * @return the number of shards
+     */
+    public int getShardCount() {
+
+        return m_shards.length;
+    }
+
+    /**
+     * @see org.opencms.cache.CmsLruCache#remove(org.opencms.cache.I_CmsLruCacheObject)
+     */
+    @Override
+    public I_CmsLruCacheObject remove(I_CmsLruCacheObject theCacheObject) {
+
+        if (theCacheObject == null) {
+            return null;
+        }
+        return getShard(theCacheObject).remove(theCacheObject);
+    }
+
+    /**
+     * @see org.opencms.cache.CmsLruCache#size()
+     */
+    @Override
+    public int size() {
+
+        int size = 0;
+        for (int i = 0; i < m_shards.length; i++) {
+            size += m_shards[i].size();
+        }
+        return size;
+    }
+
+    /**
+     * @see org.opencms.cache.CmsLruCache#toString()
+     */
+    @Override
+    public String toString() {
+
+        StringBuffer buf = new StringBuffer();
+        buf.append("max. costs: " + getMaxCacheCosts()).append(", ");
+        buf.append("avg. costs: " + getAvgCacheCosts()).append(", ");
+        buf.append("max. costs/object: " + getMaxObjectCosts()).append(", ");
+        buf.append("costs: " + getObjectCosts()).append(", ");
+        buf.append("count: " + size()).append(", ");
+        buf.append("shards: " + m_shards.length);
+        return buf.toString();
+    }
+
+    /**
+     * @see org.opencms.cache.CmsLruCache#touch(org.opencms.cache.I_CmsLruCacheObject)
+     */
+    @Override
+    public boolean touch(I_CmsLruCacheObject theCacheObject) {
+
+        if (theCacheObject == null) {
+            return false;
+        }
+        return getShard(theCacheObject).touch(theCacheObject);
+    }
+
+    /**
+     * Returns the shard responsible for the given object.<p>
+     *
+     * @param theCacheObject the cache object
+     *
+     * @return the shard of the object
+     */
+    private CmsLruCache getShard(I_CmsLruCacheObject theCacheObject) {
+
+        int hash = System.identityHashCode(theCacheObject);
+        // spread the bits, the lower bits of identity hash codes are not well distributed on all VMs
+        hash ^= (hash >>> 16);
+        return m_shards[(hash & 0x7fffffff) % m_shards.length];
+    }
+}
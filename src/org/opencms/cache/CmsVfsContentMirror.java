@@ -0,0 +1,378 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.cache;
+
+import org.opencms.db.CmsPublishedResource;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsResource;
+import org.opencms.main.CmsEvent;
+import org.opencms.main.CmsException;
+import org.opencms.main.CmsLog;
+import org.opencms.main.I_CmsEventListener;
+import org.opencms.main.OpenCms;
+import org.opencms.util.CmsFileUtil;
+import org.opencms.util.CmsUUID;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Mirrors the content of large online VFS files in the RFS.<p>
+ *
+ * The mirrored files are written by streaming the content from the database, and can then be
+ * delivered with {@link java.nio.channels.FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)},
+ * so the content of a large file never has to be held in memory.<p>
+ *
+ * The name of a mirror file is made of the resource id and the date the content was last changed,
+ * so a new content version is mirrored to a new file, which replaces the files of the older versions.
+ * Only resources of the online project are mirrored, since the offline contents change frequently
+ * during editing.<p>
+ *
+ * After publishing, the mirror files of all published files are deleted, so the content of deleted
+ * resources does not stay in the RFS, and the content of changed resources is mirrored again
+ * on the next request.<p>
+ *
+ * Concurrent requests for a file which is not mirrored yet wait for the first request writing
+ * the mirror file, so the content is read from the database only once.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsVfsContentMirror implements I_CmsEventListener {
+
+    /** The suffix of the temporary files used while a mirror file is written. */
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsVfsContentMirror.class);
+
+    /** The OpenCms user context used to read the published resources, or <code>null</code> if not initialized. */
+    private volatile CmsObject m_cms;
+
+    /** The minimum size of files which are mirrored. */
+    private long m_minSize;
+
+    /** The absolute path of the mirror repository in the RFS. */
+    private String m_rfsRepository;
+
+    /** The mirror files currently written, with the RFS name of the mirror file as key. */
+    private ConcurrentMap<String, FutureTask<File>> m_writeTasks = new ConcurrentHashMap<String, FutureTask<File>>();
+
+    /**
+     * Creates a new content mirror.<p>
+     *
+     * @param basepath the base path for the mirror in the RFS
+     * @param foldername the folder name for the mirror, to be used a sub-folder for the base folder
+     * @param minSize the minimum size in bytes of files which are mirrored
+     */
+    public CmsVfsContentMirror(String basepath, String foldername, long minSize) {
+
+        m_rfsRepository = CmsFileUtil.normalizePath(basepath + foldername + File.separatorChar);
+        m_minSize = minSize;
+    }
+
+    /**
+     * @see org.opencms.main.I_CmsEventListener#cmsEvent(org.opencms.main.CmsEvent)
+     */
+    public void cmsEvent(CmsEvent event) {
+
+        if ((event.getType() != I_CmsEventListener.EVENT_PUBLISH_PROJECT) || (m_cms == null)) {
+            return;
+        }
+        Object publishHistoryId = event.getData().get(I_CmsEventListener.KEY_PUBLISHID);
+        if (publishHistoryId == null) {
+            return;
+        }
+        try {
+            for (CmsPublishedResource pubRes : m_cms.readPublishedResources(new CmsUUID((String)publishHistoryId))) {
+                if (pubRes.isFile()) {
+                    removeFiles(pubRes.getResourceId());
+                }
+            }
+        } catch (CmsException e) {
+            LOG.error(
+                Messages.get().getBundle().key(Messages.LOG_CONTENT_MIRROR_READ_PUBLISHED_FAILED_1, publishHistoryId),
+                e);
+        }
+    }
+
+    /**
+     * Returns the mirror file with the content of the given resource.<p>
+     *
+     * If the resource is not mirrored yet, its content is written to the mirror first.
+     * Concurrent requests for the same content wait until it has been written.
+     * If the resource is not mirrored at all, or the mirror file can not be written,
+     * <code>null</code> is returned and the content must be read from the VFS.<p>
+     *
+     * @param cms the current users OpenCms context
+     * @param resource the resource to get the mirror file for
+     *
+     * @return the mirror file with the content of the resource, or <code>null</code>
+     *
+     * @throws CmsException if the content of the resource could not be read from the VFS
+     */
+    public File getFile(final CmsObject cms, final CmsResource resource) throws CmsException {
+
+        if (!isMirrored(cms, resource)) {
+            return null;
+        }
+        final String name = getMirrorName(resource);
+        final File file = new File(name);
+        if (file.exists() && (file.length() == resource.getLength())) {
+            return file;
+        }
+        FutureTask<File> task = m_writeTasks.get(name);
+        if (task == null) {
+            FutureTask<File> newTask = new FutureTask<File>(new Callable<File>() {
+
+                public File call() throws Exception {
+
+                    // the file may have been written by a task which has finished in the meantime
+                    if (file.exists() && (file.length() == resource.getLength())) {
+                        return file;
+                    }
+                    return writeFile(cms, resource, file);
+                }
+            }) {
+
+                @Override
+                protected void done() {
+
+                    m_writeTasks.remove(name, this);
+                }
+            };
+            task = m_writeTasks.putIfAbsent(name, newTask);
+            if (task == null) {
+                task = newTask;
+                newTask.run();
+            }
+        }
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CmsException) {
+                throw (CmsException)cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            LOG.error(
+                Messages.get().getBundle().key(Messages.LOG_CONTENT_MIRROR_WRITE_FAILED_2, resource.getRootPath(), file),
+                cause);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the minimum size of files which are mirrored.<p>
+     *
+     * @return the minimum size of files which are mirrored
+     */
+    public long getMinSize() {
+
+        return m_minSize;
+    }
+
+    /**
+     * Returns the absolute path of the mirror repository in the RFS.<p>
+     *
+     * @return the absolute path of the mirror repository in the RFS
+     */
+    public String getRepositoryPath() {
+
+        return m_rfsRepository;
+    }
+
+    /**
+     * Initializes the mirror with an OpenCms user context, and starts deleting the mirror files
+     * of published resources.<p>
+     *
+     * @param cms an OpenCms user context
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public void initialize(CmsObject cms) throws CmsException {
+
+        m_cms = OpenCms.initCmsObject(cms);
+        OpenCms.addCmsEventListener(this, new int[] {I_CmsEventListener.EVENT_PUBLISH_PROJECT});
+    }
+
+    /**
+     * Checks if the content of the given resource is mirrored.<p>
+     *
+     * @param cms the current users OpenCms context
+     * @param resource the resource to check
+     *
+     * @return <code>true</code> if the content of the resource is mirrored
+     */
+    public boolean isMirrored(CmsObject cms, CmsResource resource) {
+
+        return cms.getRequestContext().getCurrentProject().isOnlineProject()
+            && resource.isFile()
+            && (resource.getLength() >= m_minSize);
+    }
+
+    /**
+     * Deletes the mirror files of all content versions of a resource.<p>
+     *
+     * @param resourceId the resource id
+     */
+    public void removeFiles(CmsUUID resourceId) {
+
+        String id = resourceId.toString();
+        deleteFiles(new File(m_rfsRepository + id.substring(0, 2)), id + "_", null);
+    }
+
+    /**
+     * Returns the RFS name of the mirror file for the current content of the given resource.<p>
+     *
+     * @param resource the resource
+     *
+     * @return the RFS name of the mirror file
+     */
+    protected String getMirrorName(CmsResource resource) {
+
+        String id = resource.getResourceId().toString();
+        // use the first characters of the id as sub folder to limit the number of files per folder
+        StringBuffer result = new StringBuffer(m_rfsRepository.length() + 64);
+        result.append(m_rfsRepository);
+        result.append(id.substring(0, 2));
+        result.append(File.separatorChar);
+        result.append(id);
+        result.append('_');
+        result.append(resource.getDateContent());
+        return result.toString();
+    }
+
+    /**
+     * Writes the content of a resource to its mirror file.<p>
+     *
+     * The content is written to a temporary file first, which is then renamed,
+     * so concurrent requests never see a partially written mirror file.<p>
+     *
+     * @param cms the current users OpenCms context
+     * @param resource the resource
+     * @param file the mirror file
+     *
+     * @return the mirror file, or <code>null</code> if the content did not match the resource
+     *
+     * @throws CmsException if the content of the resource could not be read from the VFS
+     * @throws IOException if the mirror file could not be written
+     */
+    protected File writeFile(CmsObject cms, CmsResource resource, File file) throws CmsException, IOException {
+
+        File folder = file.getParentFile();
+        if (!folder.exists()) {
+            folder.mkdirs();
+        }
+        File temp = File.createTempFile(file.getName() + "_", TEMP_SUFFIX, folder);
+        long written;
+        try {
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(temp));
+            try {
+                written = cms.readContent(resource, out);
+            } finally {
+                out.close();
+            }
+        } catch (CmsException e) {
+            temp.delete();
+            throw e;
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+        if (written != resource.getLength()) {
+            // the resource does not describe the current content anymore
+            temp.delete();
+            return null;
+        }
+        if (!temp.renameTo(file)) {
+            // the file may already have been written by a concurrent request
+            temp.delete();
+            if (!file.exists()) {
+                throw new IOException(
+                    Messages.get().getBundle().key(Messages.ERR_CONTENT_MIRROR_RENAME_FAILED_2, temp, file));
+            }
+        } else if (LOG.isDebugEnabled()) {
+            LOG.debug(
+                Messages.get().getBundle().key(
+                    Messages.LOG_CONTENT_MIRROR_WRITTEN_2,
+                    resource.getRootPath(),
+                    file.getAbsolutePath()));
+        }
+        // delete the mirror files of older content versions
+        deleteFiles(file.getParentFile(), resource.getResourceId().toString() + "_", file);
+        return file;
+    }
+
+    /**
+     * Deletes the mirror files with the given name prefix from a folder of the mirror.<p>
+     *
+     * @param folder the folder
+     * @param prefix the name prefix of the files to delete
+     * @param keep a file to keep, or <code>null</code>
+     */
+    private void deleteFiles(File folder, final String prefix, final File keep) {
+
+        File[] outdated = folder.listFiles(new FileFilter() {
+
+            public boolean accept(File file) {
+
+                return file.getName().startsWith(prefix)
+                    && !file.getName().endsWith(TEMP_SUFFIX)
+                    && !file.equals(keep);
+            }
+        });
+        if (outdated != null) {
+            for (File file : outdated) {
+                // a request still delivering the old file keeps its open handle on most platforms
+                if (!file.delete() && LOG.isDebugEnabled()) {
+                    LOG.debug(Messages.get().getBundle().key(Messages.LOG_CONTENT_MIRROR_DELETE_FAILED_1, file));
+                }
+            }
+        }
+    }
+}
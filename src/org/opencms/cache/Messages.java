@@ -37,9 +37,24 @@ import org.opencms.i18n.I_CmsMessageBundle;
  */
 public final class Messages extends A_CmsMessageBundle {
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_CONTENT_MIRROR_RENAME_FAILED_2 = "ERR_CONTENT_MIRROR_RENAME_FAILED_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_CACHE_COSTS_TOO_HIGH_2 = "LOG_CACHE_COSTS_TOO_HIGH_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_CONTENT_MIRROR_DELETE_FAILED_1 = "LOG_CONTENT_MIRROR_DELETE_FAILED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_CONTENT_MIRROR_READ_PUBLISHED_FAILED_1 = "LOG_CONTENT_MIRROR_READ_PUBLISHED_FAILED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_CONTENT_MIRROR_WRITE_FAILED_2 = "LOG_CONTENT_MIRROR_WRITE_FAILED_2";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_CONTENT_MIRROR_WRITTEN_2 = "LOG_CONTENT_MIRROR_WRITTEN_2";
+
     /** Name of the used resource bundle. */
     private static final String BUNDLE_NAME = "org.opencms.cache.messages";
 
@@ -0,0 +1,307 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.db;
+
+import org.opencms.configuration.CmsParameterConfiguration;
+import org.opencms.main.CmsLog;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Base class for JDBC connection pools, which records the statistics of the pool.<p>
+ *
+ * The time needed to borrow a connection is measured for every connection. If a leak detection threshold
+ * is configured with <code>db.pool.[key].leakDetectionThreshold</code>, the borrowed connections are tracked
+ * and {@link #getLeakedConnections()} logs the code which borrowed connections that have not been returned
+ * within the threshold.<p>
+ *
+ * @since 10.5.0
+ */
+public abstract class A_CmsDbPool implements I_CmsDbPool {
+
+    /**
+     * Handler for the connections handed out by the pool, which gives the connection back
+     * to the pool when it is closed.<p>
+     */
+    private class PooledConnectionHandler implements InvocationHandler {
+
+        /** The time the connection was borrowed. */
+        private long m_borrowTime;
+
+        /** The stack trace of the code which borrowed the connection, only set if leaks are tracked. */
+        private Throwable m_borrowTrace;
+
+        /** Flag indicating if the connection has been closed. */
+        private volatile boolean m_closed;
+
+        /** The connection from the pool. */
+        private Connection m_connection;
+
+        /** Flag indicating if the connection has been reported as leaked. */
+        private volatile boolean m_reported;
+
+        /**
+         * Creates a new handler.<p>
+         *
+         * @param connection the connection from the pool
+         * @param borrowTrace the stack trace of the code which borrows the connection, or <code>null</code>
+         */
+        PooledConnectionHandler(Connection connection, Throwable borrowTrace) {
+
+            m_connection = connection;
+            m_borrowTrace = borrowTrace;
+            m_borrowTime = System.currentTimeMillis();
+        }
+
+        /**
+         * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object, java.lang.reflect.Method, java.lang.Object[])
+         */
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+            String name = method.getName();
+            if (name.equals("close")) {
+                if (!m_closed) {
+                    m_closed = true;
+                    m_borrowed.remove(this);
+                    returnConnection(m_connection);
+                }
+                return null;
+            }
+            if (name.equals("isClosed")) {
+                return Boolean.valueOf(m_closed || m_connection.isClosed());
+            }
+            if (name.equals("equals")) {
+                return Boolean.valueOf(proxy == args[0]);
+            }
+            if (name.equals("hashCode")) {
+                return new Integer(System.identityHashCode(proxy));
+            }
+            if (name.equals("toString")) {
+                return m_poolUrl + ": " + m_connection;
+            }
+            if (m_closed) {
+                throw new SQLException(
+                    Messages.get().getBundle().key(Messages.ERR_DB_POOL_CONNECTION_CLOSED_1, m_poolUrl));
+            }
+            try {
+                return method.invoke(m_connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(A_CmsDbPool.class);
+
+    /** The number of borrowed connections. */
+    private AtomicLong m_borrowCount = new AtomicLong();
+
+    /** The currently borrowed connections, only tracked if the leak detection is enabled. */
+    private Set<PooledConnectionHandler> m_borrowed = Collections.newSetFromMap(
+        new ConcurrentHashMap<PooledConnectionHandler, Boolean>());
+
+    /** The total time waited for connections in nanoseconds. */
+    private AtomicLong m_borrowWaitNanos = new AtomicLong();
+
+    /** The time in milliseconds after which a borrowed connection is regarded as leaked, 0 to disable the leak detection. */
+    private long m_leakDetectionThreshold;
+
+    /** The longest time waited for a connection in nanoseconds. */
+    private AtomicLong m_maxBorrowWaitNanos = new AtomicLong();
+
+    /** The URL of the pool. */
+    private String m_poolUrl;
+
+    /**
+     * @see org.opencms.db.I_CmsDbPool#getBorrowCount()
+     */
+    public long getBorrowCount() {
+
+        return m_borrowCount.get();
+    }
+
+    /**
+     * @see org.opencms.db.I_CmsDbPool#getBorrowWaitMillis()
+     */
+    public long getBorrowWaitMillis() {
+
+        return m_borrowWaitNanos.get() / 1000000L;
+    }
+
+    /**
+     * @see org.opencms.db.I_CmsDbPool#getConnection()
+     */
+    public Connection getConnection() throws SQLException {
+
+        long start = System.nanoTime();
+        Connection connection = borrowConnection();
+        long wait = System.nanoTime() - start;
+        m_borrowCount.incrementAndGet();
+        m_borrowWaitNanos.addAndGet(wait);
+        long maxWait = m_maxBorrowWaitNanos.get();
+        while ((wait > maxWait) && !m_maxBorrowWaitNanos.compareAndSet(maxWait, wait)) {
+            maxWait = m_maxBorrowWaitNanos.get();
+        }
+        if (!isWrapping()) {
+            return connection;
+        }
+        PooledConnectionHandler handler = new PooledConnectionHandler(
+            connection,
+            m_leakDetectionThreshold > 0 ? new Throwable() : null);
+        if (m_leakDetectionThreshold > 0) {
+            m_borrowed.add(handler);
+        }
+        return (Connection)Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[] {Connection.class},
+            handler);
+    }
+
+    /**
+     * Returns the time in milliseconds after which a borrowed connection is regarded as leaked.<p>
+     *
+     * @return the leak detection threshold, 0 if the leak detection is disabled
+     */
+    public long getLeakDetectionThreshold() {
+
+        return m_leakDetectionThreshold;
+    }
+
+    /**
+     * @see org.opencms.db.I_CmsDbPool#getLeakedConnections()
+     */
+    public int getLeakedConnections() {
+
+        if (m_leakDetectionThreshold <= 0) {
+            return 0;
+        }
+        int result = 0;
+        long now = System.currentTimeMillis();
+        for (PooledConnectionHandler handler : m_borrowed) {
+            long borrowedMillis = now - handler.m_borrowTime;
+            if (borrowedMillis > m_leakDetectionThreshold) {
+                result++;
+                if (!handler.m_reported) {
+                    // report each connection only once, with the code which borrowed it
+                    handler.m_reported = true;
+                    LOG.warn(
+                        Messages.get().getBundle().key(
+                            Messages.LOG_DB_POOL_CONNECTION_LEAK_2,
+                            m_poolUrl,
+                            new Long(borrowedMillis)),
+                        handler.m_borrowTrace);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @see org.opencms.db.I_CmsDbPool#getMaxBorrowWaitMillis()
+     */
+    public long getMaxBorrowWaitMillis() {
+
+        return m_maxBorrowWaitNanos.get() / 1000000L;
+    }
+
+    /**
+     * @see org.opencms.db.I_CmsDbPool#getPoolUrl()
+     */
+    public String getPoolUrl() {
+
+        return m_poolUrl;
+    }
+
+    /**
+     * @see org.opencms.db.I_CmsDbPool#initialize(org.opencms.configuration.CmsParameterConfiguration, java.lang.String)
+     */
+    public void initialize(CmsParameterConfiguration config, String key) throws Exception {
+
+        String prefix = CmsDbPool.KEY_DATABASE_POOL + '.' + key + '.';
+        m_poolUrl = config.get(prefix + CmsDbPool.KEY_POOL_URL);
+        m_leakDetectionThreshold = config.getInteger(prefix + CmsDbPool.KEY_LEAK_DETECTION_THRESHOLD, 0);
+        initializePool(config, key);
+    }
+
+    /**
+     * Borrows a connection from the underlying pool.<p>
+     *
+     * @return the connection
+     *
+     * @throws SQLException if no connection is available
+     */
+    protected abstract Connection borrowConnection() throws SQLException;
+
+    /**
+     * Initializes the underlying pool.<p>
+     *
+     * @param config the configuration (opencms.properties)
+     * @param key the key of the database pool in the configuration
+     *
+     * @throws Exception if the pool could not be initialized
+     */
+    protected abstract void initializePool(CmsParameterConfiguration config, String key) throws Exception;
+
+    /**
+     * Checks if the connections from the underlying pool are wrapped,
+     * so {@link #returnConnection(Connection)} is called when they are closed.<p>
+     *
+     * This is required for the leak detection. Pools which hand out their own connections
+     * may overwrite this to always wrap the connections.<p>
+     *
+     * @return <code>true</code> if the connections are wrapped
+     */
+    protected boolean isWrapping() {
+
+        return m_leakDetectionThreshold > 0;
+    }
+
+    /**
+     * Gives a connection back to the underlying pool after it has been closed by the user.<p>
+     *
+     * This is only called for wrapped connections, see {@link #isWrapping()}.<p>
+     *
+     * @param connection the connection
+     *
+     * @throws SQLException if something goes wrong
+     */
+    protected abstract void returnConnection(Connection connection) throws SQLException;
+}
@@ -0,0 +1,433 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.db;
+
+import org.opencms.file.CmsResource;
+import org.opencms.main.CmsException;
+import org.opencms.security.CmsAccessControlEntry;
+import org.opencms.security.CmsAccessControlList;
+import org.opencms.util.CmsUUID;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory tree of the access control entries inherited along the folder hierarchy of either
+ * the online or the offline project.<p>
+ *
+ * The access control entries of all resources are read with a single query on first use.
+ * The folders are added to the tree by their root path when an access control list is requested
+ * for a resource below them, and keep the access control lists they pass on to their sub folders and files.
+ * Once the folders of a resource are known, its access control list is computed without any database access.<p>
+ *
+ * The tree is not affected by changes of users or groups. After the access control entries or the location
+ * of a resource have changed, {@link #invalidate(CmsResource)} refreshes the entries of that resource and drops
+ * the folder with all its sub folders from the tree.<p>
+ *
+ * The result of {@link #getAccessControlList(CmsDriverManager, CmsDbContext, CmsResource, boolean)} is the
+ * same as the result of {@link CmsDriverManager#getAccessControlList(CmsDbContext, CmsResource, boolean)}
+ * without the tree.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsAclTree {
+
+    /**
+     * A folder of the tree.<p>
+     */
+    private static class FolderNode {
+
+        /** The access control list inherited by the files in the folder. */
+        volatile CmsAccessControlList m_aclForFiles;
+
+        /** The access control list inherited by the sub folders of the folder. */
+        volatile CmsAccessControlList m_aclForFolders;
+
+        /** The resource id of the folder. */
+        final CmsUUID m_resourceId;
+
+        /**
+         * Creates a new folder node.<p>
+         *
+         * @param resourceId the resource id of the folder
+         */
+        FolderNode(CmsUUID resourceId) {
+
+            m_resourceId = resourceId;
+        }
+    }
+
+    /** The access control entries by resource id, sorted like the driver manager sorts them, or <code>null</code> if not read yet. */
+    private volatile Map<CmsUUID, List<CmsAccessControlEntry>> m_entries;
+
+    /** The folders of the tree by root path. */
+    private ConcurrentSkipListMap<String, FolderNode> m_folders;
+
+    /** Incremented on every change, so values read from the database before a change are not stored. */
+    private AtomicLong m_generation;
+
+    /** The number of database reads done to fill the tree. */
+    private AtomicLong m_readCount;
+
+    /** The ids of the resources whose access control entries have to be read again. */
+    private Set<CmsUUID> m_staleEntries;
+
+    /**
+     * Creates a new, empty tree.<p>
+     */
+    public CmsAclTree() {
+
+        m_folders = new ConcurrentSkipListMap<String, FolderNode>();
+        m_generation = new AtomicLong();
+        m_readCount = new AtomicLong();
+        m_staleEntries = Collections.newSetFromMap(new ConcurrentHashMap<CmsUUID, Boolean>());
+    }
+
+    /**
+     * Removes all folders and access control entries from the tree.<p>
+     */
+    public void clear() {
+
+        m_generation.incrementAndGet();
+        m_entries = null;
+        m_staleEntries.clear();
+        m_folders.clear();
+    }
+
+    /**
+     * Returns the access control list of a given resource.<p>
+     *
+     * The returned list is a new object, which can be modified by the caller.<p>
+     *
+     * @param driverManager the driver manager used to read missing folders and entries
+     * @param dbc the current database context
+     * @param resource the resource
+     * @param inheritedOnly skip the entries of the resource itself if set
+     *
+     * @return the access control list of the resource
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public CmsAccessControlList getAccessControlList(
+        CmsDriverManager driverManager,
+        CmsDbContext dbc,
+        CmsResource resource,
+        boolean inheritedOnly)
+    throws CmsException {
+
+        List<CmsAccessControlEntry> aces = getEntries(driverManager, dbc, resource.getResourceId());
+        CmsAccessControlList acl = null;
+        if (!isOverwriteAll(aces)) {
+            String parentPath = CmsResource.getParentFolder(resource.getRootPath());
+            if (parentPath != null) {
+                acl = (CmsAccessControlList)getInheritedAcl(
+                    driverManager,
+                    dbc,
+                    parentPath,
+                    !resource.isFolder()).clone();
+            }
+        }
+        if (acl == null) {
+            acl = new CmsAccessControlList();
+        }
+        if (!inheritedOnly) {
+            addEntries(acl, aces);
+        }
+        return acl;
+    }
+
+    /**
+     * Returns the number of folders in the tree.<p>
+     *
+     * @return the number of folders in the tree
+     */
+    public int getFolderCount() {
+
+        return m_folders.size();
+    }
+
+    /**
+     * Returns the number of database reads done to fill the tree so far.<p>
+     *
+     * @return the number of database reads
+     */
+    public long getReadCount() {
+
+        return m_readCount.get();
+    }
+
+    /**
+     * Updates the tree after the access control entries or the location of a resource have changed.<p>
+     *
+     * The entries of the resource are read again on next use. If the resource is a folder,
+     * the folder and all its sub folders are removed from the tree.<p>
+     *
+     * @param resource the changed resource
+     */
+    public void invalidate(CmsResource resource) {
+
+        m_generation.incrementAndGet();
+        m_staleEntries.add(resource.getResourceId());
+        Map<CmsUUID, List<CmsAccessControlEntry>> entries = m_entries;
+        if (entries != null) {
+            entries.remove(resource.getResourceId());
+        }
+        if (resource.isFolder()) {
+            String path = resource.getRootPath();
+            if (!path.endsWith("/")) {
+                path += "/";
+            }
+            // all sub folder paths start with the folder path, so they are sorted directly behind it
+            m_folders.subMap(path, true, path + Character.MAX_VALUE, false).clear();
+        }
+    }
+
+    /**
+     * Adds access control entries to an access control list.<p>
+     *
+     * @param acl the access control list
+     * @param aces the sorted entries to add
+     */
+    private void addEntries(CmsAccessControlList acl, List<CmsAccessControlEntry> aces) {
+
+        for (CmsAccessControlEntry ace : aces) {
+            acl.add(ace);
+            // if the overwrite flag is set, reset the allowed permissions to the permissions of this entry
+            // denied permissions are kept or extended
+            if ((ace.getFlags() & CmsAccessControlEntry.ACCESS_FLAGS_OVERWRITE) > 0) {
+                acl.setAllowedPermissions(ace);
+            }
+        }
+    }
+
+    /**
+     * Returns the access control entries of a resource.<p>
+     *
+     * @param driverManager the driver manager
+     * @param dbc the current database context
+     * @param resourceId the resource id
+     *
+     * @return the sorted access control entries of the resource, which must not be modified
+     *
+     * @throws CmsException if something goes wrong
+     */
+    private List<CmsAccessControlEntry> getEntries(CmsDriverManager driverManager, CmsDbContext dbc, CmsUUID resourceId)
+    throws CmsException {
+
+        Map<CmsUUID, List<CmsAccessControlEntry>> entries = m_entries;
+        if (entries == null) {
+            long generation = m_generation.get();
+            m_staleEntries.clear();
+            entries = new ConcurrentHashMap<CmsUUID, List<CmsAccessControlEntry>>();
+            Map<CmsUUID, List<CmsAccessControlEntry>> entriesByResource = new HashMap<CmsUUID, List<CmsAccessControlEntry>>();
+            for (CmsAccessControlEntry ace : driverManager.getAllAccessControlEntries(dbc)) {
+                List<CmsAccessControlEntry> aces = entriesByResource.get(ace.getResource());
+                if (aces == null) {
+                    aces = new ArrayList<CmsAccessControlEntry>();
+                    entriesByResource.put(ace.getResource(), aces);
+                }
+                aces.add(ace);
+            }
+            for (Map.Entry<CmsUUID, List<CmsAccessControlEntry>> resourceEntries : entriesByResource.entrySet()) {
+                entries.put(resourceEntries.getKey(), sort(resourceEntries.getValue()));
+            }
+            m_readCount.incrementAndGet();
+            if (generation == m_generation.get()) {
+                m_entries = entries;
+            } else {
+                // the entries have changed while reading them, use them only for this request
+                return getEntries(entries, resourceId);
+            }
+        }
+        if (m_staleEntries.remove(resourceId)) {
+            List<CmsAccessControlEntry> aces = sort(
+                driverManager.getUserDriver(dbc).readAccessControlEntries(
+                    dbc,
+                    dbc.currentProject(),
+                    resourceId,
+                    false));
+            m_readCount.incrementAndGet();
+            // if the entries have been changed again in the meantime, the id is stale again and read on next use
+            if (aces.isEmpty()) {
+                entries.remove(resourceId);
+            } else {
+                entries.put(resourceId, aces);
+            }
+            return aces;
+        }
+        return getEntries(entries, resourceId);
+    }
+
+    /**
+     * Returns the access control entries of a resource from the given map.<p>
+     *
+     * @param entries the access control entries by resource id
+     * @param resourceId the resource id
+     *
+     * @return the access control entries of the resource
+     */
+    private List<CmsAccessControlEntry> getEntries(
+        Map<CmsUUID, List<CmsAccessControlEntry>> entries,
+        CmsUUID resourceId) {
+
+        List<CmsAccessControlEntry> aces = entries.get(resourceId);
+        if (aces == null) {
+            return Collections.emptyList();
+        }
+        return aces;
+    }
+
+    /**
+     * Returns the folder node for the given path, reading the folder if it is not in the tree yet.<p>
+     *
+     * @param driverManager the driver manager
+     * @param dbc the current database context
+     * @param path the root path of the folder, with trailing slash
+     *
+     * @return the folder node
+     *
+     * @throws CmsException if something goes wrong
+     */
+    private FolderNode getFolder(CmsDriverManager driverManager, CmsDbContext dbc, String path) throws CmsException {
+
+        FolderNode node = m_folders.get(path);
+        if (node == null) {
+            long generation = m_generation.get();
+            CmsResource folder = driverManager.getVfsDriver(dbc).readFolder(
+                dbc,
+                dbc.currentProject().getUuid(),
+                path);
+            m_readCount.incrementAndGet();
+            node = new FolderNode(folder.getResourceId());
+            if (generation == m_generation.get()) {
+                FolderNode existing = m_folders.putIfAbsent(path, node);
+                if (existing != null) {
+                    node = existing;
+                }
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Returns the access control list which a folder passes on to its sub folders or files.<p>
+     *
+     * @param driverManager the driver manager
+     * @param dbc the current database context
+     * @param path the root path of the folder, with trailing slash
+     * @param forFiles <code>true</code> for the list inherited by files, <code>false</code> for the list inherited by sub folders
+     *
+     * @return the inherited access control list, which must not be modified
+     *
+     * @throws CmsException if something goes wrong
+     */
+    private CmsAccessControlList getInheritedAcl(
+        CmsDriverManager driverManager,
+        CmsDbContext dbc,
+        String path,
+        boolean forFiles)
+    throws CmsException {
+
+        long generation = m_generation.get();
+        FolderNode node = getFolder(driverManager, dbc, path);
+        CmsAccessControlList acl = forFiles ? node.m_aclForFiles : node.m_aclForFolders;
+        if (acl != null) {
+            return acl;
+        }
+        List<CmsAccessControlEntry> aces = getEntries(driverManager, dbc, node.m_resourceId);
+        if (!forFiles) {
+            // sub folders only inherit the entries marked as inheriting,
+            // files inherit all entries of their immediate parent folder
+            List<CmsAccessControlEntry> inheriting = new ArrayList<CmsAccessControlEntry>(aces.size());
+            for (CmsAccessControlEntry ace : aces) {
+                if (ace.isInheriting()) {
+                    inheriting.add(ace);
+                }
+            }
+            aces = inheriting;
+        }
+        if (!isOverwriteAll(aces)) {
+            String parentPath = CmsResource.getParentFolder(path);
+            if (parentPath != null) {
+                acl = (CmsAccessControlList)getInheritedAcl(driverManager, dbc, parentPath, false).clone();
+            }
+        }
+        if (acl == null) {
+            acl = new CmsAccessControlList();
+        }
+        addEntries(acl, aces);
+        if (generation == m_generation.get()) {
+            if (forFiles) {
+                node.m_aclForFiles = acl;
+            } else {
+                node.m_aclForFolders = acl;
+            }
+        }
+        return acl;
+    }
+
+    /**
+     * Checks if a sorted list of access control entries contains the 'overwrite all' entry,
+     * which stops the inheritance from the parent folders.<p>
+     *
+     * @param aces the sorted access control entries
+     *
+     * @return <code>true</code> if the entries contain the 'overwrite all' entry
+     */
+    private boolean isOverwriteAll(List<CmsAccessControlEntry> aces) {
+
+        // after sorting just the first 2 positions come in question
+        for (int i = 0; i < Math.min(aces.size(), 2); i++) {
+            if (aces.get(i).getPrincipal().equals(CmsAccessControlEntry.PRINCIPAL_OVERWRITE_ALL_ID)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sorts a list of access control entries in place.<p>
+     *
+     * @param aces the list to sort
+     *
+     * @return the sorted list
+     */
+    private List<CmsAccessControlEntry> sort(List<CmsAccessControlEntry> aces) {
+
+        Collections.sort(aces, CmsAccessControlEntry.COMPARATOR_ACE);
+        return aces;
+    }
+}
@@ -53,9 +53,12 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
 
@@ -69,9 +72,15 @@ public class CmsAliasManager {
     /** The logger instance for this class. */
     private static final Log LOG = CmsLog.getLog(CmsAliasManager.class);
 
+    /** The time in milliseconds after which a cached rewrite alias matcher is read again from the database. */
+    private static final long REWRITE_ALIAS_MATCHER_TIMEOUT = 60000;
+
     /** The security manager for accessing the database. */
     protected CmsSecurityManager m_securityManager;
 
+    /** The cached rewrite alias matchers by site root. */
+    private Cache<String, CmsRewriteAliasMatcher> m_rewriteAliasMatchers;
+
     /**
      * Creates a new alias manager instance.<p>
      *
@@ -80,6 +89,9 @@ public class CmsAliasManager {
     public CmsAliasManager(CmsSecurityManager securityManager) {
 
         m_securityManager = securityManager;
+        m_rewriteAliasMatchers = CacheBuilder.newBuilder().expireAfterWrite(
+            REWRITE_ALIAS_MATCHER_TIMEOUT,
+            TimeUnit.MILLISECONDS).build();
     }
 
     /**
@@ -162,6 +174,9 @@ public class CmsAliasManager {
     /**
      * Gets the rewrite alias matcher for the given site.<p>
      *
+     * The matcher is cached until the rewrite aliases of the site are changed, or for at most a minute,
+     * so changes made by other servers sharing the same database become visible.<p>
+     *
      * @param cms the CMS context to use
      * @param siteRoot the site root
      *
@@ -171,8 +186,13 @@ public class CmsAliasManager {
      */
     public CmsRewriteAliasMatcher getRewriteAliasMatcher(CmsObject cms, String siteRoot) throws CmsException {
 
-        List<CmsRewriteAlias> aliases = getRewriteAliases(cms, siteRoot);
-        return new CmsRewriteAliasMatcher(aliases);
+        CmsRewriteAliasMatcher matcher = m_rewriteAliasMatchers.getIfPresent(siteRoot);
+        if (matcher == null) {
+            List<CmsRewriteAlias> aliases = getRewriteAliases(cms, siteRoot);
+            matcher = new CmsRewriteAliasMatcher(aliases);
+            m_rewriteAliasMatchers.put(siteRoot, matcher);
+        }
+        return matcher;
     }
 
     /**
@@ -218,12 +238,17 @@ public class CmsAliasManager {
         String line = reader.readLine();
         List<CmsAliasImportResult> totalResult = new ArrayList<CmsAliasImportResult>();
         CmsAliasImportResult result;
-        while (line != null) {
-            result = processAliasLine(cms, siteRoot, line, separator);
-            if (result != null) {
-                totalResult.add(result);
+        try {
+            while (line != null) {
+                result = processAliasLine(cms, siteRoot, line, separator);
+                if (result != null) {
+                    totalResult.add(result);
+                }
+                line = reader.readLine();
             }
-            line = reader.readLine();
+        } finally {
+            // the import may have changed the rewrite aliases of the site
+            m_rewriteAliasMatchers.invalidate(siteRoot);
         }
         return totalResult;
     }
@@ -258,6 +283,7 @@ public class CmsAliasManager {
 
         checkPermissionsForMassEdit(cms, siteRoot);
         m_securityManager.saveRewriteAliases(cms.getRequestContext(), siteRoot, newAliases);
+        m_rewriteAliasMatchers.invalidate(siteRoot);
     }
 
     /**
@@ -56,6 +56,20 @@ public class CmsCacheKey implements I_CmsCacheKey {
         // empty
     }
 
+    /**
+     * Returns the suffix which all keys generated for the group lists of the given user end with.<p>
+     *
+     * @param user the user
+     *
+     * @return the key suffix
+     *
+     * @see #getCacheKeyForUserGroups(String, CmsDbContext, CmsUser)
+     */
+    public static String getUserGroupsKeySuffix(CmsUser user) {
+
+        return "_" + user.getName();
+    }
+
     /**
      * @see org.opencms.db.I_CmsCacheKey#getCacheKeyForGroupUsers(java.lang.String, org.opencms.db.CmsDbContext, org.opencms.file.CmsGroup)
      */
@@ -81,8 +95,7 @@ public class CmsCacheKey implements I_CmsCacheKey {
         }
         StringBuffer cacheBuffer = new StringBuffer(64);
         cacheBuffer.append(prefix);
-        cacheBuffer.append('_');
-        cacheBuffer.append(user.getName());
+        cacheBuffer.append(getUserGroupsKeySuffix(user));
         return cacheBuffer.toString();
     }
 
@@ -37,6 +37,9 @@ public class CmsCacheSettings {
     /** The size of the memory monitor's cache for ACLs. */
     private int m_aclCacheSize;
 
+    /** Flag indicating if the tree of inherited access control entries is used. */
+    private boolean m_aclTree;
+
     /** The name of the class to generate cache keys. */
     private String m_cacheKeyGenerator;
 
@@ -61,6 +64,9 @@ public class CmsCacheSettings {
     /** The size of the memory monitor's cache for property lists. */
     private int m_propertyListsCacheSize = -1; // this configuration entry is optional
 
+    /** Flag indicating if repeated reads within a single online request are memoized. */
+    private boolean m_requestReadCache;
+
     /** The size of the memory monitor's cache for resources. */
     private int m_resourceCacheSize;
 
@@ -284,6 +290,40 @@ public class CmsCacheSettings {
         return m_userGroupsCacheSize;
     }
 
+    /**
+     * Returns if access control lists are computed from an in-memory tree of inherited access control entries.<p>
+     *
+     * @return <code>true</code> if the tree of inherited access control entries is enabled
+     *
+     * @see CmsAclTree
+     */
+    public boolean isAclTreeEnabled() {
+
+        return m_aclTree;
+    }
+
+    /**
+     * Returns if repeated reads of resources and properties within a single online request are memoized.<p>
+     *
+     * @return <code>true</code> if the request read cache is enabled
+     *
+     * @see CmsRequestReadCache
+     */
+    public boolean isRequestReadCacheEnabled() {
+
+        return m_requestReadCache;
+    }
+
+    /**
+     * Enables or disables the tree of inherited access control entries.<p>
+     *
+     * @param enabled <code>"true"</code> to enable the tree
+     */
+    public void setAclTree(String enabled) {
+
+        m_aclTree = Boolean.valueOf(enabled.trim()).booleanValue();
+    }
+
     /**
      * Sets the size of the memory monitor's cache for ACLs.<p>
      *
@@ -374,6 +414,16 @@ public class CmsCacheSettings {
         m_propertyListsCacheSize = getIntValue(size, -1);
     }
 
+    /**
+     * Enables or disables the memoization of repeated reads within a single online request.<p>
+     *
+     * @param enabled <code>"true"</code> to enable the request read cache
+     */
+    public void setRequestReadCache(String enabled) {
+
+        m_requestReadCache = Boolean.valueOf(enabled.trim()).booleanValue();
+    }
+
     /**
      * Sets the size of the memory monitor's cache for resources.<p>
      *
@@ -0,0 +1,408 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.db;
+
+import org.opencms.configuration.CmsParameterConfiguration;
+import org.opencms.main.CmsLog;
+import org.opencms.main.OpenCms;
+import org.opencms.security.I_CmsCredentialsResolver;
+import org.opencms.util.CmsStringUtil;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Lock-free JDBC connection pool.<p>
+ *
+ * The idle connections are kept in a concurrent deque, the most recently returned connection is borrowed first.
+ * The number of active connections is limited with a semaphore, so threads only wait if the pool is exhausted.
+ * The pool is configured with the same <code>db.pool.[key].*</code> settings as the DBCP pool, and supports
+ * <code>maxActive</code>, <code>maxIdle</code>, <code>maxWait</code>, <code>whenExhaustedAction</code>,
+ * <code>testQuery</code> and <code>testOnBorrow</code>. There is no statement pooling and no idle connection eviction.<p>
+ *
+ * To use this pool, set <code>db.pool.[key].provider=org.opencms.db.CmsConcurrentDbPool</code>
+ * in <code>opencms.properties</code>.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsConcurrentDbPool extends A_CmsDbPool {
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsConcurrentDbPool.class);
+
+    /** The number of active connections. */
+    private AtomicInteger m_activeCount = new AtomicInteger();
+
+    /** Flag indicating if threads wait for a connection if the pool is exhausted. */
+    private boolean m_block;
+
+    /** Flag indicating if the pool has been closed. */
+    private volatile boolean m_closed;
+
+    /** The properties used to create new connections. */
+    private Properties m_connectionProperties;
+
+    /** The idle connections, the most recently returned connection first. */
+    private ConcurrentLinkedDeque<Connection> m_idle = new ConcurrentLinkedDeque<Connection>();
+
+    /** The number of idle connections. */
+    private AtomicInteger m_idleCount = new AtomicInteger();
+
+    /** The JDBC URL used to create new connections. */
+    private String m_jdbcUrl;
+
+    /** The maximum number of active connections. */
+    private int m_maxActive;
+
+    /** The maximum number of idle connections. */
+    private int m_maxIdle;
+
+    /** The maximum time in milliseconds to wait for a connection, 0 or less to wait without limit. */
+    private long m_maxWait;
+
+    /** The permits for active connections, <code>null</code> if the pool grows without limit. */
+    private Semaphore m_permits;
+
+    /** Flag indicating if the connections are validated when they are borrowed. */
+    private boolean m_testOnBorrow;
+
+    /** The query used to validate connections. */
+    private String m_testQuery;
+
+    /**
+     * @see org.opencms.db.I_CmsDbPool#close()
+     */
+    public void close() {
+
+        m_closed = true;
+        closeIdleConnections();
+    }
+
+    /**
+     * @see org.opencms.db.I_CmsDbPool#getNumActive()
+     */
+    public int getNumActive() {
+
+        return m_activeCount.get();
+    }
+
+    /**
+     * @see org.opencms.db.I_CmsDbPool#getNumIdle()
+     */
+    public int getNumIdle() {
+
+        return m_idleCount.get();
+    }
+
+    /**
+     * @see org.opencms.db.A_CmsDbPool#borrowConnection()
+     */
+    @Override
+    protected Connection borrowConnection() throws SQLException {
+
+        if (m_closed) {
+            throw new SQLException(Messages.get().getBundle().key(Messages.ERR_DB_POOL_CLOSED_1, getPoolUrl()));
+        }
+        acquirePermit();
+        boolean success = false;
+        try {
+            Connection con = m_idle.pollFirst();
+            while (con != null) {
+                m_idleCount.decrementAndGet();
+                if (isValid(con)) {
+                    break;
+                }
+                closeConnection(con);
+                con = m_idle.pollFirst();
+            }
+            if (con == null) {
+                con = createConnection();
+            }
+            m_activeCount.incrementAndGet();
+            success = true;
+            return con;
+        } finally {
+            if (!success && (m_permits != null)) {
+                m_permits.release();
+            }
+        }
+    }
+
+    /**
+     * @see org.opencms.db.A_CmsDbPool#initializePool(org.opencms.configuration.CmsParameterConfiguration, java.lang.String)
+     */
+    @Override
+    protected void initializePool(CmsParameterConfiguration config, String key) throws Exception {
+
+        String prefix = CmsDbPool.KEY_DATABASE_POOL + '.' + key + '.';
+        String jdbcDriver = config.get(prefix + CmsDbPool.KEY_JDBC_DRIVER);
+        m_jdbcUrl = config.get(prefix + CmsDbPool.KEY_JDBC_URL);
+        String jdbcUrlParams = config.get(prefix + CmsDbPool.KEY_JDBC_URL_PARAMS);
+        if (jdbcUrlParams != null) {
+            m_jdbcUrl += jdbcUrlParams;
+        }
+        m_maxActive = config.getInteger(prefix + CmsDbPool.KEY_MAX_ACTIVE, 10);
+        m_maxIdle = config.getInteger(prefix + CmsDbPool.KEY_MAX_IDLE, 5);
+        m_maxWait = config.getInteger(prefix + CmsDbPool.KEY_MAX_WAIT, 2000);
+        m_testQuery = config.get(prefix + CmsDbPool.KEY_TEST_QUERY);
+        if (CmsStringUtil.isEmptyOrWhitespaceOnly(m_testQuery)) {
+            m_testQuery = null;
+        }
+        m_testOnBorrow = Boolean.valueOf(
+            config.getString(prefix + CmsDbPool.KEY_TEST_ON_BORROW, "false").trim()).booleanValue();
+
+        String whenExhaustedAction = config.getString(prefix + CmsDbPool.KEY_WHEN_EXHAUSTED_ACTION, "block").trim();
+        m_block = !"fail".equalsIgnoreCase(whenExhaustedAction);
+        if (!"grow".equalsIgnoreCase(whenExhaustedAction) && (m_maxActive > 0)) {
+            m_permits = new Semaphore(m_maxActive, true);
+        }
+
+        String username = resolveCredential(
+            I_CmsCredentialsResolver.DB_USER,
+            config.get(prefix + CmsDbPool.KEY_USERNAME));
+        String password = resolveCredential(
+            I_CmsCredentialsResolver.DB_PASSWORD,
+            config.get(prefix + CmsDbPool.KEY_PASSWORD));
+        m_connectionProperties = config.getPrefixedProperties(prefix + CmsDbPool.KEY_CONNECTION_PROPERTIES);
+        m_connectionProperties.put(CmsDbPool.KEY_USERNAME, username == null ? "" : username);
+        m_connectionProperties.put(CmsDbPool.KEY_PASSWORD, password == null ? "" : password);
+
+        // create an instance of the JDBC driver
+        Class.forName(jdbcDriver).newInstance();
+
+        int connectionAttempts = config.getInteger(prefix + CmsDbPool.KEY_CONNECT_ATTEMTS, 10);
+        int connectionsWait = config.getInteger(prefix + CmsDbPool.KEY_CONNECT_WAITS, 5000);
+
+        // try to connect once to the database, just in case the database was not fast enough to start before OpenCms
+        Connection con = null;
+        int connectionTests = 0;
+        while (con == null) {
+            try {
+                con = createConnection();
+            } catch (SQLException e) {
+                connectionTests++;
+                if (connectionTests >= connectionAttempts) {
+                    throw e;
+                }
+                if (CmsLog.INIT.isInfoEnabled()) {
+                    CmsLog.INIT.info(
+                        Messages.get().getBundle().key(
+                            Messages.INIT_WAIT_FOR_DB_4,
+                            new Object[] {
+                                getPoolUrl(),
+                                m_jdbcUrl,
+                                new Integer(connectionTests),
+                                new Integer(connectionsWait)}));
+                }
+                Thread.sleep(connectionsWait);
+            }
+        }
+        m_idle.offerFirst(con);
+        m_idleCount.incrementAndGet();
+
+        if (CmsLog.INIT.isInfoEnabled()) {
+            CmsLog.INIT.info(Messages.get().getBundle().key(Messages.INIT_JDBC_POOL_2, getPoolUrl(), m_jdbcUrl));
+        }
+    }
+
+    /**
+     * Always wraps the connections, since they have to be returned to this pool when they are closed.<p>
+     *
+     * @see org.opencms.db.A_CmsDbPool#isWrapping()
+     */
+    @Override
+    protected boolean isWrapping() {
+
+        return true;
+    }
+
+    /**
+     * @see org.opencms.db.A_CmsDbPool#returnConnection(java.sql.Connection)
+     */
+    @Override
+    protected void returnConnection(Connection connection) {
+
+        m_activeCount.decrementAndGet();
+        Connection con = connection;
+        try {
+            if (!m_closed && !con.isClosed()) {
+                if (!con.getAutoCommit()) {
+                    // reset the connection to the state of a new connection
+                    con.rollback();
+                    con.setAutoCommit(true);
+                }
+                con.clearWarnings();
+                if (m_idleCount.incrementAndGet() <= m_maxIdle) {
+                    m_idle.offerFirst(con);
+                    con = null;
+                    if (m_closed) {
+                        // the pool has been closed concurrently
+                        closeIdleConnections();
+                    }
+                } else {
+                    m_idleCount.decrementAndGet();
+                }
+            }
+        } catch (SQLException e) {
+            LOG.warn(Messages.get().getBundle().key(Messages.LOG_DB_POOL_RETURN_CONNECTION_FAILED_1, getPoolUrl()), e);
+        } finally {
+            if (con != null) {
+                closeConnection(con);
+            }
+            if (m_permits != null) {
+                m_permits.release();
+            }
+        }
+    }
+
+    /**
+     * Acquires a permit for an active connection.<p>
+     *
+     * @throws SQLException if no permit is available within the configured time
+     */
+    private void acquirePermit() throws SQLException {
+
+        if (m_permits == null) {
+            return;
+        }
+        boolean acquired;
+        try {
+            if (!m_block) {
+                acquired = m_permits.tryAcquire();
+            } else if (m_maxWait <= 0) {
+                m_permits.acquire();
+                acquired = true;
+            } else {
+                acquired = m_permits.tryAcquire(m_maxWait, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            throw new SQLException(
+                Messages.get().getBundle().key(Messages.ERR_DB_POOL_EXHAUSTED_2, getPoolUrl(), new Integer(m_maxActive)));
+        }
+    }
+
+    /**
+     * Closes a physical connection, errors are only logged.<p>
+     *
+     * @param con the connection to close
+     */
+    private void closeConnection(Connection con) {
+
+        try {
+            con.close();
+        } catch (SQLException e) {
+            LOG.debug(e.getLocalizedMessage(), e);
+        }
+    }
+
+    /**
+     * Closes all idle connections.<p>
+     */
+    private void closeIdleConnections() {
+
+        Connection con = m_idle.pollFirst();
+        while (con != null) {
+            m_idleCount.decrementAndGet();
+            closeConnection(con);
+            con = m_idle.pollFirst();
+        }
+    }
+
+    /**
+     * Creates a new physical connection.<p>
+     *
+     * @return the new connection
+     *
+     * @throws SQLException if the connection could not be created
+     */
+    private Connection createConnection() throws SQLException {
+
+        return DriverManager.getConnection(m_jdbcUrl, m_connectionProperties);
+    }
+
+    /**
+     * Checks if an idle connection can still be used.<p>
+     *
+     * @param con the connection to check
+     *
+     * @return <code>true</code> if the connection can be used
+     */
+    private boolean isValid(Connection con) {
+
+        Statement stmt = null;
+        try {
+            if (con.isClosed()) {
+                return false;
+            }
+            if (m_testOnBorrow && (m_testQuery != null)) {
+                stmt = con.createStatement();
+                stmt.execute(m_testQuery);
+            }
+            return true;
+        } catch (SQLException e) {
+            LOG.debug(e.getLocalizedMessage(), e);
+            return false;
+        } finally {
+            if (stmt != null) {
+                try {
+                    stmt.close();
+                } catch (SQLException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    /**
+     * Resolves a database credential with the configured credentials resolver.<p>
+     *
+     * @param type the type of the credential
+     * @param value the configured value
+     *
+     * @return the resolved credential
+     */
+    private String resolveCredential(String type, String value) {
+
+        I_CmsCredentialsResolver resolver = OpenCms.getCredentialsResolver();
+        return resolver == null ? value : resolver.resolveCredential(type, value);
+    }
+}
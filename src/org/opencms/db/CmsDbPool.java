@@ -36,7 +36,9 @@ import org.opencms.util.CmsStringUtil;
 import java.sql.Connection;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.dbcp.ConnectionFactory;
 import org.apache.commons.dbcp.DriverManagerConnectionFactory;
@@ -96,6 +98,9 @@ public final class CmsDbPool {
     /** Key for jdbc url params. */
     public static final String KEY_JDBC_URL_PARAMS = KEY_JDBC_URL + ".params";
 
+    /** Key for the time in milliseconds after which a borrowed connection is regarded as leaked. */
+    public static final String KEY_LEAK_DETECTION_THRESHOLD = "leakDetectionThreshold";
+
     /** Key for maximum active connections. */
     public static final String KEY_MAX_ACTIVE = "maxActive";
 
@@ -132,6 +137,9 @@ public final class CmsDbPool {
     /** Key for pooling flag. */
     public static final String KEY_POOLING = "pooling";
 
+    /** Key for the class name of the pool implementation. */
+    public static final String KEY_PROVIDER = "provider";
+
     /** Key for test on borrow flag. */
     public static final String KEY_TEST_ON_BORROW = "testOnBorrow";
 
@@ -159,6 +167,9 @@ public final class CmsDbPool {
     /** The prefix used for opencms JDBC pools. */
     public static final String OPENCMS_URL_PREFIX = "opencms:";
 
+    /** The initialized pools, with their pool URL as key. */
+    private static Map<String, I_CmsDbPool> m_pools = new ConcurrentHashMap<String, I_CmsDbPool>();
+
     /**
      * Default constructor.<p>
      *
@@ -361,6 +372,30 @@ public final class CmsDbPool {
         return driver;
     }
 
+    /**
+     * Creates and registers a JDBC connection pool.<p>
+     *
+     * The implementation is configured with <code>db.pool.[key].provider</code>,
+     * by default the DBCP based {@link CmsDbcpPool} is used.<p>
+     *
+     * @param config the configuration (opencms.properties)
+     * @param key the key of the database pool in the configuration
+     *
+     * @return the initialized pool
+     *
+     * @throws Exception if the pool could not be initialized
+     */
+    public static I_CmsDbPool createPool(CmsParameterConfiguration config, String key) throws Exception {
+
+        String provider = config.getString(
+            KEY_DATABASE_POOL + '.' + key + '.' + KEY_PROVIDER,
+            CmsDbcpPool.class.getName()).trim();
+        I_CmsDbPool pool = (I_CmsDbPool)Class.forName(provider).newInstance();
+        pool.initialize(config, key);
+        m_pools.put(pool.getPoolUrl(), pool);
+        return pool;
+    }
+
     /**
      * Returns the database pool name for a given configuration key.<p>
      *
@@ -391,6 +426,22 @@ public final class CmsDbPool {
         return dbPoolNames;
     }
 
+    /**
+     * Returns the initialized pool with the given URL.<p>
+     *
+     * @param poolUrl the pool URL, with or without the DBCP prefix
+     *
+     * @return the pool, or <code>null</code> if no pool with the given URL has been initialized
+     */
+    public static I_CmsDbPool getPool(String poolUrl) {
+
+        String key = poolUrl;
+        if (key.startsWith(DBCP_JDBC_URL_PREFIX)) {
+            key = key.substring(DBCP_JDBC_URL_PREFIX.length());
+        }
+        return m_pools.get(key);
+    }
+
     /**
      * Returns the name of the default database connection pool.<p>
      *
@@ -400,4 +451,14 @@ public final class CmsDbPool {
 
         return OPENCMS_DEFAULT_POOL_NAME;
     }
+
+    /**
+     * Removes a pool from the initialized pools, after it has been closed.<p>
+     *
+     * @param pool the pool to remove
+     */
+    public static void removePool(I_CmsDbPool pool) {
+
+        m_pools.remove(pool.getPoolUrl(), pool);
+    }
 }
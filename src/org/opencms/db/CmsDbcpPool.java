@@ -0,0 +1,126 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.db;
+
+import org.opencms.configuration.CmsParameterConfiguration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.apache.commons.dbcp.PoolingDriver;
+import org.apache.commons.pool.ObjectPool;
+
+/**
+ * Connection pool based on the Apache Commons DBCP, the default pool implementation.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsDbcpPool extends A_CmsDbPool {
+
+    /** The DBCP pooling driver. */
+    private PoolingDriver m_driver;
+
+    /**
+     * @see org.opencms.db.I_CmsDbPool#close()
+     */
+    public void close() throws Exception {
+
+        m_driver.closePool(getPoolUrl());
+    }
+
+    /**
+     * Returns the DBCP pooling driver.<p>
+     *
+     * @return the DBCP pooling driver
+     */
+    public PoolingDriver getDriver() {
+
+        return m_driver;
+    }
+
+    /**
+     * @see org.opencms.db.I_CmsDbPool#getNumActive()
+     */
+    public int getNumActive() {
+
+        ObjectPool pool = getObjectPool();
+        return pool == null ? -1 : pool.getNumActive();
+    }
+
+    /**
+     * @see org.opencms.db.I_CmsDbPool#getNumIdle()
+     */
+    public int getNumIdle() {
+
+        ObjectPool pool = getObjectPool();
+        return pool == null ? -1 : pool.getNumIdle();
+    }
+
+    /**
+     * @see org.opencms.db.A_CmsDbPool#borrowConnection()
+     */
+    @Override
+    protected Connection borrowConnection() throws SQLException {
+
+        return m_driver.connect(CmsDbPool.DBCP_JDBC_URL_PREFIX + getPoolUrl(), null);
+    }
+
+    /**
+     * @see org.opencms.db.A_CmsDbPool#initializePool(org.opencms.configuration.CmsParameterConfiguration, java.lang.String)
+     */
+    @Override
+    protected void initializePool(CmsParameterConfiguration config, String key) throws Exception {
+
+        m_driver = CmsDbPool.createDriverManagerConnectionPool(config, key);
+    }
+
+    /**
+     * @see org.opencms.db.A_CmsDbPool#returnConnection(java.sql.Connection)
+     */
+    @Override
+    protected void returnConnection(Connection connection) throws SQLException {
+
+        // closing a DBCP connection gives it back to the pool
+        connection.close();
+    }
+
+    /**
+     * Returns the DBCP object pool.<p>
+     *
+     * @return the DBCP object pool, or <code>null</code> if the pool is not available
+     */
+    private ObjectPool getObjectPool() {
+
+        try {
+            return m_driver.getConnectionPool(getPoolUrl());
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+}
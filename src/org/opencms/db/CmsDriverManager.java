@@ -115,6 +115,8 @@ import org.opencms.util.CmsUUID;
 import org.opencms.util.PrintfFormat;
 import org.opencms.workplace.threads.A_CmsProgressThread;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -133,9 +135,7 @@ import java.util.TreeSet;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
-import org.apache.commons.dbcp.PoolingDriver;
 import org.apache.commons.logging.Log;
-import org.apache.commons.pool.ObjectPool;
 
 import com.google.common.collect.ArrayListMultimap;
 
@@ -327,11 +327,14 @@ public final class CmsDriverManager implements I_CmsEventListener {
     private static final CmsReadChangedProjectResourceMode RCPRM_FOLDERS_ONLY_MODE = new CmsReadChangedProjectResourceMode();
 
     /** The list of initialized JDBC pools. */
-    private List<PoolingDriver> m_connectionPools;
+    private List<I_CmsDbPool> m_connectionPools;
 
     /** The history driver. */
     private I_CmsHistoryDriver m_historyDriver;
 
+    /** The last publish tag handed out, to keep tags unique while several publish jobs run concurrently. */
+    private int m_lastPublishTag;
+
     /** The HTML link validator. */
     private CmsRelationSystemValidator m_htmlLinkValidator;
 
@@ -341,8 +344,8 @@ public final class CmsDriverManager implements I_CmsEventListener {
     /** The lock manager. */
     private CmsLockManager m_lockManager;
 
-    /** The log entry cache. */
-    private List<CmsLogEntry> m_log = new ArrayList<CmsLogEntry>();
+    /** The writer for the log entries. */
+    private CmsLogWriter m_logWriter;
 
     /** Local reference to the memory monitor to avoid multiple lookups through the OpenCms singleton. */
     private CmsMemoryMonitor m_monitor;
@@ -359,6 +362,9 @@ public final class CmsDriverManager implements I_CmsEventListener {
     /** Object used for synchronizing updates to the user publish list. */
     private Object m_publishListUpdateLock = new Object();
 
+    /** Object used for synchronizing the publish tag generation. */
+    private Object m_publishTagLock = new Object();
+
     /** The security manager (for access checks). */
     private CmsSecurityManager m_securityManager;
 
@@ -440,7 +446,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
         driverManager.m_securityManager = securityManager;
 
         // set connection pools
-        driverManager.m_connectionPools = new ArrayList<PoolingDriver>();
+        driverManager.m_connectionPools = new ArrayList<I_CmsDbPool>();
 
         // set the lock manager
         driverManager.m_lockManager = new CmsLockManager(driverManager);
@@ -448,6 +454,9 @@ public final class CmsDriverManager implements I_CmsEventListener {
         // create and set the sql manager
         driverManager.m_sqlManager = new CmsSqlManager(driverManager);
 
+        // configure the statistics of the SQL queries
+        CmsSqlStatistics.getInstance().initialize(config);
+
         // set the publish engine
         driverManager.m_publishEngine = publishEngine;
 
@@ -473,6 +482,10 @@ public final class CmsDriverManager implements I_CmsEventListener {
         // initialize the runtime info factory with the generated driver manager
         runtimeInfoFactory.initialize(driverManager);
 
+        // start the background writer for the log entries
+        driverManager.m_logWriter = new CmsLogWriter(driverManager, runtimeInfoFactory, config);
+        driverManager.m_logWriter.start();
+
         if (CmsLog.INIT.isInfoEnabled()) {
             CmsLog.INIT.info(Messages.get().getBundle().key(Messages.INIT_DRIVER_MANAGER_START_PHASE3_0));
         }
@@ -713,7 +726,8 @@ public final class CmsDriverManager implements I_CmsEventListener {
         if (readRoles) {
             m_monitor.flushCache(CmsMemoryMonitor.CacheType.HAS_ROLE, CmsMemoryMonitor.CacheType.ROLE_LIST);
         }
-        m_monitor.flushCache(CmsMemoryMonitor.CacheType.USERGROUPS, CmsMemoryMonitor.CacheType.USER_LIST);
+        flushUserGroupsCache(user);
+        m_monitor.flushCache(CmsMemoryMonitor.CacheType.USER_LIST);
 
         if (!dbc.getProjectId().isNullUUID() && !CmsProject.ONLINE_PROJECT_ID.equals(dbc.getProjectId())) {
             // user modified event is not needed
@@ -1068,6 +1082,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
 
         // clear the cache
         m_monitor.clearAccessControlListCache();
+        m_monitor.flushCache(destination, CmsMemoryMonitor.CacheType.ACL_TREE);
 
         // fire a resource modification event
         Map<String, Object> data = new HashMap<String, Object>(2);
@@ -1936,6 +1951,11 @@ public final class CmsDriverManager implements I_CmsEventListener {
         } finally {
             // clear the internal caches
             m_monitor.clearAccessControlListCache();
+            if (newResource != null) {
+                m_monitor.flushCache(newResource, CmsMemoryMonitor.CacheType.ACL_TREE);
+            } else {
+                m_monitor.flushCache(CmsMemoryMonitor.CacheType.ACL_TREE);
+            }
             m_monitor.flushCache(CmsMemoryMonitor.CacheType.PROPERTY, CmsMemoryMonitor.CacheType.PROPERTY_LIST);
 
             if (newResource != null) {
@@ -2397,7 +2417,8 @@ public final class CmsDriverManager implements I_CmsEventListener {
         m_monitor.flushCache(
             CmsMemoryMonitor.CacheType.USERGROUPS,
             CmsMemoryMonitor.CacheType.USER_LIST,
-            CmsMemoryMonitor.CacheType.ACL);
+            CmsMemoryMonitor.CacheType.ACL,
+            CmsMemoryMonitor.CacheType.ACL_TREE);
 
         if (!dbc.getProjectId().isNullUUID()) {
             // group modified event is not needed
@@ -2725,6 +2746,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
         // unlock all resources in the project
         m_lockManager.removeResourcesInProject(deleteProject.getUuid(), true);
         m_monitor.clearAccessControlListCache();
+        m_monitor.flushCache(CmsMemoryMonitor.CacheType.ACL_TREE);
         m_monitor.clearResourceCache();
 
         // set project to online project if current project is the one which will be deleted
@@ -3068,6 +3090,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
 
         // flush all caches
         m_monitor.clearAccessControlListCache();
+        m_monitor.flushCache(resource, CmsMemoryMonitor.CacheType.ACL_TREE);
         m_monitor.flushCache(
             CmsMemoryMonitor.CacheType.PROPERTY,
             CmsMemoryMonitor.CacheType.PROPERTY_LIST,
@@ -3168,6 +3191,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
         // online
         transferPrincipalResources(dbc, onlineProject, user.getId(), replacementUser.getId(), withACEs);
         getUserDriver(dbc).removeAccessControlEntriesForPrincipal(dbc, project, onlineProject, user.getId());
+        m_monitor.flushCache(CmsMemoryMonitor.CacheType.ACL_TREE);
         getHistoryDriver(dbc).writePrincipal(dbc, user);
         getUserDriver(dbc).deleteUser(dbc, username);
         // delete user from cache
@@ -3191,6 +3215,10 @@ public final class CmsDriverManager implements I_CmsEventListener {
     public void destroy() {
 
         try {
+            if (m_logWriter != null) {
+                // write the pending log entries while the drivers are still available
+                m_logWriter.shutDown();
+            }
             if (m_projectDriver != null) {
                 try {
                     m_projectDriver.destroy();
@@ -3226,22 +3254,24 @@ public final class CmsDriverManager implements I_CmsEventListener {
 
             if (m_connectionPools != null) {
                 for (int i = 0; i < m_connectionPools.size(); i++) {
-                    PoolingDriver driver = m_connectionPools.get(i);
-                    String[] pools = driver.getPoolNames();
-                    for (String pool : pools) {
-                        try {
-                            driver.closePool(pool);
-                            if (CmsLog.INIT.isDebugEnabled()) {
-                                CmsLog.INIT.debug(
-                                    Messages.get().getBundle().key(Messages.INIT_CLOSE_CONN_POOL_1, pool));
-                            }
-                        } catch (Throwable t) {
-                            LOG.error(Messages.get().getBundle().key(Messages.LOG_CLOSE_CONN_POOL_ERROR_1, pool), t);
+                    I_CmsDbPool pool = m_connectionPools.get(i);
+                    try {
+                        pool.close();
+                        if (CmsLog.INIT.isDebugEnabled()) {
+                            CmsLog.INIT.debug(
+                                Messages.get().getBundle().key(Messages.INIT_CLOSE_CONN_POOL_1, pool.getPoolUrl()));
                         }
+                    } catch (Throwable t) {
+                        LOG.error(
+                            Messages.get().getBundle().key(Messages.LOG_CLOSE_CONN_POOL_ERROR_1, pool.getPoolUrl()),
+                            t);
+                    } finally {
+                        CmsDbPool.removePool(pool);
                     }
                 }
                 m_connectionPools = null;
             }
+            CmsSqlStatistics.getInstance().shutDown();
 
             m_monitor.clearCache();
 
@@ -3492,6 +3522,12 @@ public final class CmsDriverManager implements I_CmsEventListener {
     public CmsAccessControlList getAccessControlList(CmsDbContext dbc, CmsResource resource, boolean inheritedOnly)
     throws CmsException {
 
+        if (dbc.getProjectId().isNullUUID()) {
+            CmsAclTree aclTree = m_monitor.getAclTree(dbc.currentProject().isOnlineProject());
+            if (aclTree != null) {
+                return aclTree.getAccessControlList(this, dbc, resource, inheritedOnly);
+            }
+        }
         return getAccessControlList(dbc, resource, inheritedOnly, resource.isFolder(), 0);
     }
 
@@ -3504,18 +3540,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
      */
     public int getActiveConnections(String dbPoolUrl) throws CmsDbException {
 
-        try {
-            for (PoolingDriver d : m_connectionPools) {
-                ObjectPool p = d.getConnectionPool(dbPoolUrl);
-                return p.getNumActive();
-            }
-        } catch (Exception exc) {
-            CmsMessageContainer message = Messages.get().container(Messages.ERR_ACCESSING_POOL_1, dbPoolUrl);
-            throw new CmsDbException(message, exc);
-        }
-
-        CmsMessageContainer message = Messages.get().container(Messages.ERR_UNKNOWN_POOL_URL_1, dbPoolUrl);
-        throw new CmsDbException(message);
+        return getConnectionPool(dbPoolUrl).getNumActive();
     }
 
     /**
@@ -3827,6 +3852,23 @@ public final class CmsDriverManager implements I_CmsEventListener {
         return new ArrayList<CmsGroup>(allChildren);
     }
 
+    /**
+     * Returns the connection pool with the given URL.<p>
+     *
+     * @param dbPoolUrl the url of a pool
+     * @return the connection pool
+     * @throws CmsDbException if no pool with the given URL exists
+     */
+    public I_CmsDbPool getConnectionPool(String dbPoolUrl) throws CmsDbException {
+
+        I_CmsDbPool pool = CmsDbPool.getPool(dbPoolUrl);
+        if (pool == null) {
+            CmsMessageContainer message = Messages.get().container(Messages.ERR_UNKNOWN_POOL_URL_1, dbPoolUrl);
+            throw new CmsDbException(message);
+        }
+        return pool;
+    }
+
     /**
      * Returns the date when the resource was last visited by the user.<p>
      *
@@ -4062,18 +4104,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
      */
     public int getIdleConnections(String dbPoolUrl) throws CmsDbException {
 
-        try {
-            for (PoolingDriver d : m_connectionPools) {
-                ObjectPool p = d.getConnectionPool(dbPoolUrl);
-                return p.getNumIdle();
-            }
-        } catch (Exception exc) {
-            CmsMessageContainer message = Messages.get().container(Messages.ERR_ACCESSING_POOL_1, dbPoolUrl);
-            throw new CmsDbException(message, exc);
-        }
-
-        CmsMessageContainer message = Messages.get().container(Messages.ERR_UNKNOWN_POOL_URL_1, dbPoolUrl);
-        throw new CmsDbException(message);
+        return getConnectionPool(dbPoolUrl).getNumIdle();
     }
 
     /**
@@ -4176,13 +4207,23 @@ public final class CmsDriverManager implements I_CmsEventListener {
     /**
      * Returns the next publish tag for the published historical resources.<p>
      *
+     * Since the history entries of a publish job are written only while it is running,
+     * the tags already handed out to concurrently running publish jobs are also taken into account.<p>
+     *
      * @param dbc the current database context
      *
      * @return the next available publish tag
      */
     public int getNextPublishTag(CmsDbContext dbc) {
 
-        return getHistoryDriver(dbc).readNextPublishTag(dbc);
+        synchronized (m_publishTagLock) {
+            int publishTag = getHistoryDriver(dbc).readNextPublishTag(dbc);
+            if (publishTag <= m_lastPublishTag) {
+                publishTag = m_lastPublishTag + 1;
+            }
+            m_lastPublishTag = publishTag;
+            return publishTag;
+        }
     }
 
     /**
@@ -5004,6 +5045,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
             userDriver.writeAccessControlEntry(dbc, dbc.currentProject(), i.next());
         }
         m_monitor.clearAccessControlListCache();
+        m_monitor.flushCache(resource, CmsMemoryMonitor.CacheType.ACL_TREE);
     }
 
     /**
@@ -5404,7 +5446,12 @@ public final class CmsDriverManager implements I_CmsEventListener {
     public void lockResource(CmsDbContext dbc, CmsResource resource, CmsLockType type) throws CmsException {
 
         // update the resource cache
-        m_monitor.clearResourceCache();
+        m_monitor.flushCache(
+            resource,
+            CmsMemoryMonitor.CacheType.RESOURCE,
+            CmsMemoryMonitor.CacheType.RESOURCE_LIST,
+            CmsMemoryMonitor.CacheType.HAS_ROLE,
+            CmsMemoryMonitor.CacheType.ROLE_LIST);
 
         CmsProject project = dbc.currentProject();
 
@@ -5418,7 +5465,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
         }
 
         // we must also clear the permission cache
-        m_monitor.flushCache(CmsMemoryMonitor.CacheType.PERMISSION);
+        m_monitor.flushCache(resource, CmsMemoryMonitor.CacheType.PERMISSION);
 
         // fire resource modification event
         Map<String, Object> data = new HashMap<String, Object>(2);
@@ -5433,8 +5480,9 @@ public final class CmsDriverManager implements I_CmsEventListener {
     /**
      * Adds the given log entry to the current user's log.<p>
      *
-     * This operation works only on memory, to get the log entries actually
-     * written to DB you have to call the {@link #updateLog(CmsDbContext)} method.<p>
+     * This operation works only on memory, the log entries are written to the DB
+     * in the background. To get all log entries actually written to DB immediately
+     * you have to call the {@link #updateLog(CmsDbContext)} method.<p>
      *
      * @param dbc the current database context
      * @param logEntry the log entry to create
@@ -5463,8 +5511,8 @@ public final class CmsDriverManager implements I_CmsEventListener {
         }
         // prevent several entries for the same operation
         dbc.setAttribute(CmsLogEntry.ATTR_LOG_ENTRY, Boolean.TRUE);
-        // keep it for later
-        m_log.add(logEntry);
+        // keep it for the log writer
+        m_logWriter.add(dbc, logEntry);
     }
 
     /**
@@ -5774,6 +5822,8 @@ public final class CmsDriverManager implements I_CmsEventListener {
 
         // flush all relevant caches
         m_monitor.clearAccessControlListCache();
+        m_monitor.flushCache(source, CmsMemoryMonitor.CacheType.ACL_TREE);
+        m_monitor.flushCache(destRes, CmsMemoryMonitor.CacheType.ACL_TREE);
         m_monitor.flushCache(
             CmsMemoryMonitor.CacheType.PROPERTY,
             CmsMemoryMonitor.CacheType.PROPERTY_LIST,
@@ -6015,10 +6065,10 @@ public final class CmsDriverManager implements I_CmsEventListener {
      */
     public void newPoolInstance(CmsParameterConfiguration configuration, String poolName) throws CmsInitException {
 
-        PoolingDriver driver;
+        I_CmsDbPool pool;
 
         try {
-            driver = CmsDbPool.createDriverManagerConnectionPool(configuration, poolName);
+            pool = CmsDbPool.createPool(configuration, poolName);
         } catch (Exception e) {
 
             CmsMessageContainer message = Messages.get().container(Messages.ERR_INIT_CONN_POOL_1, poolName);
@@ -6028,7 +6078,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
             throw new CmsInitException(message, e);
         }
 
-        m_connectionPools.add(driver);
+        m_connectionPools.add(pool);
     }
 
     /**
@@ -6559,6 +6609,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
             resourceList = m_monitor.getCachedResourceList(cacheKey);
         }
         if ((resourceList == null) || !dbc.getProjectId().isNullUUID()) {
+            long[] snapshot = m_monitor.getCacheSnapshot(CmsMemoryMonitor.CacheType.RESOURCE_LIST);
             // read the result form the database
             resourceList = getVfsDriver(dbc).readChildResources(
                 dbc,
@@ -6573,7 +6624,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
             }
             // cache the sub resources
             if (dbc.getProjectId().isNullUUID()) {
-                m_monitor.cacheResourceList(cacheKey, resourceList);
+                m_monitor.cacheResourceList(cacheKey, resourceList, resource.getRootPath(), snapshot);
             }
         }
 
@@ -6581,6 +6632,43 @@ public final class CmsDriverManager implements I_CmsEventListener {
         return updateContextDates(dbc, resourceList, filter);
     }
 
+    /**
+     * Writes the binary content of a file resource to an output stream.<p>
+     *
+     * Unlike {@link #readFile(CmsDbContext, CmsResource)}, this does not hold the complete content
+     * in memory, as long as the VFS driver is able to stream it.<p>
+     *
+     * @param dbc the current database context
+     * @param resource the file resource to read the content for
+     * @param out the output stream to write the content to
+     *
+     * @return the number of bytes written
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public long readContent(CmsDbContext dbc, CmsResource resource, OutputStream out) throws CmsException {
+
+        if (resource.isFolder()) {
+            throw new CmsVfsResourceNotFoundException(
+                Messages.get().container(
+                    Messages.ERR_ACCESS_FOLDER_AS_FILE_1,
+                    dbc.removeSiteRoot(resource.getRootPath())));
+        }
+        if (resource instanceof I_CmsHistoryResource) {
+            // historical contents are only available as a whole
+            byte[] content = readFile(dbc, resource).getContents();
+            try {
+                out.write(content);
+            } catch (IOException e) {
+                throw new CmsDbIoException(
+                    Messages.get().container(Messages.ERR_READ_FILE_1, dbc.removeSiteRoot(resource.getRootPath())),
+                    e);
+            }
+            return content.length;
+        }
+        return getVfsDriver(dbc).readContent(dbc, dbc.currentProject().getUuid(), resource.getResourceId(), out);
+    }
+
     /**
      * Returns the default file for the given folder.<p>
      *
@@ -7182,9 +7270,10 @@ public final class CmsDriverManager implements I_CmsEventListener {
         // the current resource
         CmsResource currentResource = m_monitor.getCachedResource(cacheKey);
         if ((currentResource == null) || !dbc.getProjectId().isNullUUID()) {
+            long[] snapshot = m_monitor.getCacheSnapshot(CmsMemoryMonitor.CacheType.RESOURCE);
             currentResource = getVfsDriver(dbc).readFolder(dbc, projectId, cp);
             if (dbc.getProjectId().isNullUUID()) {
-                m_monitor.cacheResource(cacheKey, currentResource);
+                m_monitor.cacheResource(cacheKey, currentResource, snapshot);
             }
         }
 
@@ -7208,9 +7297,10 @@ public final class CmsDriverManager implements I_CmsEventListener {
             cacheKey = getCacheKey(null, false, projectId, cp);
             currentResource = m_monitor.getCachedResource(cacheKey);
             if ((currentResource == null) || !dbc.getProjectId().isNullUUID()) {
+                long[] snapshot = m_monitor.getCacheSnapshot(CmsMemoryMonitor.CacheType.RESOURCE);
                 currentResource = getVfsDriver(dbc).readFolder(dbc, projectId, cp);
                 if (dbc.getProjectId().isNullUUID()) {
-                    m_monitor.cacheResource(cacheKey, currentResource);
+                    m_monitor.cacheResource(cacheKey, currentResource, snapshot);
                 }
             }
 
@@ -7235,9 +7325,10 @@ public final class CmsDriverManager implements I_CmsEventListener {
             cacheKey = getCacheKey(null, false, projectId, cp);
             currentResource = m_monitor.getCachedResource(cacheKey);
             if ((currentResource == null) || !dbc.getProjectId().isNullUUID()) {
+                long[] snapshot = m_monitor.getCacheSnapshot(CmsMemoryMonitor.CacheType.RESOURCE);
                 currentResource = getVfsDriver(dbc).readResource(dbc, projectId, cp, filter.includeDeleted());
                 if (dbc.getProjectId().isNullUUID()) {
-                    m_monitor.cacheResource(cacheKey, currentResource);
+                    m_monitor.cacheResource(cacheKey, currentResource, snapshot);
                 }
             }
 
@@ -7471,10 +7562,12 @@ public final class CmsDriverManager implements I_CmsEventListener {
         // check if we have the result already cached
         CmsUUID projectId = getProjectIdForContext(dbc);
         String cacheKey = getCacheKey(CACHE_ALL_PROPERTIES, search, projectId, resource.getRootPath());
+        CmsResource cachedResource = resource;
 
         List<CmsProperty> properties = m_monitor.getCachedPropertyList(cacheKey);
 
         if ((properties == null) || !dbc.getProjectId().isNullUUID()) {
+            long[] snapshot = m_monitor.getCacheSnapshot(CmsMemoryMonitor.CacheType.PROPERTY_LIST);
             // result not cached, let's look it up in the DB
             if (search) {
                 boolean cont;
@@ -7517,13 +7610,96 @@ public final class CmsDriverManager implements I_CmsEventListener {
             CmsProperty.setFrozen(properties);
             if (dbc.getProjectId().isNullUUID()) {
                 // store the result in the cache if needed
-                m_monitor.cachePropertyList(cacheKey, properties);
+                m_monitor.cachePropertyList(cacheKey, properties, cachedResource, search, snapshot);
             }
         }
 
         return new ArrayList<CmsProperty>(properties);
     }
 
+    /**
+     * Reads all property objects mapped to the given resources from the database.<p>
+     *
+     * Property lists already in the cache are taken from there, all others are read
+     * with a single bulk read and put into the cache afterwards.<p>
+     *
+     * All properties in the result lists will be in frozen (read only) state, so you can't change the values.<p>
+     *
+     * @param dbc the current database context
+     * @param resources the resources where the properties are read from
+     * @param search true, if the properties should be searched on all parent folders  if not found on the resource
+     *
+     * @return the lists of CmsProperty objects containing the structure and/or resource value,
+     *      with the structure ID of the resource as key
+     *
+     * @throws CmsException if something goes wrong
+     *
+     * @see CmsObject#readPropertyObjects(List, boolean)
+     */
+    public Map<CmsUUID, List<CmsProperty>> readPropertyObjects(
+        CmsDbContext dbc,
+        List<CmsResource> resources,
+        boolean search)
+    throws CmsException {
+
+        CmsUUID projectId = getProjectIdForContext(dbc);
+        Map<CmsUUID, List<CmsProperty>> result = new HashMap<CmsUUID, List<CmsProperty>>(resources.size());
+        List<CmsResource> missing = new ArrayList<CmsResource>();
+        for (CmsResource resource : resources) {
+            if (result.containsKey(resource.getStructureId())) {
+                continue;
+            }
+            List<CmsProperty> properties = null;
+            if (dbc.getProjectId().isNullUUID()) {
+                properties = m_monitor.getCachedPropertyList(
+                    getCacheKey(CACHE_ALL_PROPERTIES, search, projectId, resource.getRootPath()));
+            }
+            if (properties != null) {
+                result.put(resource.getStructureId(), new ArrayList<CmsProperty>(properties));
+            } else {
+                result.put(resource.getStructureId(), null);
+                missing.add(resource);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        if (search) {
+            // read the properties of the resources themselves in one go, so the search
+            // below only has to read the parent folders which are usually cached already
+            readPropertyObjects(dbc, missing, false);
+            for (CmsResource resource : missing) {
+                result.put(resource.getStructureId(), readPropertyObjects(dbc, resource, true));
+            }
+        } else {
+            long[] snapshot = m_monitor.getCacheSnapshot(CmsMemoryMonitor.CacheType.PROPERTY_LIST);
+            Map<CmsUUID, List<CmsProperty>> read = getVfsDriver(dbc).readPropertyObjects(
+                dbc,
+                dbc.currentProject(),
+                missing);
+            for (CmsResource resource : missing) {
+                List<CmsProperty> properties = read.get(resource.getStructureId());
+                if (properties == null) {
+                    properties = new ArrayList<CmsProperty>();
+                }
+                // set all properties in the result list as frozen
+                CmsProperty.setFrozen(properties);
+                if (dbc.getProjectId().isNullUUID()) {
+                    // store the result in the cache if needed
+                    m_monitor.cachePropertyList(
+                        getCacheKey(CACHE_ALL_PROPERTIES, false, projectId, resource.getRootPath()),
+                        properties,
+                        resource,
+                        false,
+                        snapshot);
+                }
+                result.put(resource.getStructureId(), new ArrayList<CmsProperty>(properties));
+            }
+        }
+        return result;
+    }
+
     /**
      * Reads the resources that were published in a publish task for a given publish history ID.<p>
      *
@@ -7693,6 +7869,37 @@ public final class CmsDriverManager implements I_CmsEventListener {
         return resource;
     }
 
+    /**
+     * Reads a list of resources specified by their structure IDs, using the specified resource filter.<p>
+     *
+     * The resources are read in bulk, and the permissions and the filter are applied to the
+     * whole list at once. Resources which do not exist, are filtered out or can not be read
+     * by the current user are not contained in the result.<p>
+     *
+     * @param dbc the current database context
+     * @param structureIds the structure IDs of the resources to read
+     * @param filter the resource filter to use while reading
+     *
+     * @return the resources that were read, in the order of the given IDs
+     *
+     * @throws CmsException if something goes wrong
+     *
+     * @see CmsObject#readResources(List, CmsResourceFilter)
+     */
+    public List<CmsResource> readResources(CmsDbContext dbc, List<CmsUUID> structureIds, CmsResourceFilter filter)
+    throws CmsException {
+
+        CmsUUID projectId = getProjectIdForContext(dbc);
+        List<CmsResource> resources = getVfsDriver(dbc).readResources(
+            dbc,
+            projectId,
+            structureIds,
+            filter.includeDeleted());
+        resources = filterPermissions(dbc, resources, filter);
+        // we must always apply the result filter and update the context dates
+        return updateContextDates(dbc, resources, filter);
+    }
+
     /**
      * Reads all resources below the given path matching the filter criteria,
      * including the full tree below the path only in case the <code>readTree</code>
@@ -7722,6 +7929,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
 
         List<CmsResource> resourceList = m_monitor.getCachedResourceList(cacheKey);
         if ((resourceList == null) || !dbc.getProjectId().isNullUUID()) {
+            long[] snapshot = m_monitor.getCacheSnapshot(CmsMemoryMonitor.CacheType.RESOURCE_LIST);
             // read the result from the database
             resourceList = getVfsDriver(dbc).readResourceTree(
                 dbc,
@@ -7751,7 +7959,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
             }
             // store the result in the resourceList cache
             if (dbc.getProjectId().isNullUUID()) {
-                m_monitor.cacheResourceList(cacheKey, resourceList);
+                m_monitor.cacheResourceList(cacheKey, resourceList, parent.getRootPath(), snapshot);
             }
         }
         // we must always apply the result filter and update the context dates
@@ -7826,6 +8034,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
         }
         List<CmsResource> resourceList = m_monitor.getCachedResourceList(cacheKey);
         if ((resourceList == null) || !dbc.getProjectId().isNullUUID()) {
+            long[] snapshot = m_monitor.getCacheSnapshot(CmsMemoryMonitor.CacheType.RESOURCE_LIST);
             // first read the property definition
             CmsPropertyDefinition propDef = readPropertyDefinition(dbc, propertyDefinition);
             // now read the list of resources that have a value set for the property definition
@@ -7839,7 +8048,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
             resourceList = filterPermissions(dbc, resourceList, filter);
             // store the result in the resourceList cache
             if (dbc.getProjectId().isNullUUID()) {
-                m_monitor.cacheResourceList(cacheKey, resourceList);
+                m_monitor.cacheResourceList(cacheKey, resourceList, folder.getRootPath(), snapshot);
             }
         }
         // we must always apply the result filter and update the context dates
@@ -8188,6 +8397,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
 
         // clear the cache
         m_monitor.clearAccessControlListCache();
+        m_monitor.flushCache(resource, CmsMemoryMonitor.CacheType.ACL_TREE);
 
         // fire a resource modification event
         Map<String, Object> data = new HashMap<String, Object>(2);
@@ -8351,7 +8561,8 @@ public final class CmsDriverManager implements I_CmsEventListener {
         if (readRoles) {
             m_monitor.flushCache(CmsMemoryMonitor.CacheType.HAS_ROLE, CmsMemoryMonitor.CacheType.ROLE_LIST);
         }
-        m_monitor.flushCache(CmsMemoryMonitor.CacheType.USERGROUPS, CmsMemoryMonitor.CacheType.USER_LIST);
+        flushUserGroupsCache(user);
+        m_monitor.flushCache(CmsMemoryMonitor.CacheType.USER_LIST);
 
         if (!dbc.getProjectId().isNullUUID()) {
             // user modified event is not needed
@@ -9237,13 +9448,18 @@ public final class CmsDriverManager implements I_CmsEventListener {
     throws CmsException {
 
         // update the resource cache
-        m_monitor.clearResourceCache();
+        m_monitor.flushCache(
+            resource,
+            CmsMemoryMonitor.CacheType.RESOURCE,
+            CmsMemoryMonitor.CacheType.RESOURCE_LIST,
+            CmsMemoryMonitor.CacheType.HAS_ROLE,
+            CmsMemoryMonitor.CacheType.ROLE_LIST);
 
         // now update lock status
         m_lockManager.removeResource(dbc, resource, force, removeSystemLock);
 
         // we must also clear the permission cache
-        m_monitor.flushCache(CmsMemoryMonitor.CacheType.PERMISSION);
+        m_monitor.flushCache(resource, CmsMemoryMonitor.CacheType.PERMISSION);
 
         // fire resource modification event
         Map<String, Object> data = new HashMap<String, Object>(2);
@@ -9451,22 +9667,21 @@ public final class CmsDriverManager implements I_CmsEventListener {
 
         synchronized (m_publishListUpdateLock) {
 
-            if (m_log.isEmpty()) {
-                return;
-            }
-
-            List<CmsLogEntry> log = new ArrayList<CmsLogEntry>(m_log);
-            m_log.clear();
             String logTableEnabledStr = (String)OpenCms.getRuntimeProperty(PARAM_LOG_TABLE_ENABLED);
-            if (Boolean.parseBoolean(logTableEnabledStr)) { // defaults to 'false' if value not set
-                m_projectDriver.log(dbc, log);
-            }
-            CmsLogToPublishListChangeConverter converter = new CmsLogToPublishListChangeConverter();
-            for (CmsLogEntry entry : log) {
-                converter.add(entry);
+            List<CmsLogEntry> log = new ArrayList<CmsLogEntry>();
+            // write the pending entries batch by batch, so the queue has room for new entries early
+            while (m_logWriter.drainBatch(log) > 0) {
+                if (Boolean.parseBoolean(logTableEnabledStr)) { // defaults to 'false' if value not set
+                    m_projectDriver.log(dbc, log);
+                }
+                CmsLogToPublishListChangeConverter converter = new CmsLogToPublishListChangeConverter();
+                for (CmsLogEntry entry : log) {
+                    converter.add(entry);
+                }
+                m_projectDriver.deleteUserPublishListEntries(dbc, converter.getPublishListDeletions());
+                m_projectDriver.writeUserPublishListEntries(dbc, converter.getPublishListAdditions());
+                log.clear();
             }
-            m_projectDriver.deleteUserPublishListEntries(dbc, converter.getPublishListDeletions());
-            m_projectDriver.writeUserPublishListEntries(dbc, converter.getPublishListAdditions());
         }
     }
 
@@ -9642,6 +9857,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
 
         // clear the cache
         m_monitor.clearAccessControlListCache();
+        m_monitor.flushCache(resource, CmsMemoryMonitor.CacheType.ACL_TREE);
 
         // fire a resource modification event
         Map<String, Object> data = new HashMap<String, Object>(2);
@@ -9830,7 +10046,12 @@ public final class CmsDriverManager implements I_CmsEventListener {
         deleteRelationsWithSiblings(dbc, resource);
 
         // update the cache
-        m_monitor.clearResourceCache();
+        m_monitor.flushCache(
+            resource,
+            CmsMemoryMonitor.CacheType.RESOURCE,
+            CmsMemoryMonitor.CacheType.RESOURCE_LIST,
+            CmsMemoryMonitor.CacheType.HAS_ROLE,
+            CmsMemoryMonitor.CacheType.ROLE_LIST);
 
         Map<String, Object> data = new HashMap<String, Object>(2);
         data.put(I_CmsEventListener.KEY_RESOURCE, resource);
@@ -10021,8 +10242,14 @@ public final class CmsDriverManager implements I_CmsEventListener {
 
         } finally {
             // update the driver manager cache
-            m_monitor.clearResourceCache();
-            m_monitor.flushCache(CmsMemoryMonitor.CacheType.PROPERTY, CmsMemoryMonitor.CacheType.PROPERTY_LIST);
+            m_monitor.flushCache(
+                resource,
+                CmsMemoryMonitor.CacheType.RESOURCE,
+                CmsMemoryMonitor.CacheType.RESOURCE_LIST,
+                CmsMemoryMonitor.CacheType.HAS_ROLE,
+                CmsMemoryMonitor.CacheType.ROLE_LIST,
+                CmsMemoryMonitor.CacheType.PROPERTY,
+                CmsMemoryMonitor.CacheType.PROPERTY_LIST);
 
             // fire an event that a property of a resource has been modified
             Map<String, Object> data = new HashMap<String, Object>();
@@ -10105,8 +10332,14 @@ public final class CmsDriverManager implements I_CmsEventListener {
             }
         } finally {
             // update the driver manager cache
-            m_monitor.clearResourceCache();
-            m_monitor.flushCache(CmsMemoryMonitor.CacheType.PROPERTY, CmsMemoryMonitor.CacheType.PROPERTY_LIST);
+            m_monitor.flushCache(
+                resource,
+                CmsMemoryMonitor.CacheType.RESOURCE,
+                CmsMemoryMonitor.CacheType.RESOURCE_LIST,
+                CmsMemoryMonitor.CacheType.HAS_ROLE,
+                CmsMemoryMonitor.CacheType.ROLE_LIST,
+                CmsMemoryMonitor.CacheType.PROPERTY,
+                CmsMemoryMonitor.CacheType.PROPERTY_LIST);
 
             // fire an event that the properties of a resource have been modified
             OpenCms.fireCmsEvent(
@@ -10174,7 +10407,12 @@ public final class CmsDriverManager implements I_CmsEventListener {
         }
 
         // update the cache
-        m_monitor.clearResourceCache();
+        m_monitor.flushCache(
+            resource,
+            CmsMemoryMonitor.CacheType.RESOURCE,
+            CmsMemoryMonitor.CacheType.RESOURCE_LIST,
+            CmsMemoryMonitor.CacheType.HAS_ROLE,
+            CmsMemoryMonitor.CacheType.ROLE_LIST);
         Map<String, Object> data = new HashMap<String, Object>(2);
         data.put(I_CmsEventListener.KEY_RESOURCE, resource);
         data.put(I_CmsEventListener.KEY_CHANGE, new Integer(CHANGED_RESOURCE));
@@ -10253,7 +10491,8 @@ public final class CmsDriverManager implements I_CmsEventListener {
         CmsUser oldUser = readUser(dbc, user.getId());
         m_monitor.clearUserCache(oldUser);
         getUserDriver(dbc).writeUser(dbc, user);
-        m_monitor.flushCache(CmsMemoryMonitor.CacheType.USERGROUPS, CmsMemoryMonitor.CacheType.USER_LIST);
+        flushUserGroupsCache(oldUser);
+        m_monitor.flushCache(CmsMemoryMonitor.CacheType.USER_LIST);
 
         if (!dbc.getProjectId().isNullUUID()) {
             // user modified event is not needed
@@ -11056,6 +11295,23 @@ public final class CmsDriverManager implements I_CmsEventListener {
         return result;
     }
 
+    /**
+     * Removes the cached group lists of the given user from the user groups cache.<p>
+     *
+     * With the default cache key generator only the entries of the user are removed,
+     * for other key generators the whole cache is flushed.<p>
+     *
+     * @param user the user whose groups have changed
+     */
+    private void flushUserGroupsCache(CmsUser user) {
+
+        if (m_keyGenerator.getClass() == CmsCacheKey.class) {
+            m_monitor.uncacheUserGroups(CmsCacheKey.getUserGroupsKeySuffix(user));
+        } else {
+            m_monitor.flushCache(CmsMemoryMonitor.CacheType.USERGROUPS);
+        }
+    }
+
     /**
      * Returns the access control list of a given resource.<p>
      *
@@ -11602,6 +11858,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
                 if (aceModified) {
                     // clear the cache
                     m_monitor.clearAccessControlListCache();
+                    m_monitor.flushCache(resource, CmsMemoryMonitor.CacheType.ACL_TREE);
                 }
             }
             if (attrModified || aceModified) {
@@ -11809,6 +12066,10 @@ public final class CmsDriverManager implements I_CmsEventListener {
         // update the cache
         m_monitor.clearResourceCache();
         m_monitor.flushCache(CmsMemoryMonitor.CacheType.PROPERTY, CmsMemoryMonitor.CacheType.PROPERTY_LIST);
+        m_monitor.flushCache(onlineResource, CmsMemoryMonitor.CacheType.ACL_TREE);
+        if (offlineResource != null) {
+            m_monitor.flushCache(offlineResource, CmsMemoryMonitor.CacheType.ACL_TREE);
+        }
 
         if ((offlineResource == null) || offlineResource.getRootPath().equals(onlineResource.getRootPath())) {
             log(
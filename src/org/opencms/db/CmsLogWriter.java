@@ -0,0 +1,282 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import org.opencms.configuration.CmsParameterConfiguration;
+import org.opencms.db.log.CmsLogEntry;
+import org.opencms.main.CmsLog;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Background writer for the log entries collected by the driver manager.<p>
+ *
+ * Log entries are kept in a bounded queue. A background thread writes them to the database
+ * in JDBC batches as soon as a batch is full or the flush interval has passed, so the
+ * operations which create log entries never wait for the database.
+ * Readers of the log or of the user publish lists still call
+ * {@link CmsDriverManager#updateLog(CmsDbContext)} to write all pending entries first.<p>
+ *
+ * If the queue is full, the overflow policy decides what happens with new entries:
+ * with {@link #OVERFLOW_BACKPRESSURE} the thread adding the entry writes the pending entries itself,
+ * with {@link #OVERFLOW_DROP} the new entry is discarded.<p>
+ *
+ * All pending entries are written when the writer is shut down.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsLogWriter extends Thread {
+
+    /** The configuration key for the number of log entries written with one batch. */
+    public static final String CONFIGURATION_BATCH_SIZE = "db.log.batchSize";
+
+    /** The configuration key for the maximum time in milliseconds log entries are kept in the queue. */
+    public static final String CONFIGURATION_FLUSH_INTERVAL = "db.log.flushInterval";
+
+    /** The configuration key for the policy used when the queue is full. */
+    public static final String CONFIGURATION_OVERFLOW = "db.log.overflow";
+
+    /** The configuration key for the maximum number of log entries in the queue. */
+    public static final String CONFIGURATION_QUEUE_SIZE = "db.log.queueSize";
+
+    /** The default batch size. */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    /** The default flush interval in milliseconds. */
+    public static final int DEFAULT_FLUSH_INTERVAL = 5000;
+
+    /** The default queue size. */
+    public static final int DEFAULT_QUEUE_SIZE = 20000;
+
+    /** Overflow policy which makes the thread adding an entry to the full queue write the pending entries. */
+    public static final String OVERFLOW_BACKPRESSURE = "backpressure";
+
+    /** Overflow policy which discards entries added to the full queue. */
+    public static final String OVERFLOW_DROP = "drop";
+
+    /** The maximum time in milliseconds to wait for the writer thread when shutting down. */
+    private static final long SHUTDOWN_TIMEOUT = 30000;
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsLogWriter.class);
+
+    /** Flag indicating if the writer thread should keep running. */
+    private volatile boolean m_alive;
+
+    /** The number of log entries written with one batch. */
+    private int m_batchSize;
+
+    /** The factory for the database contexts used by the writer thread. */
+    private I_CmsDbContextFactory m_dbContextFactory;
+
+    /** The driver manager. */
+    private CmsDriverManager m_driverManager;
+
+    /** The number of log entries dropped since the last warning. */
+    private AtomicLong m_dropped = new AtomicLong();
+
+    /** Flag indicating if entries are dropped when the queue is full. */
+    private boolean m_dropOnOverflow;
+
+    /** The maximum time in milliseconds log entries are kept in the queue. */
+    private int m_flushInterval;
+
+    /** The pending log entries. */
+    private BlockingQueue<CmsLogEntry> m_queue;
+
+    /** The maximum number of log entries in the queue. */
+    private int m_queueSize;
+
+    /** The monitor used to wake up the writer thread. */
+    private Object m_signal = new Object();
+
+    /**
+     * Creates a new log writer.<p>
+     *
+     * @param driverManager the driver manager which writes the log entries
+     * @param dbContextFactory the factory for the database contexts used by the writer thread
+     * @param config the configuration from <code>opencms.properties</code>
+     */
+    public CmsLogWriter(
+        CmsDriverManager driverManager,
+        I_CmsDbContextFactory dbContextFactory,
+        CmsParameterConfiguration config) {
+
+        super("OpenCms: Log writer");
+        setDaemon(true);
+        m_driverManager = driverManager;
+        m_dbContextFactory = dbContextFactory;
+        m_batchSize = Math.max(1, config.getInteger(CONFIGURATION_BATCH_SIZE, DEFAULT_BATCH_SIZE));
+        m_queueSize = Math.max(m_batchSize, config.getInteger(CONFIGURATION_QUEUE_SIZE, DEFAULT_QUEUE_SIZE));
+        m_flushInterval = Math.max(1, config.getInteger(CONFIGURATION_FLUSH_INTERVAL, DEFAULT_FLUSH_INTERVAL));
+        m_dropOnOverflow = OVERFLOW_DROP.equalsIgnoreCase(
+            config.getString(CONFIGURATION_OVERFLOW, OVERFLOW_BACKPRESSURE).trim());
+        m_queue = new LinkedBlockingQueue<CmsLogEntry>(m_queueSize);
+        if (CmsLog.INIT.isInfoEnabled()) {
+            CmsLog.INIT.info(
+                Messages.get().getBundle().key(
+                    Messages.INIT_LOG_WRITER_4,
+                    new Integer(m_batchSize),
+                    new Integer(m_queueSize),
+                    new Integer(m_flushInterval),
+                    m_dropOnOverflow ? OVERFLOW_DROP : OVERFLOW_BACKPRESSURE));
+        }
+    }
+
+    /**
+     * Adds a log entry to the queue.<p>
+     *
+     * If the queue is full, the pending entries are written with the given database context,
+     * or the entry is dropped, depending on the overflow policy.<p>
+     *
+     * @param dbc the current database context
+     * @param logEntry the log entry to add
+     */
+    public void add(CmsDbContext dbc, CmsLogEntry logEntry) {
+
+        while (!m_queue.offer(logEntry)) {
+            if (m_dropOnOverflow) {
+                m_dropped.incrementAndGet();
+                return;
+            }
+            try {
+                m_driverManager.updateLog(dbc);
+            } catch (Throwable t) {
+                // the entries taken from the queue are lost, but there is room for the new entry now
+                LOG.error(Messages.get().getBundle().key(Messages.LOG_LOG_WRITER_ERROR_0), t);
+            }
+        }
+        if (m_queue.size() >= m_batchSize) {
+            synchronized (m_signal) {
+                m_signal.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Removes up to one batch of log entries from the queue.<p>
+     *
+     * @param target the list to add the removed entries to
+     *
+     * @return the number of entries removed
+     */
+    public int drainBatch(List<CmsLogEntry> target) {
+
+        return m_queue.drainTo(target, m_batchSize);
+    }
+
+    /**
+     * Returns the number of pending log entries.<p>
+     *
+     * @return the number of pending log entries
+     */
+    public int getPendingCount() {
+
+        return m_queue.size();
+    }
+
+    /**
+     * @see java.lang.Thread#run()
+     */
+    @Override
+    public void run() {
+
+        while (m_alive) {
+            synchronized (m_signal) {
+                if (m_alive && (m_queue.size() < m_batchSize)) {
+                    try {
+                        m_signal.wait(m_flushInterval);
+                    } catch (InterruptedException e) {
+                        // write the pending entries
+                    }
+                }
+            }
+            flush();
+        }
+        // write the entries added while shutting down
+        flush();
+    }
+
+    /**
+     * Shuts down the writer thread after all pending log entries have been written.<p>
+     */
+    public void shutDown() {
+
+        synchronized (m_signal) {
+            m_alive = false;
+            m_signal.notifyAll();
+        }
+        if (isAlive()) {
+            try {
+                join(SHUTDOWN_TIMEOUT);
+            } catch (InterruptedException e) {
+                // ignore
+            }
+        } else {
+            // the writer thread was never started
+            flush();
+        }
+    }
+
+    /**
+     * @see java.lang.Thread#start()
+     */
+    @Override
+    public synchronized void start() {
+
+        m_alive = true;
+        super.start();
+    }
+
+    /**
+     * Writes all pending log entries.<p>
+     */
+    protected void flush() {
+
+        long dropped = m_dropped.getAndSet(0);
+        if (dropped > 0) {
+            LOG.warn(Messages.get().getBundle().key(Messages.LOG_LOG_ENTRIES_DROPPED_1, new Long(dropped)));
+        }
+        if (m_queue.isEmpty()) {
+            return;
+        }
+        CmsDbContext dbc = m_dbContextFactory.getDbContext();
+        try {
+            m_driverManager.updateLog(dbc);
+        } catch (Throwable t) {
+            LOG.error(Messages.get().getBundle().key(Messages.LOG_LOG_WRITER_ERROR_0), t);
+        } finally {
+            dbc.clear();
+        }
+    }
+}
@@ -0,0 +1,494 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import org.opencms.file.CmsProperty;
+import org.opencms.file.CmsRequestContext;
+import org.opencms.file.CmsResource;
+import org.opencms.file.CmsResourceFilter;
+import org.opencms.util.CmsUUID;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memoizes the results of repeated read operations within a single request.<p>
+ *
+ * A read cache is attached to a request context with {@link CmsRequestContext#setReadCache(CmsRequestReadCache)}.
+ * The security manager then serves repeated reads of resources, paths and properties from this
+ * cache, without permission checks, cache key construction or lookups in the global caches.<p>
+ *
+ * The cached results are only valid as long as the VFS does not change, so they are only used
+ * for the online project. They are dropped as soon as the project, the user or the request time
+ * of the request context changes. All results are returned as copies, so callers may modify them.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsRequestReadCache {
+
+    /** The maximum number of cached results per kind of read operation. */
+    public static final int MAX_ENTRIES = 1000;
+
+    /** The total number of reads served by all read caches. */
+    private static final AtomicLong TOTAL_HITS = new AtomicLong();
+
+    /** The total number of reads not served by any read cache. */
+    private static final AtomicLong TOTAL_MISSES = new AtomicLong();
+
+    /** The number of reads served by this cache. */
+    private int m_hits;
+
+    /** The number of reads which had to be executed. */
+    private int m_misses;
+
+    /** Cached paths, by filter cache id and path. */
+    private Map<String, Map<String, List<CmsResource>>> m_paths;
+
+    /** The id of the project the cached results belong to. */
+    private CmsUUID m_projectId;
+
+    /** Cached single properties, by root path and property name. */
+    private Map<String, Map<String, CmsProperty>> m_properties;
+
+    /** Cached property lists, by root path. */
+    private Map<String, List<CmsProperty>> m_propertyLists;
+
+    /** The request time the cached results belong to. */
+    private long m_requestTime;
+
+    /** Cached resources, by filter cache id and structure id. */
+    private Map<String, Map<CmsUUID, CmsResource>> m_resourcesById;
+
+    /** Cached resources, by filter cache id and root path. */
+    private Map<String, Map<String, CmsResource>> m_resourcesByPath;
+
+    /** Cached searched single properties, by root path and property name. */
+    private Map<String, Map<String, CmsProperty>> m_searchedProperties;
+
+    /** Cached searched property lists, by root path. */
+    private Map<String, List<CmsProperty>> m_searchedPropertyLists;
+
+    /** The id of the user the cached results belong to. */
+    private CmsUUID m_userId;
+
+    /**
+     * Creates a new, empty read cache.<p>
+     */
+    public CmsRequestReadCache() {
+
+        m_resourcesByPath = new HashMap<String, Map<String, CmsResource>>();
+        m_resourcesById = new HashMap<String, Map<CmsUUID, CmsResource>>();
+        m_paths = new HashMap<String, Map<String, List<CmsResource>>>();
+        m_propertyLists = new HashMap<String, List<CmsProperty>>();
+        m_searchedPropertyLists = new HashMap<String, List<CmsProperty>>();
+        m_properties = new HashMap<String, Map<String, CmsProperty>>();
+        m_searchedProperties = new HashMap<String, Map<String, CmsProperty>>();
+    }
+
+    /**
+     * Returns the total number of reads served by all read caches since the start of OpenCms.<p>
+     *
+     * @return the total number of reads served by all read caches
+     */
+    public static long getTotalHits() {
+
+        return TOTAL_HITS.get();
+    }
+
+    /**
+     * Returns the total number of reads not served by any read cache since the start of OpenCms.<p>
+     *
+     * @return the total number of reads not served by any read cache
+     */
+    public static long getTotalMisses() {
+
+        return TOTAL_MISSES.get();
+    }
+
+    /**
+     * Removes all cached results.<p>
+     */
+    public synchronized void clear() {
+
+        m_resourcesByPath.clear();
+        m_resourcesById.clear();
+        m_paths.clear();
+        m_propertyLists.clear();
+        m_searchedPropertyLists.clear();
+        m_properties.clear();
+        m_searchedProperties.clear();
+    }
+
+    /**
+     * Returns the number of reads served by this cache.<p>
+     *
+     * @return the number of reads served by this cache
+     */
+    public synchronized int getHits() {
+
+        return m_hits;
+    }
+
+    /**
+     * Returns the number of reads which were not served by this cache.<p>
+     *
+     * @return the number of reads which were not served by this cache
+     */
+    public synchronized int getMisses() {
+
+        return m_misses;
+    }
+
+    /**
+     * Returns the cached path for the given root path.<p>
+     *
+     * @param context the current request context
+     * @param path the root path
+     * @param filter the filter used for reading
+     *
+     * @return a copy of the cached path, or <code>null</code> if the path is not cached
+     */
+    public synchronized List<CmsResource> getPath(CmsRequestContext context, String path, CmsResourceFilter filter) {
+
+        List<CmsResource> result = null;
+        if (isValid(context)) {
+            Map<String, List<CmsResource>> paths = m_paths.get(filter.getCacheId());
+            if (paths != null) {
+                result = paths.get(path);
+            }
+        }
+        return countLookup(context, result) ? copy(result) : null;
+    }
+
+    /**
+     * Returns a cached single property of the given resource.<p>
+     *
+     * @param context the current request context
+     * @param resource the resource
+     * @param key the property name
+     * @param search if the property has been searched on the parent folders
+     *
+     * @return a copy of the cached property, or <code>null</code> if the property is not cached
+     */
+    public synchronized CmsProperty getProperty(
+        CmsRequestContext context,
+        CmsResource resource,
+        String key,
+        boolean search) {
+
+        CmsProperty result = null;
+        if (isValid(context)) {
+            Map<String, CmsProperty> properties = (search ? m_searchedProperties : m_properties).get(
+                resource.getRootPath());
+            if (properties != null) {
+                result = properties.get(key);
+            }
+        }
+        return countLookup(context, result) ? result.cloneAsProperty() : null;
+    }
+
+    /**
+     * Returns the cached property list of the given resource.<p>
+     *
+     * @param context the current request context
+     * @param resource the resource
+     * @param search if the properties have been searched on the parent folders
+     *
+     * @return a copy of the cached property list, or <code>null</code> if the list is not cached
+     */
+    public synchronized List<CmsProperty> getPropertyObjects(
+        CmsRequestContext context,
+        CmsResource resource,
+        boolean search) {
+
+        List<CmsProperty> result = null;
+        if (isValid(context)) {
+            result = (search ? m_searchedPropertyLists : m_propertyLists).get(resource.getRootPath());
+        }
+        // the cached properties are frozen
+        return countLookup(context, result) ? new ArrayList<CmsProperty>(result) : null;
+    }
+
+    /**
+     * Returns the cached resource with the given structure id.<p>
+     *
+     * @param context the current request context
+     * @param structureId the structure id
+     * @param filter the filter used for reading
+     *
+     * @return a copy of the cached resource, or <code>null</code> if the resource is not cached
+     */
+    public synchronized CmsResource getResource(
+        CmsRequestContext context,
+        CmsUUID structureId,
+        CmsResourceFilter filter) {
+
+        CmsResource result = null;
+        if (isValid(context)) {
+            Map<CmsUUID, CmsResource> resources = m_resourcesById.get(filter.getCacheId());
+            if (resources != null) {
+                result = resources.get(structureId);
+            }
+        }
+        return countLookup(context, result) ? (CmsResource)result.clone() : null;
+    }
+
+    /**
+     * Returns the cached resource with the given root path.<p>
+     *
+     * @param context the current request context
+     * @param rootPath the root path
+     * @param filter the filter used for reading
+     *
+     * @return a copy of the cached resource, or <code>null</code> if the resource is not cached
+     */
+    public synchronized CmsResource getResource(CmsRequestContext context, String rootPath, CmsResourceFilter filter) {
+
+        CmsResource result = null;
+        if (isValid(context)) {
+            Map<String, CmsResource> resources = m_resourcesByPath.get(filter.getCacheId());
+            if (resources != null) {
+                result = resources.get(rootPath);
+            }
+        }
+        return countLookup(context, result) ? (CmsResource)result.clone() : null;
+    }
+
+    /**
+     * Caches a path.<p>
+     *
+     * @param context the current request context
+     * @param path the root path
+     * @param filter the filter used for reading
+     * @param resources the resources of the path
+     */
+    public synchronized void putPath(
+        CmsRequestContext context,
+        String path,
+        CmsResourceFilter filter,
+        List<CmsResource> resources) {
+
+        if (prepare(context)) {
+            put(m_paths, filter.getCacheId(), path, copy(resources));
+        }
+    }
+
+    /**
+     * Caches a single property of a resource.<p>
+     *
+     * @param context the current request context
+     * @param resource the resource
+     * @param key the property name
+     * @param search if the property has been searched on the parent folders
+     * @param property the property
+     */
+    public synchronized void putProperty(
+        CmsRequestContext context,
+        CmsResource resource,
+        String key,
+        boolean search,
+        CmsProperty property) {
+
+        if (prepare(context)) {
+            put(search ? m_searchedProperties : m_properties, resource.getRootPath(), key, property.cloneAsProperty());
+        }
+    }
+
+    /**
+     * Caches the property list of a resource.<p>
+     *
+     * @param context the current request context
+     * @param resource the resource
+     * @param search if the properties have been searched on the parent folders
+     * @param properties the frozen properties
+     */
+    public synchronized void putPropertyObjects(
+        CmsRequestContext context,
+        CmsResource resource,
+        boolean search,
+        List<CmsProperty> properties) {
+
+        if (prepare(context)) {
+            Map<String, List<CmsProperty>> lists = search ? m_searchedPropertyLists : m_propertyLists;
+            if (lists.size() >= MAX_ENTRIES) {
+                lists.clear();
+            }
+            lists.put(resource.getRootPath(), new ArrayList<CmsProperty>(properties));
+        }
+    }
+
+    /**
+     * Caches a resource read by its structure id.<p>
+     *
+     * @param context the current request context
+     * @param structureId the structure id
+     * @param filter the filter used for reading
+     * @param resource the resource
+     */
+    public synchronized void putResource(
+        CmsRequestContext context,
+        CmsUUID structureId,
+        CmsResourceFilter filter,
+        CmsResource resource) {
+
+        if (prepare(context)) {
+            put(m_resourcesById, filter.getCacheId(), structureId, (CmsResource)resource.clone());
+        }
+    }
+
+    /**
+     * Caches a resource read by its root path.<p>
+     *
+     * @param context the current request context
+     * @param rootPath the root path
+     * @param filter the filter used for reading
+     * @param resource the resource
+     */
+    public synchronized void putResource(
+        CmsRequestContext context,
+        String rootPath,
+        CmsResourceFilter filter,
+        CmsResource resource) {
+
+        if (prepare(context)) {
+            put(m_resourcesByPath, filter.getCacheId(), rootPath, (CmsResource)resource.clone());
+        }
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public synchronized String toString() {
+
+        return "hits: " + m_hits + ", misses: " + m_misses;
+    }
+
+    /**
+     * Copies a list of resources.<p>
+     *
+     * @param resources the resources to copy
+     *
+     * @return a new list with copies of the resources
+     */
+    private static List<CmsResource> copy(List<CmsResource> resources) {
+
+        List<CmsResource> result = new ArrayList<CmsResource>(resources.size());
+        for (CmsResource resource : resources) {
+            result.add((CmsResource)resource.clone());
+        }
+        return result;
+    }
+
+    /**
+     * Counts a lookup as hit or miss.<p>
+     *
+     * Lookups outside of the online project are not counted, since the cache is not used there.<p>
+     *
+     * @param context the current request context
+     * @param result the cached result, or <code>null</code>
+     *
+     * @return <code>true</code> if the lookup was a hit
+     */
+    private boolean countLookup(CmsRequestContext context, Object result) {
+
+        if (!context.getCurrentProject().isOnlineProject()) {
+            return false;
+        }
+        if (result != null) {
+            m_hits++;
+            TOTAL_HITS.incrementAndGet();
+            return true;
+        }
+        m_misses++;
+        TOTAL_MISSES.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Checks if the cached results are valid for the given request context.<p>
+     *
+     * @param context the current request context
+     *
+     * @return <code>true</code> if the cached results can be used
+     */
+    private boolean isValid(CmsRequestContext context) {
+
+        return context.getCurrentProject().isOnlineProject()
+            && context.getCurrentProject().getUuid().equals(m_projectId)
+            && context.getCurrentUser().getId().equals(m_userId)
+            && (context.getRequestTime() == m_requestTime);
+    }
+
+    /**
+     * Prepares this cache for storing a result read with the given request context.<p>
+     *
+     * @param context the current request context
+     *
+     * @return <code>true</code> if the result can be stored
+     */
+    private boolean prepare(CmsRequestContext context) {
+
+        if (!context.getCurrentProject().isOnlineProject()) {
+            return false;
+        }
+        if (!isValid(context)) {
+            // the results of another project, user or request time are not valid anymore
+            clear();
+            m_projectId = context.getCurrentProject().getUuid();
+            m_userId = context.getCurrentUser().getId();
+            m_requestTime = context.getRequestTime();
+        }
+        return true;
+    }
+
+    /**
+     * Stores a value in a two level map, and limits the size of the second level.<p>
+     *
+     * @param <K> the type of the keys of the second level
+     * @param <V> the type of the values
+     * @param map the first level map
+     * @param group the key of the first level
+     * @param key the key of the second level
+     * @param value the value to store
+     */
+    private <K, V> void put(Map<String, Map<K, V>> map, String group, K key, V value) {
+
+        Map<K, V> values = map.get(group);
+        if (values == null) {
+            values = new HashMap<K, V>();
+            map.put(group, values);
+        } else if (values.size() >= MAX_ENTRIES) {
+            values.clear();
+        }
+        values.put(key, value);
+    }
+}
@@ -30,14 +30,24 @@ package org.opencms.db;
 import org.opencms.main.CmsLog;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 import org.apache.commons.logging.Log;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 /**
  * Helper class used for matching rewrite aliases to incoming request URIs.<p>
  */
@@ -92,42 +102,189 @@ public class CmsRewriteAliasMatcher {
     /** The logger instance for this class. */
     private static final Log LOG = CmsLog.getLog(CmsRewriteAliasMatcher.class);
 
+    /** The maximum number of paths for which the information that no alias matches them is cached. */
+    private static final int MAX_CACHED_MISSES = 10000;
+
+    /** The characters which have a special meaning in a regular expression. */
+    private static final String REGEX_META_CHARS = "[](){}.*+?^$|";
+
+    /** The characters which are used as quantifiers in a regular expression. */
+    private static final String REGEX_QUANTIFIER_CHARS = "*+?{";
+
     /** The list of rewrite aliases to use for matching. */
     private List<CmsRewriteAlias> m_aliases;
 
+    /** The paths for which no rewrite alias matched. */
+    private Set<String> m_misses;
+
+    /** The compiled patterns of the rewrite aliases, with the same indexes as the aliases; null for invalid patterns. */
+    private Pattern[] m_patterns;
+
+    /** Map from literal prefixes to the indexes of the aliases whose patterns start with that prefix. */
+    private Map<String, int[]> m_prefixIndex;
+
+    /** The distinct lengths of the prefixes in the prefix index, in ascending order. */
+    private int[] m_prefixLengths;
+
     /**
      * Creates a new matcher instance for the given list of rewrite aliases.<p>
      *
+     * The patterns of the aliases are compiled once, and the aliases are indexed by the literal
+     * prefix of their pattern, so that only aliases which can possibly match are tried for a path.<p>
+     *
      * @param aliases the list of rewrite aliases to be used for matching
      */
     public CmsRewriteAliasMatcher(Collection<CmsRewriteAlias> aliases) {
 
         m_aliases = new ArrayList<CmsRewriteAlias>(aliases);
+        m_patterns = new Pattern[m_aliases.size()];
+        Map<String, List<Integer>> prefixes = new HashMap<String, List<Integer>>();
+        for (int i = 0; i < m_aliases.size(); i++) {
+            String patternString = m_aliases.get(i).getPatternString();
+            try {
+                m_patterns[i] = Pattern.compile(patternString);
+            } catch (PatternSyntaxException e) {
+                LOG.warn(e.getLocalizedMessage(), e);
+                continue;
+            }
+            String prefix = getLiteralPrefix(patternString);
+            List<Integer> indexes = prefixes.get(prefix);
+            if (indexes == null) {
+                indexes = new ArrayList<Integer>();
+                prefixes.put(prefix, indexes);
+            }
+            indexes.add(Integer.valueOf(i));
+        }
+        m_prefixIndex = new HashMap<String, int[]>();
+        SortedSet<Integer> lengths = new TreeSet<Integer>();
+        for (Map.Entry<String, List<Integer>> entry : prefixes.entrySet()) {
+            List<Integer> indexes = entry.getValue();
+            int[] indexArray = new int[indexes.size()];
+            for (int j = 0; j < indexArray.length; j++) {
+                indexArray[j] = indexes.get(j).intValue();
+            }
+            m_prefixIndex.put(entry.getKey(), indexArray);
+            lengths.add(Integer.valueOf(entry.getKey().length()));
+        }
+        m_prefixLengths = new int[lengths.size()];
+        int j = 0;
+        for (Integer length : lengths) {
+            m_prefixLengths[j++] = length.intValue();
+        }
+        Cache<String, Boolean> misses = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_MISSES).build();
+        m_misses = Collections.newSetFromMap(misses.asMap());
+    }
+
+    /**
+     * Gets the literal prefix of a regular expression, i.e. a string with which all strings
+     * matching the regular expression must start.<p>
+     *
+     * The prefix is determined conservatively, so it may be shorter than the actual common
+     * prefix of all matching strings, and is empty if the regular expression contains alternatives.<p>
+     *
+     * @param patternString the regular expression
+     *
+     * @return the literal prefix of the regular expression
+     */
+    protected static String getLiteralPrefix(String patternString) {
+
+        if (patternString.indexOf('|') >= 0) {
+            // with alternatives, a string may match without starting with the literal characters
+            return "";
+        }
+        StringBuilder prefix = new StringBuilder();
+        int length = patternString.length();
+        int pos = patternString.startsWith("^") ? 1 : 0;
+        while (pos < length) {
+            char current = patternString.charAt(pos);
+            char literal;
+            int next;
+            if (current == '\\') {
+                if (((pos + 1) >= length) || Character.isLetterOrDigit(patternString.charAt(pos + 1))) {
+                    // character classes, back references, quotations etc.
+                    break;
+                }
+                literal = patternString.charAt(pos + 1);
+                next = pos + 2;
+            } else if (REGEX_META_CHARS.indexOf(current) >= 0) {
+                break;
+            } else {
+                literal = current;
+                next = pos + 1;
+            }
+            if ((next < length) && (REGEX_QUANTIFIER_CHARS.indexOf(patternString.charAt(next)) >= 0)) {
+                // the character is followed by a quantifier, so it may be missing or repeated
+                break;
+            }
+            prefix.append(literal);
+            pos = next;
+        }
+        return prefix.toString();
     }
 
     /**
      * Tries to rewrite a given path, and either returns the rewrite result or null if no
      * rewrite alias matched the path.<p>
      *
+     * If multiple rewrite aliases match the path, the first one in the list of aliases is used.<p>
+     *
      * @param path the path to match
      * @return the rewrite result or null if no rewrite alias matched
      */
     public RewriteResult match(String path) {
 
-        for (CmsRewriteAlias alias : m_aliases) {
+        if (m_misses.contains(path)) {
+            return null;
+        }
+        for (int index : getCandidates(path)) {
+            CmsRewriteAlias alias = m_aliases.get(index);
             try {
-                Pattern pattern = Pattern.compile(alias.getPatternString());
-                Matcher matcher = pattern.matcher(path);
+                Matcher matcher = m_patterns[index].matcher(path);
                 if (matcher.matches()) {
                     String newPath = matcher.replaceFirst(alias.getReplacementString());
                     return new RewriteResult(newPath, alias);
                 }
-            } catch (PatternSyntaxException e) {
-                LOG.warn(e.getLocalizedMessage(), e);
             } catch (IndexOutOfBoundsException e) {
                 LOG.warn(e.getLocalizedMessage(), e);
             }
         }
+        m_misses.add(path);
         return null;
     }
+
+    /**
+     * Gets the indexes of the aliases whose literal prefix is a prefix of the given path, in ascending order.<p>
+     *
+     * @param path the path
+     *
+     * @return the indexes of the aliases which can possibly match the path
+     */
+    private int[] getCandidates(String path) {
+
+        int[][] buckets = new int[m_prefixLengths.length][];
+        int count = 0;
+        int bucketCount = 0;
+        for (int length : m_prefixLengths) {
+            if (length > path.length()) {
+                break;
+            }
+            int[] bucket = m_prefixIndex.get(path.substring(0, length));
+            if (bucket != null) {
+                buckets[bucketCount++] = bucket;
+                count += bucket.length;
+            }
+        }
+        if (bucketCount == 1) {
+            return buckets[0];
+        }
+        int[] result = new int[count];
+        int pos = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            System.arraycopy(buckets[i], 0, result, pos, buckets[i].length);
+            pos += buckets[i].length;
+        }
+        // restore the original order of the aliases
+        Arrays.sort(result);
+        return result;
+    }
 }
@@ -53,6 +53,7 @@ import org.opencms.file.history.CmsHistoryPrincipal;
 import org.opencms.file.history.CmsHistoryProject;
 import org.opencms.file.history.I_CmsHistoryResource;
 import org.opencms.file.types.CmsResourceTypeJsp;
+import org.opencms.flex.CmsFlexRequestContextInfo;
 import org.opencms.gwt.shared.alias.CmsAliasImportResult;
 import org.opencms.gwt.shared.alias.CmsAliasMode;
 import org.opencms.i18n.CmsMessageContainer;
@@ -89,9 +90,11 @@ import org.opencms.security.CmsSecurityException;
 import org.opencms.security.I_CmsPermissionHandler;
 import org.opencms.security.I_CmsPrincipal;
 import org.opencms.util.CmsFileUtil;
+import org.opencms.util.CmsRequestUtil;
 import org.opencms.util.CmsStringUtil;
 import org.opencms.util.CmsUUID;
 
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -4138,6 +4141,34 @@ public final class CmsSecurityManager {
         return result;
     }
 
+    /**
+     * Writes the binary content of a file resource to an output stream, without holding
+     * the complete content in memory.<p>
+     *
+     * @param context the current request context
+     * @param resource the file resource to read the content for
+     * @param out the output stream to write the content to
+     *
+     * @return the number of bytes written
+     *
+     * @throws CmsException if something goes wrong
+     *
+     * @see CmsObject#readContent(CmsResource, OutputStream)
+     */
+    public long readContent(CmsRequestContext context, CmsResource resource, OutputStream out) throws CmsException {
+
+        long result = 0;
+        CmsDbContext dbc = m_dbContextFactory.getDbContext(context);
+        try {
+            result = m_driverManager.readContent(dbc, resource, out);
+        } catch (Exception e) {
+            dbc.report(null, Messages.get().container(Messages.ERR_READ_FILE_1, context.getSitePath(resource)), e);
+        } finally {
+            dbc.clear();
+        }
+        return result;
+    }
+
     /**
      * Returns the default file for the given folder.<p>
      *
@@ -4641,10 +4672,23 @@ public final class CmsSecurityManager {
     public List<CmsResource> readPath(CmsRequestContext context, String path, CmsResourceFilter filter)
     throws CmsException {
 
+        CmsRequestReadCache readCache = context.getReadCache();
+        if (readCache != null) {
+            List<CmsResource> cached = readCache.getPath(context, path, filter);
+            if (cached != null) {
+                for (CmsResource resource : cached) {
+                    updateContextDates(context, resource);
+                }
+                return cached;
+            }
+        }
         CmsDbContext dbc = m_dbContextFactory.getDbContext(context);
         List<CmsResource> result = null;
         try {
             result = m_driverManager.readPath(dbc, path, filter);
+            if (readCache != null) {
+                readCache.putPath(context, path, filter, result);
+            }
         } catch (Exception e) {
             dbc.report(
                 null,
@@ -4843,11 +4887,21 @@ public final class CmsSecurityManager {
         Locale locale)
     throws CmsException {
 
+        CmsRequestReadCache readCache = (null == locale) ? context.getReadCache() : null;
+        if (readCache != null) {
+            CmsProperty cached = readCache.getProperty(context, resource, key, search);
+            if (cached != null) {
+                return cached;
+            }
+        }
         CmsProperty result = null;
         CmsDbContext dbc = m_dbContextFactory.getDbContext(context);
         try {
             if (null == locale) {
                 result = m_driverManager.readPropertyObject(dbc, resource, key, search);
+                if (readCache != null) {
+                    readCache.putProperty(context, resource, key, search, result);
+                }
             } else {
                 result = m_driverManager.readPropertyObject(dbc, resource, key, search, locale);
             }
@@ -4886,10 +4940,20 @@ public final class CmsSecurityManager {
     public List<CmsProperty> readPropertyObjects(CmsRequestContext context, CmsResource resource, boolean search)
     throws CmsException {
 
+        CmsRequestReadCache readCache = context.getReadCache();
+        if (readCache != null) {
+            List<CmsProperty> cached = readCache.getPropertyObjects(context, resource, search);
+            if (cached != null) {
+                return cached;
+            }
+        }
         List<CmsProperty> result = null;
         CmsDbContext dbc = m_dbContextFactory.getDbContext(context);
         try {
             result = m_driverManager.readPropertyObjects(dbc, resource, search);
+            if (readCache != null) {
+                readCache.putPropertyObjects(context, resource, search, result);
+            }
         } catch (Exception e) {
             dbc.report(
                 null,
@@ -4901,6 +4965,64 @@ public final class CmsSecurityManager {
         return result;
     }
 
+    /**
+     * Reads all property objects of a list of resources.<p>
+     *
+     * Property lists which are not yet cached are read with a single bulk read.
+     * See {@link #readPropertyObjects(CmsRequestContext, CmsResource, boolean)} for the
+     * meaning of the <code>search</code> parameter.<p>
+     *
+     * @param context the context of the current request
+     * @param resources the resources where the properties are mapped to
+     * @param search <code>true</code>, if the properties should be searched on all parent folders  if not found on the resource
+     *
+     * @return the lists of <code>{@link CmsProperty}</code> objects, with the structure ID of the resource as key
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public Map<CmsUUID, List<CmsProperty>> readPropertyObjects(
+        CmsRequestContext context,
+        List<CmsResource> resources,
+        boolean search)
+    throws CmsException {
+
+        Map<CmsUUID, List<CmsProperty>> result = new HashMap<CmsUUID, List<CmsProperty>>(resources.size());
+        List<CmsResource> missing = new ArrayList<CmsResource>();
+        CmsRequestReadCache readCache = context.getReadCache();
+        for (CmsResource resource : resources) {
+            List<CmsProperty> cached = null;
+            if (readCache != null) {
+                cached = readCache.getPropertyObjects(context, resource, search);
+            }
+            if (cached != null) {
+                result.put(resource.getStructureId(), cached);
+            } else {
+                missing.add(resource);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+        CmsDbContext dbc = m_dbContextFactory.getDbContext(context);
+        try {
+            Map<CmsUUID, List<CmsProperty>> read = m_driverManager.readPropertyObjects(dbc, missing, search);
+            if (readCache != null) {
+                for (CmsResource resource : missing) {
+                    readCache.putPropertyObjects(context, resource, search, read.get(resource.getStructureId()));
+                }
+            }
+            result.putAll(read);
+        } catch (Exception e) {
+            dbc.report(
+                null,
+                Messages.get().container(Messages.ERR_READ_PROPS_FOR_RESOURCES_1, new Integer(missing.size())),
+                e);
+        } finally {
+            dbc.clear();
+        }
+        return result;
+    }
+
     /**
      * Reads the resources that were published in a publish task for a given publish history ID.<p>
      *
@@ -4998,10 +5120,21 @@ public final class CmsSecurityManager {
     public CmsResource readResource(CmsRequestContext context, CmsUUID structureID, CmsResourceFilter filter)
     throws CmsException {
 
+        CmsRequestReadCache readCache = context.getReadCache();
+        if (readCache != null) {
+            CmsResource cached = readCache.getResource(context, structureID, filter);
+            if (cached != null) {
+                updateContextDates(context, cached);
+                return cached;
+            }
+        }
         CmsResource result = null;
         CmsDbContext dbc = m_dbContextFactory.getDbContext(context);
         try {
             result = readResource(dbc, structureID, filter);
+            if (readCache != null) {
+                readCache.putResource(context, structureID, filter, result);
+            }
         } catch (Exception e) {
             dbc.report(null, Messages.get().container(Messages.ERR_READ_RESOURCE_FOR_ID_1, structureID), e);
         } finally {
@@ -5043,10 +5176,21 @@ public final class CmsSecurityManager {
     public CmsResource readResource(CmsRequestContext context, String resourcePath, CmsResourceFilter filter)
     throws CmsException {
 
+        CmsRequestReadCache readCache = context.getReadCache();
+        if (readCache != null) {
+            CmsResource cached = readCache.getResource(context, resourcePath, filter);
+            if (cached != null) {
+                updateContextDates(context, cached);
+                return cached;
+            }
+        }
         CmsResource result = null;
         CmsDbContext dbc = m_dbContextFactory.getDbContext(context);
         try {
             result = readResource(dbc, resourcePath, filter);
+            if (readCache != null) {
+                readCache.putResource(context, resourcePath, filter, result);
+            }
         } catch (Exception e) {
             dbc.report(
                 null,
@@ -5058,6 +5202,72 @@ public final class CmsSecurityManager {
         return result;
     }
 
+    /**
+     * Reads a list of resources specified by their structure IDs, using the specified resource filter.<p>
+     *
+     * Resources which are not yet cached are read with a single bulk read, and the permissions
+     * are checked for all of them in one pass. Resources which do not exist, do not match
+     * the filter or can not be read by the current user are skipped.<p>
+     *
+     * @param context the current request context
+     * @param structureIds the structure IDs of the resources to read
+     * @param filter the resource filter to use while reading
+     *
+     * @return the resources that were read, in the order of the given IDs
+     *
+     * @throws CmsException if something goes wrong
+     *
+     * @see CmsObject#readResources(List, CmsResourceFilter)
+     */
+    public List<CmsResource> readResources(
+        CmsRequestContext context,
+        List<CmsUUID> structureIds,
+        CmsResourceFilter filter)
+    throws CmsException {
+
+        Map<CmsUUID, CmsResource> resources = new HashMap<CmsUUID, CmsResource>(structureIds.size());
+        List<CmsUUID> missing = new ArrayList<CmsUUID>();
+        CmsRequestReadCache readCache = context.getReadCache();
+        for (CmsUUID structureId : structureIds) {
+            CmsResource cached = null;
+            if (readCache != null) {
+                cached = readCache.getResource(context, structureId, filter);
+            }
+            if (cached != null) {
+                updateContextDates(context, cached);
+                resources.put(structureId, cached);
+            } else {
+                missing.add(structureId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            CmsDbContext dbc = m_dbContextFactory.getDbContext(context);
+            try {
+                for (CmsResource resource : m_driverManager.readResources(dbc, missing, filter)) {
+                    if (readCache != null) {
+                        readCache.putResource(context, resource.getStructureId(), filter, resource);
+                    }
+                    resources.put(resource.getStructureId(), resource);
+                }
+            } catch (Exception e) {
+                dbc.report(
+                    null,
+                    Messages.get().container(Messages.ERR_READ_RESOURCES_FOR_IDS_1, new Integer(missing.size())),
+                    e);
+            } finally {
+                dbc.clear();
+            }
+        }
+        List<CmsResource> result = new ArrayList<CmsResource>(resources.size());
+        for (CmsUUID structureId : structureIds) {
+            CmsResource resource = resources.remove(structureId);
+            if (resource != null) {
+                result.add(resource);
+            }
+        }
+        return result;
+    }
+
     /**
      * Reads all resources below the given path matching the filter criteria,
      * including the full tree below the path only in case the <code>readTree</code>
@@ -7506,4 +7716,19 @@ public final class CmsSecurityManager {
         }
     }
 
+    /**
+     * Updates the dates of the current Flex request with a resource served by the read cache,
+     * like the driver manager does for resources read from the VFS.<p>
+     *
+     * @param context the current request context
+     * @param resource the resource
+     */
+    private void updateContextDates(CmsRequestContext context, CmsResource resource) {
+
+        CmsFlexRequestContextInfo info = (CmsFlexRequestContextInfo)context.getAttribute(
+            CmsRequestUtil.HEADER_LAST_MODIFIED);
+        if (info != null) {
+            info.updateFromResource(resource);
+        }
+    }
 }
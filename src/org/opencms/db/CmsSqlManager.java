@@ -93,9 +93,27 @@ public class CmsSqlManager {
      */
     public Connection getConnectionByUrl(String dbPoolUrl) throws SQLException {
 
+        I_CmsDbPool pool = CmsDbPool.getPool(dbPoolUrl);
+        if (pool != null) {
+            return pool.getConnection();
+        }
         return DriverManager.getConnection(dbPoolUrl);
     }
 
+    /**
+     * Returns the connection pool with the given URL.<p>
+     *
+     * The pool provides statistics like the number of borrowed connections and the time waited for them.<p>
+     *
+     * @param dbPoolUrl the url of a pool
+     * @return the connection pool
+     * @throws CmsDbException if no pool with the given URL exists
+     */
+    public I_CmsDbPool getConnectionPool(String dbPoolUrl) throws CmsDbException {
+
+        return m_driverManager.getConnectionPool(dbPoolUrl);
+    }
+
     /**
      * Returns a list of available database connection pool names.<p>
      *
@@ -127,4 +145,16 @@ public class CmsSqlManager {
 
         return m_driverManager.getIdleConnections(dbPoolUrl);
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the execution statistics of the named SQL queries.<p>
+     *
+     * The list is empty unless the statistics are enabled with <code>db.statistics.enabled</code>.<p>
+     *
+     * @return the statistics of all queries, with the longest total execution time first
+     */
+    public List<CmsSqlQueryStatistics> getQueryStatistics() {
+
+        return CmsSqlStatistics.getInstance().getQueryStatistics();
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The execution statistics of a single named SQL query.<p>
+ *
+ * The execution times are recorded in a histogram with fixed bounds, so percentiles are
+ * returned as the upper bound of the histogram bucket they fall into.
+ * Only the time needed to execute a statement is measured, not the time needed to read the results.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsSqlQueryStatistics {
+
+    /** The upper bounds of the histogram buckets in milliseconds, the last bucket has no upper bound. */
+    private static final long[] BUCKET_BOUNDS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000};
+
+    /** The histogram of execution times. */
+    private AtomicLongArray m_buckets = new AtomicLongArray(BUCKET_BOUNDS.length + 1);
+
+    /** The number of executions. */
+    private AtomicLong m_count = new AtomicLong();
+
+    /** The number of failed executions. */
+    private AtomicLong m_errors = new AtomicLong();
+
+    /** The key of the query. */
+    private String m_key;
+
+    /** The longest execution time in nanoseconds. */
+    private AtomicLong m_maxNanos = new AtomicLong();
+
+    /** The number of rows read or updated. */
+    private AtomicLong m_rows = new AtomicLong();
+
+    /** The total execution time in nanoseconds. */
+    private AtomicLong m_totalNanos = new AtomicLong();
+
+    /**
+     * Creates new statistics for a query.<p>
+     *
+     * @param key the key of the query
+     */
+    public CmsSqlQueryStatistics(String key) {
+
+        m_key = key;
+    }
+
+    /**
+     * Returns the average execution time in milliseconds.<p>
+     *
+     * @return the average execution time
+     */
+    public double getAverageTime() {
+
+        long count = m_count.get();
+        return count == 0 ? 0 : (m_totalNanos.get() / 1000000.0) / count;
+    }
+
+    /**
+     * Returns the number of executions.<p>
+     *
+     * @return the number of executions
+     */
+    public long getCount() {
+
+        return m_count.get();
+    }
+
+    /**
+     * Returns the number of failed executions.<p>
+     *
+     * @return the number of failed executions
+     */
+    public long getErrors() {
+
+        return m_errors.get();
+    }
+
+    /**
+     * Returns the key of the query in the <code>query.properties</code>.<p>
+     *
+     * @return the key of the query
+     */
+    public String getKey() {
+
+        return m_key;
+    }
+
+    /**
+     * Returns the longest execution time in milliseconds.<p>
+     *
+     * @return the longest execution time
+     */
+    public long getMaxTime() {
+
+        return m_maxNanos.get() / 1000000L;
+    }
+
+    /**
+     * Returns the median of the execution times in milliseconds.<p>
+     *
+     * @return the median of the execution times
+     */
+    public long getMedianTime() {
+
+        return getPercentile(50);
+    }
+
+    /**
+     * Returns the 95th percentile of the execution times in milliseconds.<p>
+     *
+     * @return the 95th percentile of the execution times
+     */
+    public long getPercentile95Time() {
+
+        return getPercentile(95);
+    }
+
+    /**
+     * Returns the 99th percentile of the execution times in milliseconds.<p>
+     *
+     * @return the 99th percentile of the execution times
+     */
+    public long getPercentile99Time() {
+
+        return getPercentile(99);
+    }
+
+    /**
+     * Returns the number of rows read or updated.<p>
+     *
+     * For queries, only the rows which have actually been read from the result set are counted.<p>
+     *
+     * @return the number of rows
+     */
+    public long getRows() {
+
+        return m_rows.get();
+    }
+
+    /**
+     * Returns the total execution time in milliseconds.<p>
+     *
+     * @return the total execution time
+     */
+    public long getTotalTime() {
+
+        return m_totalNanos.get() / 1000000L;
+    }
+
+    /**
+     * Adds the rows read or updated by an execution.<p>
+     *
+     * @param rows the number of rows
+     */
+    void addRows(long rows) {
+
+        if (rows > 0) {
+            m_rows.addAndGet(rows);
+        }
+    }
+
+    /**
+     * Records an execution of the query.<p>
+     *
+     * @param nanos the execution time in nanoseconds
+     * @param success <code>false</code> if the execution failed
+     */
+    void record(long nanos, boolean success) {
+
+        m_count.incrementAndGet();
+        if (!success) {
+            m_errors.incrementAndGet();
+        }
+        m_totalNanos.addAndGet(nanos);
+        long max = m_maxNanos.get();
+        while ((nanos > max) && !m_maxNanos.compareAndSet(max, nanos)) {
+            max = m_maxNanos.get();
+        }
+        long millis = nanos / 1000000L;
+        int bucket = 0;
+        while ((bucket < BUCKET_BOUNDS.length) && (millis >= BUCKET_BOUNDS[bucket])) {
+            bucket++;
+        }
+        m_buckets.incrementAndGet(bucket);
+    }
+
+    /**
+     * Returns a percentile of the execution times in milliseconds.<p>
+     *
+     * @param percent the percentile, between 0 and 100
+     *
+     * @return the upper bound of the histogram bucket containing the percentile, at most the longest execution time
+     */
+    private long getPercentile(int percent) {
+
+        long total = 0;
+        for (int i = 0; i < m_buckets.length(); i++) {
+            total += m_buckets.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = ((total * percent) + 99) / 100;
+        long seen = 0;
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            seen += m_buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(BUCKET_BOUNDS[i], getMaxTime());
+            }
+        }
+        return getMaxTime();
+    }
+}
@@ -0,0 +1,495 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import org.opencms.configuration.CmsParameterConfiguration;
+import org.opencms.main.CmsLog;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Records the number of executions, the execution times and the number of rows of the named SQL queries
+ * from the <code>query.properties</code> files, and logs queries which are slower than a configurable threshold.<p>
+ *
+ * The statistics are enabled with <code>db.statistics.enabled=true</code> in <code>opencms.properties</code>,
+ * slow queries are logged with their key and bind parameters if <code>db.statistics.slowQueryThreshold</code>
+ * is set to a time in milliseconds. The prepared statements returned by the SQL managers are only wrapped
+ * if either option is used.<p>
+ *
+ * There is one instance of the statistics for all SQL managers, which is also available as MXBean
+ * with the name {@link #OBJECT_NAME}.<p>
+ *
+ * @since 10.5.0
+ */
+public final class CmsSqlStatistics implements I_CmsSqlStatistics {
+
+    /**
+     * Handler for result sets returned by instrumented statements, which counts the rows read.<p>
+     */
+    private static class ResultSetHandler implements InvocationHandler {
+
+        /** Flag indicating if the rows have already been added to the statistics. */
+        private boolean m_flushed;
+
+        /** The result set. */
+        private ResultSet m_resultSet;
+
+        /** The number of rows read so far. */
+        private long m_rows;
+
+        /** The statistics of the query. */
+        private CmsSqlQueryStatistics m_stats;
+
+        /**
+         * Creates a new handler.<p>
+         *
+         * @param resultSet the result set
+         * @param stats the statistics of the query
+         */
+        ResultSetHandler(ResultSet resultSet, CmsSqlQueryStatistics stats) {
+
+            m_resultSet = resultSet;
+            m_stats = stats;
+        }
+
+        /**
+         * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object, java.lang.reflect.Method, java.lang.Object[])
+         */
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+            String name = method.getName();
+            if (name.equals("equals")) {
+                return Boolean.valueOf(proxy == args[0]);
+            }
+            if (name.equals("hashCode")) {
+                return new Integer(System.identityHashCode(proxy));
+            }
+            if (name.equals("close")) {
+                flush();
+            }
+            Object result;
+            try {
+                result = method.invoke(m_resultSet, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (name.equals("next") && Boolean.TRUE.equals(result)) {
+                m_rows++;
+            }
+            return result;
+        }
+
+        /**
+         * Adds the rows read to the statistics of the query.<p>
+         */
+        void flush() {
+
+            if (!m_flushed) {
+                m_flushed = true;
+                m_stats.addRows(m_rows);
+            }
+        }
+    }
+
+    /**
+     * Handler for instrumented prepared statements.<p>
+     */
+    private class StatementHandler implements InvocationHandler {
+
+        /** The key of the query. */
+        private String m_key;
+
+        /** The bind parameters, only tracked if slow queries are logged. */
+        private Map<Integer, String> m_parameters;
+
+        /** The handler of the last result set returned by the statement. */
+        private ResultSetHandler m_resultSet;
+
+        /** The statement. */
+        private PreparedStatement m_statement;
+
+        /** The statistics of the query. */
+        private CmsSqlQueryStatistics m_stats;
+
+        /**
+         * Creates a new handler.<p>
+         *
+         * @param statement the statement
+         * @param key the key of the query
+         * @param trackParameters if the bind parameters should be tracked
+         */
+        StatementHandler(PreparedStatement statement, String key, boolean trackParameters) {
+
+            m_statement = statement;
+            m_key = key;
+            m_stats = getStatistics(key);
+            if (trackParameters) {
+                m_parameters = new TreeMap<Integer, String>();
+            }
+        }
+
+        /**
+         * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object, java.lang.reflect.Method, java.lang.Object[])
+         */
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                return execute(method, args);
+            }
+            if (name.equals("equals")) {
+                return Boolean.valueOf(proxy == args[0]);
+            }
+            if (name.equals("hashCode")) {
+                return new Integer(System.identityHashCode(proxy));
+            }
+            if (name.equals("toString")) {
+                return CmsDbSqlException.getErrorQuery(m_statement);
+            }
+            if (name.equals("close") && (m_resultSet != null)) {
+                // closing the statement also closes its result set
+                m_resultSet.flush();
+            }
+            if ((m_parameters != null)
+                && name.startsWith("set")
+                && (args != null)
+                && (args.length >= 2)
+                && (args[0] instanceof Integer)) {
+                m_parameters.put((Integer)args[0], name.equals("setNull") ? "NULL" : formatParameter(args[1]));
+            } else if ((m_parameters != null) && name.equals("clearParameters")) {
+                m_parameters.clear();
+            }
+            Object result;
+            try {
+                result = method.invoke(m_statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (name.equals("getResultSet") && (result != null)) {
+                result = wrapResultSet((ResultSet)result);
+            }
+            return result;
+        }
+
+        /**
+         * Executes the statement and records the statistics.<p>
+         *
+         * @param method the execute method
+         * @param args the arguments of the method
+         *
+         * @return the result of the method
+         *
+         * @throws Throwable if something goes wrong
+         */
+        private Object execute(Method method, Object[] args) throws Throwable {
+
+            boolean success = false;
+            long start = System.nanoTime();
+            try {
+                Object result = method.invoke(m_statement, args);
+                success = true;
+                if (result instanceof ResultSet) {
+                    result = wrapResultSet((ResultSet)result);
+                } else if (result instanceof Integer) {
+                    m_stats.addRows(((Integer)result).intValue());
+                } else if (result instanceof int[]) {
+                    for (int count : (int[])result) {
+                        m_stats.addRows(count);
+                    }
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                long nanos = System.nanoTime() - start;
+                if (m_enabled) {
+                    m_stats.record(nanos, success);
+                }
+                long threshold = m_slowQueryThreshold;
+                if ((threshold > 0) && (nanos >= (threshold * 1000000L))) {
+                    LOG.warn(
+                        Messages.get().getBundle().key(
+                            Messages.LOG_SQL_SLOW_QUERY_3,
+                            m_key,
+                            new Long(nanos / 1000000L),
+                            m_parameters == null ? "" : m_parameters.values().toString()));
+                }
+            }
+        }
+
+        /**
+         * Wraps a result set returned by the statement, to count the rows read.<p>
+         *
+         * @param resultSet the result set
+         *
+         * @return the wrapped result set
+         */
+        private ResultSet wrapResultSet(ResultSet resultSet) {
+
+            if (m_resultSet != null) {
+                m_resultSet.flush();
+            }
+            m_resultSet = new ResultSetHandler(resultSet, m_stats);
+            return (ResultSet)Proxy.newProxyInstance(
+                ResultSet.class.getClassLoader(),
+                new Class<?>[] {ResultSet.class},
+                m_resultSet);
+        }
+    }
+
+    /** Configuration key for enabling the statistics. */
+    public static final String CONFIGURATION_STATISTICS = "db.statistics.enabled";
+
+    /** Configuration key for the slow query threshold in milliseconds. */
+    public static final String CONFIGURATION_SLOW_QUERY_THRESHOLD = "db.statistics.slowQueryThreshold";
+
+    /** The name of the MXBean. */
+    public static final String OBJECT_NAME = "org.opencms:type=SqlStatistics";
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsSqlStatistics.class);
+
+    /** The maximum length of a bind parameter in the slow query log. */
+    private static final int MAX_PARAMETER_LENGTH = 100;
+
+    /** The single instance of the statistics. */
+    private static final CmsSqlStatistics INSTANCE = new CmsSqlStatistics();
+
+    /** Flag indicating if the statistics are recorded. */
+    private volatile boolean m_enabled;
+
+    /** The slow query threshold in milliseconds, 0 if slow queries are not logged. */
+    private volatile long m_slowQueryThreshold;
+
+    /** The statistics of the queries, with the query key as key. */
+    private ConcurrentHashMap<String, CmsSqlQueryStatistics> m_statistics = new ConcurrentHashMap<String, CmsSqlQueryStatistics>();
+
+    /**
+     * Hidden constructor.<p>
+     */
+    private CmsSqlStatistics() {
+
+        // only one instance
+    }
+
+    /**
+     * Returns the statistics for all SQL managers.<p>
+     *
+     * @return the statistics
+     */
+    public static CmsSqlStatistics getInstance() {
+
+        return INSTANCE;
+    }
+
+    /**
+     * Formats a bind parameter for the slow query log.<p>
+     *
+     * @param value the value of the parameter
+     *
+     * @return the formatted value
+     */
+    static String formatParameter(Object value) {
+
+        if (value == null) {
+            return "NULL";
+        }
+        if (value instanceof byte[]) {
+            return "byte[" + ((byte[])value).length + "]";
+        }
+        if ((value instanceof InputStream) || (value instanceof Reader)) {
+            return value.getClass().getSimpleName();
+        }
+        String result = String.valueOf(value);
+        if (result.length() > MAX_PARAMETER_LENGTH) {
+            result = result.substring(0, MAX_PARAMETER_LENGTH) + "...";
+        }
+        return result;
+    }
+
+    /**
+     * @see org.opencms.db.I_CmsSqlStatistics#getQueryStatistics()
+     */
+    public List<CmsSqlQueryStatistics> getQueryStatistics() {
+
+        List<CmsSqlQueryStatistics> result = new ArrayList<CmsSqlQueryStatistics>(m_statistics.values());
+        Collections.sort(result, new Comparator<CmsSqlQueryStatistics>() {
+
+            public int compare(CmsSqlQueryStatistics first, CmsSqlQueryStatistics second) {
+
+                long firstTime = first.getTotalTime();
+                long secondTime = second.getTotalTime();
+                return firstTime > secondTime ? -1 : (firstTime == secondTime ? 0 : 1);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @see org.opencms.db.I_CmsSqlStatistics#getSlowQueryThreshold()
+     */
+    public long getSlowQueryThreshold() {
+
+        return m_slowQueryThreshold;
+    }
+
+    /**
+     * Returns the statistics of a query, creating them if required.<p>
+     *
+     * @param key the key of the query
+     *
+     * @return the statistics of the query
+     */
+    public CmsSqlQueryStatistics getStatistics(String key) {
+
+        CmsSqlQueryStatistics stats = m_statistics.get(key);
+        if (stats == null) {
+            stats = new CmsSqlQueryStatistics(key);
+            CmsSqlQueryStatistics existing = m_statistics.putIfAbsent(key, stats);
+            if (existing != null) {
+                stats = existing;
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Reads the configuration of the statistics and registers the MXBean.<p>
+     *
+     * @param config the configuration (opencms.properties)
+     */
+    public void initialize(CmsParameterConfiguration config) {
+
+        m_enabled = config.getBoolean(CONFIGURATION_STATISTICS, false);
+        m_slowQueryThreshold = config.getInteger(CONFIGURATION_SLOW_QUERY_THRESHOLD, 0);
+        if (CmsLog.INIT.isInfoEnabled()) {
+            CmsLog.INIT.info(
+                Messages.get().getBundle().key(
+                    Messages.INIT_SQL_STATISTICS_2,
+                    Boolean.valueOf(m_enabled),
+                    new Long(m_slowQueryThreshold)));
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (Exception e) {
+            LOG.warn(Messages.get().getBundle().key(Messages.LOG_SQL_STATISTICS_JMX_FAILED_1, OBJECT_NAME), e);
+        }
+    }
+
+    /**
+     * @see org.opencms.db.I_CmsSqlStatistics#isEnabled()
+     */
+    public boolean isEnabled() {
+
+        return m_enabled;
+    }
+
+    /**
+     * @see org.opencms.db.I_CmsSqlStatistics#reset()
+     */
+    public void reset() {
+
+        m_statistics.clear();
+    }
+
+    /**
+     * @see org.opencms.db.I_CmsSqlStatistics#setEnabled(boolean)
+     */
+    public void setEnabled(boolean enabled) {
+
+        m_enabled = enabled;
+    }
+
+    /**
+     * @see org.opencms.db.I_CmsSqlStatistics#setSlowQueryThreshold(long)
+     */
+    public void setSlowQueryThreshold(long threshold) {
+
+        m_slowQueryThreshold = Math.max(0, threshold);
+    }
+
+    /**
+     * Unregisters the MXBean.<p>
+     */
+    public void shutDown() {
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (Exception e) {
+            LOG.debug(e.getLocalizedMessage(), e);
+        }
+    }
+
+    /**
+     * Wraps a prepared statement for a named query, so its executions are recorded.<p>
+     *
+     * @param statement the statement
+     * @param key the key of the query
+     *
+     * @return the wrapped statement, or the given statement if neither the statistics nor the slow query log are enabled
+     */
+    public PreparedStatement wrap(PreparedStatement statement, String key) {
+
+        boolean logSlowQueries = m_slowQueryThreshold > 0;
+        if (!m_enabled && !logSlowQueries) {
+            return statement;
+        }
+        return (PreparedStatement)Proxy.newProxyInstance(
+            PreparedStatement.class.getClassLoader(),
+            new Class<?>[] {PreparedStatement.class},
+            new StatementHandler(statement, key, logSlowQueries));
+    }
+}
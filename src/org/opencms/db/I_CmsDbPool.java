@@ -0,0 +1,126 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.db;
+
+import org.opencms.configuration.CmsParameterConfiguration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A JDBC connection pool used by the OpenCms database drivers.<p>
+ *
+ * The implementation of a pool is configured with the <code>db.pool.[key].provider</code>
+ * setting in <code>opencms.properties</code>, see {@link CmsDbPool#createPool(CmsParameterConfiguration, String)}.
+ * Implementations need a public constructor without arguments.<p>
+ *
+ * Besides the connections, a pool provides statistics about its usage, which are
+ * written to the log by the memory monitor.<p>
+ *
+ * @since 10.5.0
+ */
+public interface I_CmsDbPool {
+
+    /**
+     * Closes the pool and all its idle connections.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    void close() throws Exception;
+
+    /**
+     * Returns the number of connections borrowed from the pool so far.<p>
+     *
+     * @return the number of borrowed connections
+     */
+    long getBorrowCount();
+
+    /**
+     * Returns the total time threads have waited for connections from the pool so far.<p>
+     *
+     * @return the total wait time in milliseconds
+     */
+    long getBorrowWaitMillis();
+
+    /**
+     * Borrows a connection from the pool.<p>
+     *
+     * Closing the connection returns it to the pool.<p>
+     *
+     * @return the connection
+     *
+     * @throws SQLException if no connection is available
+     */
+    Connection getConnection() throws SQLException;
+
+    /**
+     * Returns the number of connections which are borrowed longer than the configured leak detection threshold.<p>
+     *
+     * @return the number of possibly leaked connections, always 0 if the leak detection is disabled
+     */
+    int getLeakedConnections();
+
+    /**
+     * Returns the longest time a thread has waited for a connection from the pool.<p>
+     *
+     * @return the longest wait time in milliseconds
+     */
+    long getMaxBorrowWaitMillis();
+
+    /**
+     * Returns the number of connections currently borrowed from the pool.<p>
+     *
+     * @return the number of active connections
+     */
+    int getNumActive();
+
+    /**
+     * Returns the number of connections currently idle in the pool.<p>
+     *
+     * @return the number of idle connections
+     */
+    int getNumIdle();
+
+    /**
+     * Returns the URL of the pool, e.g. <code>opencms:default</code>.<p>
+     *
+     * @return the URL of the pool
+     */
+    String getPoolUrl();
+
+    /**
+     * Initializes the pool.<p>
+     *
+     * @param config the configuration (opencms.properties)
+     * @param key the key of the database pool in the configuration
+     *
+     * @throws Exception if the pool could not be initialized
+     */
+    void initialize(CmsParameterConfiguration config, String key) throws Exception;
+}
@@ -54,6 +54,12 @@ import java.util.Set;
  */
 public interface I_CmsProjectDriver {
 
+    /**
+     * Configuration parameter for the number of resources published in one database transaction
+     * by drivers supporting the batch publish mode, a value of 0 disables the batch publish mode.
+     */
+    String CONFIGURATION_PUBLISH_BATCH_SIZE = "db.project.publish.batchsize";
+
     /** The type ID to identify project driver implementations. */
     int DRIVER_TYPE_ID = 1;
 
@@ -0,0 +1,84 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import java.util.List;
+
+import javax.management.MXBean;
+
+/**
+ * Management interface of the SQL query statistics, registered in the platform MBean server
+ * with the name {@link CmsSqlStatistics#OBJECT_NAME}.<p>
+ *
+ * @since 10.5.0
+ */
+@MXBean
+public interface I_CmsSqlStatistics {
+
+    /**
+     * Returns the statistics of all queries executed since the statistics have been enabled or reset.<p>
+     *
+     * @return the statistics of all queries, with the longest total execution time first
+     */
+    List<CmsSqlQueryStatistics> getQueryStatistics();
+
+    /**
+     * Returns the execution time in milliseconds above which a query is logged as slow query.<p>
+     *
+     * @return the slow query threshold, 0 if slow queries are not logged
+     */
+    long getSlowQueryThreshold();
+
+    /**
+     * Checks if the statistics of SQL queries are recorded.<p>
+     *
+     * @return <code>true</code> if the statistics are recorded
+     */
+    boolean isEnabled();
+
+    /**
+     * Removes all recorded statistics.<p>
+     */
+    void reset();
+
+    /**
+     * Enables or disables the recording of the statistics.<p>
+     *
+     * Only statements created after the statistics have been enabled are recorded.<p>
+     *
+     * @param enabled <code>true</code> to record the statistics
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Sets the execution time in milliseconds above which a query is logged as slow query.<p>
+     *
+     * @param threshold the slow query threshold, 0 to not log slow queries
+     */
+    void setSlowQueryThreshold(long threshold);
+}
@@ -41,6 +41,7 @@ import org.opencms.relations.CmsRelationFilter;
 import org.opencms.security.CmsOrganizationalUnit;
 import org.opencms.util.CmsUUID;
 
+import java.io.OutputStream;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Collection;
@@ -464,6 +465,24 @@ public interface I_CmsVfsDriver {
      */
     byte[] readContent(CmsDbContext dbc, CmsUUID projectId, CmsUUID resourceId) throws CmsDataAccessException;
 
+    /**
+     * Writes the content of a file specified by it's resource ID to an output stream.<p>
+     *
+     * In contrast to {@link #readContent(CmsDbContext, CmsUUID, CmsUUID)}, the content is copied
+     * in small blocks, so it is never held in memory as a whole if the database supports streaming.<p>
+     *
+     * @param dbc the current database context
+     * @param projectId the ID of the current project
+     * @param resourceId the id of the resource
+     * @param out the output stream to write the content to
+     *
+     * @return the number of bytes written
+     *
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    long readContent(CmsDbContext dbc, CmsUUID projectId, CmsUUID resourceId, OutputStream out)
+    throws CmsDataAccessException;
+
     /**
      * Reads a folder specified by it's structure ID.<p>
      *
@@ -570,6 +589,23 @@ public interface I_CmsVfsDriver {
     List<CmsProperty> readPropertyObjects(CmsDbContext dbc, CmsProject project, CmsResource resource)
     throws CmsDataAccessException;
 
+    /**
+     * Reads all property objects mapped to a list of resources.<p>
+     *
+     * The properties of many resources are read with a few queries instead of one query per resource.<p>
+     *
+     * @param dbc the current database context
+     * @param project the current project
+     * @param resources the resources where the properties are attached to
+     *
+     * @return the lists of CmsProperty objects containing both the structure and resource value of the property,
+     *      with the structure ID of the resource as key
+     *
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    Map<CmsUUID, List<CmsProperty>> readPropertyObjects(CmsDbContext dbc, CmsProject project, List<CmsResource> resources)
+    throws CmsDataAccessException;
+
     /**
      * Reads all relations with the given filter for the given resource.<p>
      *
@@ -627,6 +663,28 @@ public interface I_CmsVfsDriver {
     List<CmsResource> readResources(CmsDbContext dbc, CmsUUID currentProject, CmsResourceState state, int mode)
     throws CmsDataAccessException;
 
+    /**
+     * Reads a list of resources specified by their structure IDs.<p>
+     *
+     * The resources are read with a few queries instead of one query per resource.
+     * IDs of resources which do not exist are ignored.<p>
+     *
+     * @param dbc the current database context
+     * @param projectId the Id of the project
+     * @param structureIds the structure IDs of the resources
+     * @param includeDeleted true if already deleted files are included
+     *
+     * @return the resources that were read, in the order of the given IDs
+     *
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    List<CmsResource> readResources(
+        CmsDbContext dbc,
+        CmsUUID projectId,
+        List<CmsUUID> structureIds,
+        boolean includeDeleted)
+    throws CmsDataAccessException;
+
     /**
      * Returns all resources associated to a given principal via an ACE.<p>
      *
@@ -192,6 +192,15 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_DB_OPERATION_1 = "ERR_DB_OPERATION_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_DB_POOL_CLOSED_1 = "ERR_DB_POOL_CLOSED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_DB_POOL_CONNECTION_CLOSED_1 = "ERR_DB_POOL_CONNECTION_CLOSED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_DB_POOL_EXHAUSTED_2 = "ERR_DB_POOL_EXHAUSTED_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_DELETE_GROUP_1 = "ERR_DELETE_GROUP_1";
 
@@ -519,6 +528,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_READ_PROPS_FOR_RESOURCE_1 = "ERR_READ_PROPS_FOR_RESOURCE_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_READ_PROPS_FOR_RESOURCES_1 = "ERR_READ_PROPS_FOR_RESOURCES_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_READ_PUBLISHED_RESOURCES_FOR_ID_1 = "ERR_READ_PUBLISHED_RESOURCES_FOR_ID_1";
 
@@ -534,6 +546,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_READ_RESOURCES_1 = "ERR_READ_RESOURCES_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_READ_RESOURCES_FOR_IDS_1 = "ERR_READ_RESOURCES_FOR_IDS_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_READ_RESOURCES_FOR_PRINCIPAL_LOG_1 = "ERR_READ_RESOURCES_FOR_PRINCIPAL_LOG_1";
 
@@ -840,12 +855,18 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String INIT_JDBC_POOL_2 = "INIT_JDBC_POOL_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String INIT_LOG_WRITER_4 = "INIT_LOG_WRITER_4";
+
     /** Message constant for key in the resource bundle. */
     public static final String INIT_SECURITY_MANAGER_INIT_0 = "INIT_SECURITY_MANAGER_INIT_0";
 
     /** Message constant for key in the resource bundle. */
     public static final String INIT_SECURITY_MANAGER_SHUTDOWN_1 = "INIT_SECURITY_MANAGER_SHUTDOWN_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String INIT_SQL_STATISTICS_2 = "INIT_SQL_STATISTICS_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String INIT_WAIT_FOR_DB_4 = "INIT_WAIT_FOR_DB_4";
 
@@ -861,6 +882,12 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_CREATE_FOLDER_FAILED_1 = "LOG_CREATE_FOLDER_FAILED_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_DB_POOL_CONNECTION_LEAK_2 = "LOG_DB_POOL_CONNECTION_LEAK_2";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_DB_POOL_RETURN_CONNECTION_FAILED_1 = "LOG_DB_POOL_RETURN_CONNECTION_FAILED_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_DELETE_TEMP_PROJECT_FAILED_1 = "LOG_DELETE_TEMP_PROJECT_FAILED_1";
 
@@ -876,9 +903,21 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_GET_TIMESTAMP_2 = "LOG_GET_TIMESTAMP_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_LOG_ENTRIES_DROPPED_1 = "LOG_LOG_ENTRIES_DROPPED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_LOG_WRITER_ERROR_0 = "LOG_LOG_WRITER_ERROR_0";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_NO_EXPORT_POINTS_CONFIGURED_0 = "LOG_NO_EXPORT_POINTS_CONFIGURED_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_SQL_SLOW_QUERY_3 = "LOG_SQL_SLOW_QUERY_3";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_SQL_STATISTICS_JMX_FAILED_1 = "LOG_SQL_STATISTICS_JMX_FAILED_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_UPDATE_EXORT_POINTS_ERROR_0 = "LOG_UPDATE_EXORT_POINTS_ERROR_0";
 
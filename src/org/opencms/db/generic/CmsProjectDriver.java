@@ -87,6 +87,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -196,6 +197,9 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
     /** The driver manager. */
     protected CmsDriverManager m_driverManager;
 
+    /** The number of resources published in one transaction, 0 if the batch publish mode is disabled. */
+    protected int m_publishBatchSize;
+
     /** The SQL manager. */
     protected CmsSqlManager m_sqlManager;
 
@@ -876,9 +880,16 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
         m_sqlManager.init(I_CmsProjectDriver.DRIVER_TYPE_ID, poolUrl);
 
         m_driverManager = driverManager;
+        m_publishBatchSize = configuration.getInteger(CONFIGURATION_PUBLISH_BATCH_SIZE, 0);
 
         if (CmsLog.INIT.isInfoEnabled()) {
             CmsLog.INIT.info(Messages.get().getBundle().key(Messages.INIT_ASSIGNED_POOL_1, poolUrl));
+            if (m_publishBatchSize > 0) {
+                CmsLog.INIT.info(
+                    Messages.get().getBundle().key(
+                        Messages.INIT_PUBLISH_BATCH_SIZE_1,
+                        String.valueOf(m_publishBatchSize)));
+            }
         }
 
         if ((successiveDrivers != null) && !successiveDrivers.isEmpty()) {
@@ -904,6 +915,9 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
      */
     public void log(CmsDbContext dbc, List<CmsLogEntry> logEntries) throws CmsDbSqlException {
 
+        if (logEntries.isEmpty()) {
+            return;
+        }
         Connection conn = null;
         PreparedStatement stmt = null;
 
@@ -911,21 +925,31 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
             conn = m_sqlManager.getConnection(dbc);
             stmt = m_sqlManager.getPreparedStatement(conn, "C_LOG_CREATE_5");
 
+            // write all entries with a single batch
             for (CmsLogEntry logEntry : logEntries) {
-                stmt.setString(1, logEntry.getUserId().toString());
-                stmt.setLong(2, logEntry.getDate());
-                stmt.setString(3, logEntry.getStructureId() == null ? null : logEntry.getStructureId().toString());
-                stmt.setInt(4, logEntry.getType().getId());
-                stmt.setString(5, CmsStringUtil.arrayAsString(logEntry.getData(), "|"));
-                try {
-                    stmt.executeUpdate();
-                } catch (SQLException e) {
-                    // ignore, most likely a duplicate entry
-                    LOG.debug(
-                        Messages.get().container(
-                            Messages.ERR_GENERIC_SQL_1,
-                            CmsDbSqlException.getErrorQuery(stmt)).key(),
-                        e);
+                setLogParameters(stmt, logEntry);
+                stmt.addBatch();
+            }
+            try {
+                stmt.executeBatch();
+            } catch (BatchUpdateException e) {
+                // most likely a duplicate entry, write the entries one by one and ignore the failing ones
+                LOG.debug(
+                    Messages.get().container(Messages.ERR_GENERIC_SQL_1, CmsDbSqlException.getErrorQuery(stmt)).key(),
+                    e);
+                stmt.clearBatch();
+                for (CmsLogEntry logEntry : logEntries) {
+                    setLogParameters(stmt, logEntry);
+                    try {
+                        stmt.executeUpdate();
+                    } catch (SQLException e1) {
+                        // ignore, most likely a duplicate entry
+                        LOG.debug(
+                            Messages.get().container(
+                                Messages.ERR_GENERIC_SQL_1,
+                                CmsDbSqlException.getErrorQuery(stmt)).key(),
+                            e1);
+                    }
                 }
             }
         } catch (SQLException e) {
@@ -1657,6 +1681,12 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
         Set<CmsUUID> publishedContentIds = new HashSet<CmsUUID>();
         Set<CmsUUID> publishedIds = new HashSet<CmsUUID>();
 
+        CmsPublishBatch publishBatch = null;
+        if (m_publishBatchSize > 0) {
+            publishBatch = new CmsPublishBatch(m_publishBatchSize);
+            dbc.setAttribute(CmsPublishBatch.KEY_PUBLISH_BATCH, publishBatch);
+        }
+
         try {
 
             ////////////////////////////////////////////////////////////////////////////////////////
@@ -1772,6 +1802,7 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
                         Messages.get().container(Messages.ERR_ERROR_PUBLISHING_FOLDER_1, currentFolder.getRootPath()),
                         t);
                 }
+                updatePublishBatch(dbc, report, publishBatch);
             }
 
             if (foldersSize > 0) {
@@ -1851,6 +1882,7 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
                         Messages.get().container(Messages.ERR_ERROR_PUBLISHING_FILE_1, currentResource.getRootPath()),
                         t);
                 }
+                updatePublishBatch(dbc, report, publishBatch);
             }
 
             if (filesSize > 0) {
@@ -1862,6 +1894,7 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
             // publish deleted folders
             List<CmsResource> deletedFolders = publishList.getDeletedFolderList();
             if (deletedFolders.isEmpty()) {
+                commitPublishBatch(report, publishBatch);
                 return;
             }
 
@@ -1919,6 +1952,7 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
                             currentFolder.getRootPath()),
                         t);
                 }
+                updatePublishBatch(dbc, report, publishBatch);
             }
 
             if (deletedFoldersSize > 0) {
@@ -1926,6 +1960,7 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
                     Messages.get().container(Messages.RPT_DELETE_FOLDERS_END_0),
                     I_CmsReport.FORMAT_HEADLINE);
             }
+            commitPublishBatch(report, publishBatch);
         } catch (OutOfMemoryError o) {
             // clear all caches to reclaim memory
             OpenCms.fireCmsEvent(
@@ -1937,6 +1972,11 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
             }
             throw new CmsDataAccessException(message, o);
         } finally {
+            if (publishBatch != null) {
+                // roll back the resources of an aborted publish job, the last batch is committed on success
+                dbc.removeAttribute(CmsPublishBatch.KEY_PUBLISH_BATCH);
+                publishBatch.release();
+            }
             // reset vfs driver internal info after publishing
             m_driverManager.getVfsDriver(dbc).publishVersions(dbc, null, false);
             Object[] msgArgs = new Object[] {
@@ -2953,6 +2993,29 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
 
     }
 
+    /**
+     * Commits the last transaction of the batch of the running publish job.<p>
+     *
+     * @param report the report to log errors to
+     * @param publishBatch the batch of the running publish job, or <code>null</code> if not publishing in batch mode
+     *
+     * @throws CmsDataAccessException if the commit fails
+     */
+    protected void commitPublishBatch(I_CmsReport report, CmsPublishBatch publishBatch)
+    throws CmsDataAccessException {
+
+        if (publishBatch == null) {
+            return;
+        }
+        try {
+            publishBatch.commit();
+        } catch (SQLException e) {
+            CmsMessageContainer message = Messages.get().container(Messages.ERR_PUBLISH_BATCH_COMMIT_0);
+            report.println(message, I_CmsReport.FORMAT_ERROR);
+            throw new CmsDataAccessException(message, e);
+        }
+    }
+
     /**
      * Creates a <code>CmsPublishJobInfoBean</code> from a result set.<p>
      *
@@ -3850,4 +3913,44 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
         m_driverManager.getVfsDriver(dbc).updateRelations(dbc, onlineProject, offlineResource);
     }
 
-}
\ No newline at end of file
+    /**
+     * Sets the parameters of the statement to create a log entry.<p>
+     *
+     * @param stmt the statement for the query <code>C_LOG_CREATE_5</code>
+     * @param logEntry the log entry to write
+     *
+     * @throws SQLException if something goes wrong
+     */
+    protected void setLogParameters(PreparedStatement stmt, CmsLogEntry logEntry) throws SQLException {
+
+        stmt.setString(1, logEntry.getUserId().toString());
+        stmt.setLong(2, logEntry.getDate());
+        stmt.setString(3, logEntry.getStructureId() == null ? null : logEntry.getStructureId().toString());
+        stmt.setInt(4, logEntry.getType().getId());
+        stmt.setString(5, CmsStringUtil.arrayAsString(logEntry.getData(), "|"));
+    }
+
+    /**
+     * Counts a published resource in the batch of the running publish job,
+     * committing the batch if it contains the configured number of resources.<p>
+     *
+     * @param dbc the current database context
+     * @param report the report to log errors to
+     * @param publishBatch the batch of the running publish job, or <code>null</code> if not publishing in batch mode
+     *
+     * @throws CmsException if the commit fails
+     */
+    protected void updatePublishBatch(CmsDbContext dbc, I_CmsReport report, CmsPublishBatch publishBatch)
+    throws CmsException {
+
+        if (publishBatch == null) {
+            return;
+        }
+        try {
+            publishBatch.resourcePublished();
+        } catch (SQLException e) {
+            dbc.report(report, Messages.get().container(Messages.ERR_PUBLISH_BATCH_COMMIT_0), e);
+        }
+    }
+
+}
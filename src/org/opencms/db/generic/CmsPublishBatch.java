@@ -0,0 +1,378 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db.generic;
+
+import org.opencms.db.CmsDbContext;
+import org.opencms.file.CmsPropertyDefinition;
+import org.opencms.main.CmsLog;
+import org.opencms.util.CmsUUID;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * State of a batch publish, which groups the database operations of a publish job
+ * into transactions of a fixed number of resources.<p>
+ *
+ * While a batch is attached to a database context, all SQL managers hand out one shared
+ * connection per pool for this context. The connections are not in auto commit mode,
+ * they are committed every time the configured number of resources has been published.<p>
+ *
+ * Statements which do not depend on the order of execution inside a transaction
+ * (e.g. the update of broken relations) can be deferred and are executed as one
+ * JDBC batch before each commit.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsPublishBatch {
+
+    /**
+     * Connection wrapper which ignores all attempts of the drivers to close the shared connection
+     * or to change its transaction state.<p>
+     *
+     * The wrapper reports the real auto commit mode of the shared connection, so drivers which
+     * check it (e.g. the Oracle drivers) treat their statements as part of a running transaction.<p>
+     */
+    private static class SharedConnectionHandler implements InvocationHandler {
+
+        /** The shared connection. */
+        private Connection m_connection;
+
+        /**
+         * Creates a new handler.<p>
+         *
+         * @param connection the shared connection
+         */
+        SharedConnectionHandler(Connection connection) {
+
+            m_connection = connection;
+        }
+
+        /**
+         * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object, java.lang.reflect.Method, java.lang.Object[])
+         */
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+            String name = method.getName();
+            if (name.equals("close")
+                || name.equals("commit")
+                || name.equals("rollback")
+                || name.equals("setAutoCommit")) {
+                // the transaction is controlled by the publish batch
+                return null;
+            }
+            if (name.equals("isClosed")) {
+                return Boolean.FALSE;
+            }
+            if (name.equals("equals")) {
+                return Boolean.valueOf(proxy == args[0]);
+            }
+            if (name.equals("hashCode")) {
+                return new Integer(System.identityHashCode(proxy));
+            }
+            try {
+                return method.invoke(m_connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /** The DB context attribute under which the batch of the running publish job is stored. */
+    public static final String KEY_PUBLISH_BATCH = "org.opencms.db.generic.CmsPublishBatch";
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsPublishBatch.class);
+
+    /** The number of resources to publish in one transaction. */
+    private int m_batchSize;
+
+    /** The shared connections, with the pool URL as key. */
+    private Map<String, Connection> m_connections;
+
+    /** The number of committed transactions. */
+    private int m_commitCount;
+
+    /** The deferred statements, with the SQL as key and the parameters as value. */
+    private Map<String, Set<String>> m_deferredParameters;
+
+    /** The SQL managers of the deferred statements, with the SQL as key. */
+    private Map<String, CmsSqlManager> m_deferredSqlManagers;
+
+    /** The wrappers of the shared connections handed out to the drivers, with the pool URL as key. */
+    private Map<String, Connection> m_proxies;
+
+    /** The property definitions read during this publish job, with project id and name as key. */
+    private Map<String, CmsPropertyDefinition> m_propertyDefinitions;
+
+    /** The number of resources published in the current transaction. */
+    private int m_uncommittedCount;
+
+    /**
+     * Creates a new publish batch.<p>
+     *
+     * @param batchSize the number of resources to publish in one transaction
+     */
+    public CmsPublishBatch(int batchSize) {
+
+        m_batchSize = batchSize;
+        m_connections = new HashMap<String, Connection>();
+        m_proxies = new HashMap<String, Connection>();
+        m_deferredParameters = new LinkedHashMap<String, Set<String>>();
+        m_deferredSqlManagers = new HashMap<String, CmsSqlManager>();
+        m_propertyDefinitions = new HashMap<String, CmsPropertyDefinition>();
+    }
+
+    /**
+     * Returns the publish batch attached to the given database context.<p>
+     *
+     * @param dbc the current database context
+     *
+     * @return the publish batch, or <code>null</code> if the context is not used for a batch publish
+     */
+    public static CmsPublishBatch getPublishBatch(CmsDbContext dbc) {
+
+        if (dbc == null) {
+            return null;
+        }
+        return (CmsPublishBatch)dbc.getAttribute(KEY_PUBLISH_BATCH);
+    }
+
+    /**
+     * Caches a property definition for the rest of the publish job.<p>
+     *
+     * @param projectId the id of the project the definition was read from
+     * @param propertyDefinition the property definition
+     */
+    public void cachePropertyDefinition(CmsUUID projectId, CmsPropertyDefinition propertyDefinition) {
+
+        m_propertyDefinitions.put(getPropertyDefinitionKey(projectId, propertyDefinition.getName()), propertyDefinition);
+    }
+
+    /**
+     * Commits the current transaction, after executing all deferred statements.<p>
+     *
+     * @throws SQLException if something goes wrong
+     */
+    public void commit() throws SQLException {
+
+        try {
+            executeDeferredStatements();
+            for (Connection conn : m_connections.values()) {
+                conn.commit();
+            }
+        } catch (SQLException e) {
+            rollback();
+            throw e;
+        } finally {
+            m_uncommittedCount = 0;
+        }
+        m_commitCount++;
+    }
+
+    /**
+     * Defers the execution of an update statement with a single string parameter until the next commit.<p>
+     *
+     * Each combination of statement and parameter is executed only once per transaction.<p>
+     *
+     * @param sqlManager the SQL manager of the calling driver
+     * @param sql the SQL of the statement
+     * @param parameter the parameter of the statement
+     */
+    public void deferUpdate(CmsSqlManager sqlManager, String sql, String parameter) {
+
+        Set<String> parameters = m_deferredParameters.get(sql);
+        if (parameters == null) {
+            parameters = new LinkedHashSet<String>();
+            m_deferredParameters.put(sql, parameters);
+            m_deferredSqlManagers.put(sql, sqlManager);
+        }
+        parameters.add(parameter);
+    }
+
+    /**
+     * Returns the number of transactions committed so far.<p>
+     *
+     * @return the number of transactions committed so far
+     */
+    public int getCommitCount() {
+
+        return m_commitCount;
+    }
+
+    /**
+     * Returns the shared connection for the pool of the given SQL manager.<p>
+     *
+     * @param sqlManager the SQL manager
+     * @param poolUrl the pool URL of the SQL manager
+     *
+     * @return the shared connection
+     *
+     * @throws SQLException if no connection could be obtained from the pool
+     */
+    public Connection getConnection(CmsSqlManager sqlManager, String poolUrl) throws SQLException {
+
+        Connection proxy = m_proxies.get(poolUrl);
+        if (proxy == null) {
+            Connection conn = sqlManager.getConnectionByUrl(poolUrl);
+            conn.setAutoCommit(false);
+            m_connections.put(poolUrl, conn);
+            proxy = (Connection)Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class},
+                new SharedConnectionHandler(conn));
+            m_proxies.put(poolUrl, proxy);
+        }
+        return proxy;
+    }
+
+    /**
+     * Returns a property definition cached for this publish job.<p>
+     *
+     * @param projectId the id of the project to read the definition from
+     * @param name the name of the property definition
+     *
+     * @return the property definition, or <code>null</code> if not cached
+     */
+    public CmsPropertyDefinition getPropertyDefinition(CmsUUID projectId, String name) {
+
+        return m_propertyDefinitions.get(getPropertyDefinitionKey(projectId, name));
+    }
+
+    /**
+     * Rolls back all uncommitted operations and releases the shared connections.<p>
+     *
+     * Call {@link #commit()} before to keep the operations of the last transaction.<p>
+     */
+    public void release() {
+
+        try {
+            rollback();
+        } finally {
+            Iterator<Connection> it = m_connections.values().iterator();
+            while (it.hasNext()) {
+                Connection conn = it.next();
+                try {
+                    conn.setAutoCommit(true);
+                    conn.close();
+                } catch (SQLException e) {
+                    LOG.debug(e.getLocalizedMessage(), e);
+                }
+            }
+            m_connections.clear();
+            m_proxies.clear();
+        }
+    }
+
+    /**
+     * Counts a published resource, and commits the transaction if it contains
+     * the configured number of resources.<p>
+     *
+     * @throws SQLException if the commit fails
+     */
+    public void resourcePublished() throws SQLException {
+
+        m_uncommittedCount++;
+        if (m_uncommittedCount >= m_batchSize) {
+            commit();
+        }
+    }
+
+    /**
+     * Rolls back the current transaction and discards the deferred statements.<p>
+     */
+    public void rollback() {
+
+        m_uncommittedCount = 0;
+        m_deferredParameters.clear();
+        m_deferredSqlManagers.clear();
+        for (Connection conn : m_connections.values()) {
+            try {
+                conn.rollback();
+            } catch (SQLException e) {
+                LOG.error(e.getLocalizedMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Executes the deferred statements, each as a JDBC batch.<p>
+     *
+     * @throws SQLException if something goes wrong
+     */
+    private void executeDeferredStatements() throws SQLException {
+
+        Iterator<Map.Entry<String, Set<String>>> it = m_deferredParameters.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Set<String>> entry = it.next();
+            CmsSqlManager sqlManager = m_deferredSqlManagers.get(entry.getKey());
+            PreparedStatement stmt = null;
+            try {
+                Connection conn = getConnection(sqlManager, sqlManager.m_poolUrl);
+                stmt = sqlManager.getPreparedStatementForSql(conn, entry.getKey());
+                for (String parameter : entry.getValue()) {
+                    stmt.setString(1, parameter);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            } finally {
+                if (stmt != null) {
+                    stmt.close();
+                }
+            }
+        }
+        m_deferredParameters.clear();
+        m_deferredSqlManagers.clear();
+    }
+
+    /**
+     * Returns the cache key for a property definition.<p>
+     *
+     * @param projectId the project id
+     * @param name the name of the property definition
+     *
+     * @return the cache key
+     */
+    private String getPropertyDefinitionKey(CmsUUID projectId, String name) {
+
+        return projectId + "|" + name;
+    }
+}
@@ -34,6 +34,7 @@ import org.opencms.db.CmsAliasFilter;
 import org.opencms.db.CmsDbConsistencyException;
 import org.opencms.db.CmsDbContext;
 import org.opencms.db.CmsDbEntryNotFoundException;
+import org.opencms.db.CmsDbIoException;
 import org.opencms.db.CmsDbSqlException;
 import org.opencms.db.CmsDbUtil;
 import org.opencms.db.CmsDriverManager;
@@ -42,6 +43,7 @@ import org.opencms.db.CmsPreparedStatementStringParameter;
 import org.opencms.db.CmsResourceState;
 import org.opencms.db.CmsRewriteAlias;
 import org.opencms.db.CmsRewriteAliasFilter;
+import org.opencms.db.CmsSqlStatistics;
 import org.opencms.db.CmsVfsOnlineResourceAlreadyExistsException;
 import org.opencms.db.I_CmsDriver;
 import org.opencms.db.I_CmsPreparedStatementParameter;
@@ -80,6 +82,9 @@ import org.opencms.util.CmsStringUtil;
 import org.opencms.util.CmsUUID;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -90,6 +95,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -103,6 +109,12 @@ import org.apache.commons.logging.Log;
  */
 public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
 
+    /** The size of the buffer used to stream file contents. */
+    protected static final int CONTENT_BUFFER_SIZE = 8192;
+
+    /** The maximum number of IDs in the IN-list of a single bulk read query. */
+    protected static final int MAX_IDS_PER_QUERY = 500;
+
     /** Contains the macro replacement value for the offline project. */
     protected static final String OFFLINE = "OFFLINE";
 
@@ -309,8 +321,10 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         long dateReleased = res.getLong(m_sqlManager.readQuery("C_RESOURCES_DATE_RELEASED"));
         long dateExpired = res.getLong(m_sqlManager.readQuery("C_RESOURCES_DATE_EXPIRED"));
         int resourceSize = res.getInt(m_sqlManager.readQuery("C_RESOURCES_SIZE"));
-        CmsUUID userCreated = new CmsUUID(res.getString(m_sqlManager.readQuery("C_RESOURCES_USER_CREATED")));
-        CmsUUID userLastModified = new CmsUUID(res.getString(m_sqlManager.readQuery("C_RESOURCES_USER_LASTMODIFIED")));
+        CmsUUID userCreated = CmsUUID.intern(
+            new CmsUUID(res.getString(m_sqlManager.readQuery("C_RESOURCES_USER_CREATED"))));
+        CmsUUID userLastModified = CmsUUID.intern(
+            new CmsUUID(res.getString(m_sqlManager.readQuery("C_RESOURCES_USER_LASTMODIFIED"))));
         byte[] content = m_sqlManager.getBytes(res, m_sqlManager.readQuery("C_RESOURCES_FILE_CONTENT"));
         int siblingCount = res.getInt(m_sqlManager.readQuery("C_RESOURCES_SIBLING_COUNT"));
         long dateContent = res.getLong(m_sqlManager.readQuery("C_RESOURCES_DATE_CONTENT"));
@@ -367,9 +381,11 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         long dateReleased = res.getLong(m_sqlManager.readQuery("C_RESOURCES_DATE_RELEASED"));
         long dateExpired = res.getLong(m_sqlManager.readQuery("C_RESOURCES_DATE_EXPIRED"));
         int resourceSize = res.getInt(m_sqlManager.readQuery("C_RESOURCES_SIZE"));
-        CmsUUID userCreated = new CmsUUID(res.getString(m_sqlManager.readQuery("C_RESOURCES_USER_CREATED")));
-        CmsUUID userLastModified = new CmsUUID(res.getString(m_sqlManager.readQuery("C_RESOURCES_USER_LASTMODIFIED")));
-        CmsUUID lockedInProject = new CmsUUID(res.getString("LOCKED_IN_PROJECT"));
+        CmsUUID userCreated = CmsUUID.intern(
+            new CmsUUID(res.getString(m_sqlManager.readQuery("C_RESOURCES_USER_CREATED"))));
+        CmsUUID userLastModified = CmsUUID.intern(
+            new CmsUUID(res.getString(m_sqlManager.readQuery("C_RESOURCES_USER_LASTMODIFIED"))));
+        CmsUUID lockedInProject = CmsUUID.intern(new CmsUUID(res.getString("LOCKED_IN_PROJECT")));
         int siblingCount = res.getInt(m_sqlManager.readQuery("C_RESOURCES_SIBLING_COUNT"));
         long dateContent = res.getLong(m_sqlManager.readQuery("C_RESOURCES_DATE_CONTENT"));
         int resourceVersion = res.getInt(m_sqlManager.readQuery("C_RESOURCES_VERSION"));
@@ -423,9 +439,11 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         long dateLastModified = res.getLong(m_sqlManager.readQuery("C_RESOURCES_DATE_LASTMODIFIED"));
         long dateReleased = res.getLong(m_sqlManager.readQuery("C_RESOURCES_DATE_RELEASED"));
         long dateExpired = res.getLong(m_sqlManager.readQuery("C_RESOURCES_DATE_EXPIRED"));
-        CmsUUID userCreated = new CmsUUID(res.getString(m_sqlManager.readQuery("C_RESOURCES_USER_CREATED")));
-        CmsUUID userLastModified = new CmsUUID(res.getString(m_sqlManager.readQuery("C_RESOURCES_USER_LASTMODIFIED")));
-        CmsUUID resProjectId = new CmsUUID(res.getString("LOCKED_IN_PROJECT"));
+        CmsUUID userCreated = CmsUUID.intern(
+            new CmsUUID(res.getString(m_sqlManager.readQuery("C_RESOURCES_USER_CREATED"))));
+        CmsUUID userLastModified = CmsUUID.intern(
+            new CmsUUID(res.getString(m_sqlManager.readQuery("C_RESOURCES_USER_LASTMODIFIED"))));
+        CmsUUID resProjectId = CmsUUID.intern(new CmsUUID(res.getString("LOCKED_IN_PROJECT")));
         int resourceVersion = res.getInt(m_sqlManager.readQuery("C_RESOURCES_VERSION"));
         int structureVersion = res.getInt(m_sqlManager.readQuery("C_RESOURCES_STRUCTURE_VERSION"));
         int resourceSize = res.getInt(m_sqlManager.readQuery("C_RESOURCES_SIZE"));
@@ -857,8 +875,8 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         String resourcePath = res.getString(m_sqlManager.readQuery("C_RESOURCES_RESOURCE_PATH"));
         int resourceType = res.getInt(m_sqlManager.readQuery("C_RESOURCES_RESOURCE_TYPE"));
         int resourceFlags = res.getInt(m_sqlManager.readQuery("C_RESOURCES_RESOURCE_FLAGS"));
-        CmsUUID resourceProjectLastModified = new CmsUUID(
-            res.getString(m_sqlManager.readQuery("C_RESOURCES_PROJECT_LASTMODIFIED")));
+        CmsUUID resourceProjectLastModified = CmsUUID.intern(
+            new CmsUUID(res.getString(m_sqlManager.readQuery("C_RESOURCES_PROJECT_LASTMODIFIED"))));
         int resourceState = res.getInt(m_sqlManager.readQuery("C_RESOURCES_STATE"));
         int structureState = res.getInt(m_sqlManager.readQuery("C_RESOURCES_STRUCTURE_STATE"));
         long dateCreated = res.getLong(m_sqlManager.readQuery("C_RESOURCES_DATE_CREATED"));
@@ -872,8 +890,10 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
             resourcePath = CmsFileUtil.addTrailingSeparator(resourcePath);
         }
         long dateContent = isFolder ? -1 : res.getLong(m_sqlManager.readQuery("C_RESOURCES_DATE_CONTENT"));
-        CmsUUID userCreated = new CmsUUID(res.getString(m_sqlManager.readQuery("C_RESOURCES_USER_CREATED")));
-        CmsUUID userLastModified = new CmsUUID(res.getString(m_sqlManager.readQuery("C_RESOURCES_USER_LASTMODIFIED")));
+        CmsUUID userCreated = CmsUUID.intern(
+            new CmsUUID(res.getString(m_sqlManager.readQuery("C_RESOURCES_USER_CREATED"))));
+        CmsUUID userLastModified = CmsUUID.intern(
+            new CmsUUID(res.getString(m_sqlManager.readQuery("C_RESOURCES_USER_LASTMODIFIED"))));
         int siblingCount = res.getInt(m_sqlManager.readQuery("C_RESOURCES_SIBLING_COUNT"));
         int resourceVersion = res.getInt(m_sqlManager.readQuery("C_RESOURCES_VERSION"));
         int structureVersion = res.getInt(m_sqlManager.readQuery("C_RESOURCES_STRUCTURE_VERSION"));
@@ -1892,6 +1912,67 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         return byteRes;
     }
 
+    /**
+     * @see org.opencms.db.I_CmsVfsDriver#readContent(org.opencms.db.CmsDbContext, org.opencms.util.CmsUUID, org.opencms.util.CmsUUID, java.io.OutputStream)
+     */
+    public long readContent(CmsDbContext dbc, CmsUUID projectId, CmsUUID resourceId, OutputStream out)
+    throws CmsDataAccessException {
+
+        PreparedStatement stmt = null;
+        ResultSet res = null;
+        Connection conn = null;
+        long written = 0;
+
+        try {
+            conn = m_sqlManager.getConnection(dbc);
+            if (projectId.equals(CmsProject.ONLINE_PROJECT_ID)) {
+                stmt = m_sqlManager.getPreparedStatement(conn, projectId, "C_ONLINE_FILES_CONTENT");
+            } else {
+                stmt = m_sqlManager.getPreparedStatement(conn, projectId, "C_OFFLINE_FILES_CONTENT");
+            }
+            stmt.setString(1, resourceId.toString());
+            res = stmt.executeQuery();
+
+            if (res.next()) {
+                InputStream in = m_sqlManager.getBinaryStream(
+                    res,
+                    m_sqlManager.readQuery("C_RESOURCES_FILE_CONTENT"));
+                if (in != null) {
+                    try {
+                        byte[] buffer = new byte[CONTENT_BUFFER_SIZE];
+                        int read;
+                        while ((read = in.read(buffer)) != -1) {
+                            out.write(buffer, 0, read);
+                            written += read;
+                        }
+                    } finally {
+                        in.close();
+                    }
+                }
+                while (res.next()) {
+                    // do nothing only move through all rows because of mssql odbc driver
+                }
+            } else {
+                throw new CmsVfsResourceNotFoundException(
+                    Messages.get().container(
+                        Messages.ERR_READ_CONTENT_WITH_RESOURCE_ID_2,
+                        resourceId,
+                        Boolean.valueOf(projectId.equals(CmsProject.ONLINE_PROJECT_ID))));
+            }
+        } catch (IOException e) {
+            throw new CmsDbIoException(
+                Messages.get().container(Messages.ERR_WRITING_TO_OUTPUT_STREAM_1, resourceId),
+                e);
+        } catch (SQLException e) {
+            throw new CmsDbSqlException(
+                Messages.get().container(Messages.ERR_GENERIC_SQL_1, CmsDbSqlException.getErrorQuery(stmt)),
+                e);
+        } finally {
+            m_sqlManager.closeAll(dbc, conn, stmt, res);
+        }
+        return written;
+    }
+
     /**
      * @see org.opencms.db.I_CmsVfsDriver#readFolder(org.opencms.db.CmsDbContext, CmsUUID, org.opencms.util.CmsUUID)
      */
@@ -2217,6 +2298,110 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         return new ArrayList<CmsProperty>(propertyMap.values());
     }
 
+    /**
+     * @see org.opencms.db.I_CmsVfsDriver#readPropertyObjects(org.opencms.db.CmsDbContext, org.opencms.file.CmsProject, java.util.List)
+     */
+    public Map<CmsUUID, List<CmsProperty>> readPropertyObjects(
+        CmsDbContext dbc,
+        CmsProject project,
+        List<CmsResource> resources)
+    throws CmsDataAccessException {
+
+        CmsUUID projectId = ((dbc.getProjectId() == null) || dbc.getProjectId().isNullUUID())
+        ? project.getUuid()
+        : dbc.getProjectId();
+
+        // structure values are mapped to the structure ID, resource values are shared by all siblings
+        Map<CmsUUID, CmsResource> byStructureId = new HashMap<CmsUUID, CmsResource>();
+        Map<CmsUUID, List<CmsResource>> byResourceId = new HashMap<CmsUUID, List<CmsResource>>();
+        Map<CmsUUID, Map<String, CmsProperty>> propertyMaps = new HashMap<CmsUUID, Map<String, CmsProperty>>();
+        for (CmsResource resource : resources) {
+            if (byStructureId.containsKey(resource.getStructureId())) {
+                continue;
+            }
+            byStructureId.put(resource.getStructureId(), resource);
+            List<CmsResource> siblings = byResourceId.get(resource.getResourceId());
+            if (siblings == null) {
+                siblings = new ArrayList<CmsResource>(1);
+                byResourceId.put(resource.getResourceId(), siblings);
+            }
+            siblings.add(resource);
+            propertyMaps.put(resource.getStructureId(), new HashMap<String, CmsProperty>());
+        }
+
+        List<CmsUUID> mappingIds = new ArrayList<CmsUUID>(byStructureId.keySet());
+        mappingIds.addAll(byResourceId.keySet());
+
+        ResultSet res = null;
+        PreparedStatement stmt = null;
+        Connection conn = null;
+
+        try {
+            conn = m_sqlManager.getConnection(dbc);
+            for (int start = 0; start < mappingIds.size(); start += MAX_IDS_PER_QUERY) {
+                List<CmsUUID> chunk = mappingIds.subList(
+                    start,
+                    Math.min(start + MAX_IDS_PER_QUERY, mappingIds.size()));
+                StringBuffer query = new StringBuffer(
+                    m_sqlManager.readQuery(projectId, "C_PROPERTIES_READALL_BYIDS"));
+                appendParameterList(query, chunk.size());
+                stmt = CmsSqlStatistics.getInstance().wrap(
+                    m_sqlManager.getPreparedStatementForSql(conn, query.toString()),
+                    "C_PROPERTIES_READALL_BYIDS");
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setString(i + 1, chunk.get(i).toString());
+                }
+                res = stmt.executeQuery();
+
+                while (res.next()) {
+                    String propertyKey = res.getString(1);
+                    String propertyValue = res.getString(2);
+                    int mappingType = res.getInt(3);
+                    CmsUUID mappingId = new CmsUUID(res.getString(4));
+
+                    if (mappingType == CmsProperty.STRUCTURE_RECORD_MAPPING) {
+                        // this property value is mapped to a structure record
+                        CmsResource resource = byStructureId.get(mappingId);
+                        if (resource != null) {
+                            getBulkProperty(propertyMaps, resource, propertyKey).setStructureValue(propertyValue);
+                        }
+                    } else if (mappingType == CmsProperty.RESOURCE_RECORD_MAPPING) {
+                        // this property value is mapped to a resource record
+                        List<CmsResource> siblings = byResourceId.get(mappingId);
+                        if (siblings != null) {
+                            for (CmsResource resource : siblings) {
+                                getBulkProperty(propertyMaps, resource, propertyKey).setResourceValue(
+                                    propertyValue);
+                            }
+                        }
+                    } else {
+                        throw new CmsDbConsistencyException(
+                            Messages.get().container(
+                                Messages.ERR_UNKNOWN_PROPERTY_VALUE_MAPPING_3,
+                                mappingId,
+                                new Integer(mappingType),
+                                propertyKey));
+                    }
+                }
+                m_sqlManager.closeAll(dbc, null, stmt, res);
+                stmt = null;
+                res = null;
+            }
+        } catch (SQLException e) {
+            throw new CmsDbSqlException(
+                Messages.get().container(Messages.ERR_GENERIC_SQL_1, CmsDbSqlException.getErrorQuery(stmt)),
+                e);
+        } finally {
+            m_sqlManager.closeAll(dbc, conn, stmt, res);
+        }
+
+        Map<CmsUUID, List<CmsProperty>> result = new HashMap<CmsUUID, List<CmsProperty>>(propertyMaps.size());
+        for (Map.Entry<CmsUUID, Map<String, CmsProperty>> entry : propertyMaps.entrySet()) {
+            result.put(entry.getKey(), new ArrayList<CmsProperty>(entry.getValue().values()));
+        }
+        return result;
+    }
+
     /**
      * @see org.opencms.db.I_CmsVfsDriver#readRelations(org.opencms.db.CmsDbContext, CmsUUID, CmsResource, org.opencms.relations.CmsRelationFilter)
      */
@@ -2457,6 +2642,66 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         return result;
     }
 
+    /**
+     * @see org.opencms.db.I_CmsVfsDriver#readResources(org.opencms.db.CmsDbContext, org.opencms.util.CmsUUID, java.util.List, boolean)
+     */
+    public List<CmsResource> readResources(
+        CmsDbContext dbc,
+        CmsUUID projectId,
+        List<CmsUUID> structureIds,
+        boolean includeDeleted)
+    throws CmsDataAccessException {
+
+        List<CmsUUID> ids = new ArrayList<CmsUUID>(new LinkedHashSet<CmsUUID>(structureIds));
+        Map<CmsUUID, CmsResource> resources = new HashMap<CmsUUID, CmsResource>(ids.size());
+
+        ResultSet res = null;
+        PreparedStatement stmt = null;
+        Connection conn = null;
+
+        try {
+            conn = m_sqlManager.getConnection(dbc);
+            for (int start = 0; start < ids.size(); start += MAX_IDS_PER_QUERY) {
+                List<CmsUUID> chunk = ids.subList(start, Math.min(start + MAX_IDS_PER_QUERY, ids.size()));
+                StringBuffer query = new StringBuffer(m_sqlManager.readQuery(projectId, "C_RESOURCES_READBYIDS"));
+                appendParameterList(query, chunk.size());
+                stmt = CmsSqlStatistics.getInstance().wrap(
+                    m_sqlManager.getPreparedStatementForSql(conn, query.toString()),
+                    "C_RESOURCES_READBYIDS");
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setString(i + 1, chunk.get(i).toString());
+                }
+                res = stmt.executeQuery();
+
+                while (res.next()) {
+                    CmsResource resource = createResource(res, projectId);
+                    // skip resources marked as deleted if we are not allowed to return them
+                    if (includeDeleted || !resource.getState().isDeleted()) {
+                        resources.put(resource.getStructureId(), resource);
+                    }
+                }
+                m_sqlManager.closeAll(dbc, null, stmt, res);
+                stmt = null;
+                res = null;
+            }
+        } catch (SQLException e) {
+            throw new CmsDbSqlException(
+                Messages.get().container(Messages.ERR_GENERIC_SQL_1, CmsDbSqlException.getErrorQuery(stmt)),
+                e);
+        } finally {
+            m_sqlManager.closeAll(dbc, conn, stmt, res);
+        }
+
+        List<CmsResource> result = new ArrayList<CmsResource>(resources.size());
+        for (CmsUUID id : ids) {
+            CmsResource resource = resources.get(id);
+            if (resource != null) {
+                result.add(resource);
+            }
+        }
+        return result;
+    }
+
     /**
      * @see org.opencms.db.I_CmsVfsDriver#readResourcesForPrincipalACE(org.opencms.db.CmsDbContext, org.opencms.file.CmsProject, org.opencms.util.CmsUUID)
      */
@@ -3092,6 +3337,10 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
             offlineResource,
             CmsRelationFilter.TARGETS).iterator();
         dbc.setProjectId(dbcProjectId);
+        if (CmsPublishBatch.getPublishBatch(dbc) != null) {
+            internalCreateRelationsBatch(dbc, onlineProject.getUuid(), itRelations);
+            return;
+        }
         while (itRelations.hasNext()) {
             vfsDriver.createRelation(dbc, onlineProject.getUuid(), itRelations.next());
         }
@@ -3383,6 +3632,12 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         List<CmsProperty> properties)
     throws CmsDataAccessException {
 
+        CmsPublishBatch publishBatch = CmsPublishBatch.getPublishBatch(dbc);
+        if ((publishBatch != null) && (properties.size() > 1)) {
+            internalWritePropertyObjectsBatch(dbc, publishBatch, project, resource, properties);
+            return;
+        }
+
         CmsProperty property = null;
 
         for (int i = 0; i < properties.size(); i++) {
@@ -3576,6 +3831,24 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         }
     }
 
+    /**
+     * Appends a parenthesized list of the given number of parameter placeholders to a query.<p>
+     *
+     * @param query the query to append the list to
+     * @param count the number of placeholders
+     */
+    protected void appendParameterList(StringBuffer query, int count) {
+
+        query.append(BEGIN_CONDITION);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                query.append(", ");
+            }
+            query.append("?");
+        }
+        query.append(END_CONDITION);
+    }
+
     /**
      * Checks that the current user has write permissions for all subresources of the given folder.<p>
      *
@@ -3657,6 +3930,33 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         }
     }
 
+    /**
+     * Returns the property with the given name from the properties read in bulk for a resource,
+     * creating it if it does not exist yet.<p>
+     *
+     * @param propertyMaps the properties read so far, by structure ID and property name
+     * @param resource the resource the property belongs to
+     * @param name the name of the property
+     *
+     * @return the property
+     */
+    protected CmsProperty getBulkProperty(
+        Map<CmsUUID, Map<String, CmsProperty>> propertyMaps,
+        CmsResource resource,
+        String name) {
+
+        Map<String, CmsProperty> propertyMap = propertyMaps.get(resource.getStructureId());
+        CmsProperty property = propertyMap.get(name);
+        if (property == null) {
+            // there doesn't exist a property object for this key yet
+            property = new CmsProperty();
+            property.setName(name);
+            property.setOrigin(resource.getRootPath());
+            propertyMap.put(name, property);
+        }
+        return property;
+    }
+
     /**
      * Returns the count of properties for a property definition.<p>
      *
@@ -3728,6 +4028,59 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         }
     }
 
+    /**
+     * Creates the given relations during a batch publish.<p>
+     *
+     * All relations except locale variant relations, which have to be normalized one by one,
+     * are inserted with a single JDBC batch.<p>
+     *
+     * @param dbc the current database context
+     * @param projectId the id of the project to create the relations in
+     * @param itRelations the relations to create
+     *
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    protected void internalCreateRelationsBatch(CmsDbContext dbc, CmsUUID projectId, Iterator<CmsRelation> itRelations)
+    throws CmsDataAccessException {
+
+        List<CmsRelation> localeRelations = new ArrayList<CmsRelation>();
+        Connection conn = null;
+        PreparedStatement stmt = null;
+
+        try {
+            while (itRelations.hasNext()) {
+                CmsRelation relation = itRelations.next();
+                if (relation.getType().getId() == CmsRelationType.LOCALE_VARIANT.getId()) {
+                    localeRelations.add(relation);
+                    continue;
+                }
+                if (stmt == null) {
+                    conn = m_sqlManager.getConnection(dbc);
+                    stmt = m_sqlManager.getPreparedStatement(conn, projectId, "C_CREATE_RELATION");
+                }
+                stmt.setString(1, relation.getSourceId().toString());
+                stmt.setString(2, relation.getSourcePath());
+                stmt.setString(3, relation.getTargetId().toString());
+                stmt.setString(4, relation.getTargetPath());
+                stmt.setInt(5, relation.getType().getId());
+                stmt.addBatch();
+            }
+            if (stmt != null) {
+                stmt.executeBatch();
+            }
+        } catch (SQLException e) {
+            throw new CmsDbSqlException(
+                Messages.get().container(Messages.ERR_GENERIC_SQL_1, CmsDbSqlException.getErrorQuery(stmt)),
+                e);
+        } finally {
+            m_sqlManager.closeAll(dbc, conn, stmt, null);
+        }
+
+        for (CmsRelation relation : localeRelations) {
+            createRelation(dbc, projectId, relation);
+        }
+    }
+
     /**
      * Creates an URL name mapping entry from a result set.<p>
      *
@@ -4100,6 +4453,160 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
                 resource.getRootPath()));
     }
 
+    /**
+     * Writes the properties of a resource during a batch publish.<p>
+     *
+     * The existing property values are read with a single query, the property definitions
+     * are cached for the whole publish job and all inserts, updates and deletes are sent
+     * to the database as JDBC batches.<p>
+     *
+     * @param dbc the current database context
+     * @param publishBatch the batch of the running publish job
+     * @param project the project to write the properties to
+     * @param resource the resource to write the properties for
+     * @param properties the properties to write
+     *
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    protected void internalWritePropertyObjectsBatch(
+        CmsDbContext dbc,
+        CmsPublishBatch publishBatch,
+        CmsProject project,
+        CmsResource resource,
+        List<CmsProperty> properties)
+    throws CmsDataAccessException {
+
+        CmsUUID projectId = ((dbc.getProjectId() == null) || dbc.getProjectId().isNullUUID())
+        ? project.getUuid()
+        : dbc.getProjectId();
+
+        Map<String, CmsProperty> existingProperties = new HashMap<String, CmsProperty>();
+        for (CmsProperty existingProperty : readPropertyObjects(dbc, project, resource)) {
+            existingProperties.put(existingProperty.getName(), existingProperty);
+        }
+
+        Connection conn = null;
+        PreparedStatement createStmt = null;
+        PreparedStatement updateStmt = null;
+        PreparedStatement deleteStmt = null;
+        PreparedStatement stmt = null;
+
+        try {
+            conn = m_sqlManager.getConnection(dbc);
+            for (CmsProperty property : properties) {
+                CmsPropertyDefinition propertyDefinition = publishBatch.getPropertyDefinition(
+                    projectId,
+                    property.getName());
+                if (propertyDefinition == null) {
+                    try {
+                        propertyDefinition = readPropertyDefinition(dbc, property.getName(), projectId);
+                        publishBatch.cachePropertyDefinition(projectId, propertyDefinition);
+                    } catch (CmsDbEntryNotFoundException e) {
+                        // the single property write takes care of creating the definition
+                        writePropertyObject(dbc, project, resource, property);
+                        continue;
+                    }
+                }
+
+                CmsProperty existingProperty = existingProperties.get(propertyDefinition.getName());
+                if (existingProperty == null) {
+                    existingProperty = CmsProperty.getNullProperty();
+                }
+                if (existingProperty.isIdentical(property)) {
+                    // property already has the identical values set, no write required
+                    continue;
+                }
+
+                for (int i = 0; i < 2; i++) {
+                    int mappingType;
+                    String value = null;
+                    CmsUUID id;
+                    boolean existsPropertyValue;
+                    boolean deletePropertyValue = false;
+
+                    if (i == 0) {
+                        // write/delete the *structure value* on the first cycle
+                        if ((existingProperty.getStructureValue() != null) && property.isDeleteStructureValue()) {
+                            deletePropertyValue = true;
+                        } else {
+                            value = property.getStructureValue();
+                            if (CmsStringUtil.isEmptyOrWhitespaceOnly(value)) {
+                                continue;
+                            }
+                        }
+                        mappingType = CmsProperty.STRUCTURE_RECORD_MAPPING;
+                        id = resource.getStructureId();
+                        existsPropertyValue = existingProperty.getStructureValue() != null;
+                    } else {
+                        // write/delete the *resource value* on the second cycle
+                        if ((existingProperty.getResourceValue() != null) && property.isDeleteResourceValue()) {
+                            deletePropertyValue = true;
+                        } else {
+                            value = property.getResourceValue();
+                            if (CmsStringUtil.isEmptyOrWhitespaceOnly(value)) {
+                                break;
+                            }
+                        }
+                        mappingType = CmsProperty.RESOURCE_RECORD_MAPPING;
+                        id = resource.getResourceId();
+                        existsPropertyValue = existingProperty.getResourceValue() != null;
+                    }
+
+                    if (deletePropertyValue) {
+                        if (deleteStmt == null) {
+                            deleteStmt = m_sqlManager.getPreparedStatement(conn, projectId, "C_PROPERTIES_DELETE");
+                        }
+                        stmt = deleteStmt;
+                        stmt.setString(1, propertyDefinition.getId().toString());
+                        stmt.setString(2, id.toString());
+                        stmt.setInt(3, mappingType);
+                    } else if (existsPropertyValue) {
+                        if (updateStmt == null) {
+                            updateStmt = m_sqlManager.getPreparedStatement(conn, projectId, "C_PROPERTIES_UPDATE");
+                        }
+                        stmt = updateStmt;
+                        stmt.setString(1, m_sqlManager.validateEmpty(value));
+                        stmt.setString(2, id.toString());
+                        stmt.setInt(3, mappingType);
+                        stmt.setString(4, propertyDefinition.getId().toString());
+                    } else {
+                        if (createStmt == null) {
+                            createStmt = m_sqlManager.getPreparedStatement(conn, projectId, "C_PROPERTIES_CREATE");
+                        }
+                        stmt = createStmt;
+                        stmt.setString(1, new CmsUUID().toString());
+                        stmt.setString(2, propertyDefinition.getId().toString());
+                        stmt.setString(3, id.toString());
+                        stmt.setInt(4, mappingType);
+                        stmt.setString(5, m_sqlManager.validateEmpty(value));
+                    }
+                    stmt.addBatch();
+                }
+            }
+
+            if (deleteStmt != null) {
+                stmt = deleteStmt;
+                stmt.executeBatch();
+            }
+            if (updateStmt != null) {
+                stmt = updateStmt;
+                stmt.executeBatch();
+            }
+            if (createStmt != null) {
+                stmt = createStmt;
+                stmt.executeBatch();
+            }
+        } catch (SQLException e) {
+            throw new CmsDbSqlException(
+                Messages.get().container(Messages.ERR_GENERIC_SQL_1, CmsDbSqlException.getErrorQuery(stmt)),
+                e);
+        } finally {
+            m_sqlManager.closeAll(dbc, null, createStmt, null);
+            m_sqlManager.closeAll(dbc, null, updateStmt, null);
+            m_sqlManager.closeAll(dbc, conn, deleteStmt, null);
+        }
+    }
+
     /**
      * Moves all relations of a resource to the new path.<p>
      *
@@ -4684,6 +5191,20 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
     protected void updateBrokenRelations(CmsDbContext dbc, CmsUUID projectId, String rootPath)
     throws CmsDataAccessException {
 
+        CmsPublishBatch publishBatch = CmsPublishBatch.getPublishBatch(dbc);
+        if (publishBatch != null) {
+            // the broken relations only have to be up to date when the batch is committed
+            publishBatch.deferUpdate(
+                m_sqlManager,
+                m_sqlManager.readQuery(projectId, "C_RELATIONS_UPDATE_BROKEN"),
+                rootPath);
+            publishBatch.deferUpdate(
+                m_sqlManager,
+                m_sqlManager.readQuery(projectId, "C_RELATIONS_DELETE_BROKEN_LOCALE_RELATIONS"),
+                rootPath);
+            return;
+        }
+
         PreparedStatement stmt = null;
         Connection conn = null;
         try {
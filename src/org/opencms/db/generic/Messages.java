@@ -160,6 +160,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_PATH_NOT_IN_PARENT_ORGUNIT_SCOPE_2 = "ERR_PATH_NOT_IN_PARENT_ORGUNIT_SCOPE_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_PUBLISH_BATCH_COMMIT_0 = "ERR_PUBLISH_BATCH_COMMIT_0";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_PUBLISHLIST_DESERIALIZATION_FAILED_1 = "ERR_PUBLISHLIST_DESERIALIZATION_FAILED_1";
 
@@ -298,6 +301,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String INIT_FILL_DEFAULTS_0 = "INIT_FILL_DEFAULTS_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String INIT_PUBLISH_BATCH_SIZE_1 = "INIT_PUBLISH_BATCH_SIZE_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String INIT_ROOT_ORGUNIT_DEFAULTS_INITIALIZED_0 = "INIT_ROOT_ORGUNIT_DEFAULTS_INITIALIZED_0";
 
@@ -2290,6 +2290,7 @@ public class CmsUserDriver implements I_CmsUserDriver {
 
         // clear the internal caches
         OpenCms.getMemoryMonitor().clearAccessControlListCache();
+        OpenCms.getMemoryMonitor().flushCache(resource, CmsMemoryMonitor.CacheType.ACL_TREE);
         OpenCms.getMemoryMonitor().flushCache(CmsMemoryMonitor.CacheType.PROPERTY);
         OpenCms.getMemoryMonitor().flushCache(CmsMemoryMonitor.CacheType.PROPERTY_LIST);
 
@@ -2406,6 +2407,7 @@ public class CmsUserDriver implements I_CmsUserDriver {
 
         // flush all relevant caches
         OpenCms.getMemoryMonitor().clearAccessControlListCache();
+        OpenCms.getMemoryMonitor().flushCache(resource, CmsMemoryMonitor.CacheType.ACL_TREE);
         OpenCms.getMemoryMonitor().flushCache(CmsMemoryMonitor.CacheType.PROPERTY);
         OpenCms.getMemoryMonitor().flushCache(CmsMemoryMonitor.CacheType.PROPERTY_LIST);
         OpenCms.getMemoryMonitor().flushCache(CmsMemoryMonitor.CacheType.PROJECT_RESOURCES);
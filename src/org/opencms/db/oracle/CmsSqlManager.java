@@ -31,12 +31,14 @@ import org.opencms.db.CmsDbContext;
 import org.opencms.db.generic.Messages;
 import org.opencms.main.CmsLog;
 
+import java.io.InputStream;
 import java.sql.Blob;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
+import org.apache.commons.dbcp.DelegatingResultSet;
 import org.apache.commons.logging.Log;
 
 /**
@@ -140,6 +142,33 @@ public class CmsSqlManager extends org.opencms.db.generic.CmsSqlManager {
         }
     }
 
+    /**
+     * Returns the result set of the Oracle driver for a result set from a connection pool.<p>
+     *
+     * DBCP wraps the result sets of the driver, while other pools return them directly.<p>
+     *
+     * @param res the result set from the pool
+     *
+     * @return the result set of the Oracle driver
+     */
+    public static ResultSet getInnermostResultSet(ResultSet res) {
+
+        if (res instanceof DelegatingResultSet) {
+            return ((DelegatingResultSet)res).getInnermostDelegate();
+        }
+        return res;
+    }
+
+    /**
+     * @see org.opencms.db.generic.CmsSqlManager#getBinaryStream(java.sql.ResultSet, java.lang.String)
+     */
+    @Override
+    public InputStream getBinaryStream(ResultSet res, String attributeName) throws SQLException {
+
+        Blob blob = res.getBlob(attributeName);
+        return blob.getBinaryStream();
+    }
+
     /**
      * @see org.opencms.db.generic.CmsSqlManager#getBytes(java.sql.ResultSet, java.lang.String)
      */
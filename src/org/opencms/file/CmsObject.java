@@ -67,6 +67,7 @@ import org.opencms.util.CmsStringUtil;
 import org.opencms.util.CmsUUID;
 import org.opencms.xml.content.CmsNumberSuffixNameSequence;
 
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
@@ -2367,6 +2368,27 @@ public final class CmsObject {
         return m_securityManager.readBestUrlName(m_context, id, locale, defaultLocales);
     }
 
+    /**
+     * Writes the binary content of a file resource to an output stream.<p>
+     *
+     * Use this instead of <code>{@link #readFile(CmsResource)}</code> for large files which are only
+     * copied somewhere else, since the content is not held in memory as a whole.<p>
+     *
+     * No resource filter is applied and no permissions are checked, since we already have
+     * a full resource instance and assume we just want the content for that instance.<p>
+     *
+     * @param resource the file resource to read the content for
+     * @param out the output stream to write the content to
+     *
+     * @return the number of bytes written
+     *
+     * @throws CmsException if the content could not be read for any reason
+     */
+    public long readContent(CmsResource resource, OutputStream out) throws CmsException {
+
+        return m_securityManager.readContent(m_context, resource, out);
+    }
+
     /**
      * Returns the default resource for the given folder.<p>
      * <ol>
@@ -2972,6 +2994,26 @@ public final class CmsObject {
         return m_securityManager.readPropertyObject(m_context, resource, property, search, locale);
     }
 
+    /**
+     * Reads all property objects of a list of resources.<p>
+     *
+     * This is more efficient than calling <code>{@link #readPropertyObjects(CmsResource, boolean)}</code>
+     * for each resource, since the properties which are not yet cached are read with a single bulk read.<p>
+     *
+     * @param resources the resources where the properties are mapped to
+     * @param search if <code>true</code>, the properties of all parent folders of each resource
+     *      are merged with the resource properties.
+     *
+     * @return the lists of <code>{@link CmsProperty}</code> objects, with the structure ID of the resource as key
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public Map<CmsUUID, List<CmsProperty>> readPropertyObjects(List<CmsResource> resources, boolean search)
+    throws CmsException {
+
+        return m_securityManager.readPropertyObjects(m_context, resources, search);
+    }
+
     /**
      * Reads all property objects from a resource.<p>
      *
@@ -3214,6 +3256,26 @@ public final class CmsObject {
         return m_securityManager.readResource(m_context, addSiteRoot(resourcename), filter);
     }
 
+    /**
+     * Reads a list of resources specified by their structure IDs, using the specified resource filter.<p>
+     *
+     * This is more efficient than calling <code>{@link #readResource(CmsUUID, CmsResourceFilter)}</code>
+     * for each ID, since the resources are read with a single bulk read and the permissions are
+     * checked in one pass. In contrast to the single read, resources which do not exist,
+     * do not match the filter or can not be read by the current user are silently skipped.<p>
+     *
+     * @param structureIds the structure IDs of the resources to read
+     * @param filter the resource filter to use while reading
+     *
+     * @return the resources that were read, in the order of the given IDs
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public List<CmsResource> readResources(List<CmsUUID> structureIds, CmsResourceFilter filter) throws CmsException {
+
+        return m_securityManager.readResources(m_context, structureIds, filter);
+    }
+
     /**
      * Reads all resources below the given resource matching the filter criteria,
      * including the full tree below the path only in case the <code>readTree</code>
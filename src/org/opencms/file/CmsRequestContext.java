@@ -27,6 +27,7 @@
 
 package org.opencms.file;
 
+import org.opencms.db.CmsRequestReadCache;
 import org.opencms.main.CmsIllegalArgumentException;
 import org.opencms.main.OpenCms;
 import org.opencms.security.CmsOrganizationalUnit;
@@ -87,6 +88,9 @@ public final class CmsRequestContext {
     /** The fully qualified name of the organizational unit for this request. */
     private String m_ouFqn;
 
+    /** The read cache for this request, or <code>null</code>. */
+    private CmsRequestReadCache m_readCache;
+
     /** The remote ip address. */
     private String m_remoteAddr;
 
@@ -385,6 +389,16 @@ public final class CmsRequestContext {
         return m_ouFqn;
     }
 
+    /**
+     * Returns the cache for repeated read operations of this request.<p>
+     *
+     * @return the read cache, or <code>null</code> if reads are not memoized for this request
+     */
+    public CmsRequestReadCache getReadCache() {
+
+        return m_readCache;
+    }
+
     /**
      * Returns the remote ip address.<p>
      *
@@ -622,6 +636,18 @@ public final class CmsRequestContext {
         m_ouFqn = CmsOrganizationalUnit.removeLeadingSeparator(m_ouFqn);
     }
 
+    /**
+     * Sets the cache for repeated read operations of this request.<p>
+     *
+     * The cache is only used while the online project is the current project.<p>
+     *
+     * @param readCache the read cache, or <code>null</code> to disable memoizing reads
+     */
+    public void setReadCache(CmsRequestReadCache readCache) {
+
+        m_readCache = readCache;
+    }
+
     /**
      * Sets the current request time.<p>
      *
@@ -27,7 +27,9 @@
 
 package org.opencms.flex;
 
+import org.opencms.cache.CmsCacheMap;
 import org.opencms.cache.CmsLruCache;
+import org.opencms.cache.CmsShardedLruCache;
 import org.opencms.cache.I_CmsLruCacheObject;
 import org.opencms.file.CmsObject;
 import org.opencms.loader.CmsJspLoader;
@@ -35,20 +37,28 @@ import org.opencms.main.CmsLog;
 import org.opencms.main.I_CmsEventListener;
 import org.opencms.main.OpenCms;
 import org.opencms.security.CmsRole;
-import org.opencms.util.CmsCollectionsGenericWrapper;
 import org.opencms.util.CmsStringUtil;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
-import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-import org.apache.commons.collections.map.LRUMap;
 import org.apache.commons.logging.Log;
 
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+
 /**
  * This class implements the FlexCache.<p>
  *
@@ -89,6 +99,12 @@ import org.apache.commons.logging.Log;
  * The cache is fully flushed if an event {@link I_CmsEventListener#EVENT_PUBLISH_PROJECT}
  * or {@link I_CmsEventListener#EVENT_CLEAR_CACHES} is caught.<p>
  *
+ * Lookups do not lock the cache. The resource keys are held in a concurrent map,
+ * each variation map is locked on its own while an entry is added, and the entries are
+ * organized in a sharded LRU cache which evicts according to the byte size of the entries.
+ * Clearing the cache only detaches the keys or variations, the detached entries are
+ * then released from the LRU cache in the background.<p>
+ *
  * @since 6.0.0
  *
  * @see org.opencms.flex.CmsFlexCacheKey
@@ -107,7 +123,10 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         public CmsFlexCacheKey m_key;
 
         /** Maps variations to CmsFlexCacheEntries. */
-        public Map<String, I_CmsLruCacheObject> m_map;
+        public volatile Map<String, I_CmsLruCacheObject> m_map;
+
+        /** Indicates if the key of this variation map has been removed from the cache. */
+        boolean m_released;
 
         /**
          * Generates a new instance of CmsFlexCacheVariation.<p>
@@ -117,59 +136,42 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         public CmsFlexCacheVariation(CmsFlexCacheKey theKey) {
 
             m_key = theKey;
-            m_map = new Hashtable<String, I_CmsLruCacheObject>(INITIAL_CAPACITY_VARIATIONS);
+            m_map = new ConcurrentHashMap<String, I_CmsLruCacheObject>(INITIAL_CAPACITY_VARIATIONS);
         }
-    }
-
-    /**
-     * Extended LRUMap that handles the variations in case a key is removed.<p>
-     */
-    class CmsFlexKeyMap extends LRUMap {
-
-        /** Serial version UID required for safe serialization. */
-        private static final long serialVersionUID = 6931995916013396902L;
 
         /**
-         * Initialize the map with the given size.<p>
+         * Replaces the variation map with an empty map.<p>
+         *
+         * @param release if <code>true</code>, no more entries will be added to this variation,
+         *      because its key has been removed from the cache
          *
-         * @param maxSize the maximum number of key to cache
+         * @return the entries of the replaced map, which still have to be removed from the LRU cache
          */
-        public CmsFlexKeyMap(int maxSize) {
+        synchronized Collection<I_CmsLruCacheObject> detachEntries(boolean release) {
 
-            super(maxSize);
+            Map<String, I_CmsLruCacheObject> oldMap = m_map;
+            m_map = new ConcurrentHashMap<String, I_CmsLruCacheObject>(INITIAL_CAPACITY_VARIATIONS);
+            if (release) {
+                m_released = true;
+            }
+            return new ArrayList<I_CmsLruCacheObject>(oldMap.values());
         }
+    }
+
+    /**
+     * Releases the variations of all keys removed from the key map, e.g. by eviction.<p>
+     */
+    class CmsFlexKeyRemovalListener implements RemovalListener<String, CmsFlexCacheVariation> {
 
         /**
-         * Ensures that all variations that referenced by this key are released
-         * if the key is released.<p>
-         *
-         * @param entry the entry to remove
-         *
-         * @return <code>true</code> to actually delete the entry
-         *
-         * @see LRUMap#removeLRU(LinkEntry)
+         * @see com.google.common.cache.RemovalListener#onRemoval(com.google.common.cache.RemovalNotification)
          */
-        @Override
-        protected boolean removeLRU(LinkEntry entry) {
+        public void onRemoval(RemovalNotification<String, CmsFlexCacheVariation> notification) {
 
-            CmsFlexCacheVariation v = (CmsFlexCacheVariation)entry.getValue();
-            if (v == null) {
-                return true;
+            CmsFlexCacheVariation v = notification.getValue();
+            if (v != null) {
+                releaseEntries(v.detachEntries(true));
             }
-            Map<String, I_CmsLruCacheObject> m = v.m_map;
-            if ((m == null) || (m.size() == 0)) {
-                return true;
-            }
-            Collection<I_CmsLruCacheObject> entries = m.values();
-            synchronized (m_variationCache) {
-                for (I_CmsLruCacheObject e : entries) {
-                    m_variationCache.remove(e);
-                }
-                v.m_map.clear();
-                v.m_map = null;
-                v.m_key = null;
-            }
-            return true;
         }
     }
 
@@ -203,6 +205,9 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
     /** Initial size for variation lists, should be a power of 2. */
     public static final int INITIAL_CAPACITY_VARIATIONS = 8;
 
+    /** Number of independently locked shards of the entry LRU cache. */
+    public static final int LRU_CACHE_SHARDS = 16;
+
     /** Offline repository constant. */
     public static final String REPOSITORY_OFFLINE = "offline";
 
@@ -218,14 +223,29 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
     /** Indicates if offline resources should be cached or not. */
     private boolean m_cacheOffline;
 
+    /** The CMS context used to read the publish history for the snapshot. */
+    private CmsObject m_cms;
+
     /** Indicates if the cache is enabled or not. */
     private boolean m_enabled;
 
     /** Map to store the entries for fast lookup. */
-    private Map<String, CmsFlexCacheVariation> m_keyCache;
+    private CmsCacheMap<String, CmsFlexCacheVariation> m_keyCache;
+
+    /** The store for the content of the cached entries off the heap, or <code>null</code>. */
+    private CmsFlexCacheOffHeapStore m_offHeapStore;
+
+    /** The executor which releases detached entries in the background. */
+    private ExecutorService m_releaseExecutor;
+
+    /** The detached entries which still have to be removed from the LRU cache. */
+    private Queue<Collection<I_CmsLruCacheObject>> m_releaseQueue;
 
-    /** Counter for the size. */
-    private int m_size;
+    /** Indicates if a background task for releasing entries is scheduled. */
+    private AtomicBoolean m_releaseScheduled;
+
+    /** The snapshot of the online entries, or <code>null</code>. */
+    private CmsFlexCacheSnapshot m_snapshot;
 
     /**
      * Constructor for class CmsFlexCache.<p>
@@ -248,14 +268,23 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         int maxEntryBytes = configuration.getMaxEntryBytes();
         int maxKeys = configuration.getMaxKeys();
 
-        m_variationCache = new CmsLruCache(maxCacheBytes, avgCacheBytes, maxEntryBytes);
+        m_variationCache = new CmsShardedLruCache(maxCacheBytes, avgCacheBytes, maxEntryBytes, LRU_CACHE_SHARDS);
         OpenCms.getMemoryMonitor().register(getClass().getName() + ".m_entryLruCache", m_variationCache);
+        m_releaseQueue = new ConcurrentLinkedQueue<Collection<I_CmsLruCacheObject>>();
+        m_releaseScheduled = new AtomicBoolean();
 
         if (m_enabled) {
-            CmsFlexKeyMap flexKeyMap = new CmsFlexKeyMap(maxKeys);
-            m_keyCache = Collections.synchronizedMap(
-                CmsCollectionsGenericWrapper.<String, CmsFlexCacheVariation> map(flexKeyMap));
-            OpenCms.getMemoryMonitor().register(getClass().getName() + ".m_resourceMap", flexKeyMap);
+            m_keyCache = new CmsCacheMap<String, CmsFlexCacheVariation>(maxKeys, new CmsFlexKeyRemovalListener());
+            OpenCms.getMemoryMonitor().register(getClass().getName() + ".m_resourceMap", m_keyCache);
+            m_releaseExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+                public Thread newThread(Runnable r) {
+
+                    Thread thread = new Thread(r, "OpenCms: FlexCache cleanup");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
 
             OpenCms.addCmsEventListener(
                 this,
@@ -264,8 +293,29 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
                     I_CmsEventListener.EVENT_CLEAR_CACHES,
                     I_CmsEventListener.EVENT_FLEX_PURGE_JSP_REPOSITORY,
                     I_CmsEventListener.EVENT_FLEX_CACHE_CLEAR});
+
+            if (configuration.getMaxOffHeapBytes() > 0) {
+                m_offHeapStore = new CmsFlexCacheOffHeapStore(configuration.getMaxOffHeapBytes());
+                if (LOG.isInfoEnabled()) {
+                    LOG.info(
+                        Messages.get().getBundle().key(
+                            Messages.INIT_FLEXCACHE_OFFHEAP_1,
+                            new Long(configuration.getMaxOffHeapBytes())));
+                }
+            }
+
+            if (CmsStringUtil.isNotEmptyOrWhitespaceOnly(configuration.getSnapshotFile())) {
+                m_snapshot = new CmsFlexCacheSnapshot(
+                    OpenCms.getSystemInfo().getAbsoluteRfsPathRelativeToWebInf(configuration.getSnapshotFile()));
+                if (LOG.isInfoEnabled()) {
+                    LOG.info(
+                        Messages.get().getBundle().key(
+                            Messages.INIT_FLEXCACHE_SNAPSHOT_1,
+                            m_snapshot.getFile().getAbsolutePath()));
+                }
+            }
         }
-        
+
         if (LOG.isInfoEnabled()) {
             LOG.info(
                 Messages.get().getBundle().key(
@@ -401,7 +451,7 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         if (!isEnabled() || !OpenCms.getRoleManager().hasRole(cms, CmsRole.WORKPLACE_MANAGER)) {
             return null;
         }
-        return m_keyCache.keySet();
+        return Collections.unmodifiableSet(m_keyCache.keySet());
     }
 
     /**
@@ -440,6 +490,51 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         return m_variationCache;
     }
 
+    /**
+     * Returns the store for the content of the cached entries off the heap.<p>
+     *
+     * @return the off-heap store, or <code>null</code> if all content is kept on the heap
+     */
+    public CmsFlexCacheOffHeapStore getOffHeapStore() {
+
+        return m_offHeapStore;
+    }
+
+    /**
+     * Returns the snapshot of the online entries which is written on shutdown.<p>
+     *
+     * @return the snapshot, or <code>null</code> if no snapshot file is configured
+     */
+    public CmsFlexCacheSnapshot getSnapshot() {
+
+        return m_snapshot;
+    }
+
+    /**
+     * Initializes the cache once the OpenCms managers are available.<p>
+     *
+     * If a snapshot file is configured, the valid online entries of the last snapshot are restored.
+     * This must be called after the caches have been cleared at the end of the OpenCms initialization.<p>
+     *
+     * @param cms an initialized CMS context with administrator permissions
+     */
+    public void initialize(CmsObject cms) {
+
+        m_cms = cms;
+        if (m_snapshot == null) {
+            return;
+        }
+        try {
+            m_snapshot.load(this, cms);
+        } catch (Exception e) {
+            LOG.error(
+                Messages.get().getBundle().key(
+                    Messages.LOG_FLEXCACHE_SNAPSHOT_LOAD_FAILED_1,
+                    m_snapshot.getFile().getAbsolutePath()),
+                e);
+        }
+    }
+
     /**
      * Indicates if the cache is enabled (i.e. actually
      * caching entries) or not.<p>
@@ -464,6 +559,29 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         return m_keyCache.size();
     }
 
+    /**
+     * Shuts down the cache.<p>
+     *
+     * If a snapshot file is configured, the online entries are written to it.<p>
+     */
+    public void shutDown() {
+
+        if ((m_snapshot != null) && (m_cms != null)) {
+            try {
+                m_snapshot.save(this, m_cms);
+            } catch (Exception e) {
+                LOG.error(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_FLEXCACHE_SNAPSHOT_WRITE_FAILED_1,
+                        m_snapshot.getFile().getAbsolutePath()),
+                    e);
+            }
+        }
+        if (m_releaseExecutor != null) {
+            m_releaseExecutor.shutdownNow();
+        }
+    }
+
     /**
      * Returns the total number of entries in the cache.<p>
      *
@@ -490,10 +608,10 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
             // cache is disabled
             return null;
         }
-        Object o = m_keyCache.get(key.getResource());
+        CmsFlexCacheVariation o = m_keyCache.get(key.getResource());
         if (o != null) {
             // found a matching key in the cache
-            CmsFlexCacheVariation v = (CmsFlexCacheVariation)o;
+            CmsFlexCacheVariation v = o;
             String variation = v.m_key.matchRequestKey(key);
 
             if (CmsStringUtil.isEmpty(variation)) {
@@ -542,6 +660,25 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         }
     }
 
+    /**
+     * Returns the variation maps of all online resources in the cache.<p>
+     *
+     * @return the variation maps of the online resources
+     */
+    List<CmsFlexCacheVariation> getOnlineVariations() {
+
+        List<CmsFlexCacheVariation> result = new ArrayList<CmsFlexCacheVariation>();
+        if (!isEnabled()) {
+            return result;
+        }
+        for (Map.Entry<String, CmsFlexCacheVariation> e : m_keyCache.entrySet()) {
+            if (e.getKey().endsWith(CACHE_ONLINESUFFIX)) {
+                result.add(e.getValue());
+            }
+        }
+        return result;
+    }
+
     /**
      * Checks if the cache is empty or if at last one element is contained.<p>
      *
@@ -611,10 +748,8 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
             return;
         }
         Object o = m_keyCache.get(key.getResource());
-        if (o == null) {
-            // No variation map for this resource yet, so create one
-            CmsFlexCacheVariation variationMap = new CmsFlexCacheVariation(key);
-            m_keyCache.put(key.getResource(), variationMap);
+        if ((o == null) && (m_keyCache.putIfAbsent(key.getResource(), new CmsFlexCacheVariation(key)) == null)) {
+            // No variation map for this resource yet, so a new one was created
             if (LOG.isDebugEnabled()) {
                 LOG.debug(Messages.get().getBundle().key(Messages.LOG_FLEXCACHE_ADD_KEY_1, key.getResource()));
             }
@@ -622,6 +757,41 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         // If != null the key is already in the cache, so we just do nothing
     }
 
+    /**
+     * Hands detached entries over to the background task which removes them from the LRU cache.<p>
+     *
+     * @param entries the detached entries
+     */
+    void releaseEntries(Collection<I_CmsLruCacheObject> entries) {
+
+        if (entries.isEmpty()) {
+            return;
+        }
+        m_releaseQueue.add(entries);
+        scheduleRelease();
+    }
+
+    /**
+     * Removes all detached entries from the LRU cache which have not been released
+     * by the background task yet.<p>
+     *
+     * @return the number of released entries
+     */
+    int releasePendingEntries() {
+
+        int count = 0;
+        Collection<I_CmsLruCacheObject> entries;
+        while ((entries = m_releaseQueue.poll()) != null) {
+            for (I_CmsLruCacheObject entry : entries) {
+                // every remove only locks one shard of the LRU cache for a short time
+                if (m_variationCache.remove(entry) != null) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
     /**
      * Removes an entry from the cache.<p>
      *
@@ -643,16 +813,16 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
 
     /**
      * Empties the cache completely.<p>
+     *
+     * The keys are removed immediately, the entries are released in the background.<p>
      */
-    private synchronized void clear() {
+    private void clear() {
 
         if (!isEnabled()) {
             return;
         }
+        // the removal listener of the key map releases the variations
         m_keyCache.clear();
-        m_size = 0;
-
-        m_variationCache.clear();
 
         if (LOG.isInfoEnabled()) {
             LOG.info(Messages.get().getBundle().key(Messages.LOG_FLEXCACHE_CLEAR_0));
@@ -671,37 +841,19 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
      * @param entriesOnly if <code>true</code>, only entries will be cleared, otherwise
      *         the entries and the keys will be cleared
      */
-    private synchronized void clearAccordingToSuffix(String suffix, boolean entriesOnly) {
+    private void clearAccordingToSuffix(String suffix, boolean entriesOnly) {
 
-        Set<String> keys = new HashSet<String>(m_keyCache.keySet());
-        Iterator<String> i = keys.iterator();
+        // the iterator of the concurrent key map never throws ConcurrentModificationExceptions
+        Iterator<Map.Entry<String, CmsFlexCacheVariation>> i = m_keyCache.entrySet().iterator();
         while (i.hasNext()) {
-            String s = i.next();
-            if (s.endsWith(suffix)) {
-                CmsFlexCacheVariation v = m_keyCache.get(s);
+            Map.Entry<String, CmsFlexCacheVariation> entry = i.next();
+            if (entry.getKey().endsWith(suffix)) {
                 if (entriesOnly) {
                     // Clear only entry
-                    m_size -= v.m_map.size();
-                    Iterator<I_CmsLruCacheObject> allEntries = v.m_map.values().iterator();
-                    while (allEntries.hasNext()) {
-                        I_CmsLruCacheObject nextObject = allEntries.next();
-                        allEntries.remove();
-                        m_variationCache.remove(nextObject);
-                    }
-                    v.m_map = new Hashtable<String, I_CmsLruCacheObject>(INITIAL_CAPACITY_VARIATIONS);
+                    releaseEntries(entry.getValue().detachEntries(false));
                 } else {
-                    // Clear key and entry
-                    m_size -= v.m_map.size();
-                    Iterator<I_CmsLruCacheObject> allEntries = v.m_map.values().iterator();
-                    while (allEntries.hasNext()) {
-                        I_CmsLruCacheObject nextObject = allEntries.next();
-                        allEntries.remove();
-                        m_variationCache.remove(nextObject);
-                    }
-
-                    v.m_map = null;
-                    v.m_key = null;
-                    m_keyCache.remove(s);
+                    // Clear key and entry, the removal listener of the key map releases the variations
+                    m_keyCache.remove(entry.getKey(), entry.getValue());
                 }
             }
         }
@@ -722,7 +874,7 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
      * Only users with administrator permissions are allowed
      * to perform this operation.<p>
      */
-    private synchronized void clearEntries() {
+    private void clearEntries() {
 
         if (!isEnabled()) {
             return;
@@ -730,20 +882,9 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         if (LOG.isInfoEnabled()) {
             LOG.info(Messages.get().getBundle().key(Messages.LOG_FLEXCACHE_CLEAR_ALL_0));
         }
-        // create new set to avoid ConcurrentModificationExceptions
-        Set<String> cacheKeys = new HashSet<String>(m_keyCache.keySet());
-        Iterator<String> i = cacheKeys.iterator();
-        while (i.hasNext()) {
-            CmsFlexCacheVariation v = m_keyCache.get(i.next());
-            Iterator<I_CmsLruCacheObject> allEntries = v.m_map.values().iterator();
-            while (allEntries.hasNext()) {
-                I_CmsLruCacheObject nextObject = allEntries.next();
-                allEntries.remove();
-                m_variationCache.remove(nextObject);
-            }
-            v.m_map = new Hashtable<String, I_CmsLruCacheObject>(INITIAL_CAPACITY_VARIATIONS);
+        for (CmsFlexCacheVariation v : m_keyCache.values()) {
+            releaseEntries(v.detachEntries(false));
         }
-        m_size = 0;
     }
 
     /**
@@ -834,7 +975,7 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
      * a complete purge of all JSP pages on a machine after
      * a major update of JSP templates was made.<p>
      */
-    private synchronized void purgeJspRepository() {
+    private void purgeJspRepository() {
 
         CmsJspLoader cmsJspLoader = (CmsJspLoader)OpenCms.getResourceManager().getLoader(
             CmsJspLoader.RESOURCE_LOADER_ID);
@@ -857,34 +998,44 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
      */
     private void put(CmsFlexCacheKey key, CmsFlexCacheEntry theCacheEntry) {
 
-        CmsFlexCacheVariation o = m_keyCache.get(key.getResource());
         if (key.getTimeout() > 0) {
             theCacheEntry.setDateExpiresToNextTimeout(key.getTimeout());
         }
-        if (o != null) {
-            // We already have a variation map for this resource
-            Map<String, I_CmsLruCacheObject> m = o.m_map;
-            boolean wasAdded = true;
-            if (!m.containsKey(key.getVariation())) {
-                wasAdded = m_variationCache.add(theCacheEntry);
-            } else {
-                wasAdded = m_variationCache.touch(theCacheEntry);
-            }
-
-            if (wasAdded) {
-                theCacheEntry.setVariationData(key.getVariation(), m);
-                m.put(key.getVariation(), theCacheEntry);
+        boolean done = false;
+        while (!done) {
+            CmsFlexCacheVariation o = m_keyCache.get(key.getResource());
+            if (o == null) {
+                // No variation map for this resource yet, so create one
+                CmsFlexCacheVariation list = new CmsFlexCacheVariation(key);
+                o = m_keyCache.putIfAbsent(key.getResource(), list);
+                if (o == null) {
+                    o = list;
+                }
             }
-        } else {
-            // No variation map for this resource yet, so create one
-            CmsFlexCacheVariation list = new CmsFlexCacheVariation(key);
-
-            boolean wasAdded = m_variationCache.add(theCacheEntry);
+            // only the variation map of this resource is locked, lookups never wait for this lock
+            synchronized (o) {
+                if (o.m_released) {
+                    // the key has been removed concurrently, try again with a new variation map
+                    continue;
+                }
+                Map<String, I_CmsLruCacheObject> m = o.m_map;
+                boolean wasAdded = true;
+                if (!m.containsKey(key.getVariation())) {
+                    // must happen before the entry is added, since it reduces the heap costs of the entry
+                    theCacheEntry.moveContentOffHeap(m_offHeapStore);
+                    wasAdded = m_variationCache.add(theCacheEntry);
+                    if (!wasAdded) {
+                        theCacheEntry.releaseOffHeapContent();
+                    }
+                } else {
+                    wasAdded = m_variationCache.touch(theCacheEntry);
+                }
 
-            if (wasAdded) {
-                theCacheEntry.setVariationData(key.getVariation(), list.m_map);
-                list.m_map.put(key.getVariation(), theCacheEntry);
-                m_keyCache.put(key.getResource(), list);
+                if (wasAdded) {
+                    theCacheEntry.setVariationData(key.getVariation(), m);
+                    m.put(key.getVariation(), theCacheEntry);
+                }
+                done = true;
             }
         }
 
@@ -892,10 +1043,40 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
             LOG.debug(
                 Messages.get().getBundle().key(
                     Messages.LOG_FLEXCACHE_ADDED_ENTRY_FOR_RESOURCE_WITH_VARIATION_3,
-                    new Integer(m_size),
+                    new Integer(size()),
                     key.getResource(),
                     key.getVariation()));
             LOG.debug(Messages.get().getBundle().key(Messages.LOG_FLEXCACHE_ADDED_ENTRY_1, theCacheEntry.toString()));
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Starts the background task which releases the detached entries, unless it is already scheduled.<p>
+     */
+    private void scheduleRelease() {
+
+        if ((m_releaseExecutor == null) || !m_releaseScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        m_releaseExecutor.execute(new Runnable() {
+
+            @SuppressWarnings("synthetic-access")
+            public void run() {
+
+                try {
+                    int count = releasePendingEntries();
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug(
+                            Messages.get().getBundle().key(Messages.LOG_FLEXCACHE_RELEASED_ENTRIES_1, new Integer(count)));
+                    }
+                } finally {
+                    m_releaseScheduled.set(false);
+                }
+                if (!m_releaseQueue.isEmpty()) {
+                    // entries have been added after the queue was drained, but before the flag was reset
+                    scheduleRelease();
+                }
+            }
+        });
+    }
+}
@@ -74,6 +74,12 @@ public class CmsFlexCacheConfiguration {
     /** The maximum key. */
     private int m_maxKeys;
 
+    /** The maximum number of content bytes stored off the heap, 0 to keep all content on the heap. */
+    private long m_maxOffHeapBytes;
+
+    /** The path of the snapshot file, relative to the WEB-INF folder. */
+    private String m_snapshotFile;
+
     /**
      * Empty public constructor for the digester.
      */
@@ -145,6 +151,26 @@ public class CmsFlexCacheConfiguration {
         return m_maxKeys;
     }
 
+    /**
+     * Returns the maximum number of content bytes stored off the heap.<p>
+     *
+     * @return the maximum number of content bytes stored off the heap, 0 if all content is kept on the heap
+     */
+    public long getMaxOffHeapBytes() {
+
+        return m_maxOffHeapBytes;
+    }
+
+    /**
+     * Returns the path of the file the online entries are written to on shutdown.<p>
+     *
+     * @return the path of the snapshot file, relative to the WEB-INF folder, or <code>null</code> if no snapshot is written
+     */
+    public String getSnapshotFile() {
+
+        return m_snapshotFile;
+    }
+
     /**
      * Initializes the flex cache configuration with required parameters.<p>
      *
@@ -287,4 +313,24 @@ public class CmsFlexCacheConfiguration {
 
         m_maxKeys = maxKeys;
     }
+
+    /**
+     * Sets the maximum number of content bytes stored off the heap.<p>
+     *
+     * @param maxOffHeapBytes the maximum number of content bytes stored off the heap, 0 to keep all content on the heap
+     */
+    public void setMaxOffHeapBytes(long maxOffHeapBytes) {
+
+        m_maxOffHeapBytes = maxOffHeapBytes;
+    }
+
+    /**
+     * Sets the path of the file the online entries are written to on shutdown.<p>
+     *
+     * @param snapshotFile the path of the snapshot file, relative to the WEB-INF folder or absolute
+     */
+    public void setSnapshotFile(String snapshotFile) {
+
+        m_snapshotFile = snapshotFile;
+    }
 }
@@ -37,6 +37,9 @@ import org.opencms.monitor.I_CmsMemoryMonitorable;
 import org.opencms.util.CmsCollectionsGenericWrapper;
 
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -102,6 +105,12 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
     /** Pointer to the next cache entry in the LRU cache. */
     private I_CmsLruCacheObject m_next;
 
+    /** The number of content bytes stored off the heap. */
+    private long m_offHeapBytes;
+
+    /** The store which holds the content of this entry off the heap, or <code>null</code>. */
+    private CmsFlexCacheOffHeapStore m_offHeapStore;
+
     /** Pointer to the previous cache entry in the LRU cache. */
     private I_CmsLruCacheObject m_previous;
 
@@ -135,6 +144,68 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
         setPreviousLruObject(null);
     }
 
+    /**
+     * Returns the output bytes of a data element of a cache entry.<p>
+     *
+     * @param element the data element, either a byte array or a buffer of the off-heap store
+     *
+     * @return the output bytes, or <code>null</code> if the element is not an output element
+     */
+    static byte[] getOutputBytes(Object element) {
+
+        if (element instanceof byte[]) {
+            return (byte[])element;
+        }
+        if (element instanceof ByteBuffer) {
+            return CmsFlexCacheOffHeapStore.read((ByteBuffer)element);
+        }
+        return null;
+    }
+
+    /**
+     * Reads a completed entry written by {@link #writeSnapshot(ObjectOutputStream)}.<p>
+     *
+     * @param in the stream to read from
+     *
+     * @return the completed entry
+     *
+     * @throws IOException if reading the stream fails
+     * @throws ClassNotFoundException if the class of a cached parameter or attribute is not available
+     */
+    static CmsFlexCacheEntry readSnapshot(ObjectInputStream in) throws IOException, ClassNotFoundException {
+
+        CmsFlexCacheEntry entry = new CmsFlexCacheEntry();
+        long dateExpires = in.readLong();
+        long dateLastModified = in.readLong();
+        String redirectTarget = (String)in.readObject();
+        boolean redirectPermanent = in.readBoolean();
+        Map<String, List<String>> headers = CmsCollectionsGenericWrapper.map(in.readObject());
+        if (redirectTarget != null) {
+            entry.setRedirect(redirectTarget, redirectPermanent);
+        } else {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Object o = in.readObject();
+                if (o instanceof String) {
+                    // an include call is followed by its parameters and attributes
+                    Map<String, String[]> parameters = CmsCollectionsGenericWrapper.map(in.readObject());
+                    Map<String, Object> attrs = CmsCollectionsGenericWrapper.map(in.readObject());
+                    entry.add((String)o, parameters, attrs);
+                    i += 2;
+                } else {
+                    entry.add((byte[])o);
+                }
+            }
+            if (headers != null) {
+                entry.addHeaders(headers);
+            }
+        }
+        entry.complete();
+        entry.setDateExpires(dateExpires);
+        entry.setDateLastModified(dateLastModified);
+        return entry;
+    }
+
     /**
      * Adds an array of bytes to this cache entry,
      * this will usually be the result of some kind of output - stream.<p>
@@ -240,7 +311,9 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
      * Returns the list of data entries of this cache entry.<p>
      *
      * Data entries are byte arrays representing some kind of output
-     * or Strings representing include calls to other resources.<p>
+     * or Strings representing include calls to other resources.
+     * Output which has been moved to the off-heap store is represented by a read only
+     * {@link ByteBuffer}, use {@link #getOutputBytes(Object)} to read it.<p>
      *
      * @return the list of data elements of this cache entry
      */
@@ -318,6 +391,7 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
         if ((m_variationMap != null) && (m_variationKey != null)) {
             m_variationMap.remove(m_variationKey);
         }
+        releaseOffHeapContent();
         if (LOG.isDebugEnabled()) {
             LOG.debug(
                 Messages.get().getBundle().key(
@@ -391,7 +465,7 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
                     }
                 } else {
                     try {
-                        res.writeToOutputStream((byte[])o, hasNoSubElements);
+                        res.writeToOutputStream(getOutputBytes(o), hasNoSubElements);
                     } catch (IOException e) {
                         CmsMessageContainer message = Messages.get().container(
                             Messages.LOG_FLEXCACHEKEY_NOT_FOUND_1,
@@ -550,8 +624,8 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
                 Object o = i.next();
                 if (o instanceof String) {
                     str += "" + count + " - <cms:include target=" + o + ">\n";
-                } else if (o instanceof byte[]) {
-                    str += "" + count + " - <![CDATA[" + new String((byte[])o) + "]]>\n";
+                } else if ((o instanceof byte[]) || (o instanceof ByteBuffer)) {
+                    str += "" + count + " - <![CDATA[" + new String(getOutputBytes(o)) + "]]>\n";
                 } else {
                     str += "<!--[" + o.toString() + "]-->";
                 }
@@ -562,6 +636,92 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
         return str;
     }
 
+    /**
+     * Moves the output of this completed entry to the given off-heap store.<p>
+     *
+     * The heap costs of this entry are reduced accordingly, so this must be called
+     * before the entry is added to the LRU cache.<p>
+     *
+     * @param store the off-heap store, may be <code>null</code>
+     */
+    void moveContentOffHeap(CmsFlexCacheOffHeapStore store) {
+
+        if ((store == null) || !m_completed || (m_elements == null) || (m_offHeapStore != null)) {
+            return;
+        }
+        List<Object> elements = new ArrayList<Object>(m_elements.size());
+        boolean moved = false;
+        for (Object o : m_elements) {
+            if (o instanceof byte[]) {
+                byte[] bytes = (byte[])o;
+                ByteBuffer buffer = store.store(bytes);
+                if (buffer != null) {
+                    elements.add(buffer.asReadOnlyBuffer());
+                    m_byteSize -= CmsMemoryMonitor.getMemorySize(bytes);
+                    m_byteSize += CmsFlexCacheOffHeapStore.BUFFER_HEAP_SIZE;
+                    m_offHeapBytes += bytes.length;
+                    moved = true;
+                    continue;
+                }
+            }
+            elements.add(o);
+        }
+        if (moved) {
+            m_offHeapStore = store;
+            m_elements = Collections.unmodifiableList(elements);
+        }
+    }
+
+    /**
+     * Gives the budget of the output stored off the heap back to the store.<p>
+     *
+     * The output can still be read by requests which are delivering this entry.<p>
+     */
+    synchronized void releaseOffHeapContent() {
+
+        if (m_offHeapStore != null) {
+            m_offHeapStore.release(m_offHeapBytes);
+            m_offHeapBytes = 0;
+        }
+    }
+
+    /**
+     * Writes this completed entry to a snapshot of the FlexCache.<p>
+     *
+     * The output stored off the heap is written like output on the heap.<p>
+     *
+     * @param out the stream to write to
+     *
+     * @throws IOException if writing fails, e.g. because a cached attribute is not serializable
+     */
+    void writeSnapshot(ObjectOutputStream out) throws IOException {
+
+        out.writeLong(m_dateExpires);
+        out.writeLong(m_dateLastModified);
+        out.writeObject(m_redirectTarget);
+        out.writeBoolean(m_redirectPermanent);
+        HashMap<String, ArrayList<String>> headers = null;
+        if (m_headers != null) {
+            headers = new HashMap<String, ArrayList<String>>();
+            for (Entry<String, List<String>> header : m_headers.entrySet()) {
+                headers.put(header.getKey(), new ArrayList<String>(header.getValue()));
+            }
+        }
+        out.writeObject(headers);
+        if (m_redirectTarget == null) {
+            out.writeInt(m_elements.size());
+            for (Object o : m_elements) {
+                if ((o instanceof byte[]) || (o instanceof ByteBuffer)) {
+                    out.writeObject(getOutputBytes(o));
+                } else if (o instanceof Map) {
+                    out.writeObject(new HashMap<Object, Object>((Map<?, ?>)o));
+                } else {
+                    out.writeObject(o);
+                }
+            }
+        }
+    }
+
     /**
      * Clones the attribute instances if possible.<p>
      *
@@ -157,6 +157,9 @@ public class CmsFlexCacheKey {
     /** Cache key variable: List of attributes. */
     private Set<String> m_attrs;
 
+    /** The cache directives this key has been created from. */
+    private String m_cacheDirectives;
+
     /** Cache key variable: The current container element. */
     private String m_containerElement;
 
@@ -233,6 +236,7 @@ public class CmsFlexCacheKey {
     public CmsFlexCacheKey(String resourcename, String cacheDirectives, boolean online) {
 
         m_resource = getKeyName(resourcename, online);
+        m_cacheDirectives = cacheDirectives;
         m_variation = "never";
         m_always = -1;
         m_timeout = -1;
@@ -727,6 +731,16 @@ public class CmsFlexCacheKey {
         return str.toString();
     }
 
+    /**
+     * Returns the cache directives this key has been created from.<p>
+     *
+     * @return the cache directives, or <code>null</code>
+     */
+    protected String getCacheDirectives() {
+
+        return m_cacheDirectives;
+    }
+
     /**
      * Returns the resource.<p>
      *
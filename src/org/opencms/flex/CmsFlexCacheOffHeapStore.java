@@ -0,0 +1,231 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.flex;
+
+import org.opencms.main.CmsLog;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Off-heap storage for the content of FlexCache entries.<p>
+ *
+ * The rendered output of cached elements is copied to direct byte buffers, so it does not
+ * occupy the Java heap. The keys, variations and include calls of the cached entries
+ * stay on the heap.<p>
+ *
+ * The store has a fixed budget of bytes. The budget is reserved when content is stored and
+ * given back when the owning entry is removed from the FlexCache. If the budget is exhausted,
+ * the content stays on the heap. The native memory of a buffer is freed by the garbage collector
+ * once no request uses the entry anymore, so an entry which is evicted while it is being
+ * delivered is never overwritten.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsFlexCacheOffHeapStore {
+
+    /** The estimated heap size of a direct byte buffer object and its cleaner. */
+    public static final int BUFFER_HEAP_SIZE = 128;
+
+    /** Content smaller than this number of bytes is kept on the heap. */
+    public static final int MIN_CONTENT_BYTES = 1024;
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsFlexCacheOffHeapStore.class);
+
+    /** The maximum number of bytes stored off the heap. */
+    private long m_maxBytes;
+
+    /** The number of content byte arrays kept on the heap because the budget was exhausted. */
+    private AtomicLong m_rejectedCount;
+
+    /** The number of stored content byte arrays. */
+    private AtomicLong m_storedCount;
+
+    /** The number of bytes currently reserved. */
+    private AtomicLong m_usedBytes;
+
+    /**
+     * Creates a new off-heap store.<p>
+     *
+     * @param maxBytes the maximum number of bytes stored off the heap
+     */
+    public CmsFlexCacheOffHeapStore(long maxBytes) {
+
+        m_maxBytes = maxBytes;
+        m_usedBytes = new AtomicLong();
+        m_storedCount = new AtomicLong();
+        m_rejectedCount = new AtomicLong();
+    }
+
+    /**
+     * Returns the content of an off-heap buffer as byte array.<p>
+     *
+     * The returned array is a copy, which is only referenced by the current request.<p>
+     *
+     * @param buffer the buffer created by this store
+     *
+     * @return the content of the buffer
+     */
+    public static byte[] read(ByteBuffer buffer) {
+
+        // the duplicate has its own position, so concurrent requests can read the same buffer
+        ByteBuffer source = buffer.duplicate();
+        source.clear();
+        byte[] result = new byte[source.remaining()];
+        source.get(result);
+        return result;
+    }
+
+    /**
+     * Returns the maximum number of bytes stored off the heap.<p>
+     *
+     * @return the maximum number of bytes stored off the heap
+     */
+    public long getMaxBytes() {
+
+        return m_maxBytes;
+    }
+
+    /**
+     * Returns the number of content byte arrays kept on the heap because the budget was exhausted.<p>
+     *
+     * @return the number of rejected content byte arrays
+     */
+    public long getRejectedCount() {
+
+        return m_rejectedCount.get();
+    }
+
+    /**
+     * Returns the number of content byte arrays stored off the heap so far.<p>
+     *
+     * @return the number of stored content byte arrays
+     */
+    public long getStoredCount() {
+
+        return m_storedCount.get();
+    }
+
+    /**
+     * Returns the number of bytes currently stored off the heap.<p>
+     *
+     * @return the number of bytes currently stored off the heap
+     */
+    public long getUsedBytes() {
+
+        return m_usedBytes.get();
+    }
+
+    /**
+     * Gives back the budget of content which has been removed from the cache.<p>
+     *
+     * @param bytes the number of bytes of the removed content
+     */
+    public void release(long bytes) {
+
+        if (bytes > 0) {
+            m_usedBytes.addAndGet(-bytes);
+        }
+    }
+
+    /**
+     * Copies the given content to a direct byte buffer.<p>
+     *
+     * @param content the content to store
+     *
+     * @return the buffer with the content, or <code>null</code> if the content should stay on the heap
+     */
+    public ByteBuffer store(byte[] content) {
+
+        if ((content == null) || (content.length < MIN_CONTENT_BYTES)) {
+            return null;
+        }
+        if (!reserve(content.length)) {
+            m_rejectedCount.incrementAndGet();
+            return null;
+        }
+        ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.allocateDirect(content.length);
+        } catch (OutOfMemoryError e) {
+            // the budget is larger than the direct memory the VM is allowed to allocate
+            release(content.length);
+            m_rejectedCount.incrementAndGet();
+            LOG.warn(
+                Messages.get().getBundle().key(
+                    Messages.LOG_FLEXCACHE_OFFHEAP_ALLOCATION_FAILED_2,
+                    new Integer(content.length),
+                    new Long(m_maxBytes)),
+                e);
+            return null;
+        }
+        buffer.put(content);
+        buffer.flip();
+        m_storedCount.incrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+
+        return "max. bytes: "
+            + m_maxBytes
+            + ", used bytes: "
+            + m_usedBytes.get()
+            + ", stored: "
+            + m_storedCount.get()
+            + ", rejected: "
+            + m_rejectedCount.get();
+    }
+
+    /**
+     * Reserves budget for new content.<p>
+     *
+     * @param bytes the number of bytes to reserve
+     *
+     * @return <code>true</code> if the budget was reserved
+     */
+    private boolean reserve(long bytes) {
+
+        while (true) {
+            long used = m_usedBytes.get();
+            if ((used + bytes) > m_maxBytes) {
+                return false;
+            }
+            if (m_usedBytes.compareAndSet(used, used + bytes)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.flex;
+
+import org.opencms.cache.I_CmsLruCacheObject;
+import org.opencms.db.CmsPublishedResource;
+import org.opencms.file.CmsObject;
+import org.opencms.flex.CmsFlexCache.CmsFlexCacheVariation;
+import org.opencms.main.CmsException;
+import org.opencms.main.CmsLog;
+import org.opencms.main.OpenCms;
+import org.opencms.publish.CmsPublishJobFinished;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Snapshot of the online entries of the FlexCache in a file of the local file system.<p>
+ *
+ * The snapshot is written when OpenCms is shut down and read again on the next start,
+ * so the FlexCache does not start empty after a restart. Besides the keys, variations and
+ * content of the entries, the snapshot records the publish tag of the last finished publish job.
+ * When the snapshot is loaded, all entries of resources which have been published with a higher
+ * publish tag are discarded, as well as all entries which have expired in the meantime. If the
+ * publish history does not reach back to the snapshot, nothing is restored.<p>
+ *
+ * Only changes of the cached resources themselves are detected. Content which an entry has
+ * read from other resources, e.g. with a content load tag, is not tracked. Include calls are
+ * not affected, since they are stored as calls and dispatched again on every request.<p>
+ *
+ * Entries with request attributes that are not serializable are not written to the snapshot.
+ * The snapshot file is deleted once it has been loaded, so an instance which is not shut down
+ * regularly starts with an empty cache.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsFlexCacheSnapshot {
+
+    /** The version of the snapshot file format. */
+    public static final int FORMAT_VERSION = 1;
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsFlexCacheSnapshot.class);
+
+    /** The snapshot file. */
+    private File m_file;
+
+    /**
+     * Creates a new snapshot.<p>
+     *
+     * @param path the absolute path of the snapshot file
+     */
+    public CmsFlexCacheSnapshot(String path) {
+
+        m_file = new File(path);
+    }
+
+    /**
+     * Returns the snapshot file.<p>
+     *
+     * @return the snapshot file
+     */
+    public File getFile() {
+
+        return m_file;
+    }
+
+    /**
+     * Restores the valid entries of the snapshot file to the given cache, and deletes the file.<p>
+     *
+     * @param cache the FlexCache to restore the entries to
+     * @param cms the CMS context used to read the publish history
+     *
+     * @return the number of restored entries
+     *
+     * @throws IOException if reading the snapshot file fails
+     * @throws CmsException if reading the publish history fails
+     */
+    public int load(CmsFlexCache cache, CmsObject cms) throws IOException, CmsException {
+
+        if (!m_file.isFile()) {
+            return 0;
+        }
+        int loaded = 0;
+        int changed = 0;
+        int discarded = 0;
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(m_file))));
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                LOG.warn(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_FLEXCACHE_SNAPSHOT_VERSION_2,
+                        m_file.getAbsolutePath(),
+                        new Integer(version)));
+                return 0;
+            }
+            long snapshotTime = in.readLong();
+            int publishTag = in.readInt();
+            Set<String> changedResources = readChangedResources(cms, snapshotTime, publishTag);
+            if (changedResources == null) {
+                LOG.info(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_FLEXCACHE_SNAPSHOT_DISCARDED_1,
+                        m_file.getAbsolutePath()));
+                return 0;
+            }
+            long now = System.currentTimeMillis();
+            int length;
+            while ((length = in.readInt()) >= 0) {
+                byte[] record = new byte[length];
+                in.readFully(record);
+                ObjectInputStream entryIn = new ObjectInputStream(new ByteArrayInputStream(record));
+                String resourceName = entryIn.readUTF();
+                if (changedResources.contains(resourceName)) {
+                    changed++;
+                    continue;
+                }
+                String cacheDirectives = (String)entryIn.readObject();
+                String variation = entryIn.readUTF();
+                CmsFlexCacheEntry entry;
+                try {
+                    entry = CmsFlexCacheEntry.readSnapshot(entryIn);
+                } catch (ClassNotFoundException e) {
+                    // a cached attribute has a class which is not available anymore
+                    LOG.debug(
+                        Messages.get().getBundle().key(
+                            Messages.LOG_FLEXCACHE_SNAPSHOT_SKIPPED_ENTRY_2,
+                            resourceName,
+                            e.getLocalizedMessage()));
+                    discarded++;
+                    continue;
+                }
+                long dateExpires = entry.getDateExpires();
+                CmsFlexCacheKey key = new CmsFlexCacheKey(resourceName, cacheDirectives, true);
+                if ((dateExpires <= now) || key.hadParseError() || !cache.put(key, entry, variation)) {
+                    discarded++;
+                    continue;
+                }
+                // adding the entry sets the expiration date to the next timeout again
+                entry.setDateExpires(Math.min(dateExpires, entry.getDateExpires()));
+                loaded++;
+            }
+        } catch (ClassNotFoundException e) {
+            // the file has not been written by this class
+            throw new IOException(e);
+        } finally {
+            if (in != null) {
+                in.close();
+            }
+            m_file.delete();
+        }
+        if (LOG.isInfoEnabled()) {
+            LOG.info(
+                Messages.get().getBundle().key(
+                    Messages.LOG_FLEXCACHE_SNAPSHOT_LOADED_4,
+                    new Object[] {
+                        new Integer(loaded),
+                        m_file.getAbsolutePath(),
+                        new Integer(changed),
+                        new Integer(discarded)}));
+        }
+        return loaded;
+    }
+
+    /**
+     * Writes the online entries of the given cache to the snapshot file.<p>
+     *
+     * The file is replaced only after the complete snapshot has been written.<p>
+     *
+     * @param cache the FlexCache to write
+     * @param cms the CMS context used to read the publish history
+     *
+     * @return the number of written entries
+     *
+     * @throws IOException if writing the snapshot file fails
+     * @throws CmsException if reading the publish history fails
+     */
+    public int save(CmsFlexCache cache, CmsObject cms) throws IOException, CmsException {
+
+        int publishTag = readLastPublishTag(cms);
+        File parent = m_file.getAbsoluteFile().getParentFile();
+        if ((parent != null) && !parent.isDirectory()) {
+            parent.mkdirs();
+        }
+        File tempFile = new File(m_file.getAbsolutePath() + ".tmp");
+        int written = 0;
+        int skipped = 0;
+        long now = System.currentTimeMillis();
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tempFile))));
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(now);
+            out.writeInt(publishTag);
+            for (CmsFlexCacheVariation v : cache.getOnlineVariations()) {
+                String resource = v.m_key.getResource();
+                String resourceName = resource.substring(
+                    0,
+                    resource.length() - CmsFlexCache.CACHE_ONLINESUFFIX.length());
+                for (Map.Entry<String, I_CmsLruCacheObject> e : v.m_map.entrySet()) {
+                    CmsFlexCacheEntry entry = (CmsFlexCacheEntry)e.getValue();
+                    if (entry.getDateExpires() <= now) {
+                        continue;
+                    }
+                    byte[] record;
+                    try {
+                        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                        ObjectOutputStream entryOut = new ObjectOutputStream(bytes);
+                        entryOut.writeUTF(resourceName);
+                        entryOut.writeObject(v.m_key.getCacheDirectives());
+                        entryOut.writeUTF(e.getKey());
+                        entry.writeSnapshot(entryOut);
+                        entryOut.close();
+                        record = bytes.toByteArray();
+                    } catch (IOException ex) {
+                        // usually a request attribute which is not serializable
+                        LOG.debug(
+                            Messages.get().getBundle().key(
+                                Messages.LOG_FLEXCACHE_SNAPSHOT_SKIPPED_ENTRY_2,
+                                resourceName,
+                                ex.getLocalizedMessage()));
+                        skipped++;
+                        continue;
+                    }
+                    out.writeInt(record.length);
+                    out.write(record);
+                    written++;
+                }
+            }
+            out.writeInt(-1);
+        } finally {
+            if (out != null) {
+                out.close();
+            }
+        }
+        m_file.delete();
+        if (!tempFile.renameTo(m_file)) {
+            tempFile.delete();
+            throw new IOException(m_file.getAbsolutePath());
+        }
+        if (LOG.isInfoEnabled()) {
+            LOG.info(
+                Messages.get().getBundle().key(
+                    Messages.LOG_FLEXCACHE_SNAPSHOT_WRITTEN_3,
+                    new Integer(written),
+                    m_file.getAbsolutePath(),
+                    new Integer(skipped)));
+        }
+        return written;
+    }
+
+    /**
+     * Reads the root paths of all resources which have been published after the snapshot.<p>
+     *
+     * @param cms the CMS context
+     * @param snapshotTime the time the snapshot was written
+     * @param publishTag the publish tag of the last publish job before the snapshot
+     *
+     * @return the root paths of the published resources, or <code>null</code> if the publish history
+     *      does not reach back to the snapshot
+     *
+     * @throws CmsException if reading the published resources fails
+     */
+    private Set<String> readChangedResources(CmsObject cms, long snapshotTime, int publishTag)
+    throws CmsException {
+
+        Set<String> result = new HashSet<String>();
+        List<CmsPublishJobFinished> history = OpenCms.getPublishManager().getPublishHistory();
+        for (int i = history.size() - 1; i >= 0; i--) {
+            CmsPublishJobFinished job = history.get(i);
+            List<CmsPublishedResource> resources = cms.readPublishedResources(job.getPublishHistoryId());
+            if (resources.isEmpty()) {
+                if (job.getFinishTime() < snapshotTime) {
+                    return result;
+                }
+                continue;
+            }
+            if (resources.get(0).getPublishTag() <= publishTag) {
+                // all older jobs have been published before the snapshot
+                return result;
+            }
+            for (CmsPublishedResource resource : resources) {
+                result.add(resource.getRootPath());
+            }
+        }
+        if ((publishTag > 0) || (history.size() >= OpenCms.getPublishManager().getPublishHistorySize())) {
+            // the job of the snapshot has been removed from the history
+            return null;
+        }
+        return result;
+    }
+
+    /**
+     * Reads the publish tag of the last finished publish job.<p>
+     *
+     * @param cms the CMS context
+     *
+     * @return the publish tag, or 0 if no publish job is found in the history
+     *
+     * @throws CmsException if reading the published resources fails
+     */
+    private int readLastPublishTag(CmsObject cms) throws CmsException {
+
+        List<CmsPublishJobFinished> history = OpenCms.getPublishManager().getPublishHistory();
+        for (int i = history.size() - 1; i >= 0; i--) {
+            List<CmsPublishedResource> resources = cms.readPublishedResources(
+                history.get(i).getPublishHistoryId());
+            if (!resources.isEmpty()) {
+                return resources.get(0).getPublishTag();
+            }
+        }
+        return 0;
+    }
+}
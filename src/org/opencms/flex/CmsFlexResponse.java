@@ -1199,8 +1199,9 @@ public class CmsFlexResponse extends HttpServletResponseWrapper {
         if (elements != null) {
             for (int i = 0; i < elements.size(); i++) {
                 Object o = elements.get(i);
-                if (o instanceof byte[]) {
-                    res.getOutputStream().write((byte[])o);
+                byte[] bytes = CmsFlexCacheEntry.getOutputBytes(o);
+                if (bytes != null) {
+                    res.getOutputStream().write(bytes);
                 } else {
                     if ((m_includeResults != null) && (m_includeResults.size() > count)) {
                         // make sure that we don't run behind end of list (should never happen, though)
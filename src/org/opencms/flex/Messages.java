@@ -67,6 +67,12 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String INIT_FLEXCACHE_CREATED_2 = "INIT_FLEXCACHE_CREATED_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String INIT_FLEXCACHE_OFFHEAP_1 = "INIT_FLEXCACHE_OFFHEAP_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String INIT_FLEXCACHE_SNAPSHOT_1 = "INIT_FLEXCACHE_SNAPSHOT_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String INIT_FLEXCACHE_DEVICE_SELECTOR_FAILURE_1 = "INIT_FLEXCACHE_DEVICE_SELECTOR_FAILURE_1";
 
@@ -115,6 +121,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_FLEXCACHE_PURGED_JSP_REPOSITORY_0 = "LOG_FLEXCACHE_PURGED_JSP_REPOSITORY_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_FLEXCACHE_OFFHEAP_ALLOCATION_FAILED_2 = "LOG_FLEXCACHE_OFFHEAP_ALLOCATION_FAILED_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_FLEXCACHE_RECEIVED_EVENT_CLEAR_CACHE_0 = "LOG_FLEXCACHE_RECEIVED_EVENT_CLEAR_CACHE_0";
 
@@ -124,9 +133,33 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_FLEXCACHE_RECEIVED_EVENT_PURGE_REPOSITORY_0 = "LOG_FLEXCACHE_RECEIVED_EVENT_PURGE_REPOSITORY_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_FLEXCACHE_RELEASED_ENTRIES_1 = "LOG_FLEXCACHE_RELEASED_ENTRIES_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_FLEXCACHE_RESOURCE_NOT_CACHEABLE_0 = "LOG_FLEXCACHE_RESOURCE_NOT_CACHEABLE_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_FLEXCACHE_SNAPSHOT_DISCARDED_1 = "LOG_FLEXCACHE_SNAPSHOT_DISCARDED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_FLEXCACHE_SNAPSHOT_LOADED_4 = "LOG_FLEXCACHE_SNAPSHOT_LOADED_4";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_FLEXCACHE_SNAPSHOT_LOAD_FAILED_1 = "LOG_FLEXCACHE_SNAPSHOT_LOAD_FAILED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_FLEXCACHE_SNAPSHOT_SKIPPED_ENTRY_2 = "LOG_FLEXCACHE_SNAPSHOT_SKIPPED_ENTRY_2";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_FLEXCACHE_SNAPSHOT_VERSION_2 = "LOG_FLEXCACHE_SNAPSHOT_VERSION_2";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_FLEXCACHE_SNAPSHOT_WRITE_FAILED_1 = "LOG_FLEXCACHE_SNAPSHOT_WRITE_FAILED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_FLEXCACHE_SNAPSHOT_WRITTEN_3 = "LOG_FLEXCACHE_SNAPSHOT_WRITTEN_3";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_FLEXCACHE_WILL_PURGE_JSP_REPOSITORY_0 = "LOG_FLEXCACHE_WILL_PURGE_JSP_REPOSITORY_0";
 
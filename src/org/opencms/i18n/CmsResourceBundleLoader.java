@@ -35,13 +35,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.security.AccessControlException;
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.MissingResourceException;
 import java.util.ResourceBundle;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -187,11 +187,7 @@ public final class CmsResourceBundleLoader {
      */
     public static void addBundleToCache(String baseName, Locale locale, I_CmsResourceBundle bundle) {
 
-        String key = baseName;
-        if (locale != null) {
-            key += "_" + locale;
-        }
-        m_permanentCache.put(key, bundle);
+        m_permanentCache.put(getPermanentKey(baseName, locale), bundle);
     }
 
     /**
@@ -225,26 +221,21 @@ public final class CmsResourceBundleLoader {
         if (baseName != null) {
             synchronized (m_bundleCache) {
 
-                // first check and clear the bundle cache
-                Map<BundleKey, ResourceBundle> bundleCacheNew = new ConcurrentHashMap<BundleKey, ResourceBundle>(
-                    m_bundleCache.size());
-                for (Map.Entry<BundleKey, ResourceBundle> entry : m_bundleCache.entrySet()) {
-                    if (!entry.getKey().isSameBase(baseName)) {
-                        // entry has a different base name, keep it
-                        bundleCacheNew.put(entry.getKey(), entry.getValue());
+                // first check and clear the bundle cache, the concurrent map allows removing entries while iterating
+                Iterator<BundleKey> it = m_bundleCache.keySet().iterator();
+                while (it.hasNext()) {
+                    if (it.next().isSameBase(baseName)) {
+                        it.remove();
                     }
                 }
-                if (bundleCacheNew.size() < m_bundleCache.size()) {
-                    // switch caches if only if at least one entry was removed
-                    m_bundleCache = bundleCacheNew;
-                }
                 if (flushPermanent) {
-                    Set<String> keys = new HashSet<String>(m_permanentCache.keySet());
-                    for (String key : keys) {
+                    Iterator<String> keys = m_permanentCache.keySet().iterator();
+                    while (keys.hasNext()) {
+                        String key = keys.next();
                         if ((key.startsWith(baseName)
                             && ((key.length() == baseName.length()) || (key.charAt(baseName.length()) == '_')))) {
                             // entry has a the same base name, remove it
-                            m_permanentCache.remove(key);
+                            keys.remove();
                         }
                     }
                 }
@@ -346,6 +337,57 @@ public final class CmsResourceBundleLoader {
         return ResourceBundle.getBundle(baseName, locale);
     }
 
+    /**
+     * Replaces the permanently cached bundles of a base name, and flushes all cached variations of the base name.<p>
+     *
+     * In contrast to flushing and adding the bundles again, the new bundles are available
+     * to concurrent lookups all the time, and the bundles of other base names are not touched.<p>
+     *
+     * @param baseName the raw bundle name, without locale qualifiers
+     * @param bundles the new bundles by locale, the <code>null</code> key is used for a bundle without locale
+     * @param outdatedLocales the locales of the bundles previously added for the base name
+     */
+    public static void replaceBundles(
+        String baseName,
+        Map<Locale, I_CmsResourceBundle> bundles,
+        Collection<Locale> outdatedLocales) {
+
+        for (Map.Entry<Locale, I_CmsResourceBundle> entry : bundles.entrySet()) {
+            addBundleToCache(baseName, entry.getKey(), entry.getValue());
+        }
+        for (Locale locale : outdatedLocales) {
+            if (!bundles.containsKey(locale)) {
+                m_permanentCache.remove(getPermanentKey(baseName, locale));
+            }
+        }
+        // synchronize with the lookups which are just creating a cache entry from the old bundles
+        synchronized (m_bundleCache) {
+            Iterator<BundleKey> it = m_bundleCache.keySet().iterator();
+            while (it.hasNext()) {
+                if (it.next().isSameBase(baseName)) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the key of a bundle in the permanent cache.<p>
+     *
+     * @param baseName the raw bundle name, without locale qualifiers
+     * @param locale the locale, may be <code>null</code>
+     *
+     * @return the key of the bundle in the permanent cache
+     */
+    private static String getPermanentKey(String baseName, Locale locale) {
+
+        String key = baseName;
+        if (locale != null) {
+            key += "_" + locale;
+        }
+        return key;
+    }
+
     /**
      * Tries to load a property file with the specified name.
      *
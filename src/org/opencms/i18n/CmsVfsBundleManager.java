@@ -39,18 +39,25 @@ import org.opencms.main.OpenCms;
 import org.opencms.util.CmsStringUtil;
 import org.opencms.util.CmsUUID;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 
-import com.google.common.collect.Lists;
-
 /**
  * Manages message bundles loaded from the VFS.<p>
+ *
+ * The bundles are registered by the structure id of their resources. When bundle resources are published,
+ * only the bundles of the changed resources are reloaded, while all other bundles stay cached.
+ * A complete reload is only done on startup and when the caches are cleared.<p>
  */
 public class CmsVfsBundleManager implements I_CmsEventListener {
 
@@ -107,14 +114,23 @@ public class CmsVfsBundleManager implements I_CmsEventListener {
     /** The logger instance for this class. */
     protected static final Log LOG = CmsLog.getLog(CmsVfsBundleManager.class);
 
-    /** The set of bundle base names. */
-    private Set<String> m_bundleBaseNames;
+    /** The locales of the bundles added to the resource bundle loader, by base name. */
+    private Map<String, Set<Locale>> m_bundleLocales;
+
+    /** The registered bundle resources, by structure id. */
+    private Map<CmsUUID, CmsResource> m_bundleResources;
 
     /** The CMS context to use. */
     private CmsObject m_cms;
 
+    /** Indicates if a complete reload is pending. */
+    private boolean m_fullReloadPending;
+
+    /** The published bundle resources which have not been processed yet, also used as lock for the scheduling. */
+    private List<CmsPublishedResource> m_pendingChanges;
+
     /** Indicated if a reload is already scheduled. */
-    private boolean m_reloadIsScheduled;
+    private volatile boolean m_reloadIsScheduled;
 
     /** Thread generation counter. */
     private int m_threadCount;
@@ -127,7 +143,9 @@ public class CmsVfsBundleManager implements I_CmsEventListener {
     public CmsVfsBundleManager(CmsObject cms) {
 
         m_cms = cms;
-        m_bundleBaseNames = new HashSet<String>();
+        m_bundleLocales = new HashMap<String, Set<Locale>>();
+        m_bundleResources = new ConcurrentHashMap<CmsUUID, CmsResource>();
+        m_pendingChanges = new ArrayList<CmsPublishedResource>();
         CmsVfsResourceBundle.setCmsObject(cms);
         OpenCms.getEventManager().addCmsEventListener(
             this,
@@ -149,6 +167,19 @@ public class CmsVfsBundleManager implements I_CmsEventListener {
         return result;
     }
 
+    /**
+     * Checks if the given resource type id is the id of a VFS bundle type.<p>
+     *
+     * @param typeId the resource type id
+     *
+     * @return <code>true</code> if the type id is the id of a VFS bundle type
+     */
+    private static boolean isBundleType(int typeId) {
+
+        return OpenCms.getResourceManager().matchResourceType(TYPE_PROPERTIES_BUNDLE, typeId)
+            || OpenCms.getResourceManager().matchResourceType(TYPE_XML_BUNDLE, typeId);
+    }
+
     /**
      * @see org.opencms.main.I_CmsEventListener#cmsEvent(org.opencms.main.CmsEvent)
      */
@@ -175,43 +206,44 @@ public class CmsVfsBundleManager implements I_CmsEventListener {
     /**
      * Re-initializes the resource bundles.<p>
      *
+     * All bundle resources are read again, but only the bundles with changed resources
+     * are replaced in the resource bundle loader.<p>
+     *
      * @param isStartup true when this is called during startup
      */
     public synchronized void reload(boolean isStartup) {
 
         if (OpenCms.getRunLevel() > OpenCms.RUNLEVEL_1_CORE_OBJECT) {
-            List<CmsResource> xmlBundles = Lists.newArrayList();
-            List<CmsResource> propertyBundles = Lists.newArrayList();
+            Map<CmsUUID, CmsResource> bundles = new HashMap<CmsUUID, CmsResource>();
             try {
                 int xmlType = OpenCms.getResourceManager().getResourceType(TYPE_XML_BUNDLE).getTypeId();
-                xmlBundles = m_cms.readResources("/", CmsResourceFilter.ALL.addRequireType(xmlType), true);
+                for (CmsResource xmlBundle : m_cms.readResources(
+                    "/",
+                    CmsResourceFilter.ALL.addRequireType(xmlType),
+                    true)) {
+                    bundles.put(xmlBundle.getStructureId(), xmlBundle);
+                }
             } catch (Exception e) {
                 logError(e, isStartup);
             }
             try {
                 int propType = OpenCms.getResourceManager().getResourceType(TYPE_PROPERTIES_BUNDLE).getTypeId();
-                propertyBundles = m_cms.readResources("/", CmsResourceFilter.ALL.addRequireType(propType), true);
+                for (CmsResource propertyBundle : m_cms.readResources(
+                    "/",
+                    CmsResourceFilter.ALL.addRequireType(propType),
+                    true)) {
+                    bundles.put(propertyBundle.getStructureId(), propertyBundle);
+                }
             } catch (Exception e) {
                 logError(e, isStartup);
             }
             try {
-                synchronized (CmsResourceBundleLoader.class) {
-                    // Although the methods of CmsResourceBundleLoader which manipulate the cache
-                    // are synchronized, we synchronize the whole block to avoid intermediate states
-                    // where bundles have been removed from the cache but not re-added again
-                    for (String baseName : m_bundleBaseNames) {
-                        CmsResourceBundleLoader.flushBundleCache(baseName, true);
-                    }
-                    m_bundleBaseNames.clear();
-                    for (CmsResource xmlBundle : xmlBundles) {
-                        addXmlBundle(xmlBundle);
-                    }
-                    for (CmsResource propertyBundle : propertyBundles) {
-                        addPropertyBundle(propertyBundle);
-                    }
-                    if (OpenCms.getWorkplaceManager() != null) {
-                        OpenCms.getWorkplaceManager().flushMessageCache();
-                    }
+                Set<CmsUUID> structureIds = new HashSet<CmsUUID>(m_bundleResources.keySet());
+                structureIds.addAll(bundles.keySet());
+                CmsVfsResourceBundle.flushData();
+                updateBundles(structureIds, bundles);
+                if (OpenCms.getWorkplaceManager() != null) {
+                    OpenCms.getWorkplaceManager().flushMessageCache();
                 }
             } catch (Exception e) {
                 logError(e, isStartup);
@@ -219,6 +251,57 @@ public class CmsVfsBundleManager implements I_CmsEventListener {
         }
     }
 
+    /**
+     * Reloads the bundles of the given published resources.<p>
+     *
+     * The bundles of all other resources are not touched.<p>
+     *
+     * @param publishedResources the published bundle resources
+     */
+    public synchronized void reload(List<CmsPublishedResource> publishedResources) {
+
+        if ((OpenCms.getRunLevel() <= OpenCms.RUNLEVEL_1_CORE_OBJECT) || publishedResources.isEmpty()) {
+            return;
+        }
+        Set<CmsUUID> structureIds = new HashSet<CmsUUID>();
+        Set<String> paths = new HashSet<String>();
+        for (CmsPublishedResource publishedResource : publishedResources) {
+            structureIds.add(publishedResource.getStructureId());
+            paths.add(publishedResource.getRootPath());
+            CmsResource registered = m_bundleResources.get(publishedResource.getStructureId());
+            if (registered != null) {
+                // the resource may have been moved
+                paths.add(registered.getRootPath());
+            }
+        }
+        Map<CmsUUID, CmsResource> bundles = new HashMap<CmsUUID, CmsResource>();
+        try {
+            // deleted resources are not found in the online project
+            for (CmsResource resource : m_cms.readResources(
+                new ArrayList<CmsUUID>(structureIds),
+                CmsResourceFilter.ALL)) {
+                if (isBundleType(resource.getTypeId())) {
+                    bundles.put(resource.getStructureId(), resource);
+                }
+            }
+        } catch (CmsException e) {
+            logError(e, false);
+            reload(false);
+            return;
+        }
+        try {
+            for (String path : paths) {
+                CmsVfsResourceBundle.flushData(path);
+            }
+            updateBundles(structureIds, bundles);
+            if (OpenCms.getWorkplaceManager() != null) {
+                OpenCms.getWorkplaceManager().flushMessageCache();
+            }
+        } catch (Exception e) {
+            logError(e, false);
+        }
+    }
+
     /**
      * Sets the information if a reload thread is currently scheduled.
      *
@@ -260,34 +343,20 @@ public class CmsVfsBundleManager implements I_CmsEventListener {
         } else {
             LOG.info(e.getLocalizedMessage(), e);
         }
-        // if an error was logged make sure that the flag to schedule a reload is reset
-        setReloadScheduled(false);
     }
 
     /**
-     * Internal method for adding a resource bundle to the internal cache.<p>
-     *
-     * @param baseName the base name of the resource bundle
-     * @param locale the locale of the resource bundle
-     * @param bundle the resource bundle to add
-     */
-    private void addBundle(String baseName, Locale locale, I_CmsResourceBundle bundle) {
-
-        CmsResourceBundleLoader.addBundleToCache(baseName, locale, bundle);
-    }
-
-    /**
-     * Adds a resource bundle based on a properties file in the VFS.<p>
+     * Adds the resource bundles for a properties file in the VFS to the given map.<p>
      *
      * @param bundleResource the properties file
+     * @param bundles the bundles by locale to add the bundle to
      */
-    private void addPropertyBundle(CmsResource bundleResource) {
+    private void addPropertyBundle(CmsResource bundleResource, Map<Locale, I_CmsResourceBundle> bundles) {
 
         NameAndLocale nameAndLocale = getNameAndLocale(bundleResource);
         Locale locale = nameAndLocale.getLocale();
 
         String baseName = nameAndLocale.getName();
-        m_bundleBaseNames.add(baseName);
         LOG.info(
             String.format(
                 "Adding property VFS bundle (path=%s, name=%s, locale=%s)",
@@ -302,19 +371,19 @@ public class CmsVfsBundleManager implements I_CmsEventListener {
             locale == null,
             CmsVfsResourceBundle.TYPE_PROPERTIES);
         CmsVfsResourceBundle bundle = new CmsVfsResourceBundle(params);
-        addBundle(baseName, locale, bundle);
+        bundles.put(locale, bundle);
     }
 
     /**
-     * Adds an XML based message bundle.<p>
+     * Adds the resource bundles for an XML based message bundle to the given map.<p>
      *
      * @param xmlBundle the XML content containing the message bundle data
+     * @param bundles the bundles by locale to add the bundles to
      */
-    private void addXmlBundle(CmsResource xmlBundle) {
+    private void addXmlBundle(CmsResource xmlBundle, Map<Locale, I_CmsResourceBundle> bundles) {
 
         String name = xmlBundle.getName();
         String path = xmlBundle.getRootPath();
-        m_bundleBaseNames.add(name);
 
         LOG.info(String.format("Adding property VFS bundle (path=%s, name=%s)", xmlBundle.getRootPath(), name));
         for (Locale locale : getAllLocales()) {
@@ -325,7 +394,7 @@ public class CmsVfsBundleManager implements I_CmsEventListener {
                 false,
                 CmsVfsResourceBundle.TYPE_XML);
             CmsVfsResourceBundle bundle = new CmsVfsResourceBundle(params);
-            addBundle(name, locale, bundle);
+            bundles.put(locale, bundle);
         }
     }
 
@@ -363,26 +432,22 @@ public class CmsVfsBundleManager implements I_CmsEventListener {
 
         switch (event.getType()) {
             case I_CmsEventListener.EVENT_PUBLISH_PROJECT:
-                //System.out.print(getEventName(event.getType()));
                 String publishIdStr = (String)event.getData().get(I_CmsEventListener.KEY_PUBLISHID);
                 if (publishIdStr != null) {
                     CmsUUID publishId = new CmsUUID(publishIdStr);
                     try {
-                        List<CmsPublishedResource> publishedResources = m_cms.readPublishedResources(publishId);
-                        if (!publishedResources.isEmpty()) {
-                            String[] typesToMatch = new String[] {TYPE_PROPERTIES_BUNDLE, TYPE_XML_BUNDLE};
-                            boolean reload = false;
-                            for (CmsPublishedResource res : publishedResources) {
-                                for (String typeName : typesToMatch) {
-                                    if (OpenCms.getResourceManager().matchResourceType(typeName, res.getType())) {
-                                        reload = true;
-                                        break;
-                                    }
-                                }
+                        List<CmsPublishedResource> changed = new ArrayList<CmsPublishedResource>();
+                        for (CmsPublishedResource res : m_cms.readPublishedResources(publishId)) {
+                            // also check the registered resources, in case the type of a bundle was changed
+                            if (isBundleType(res.getType()) || m_bundleResources.containsKey(res.getStructureId())) {
+                                changed.add(res);
                             }
-                            if (reload) {
-                                scheduleReload();
+                        }
+                        if (!changed.isEmpty()) {
+                            synchronized (m_pendingChanges) {
+                                m_pendingChanges.addAll(changed);
                             }
+                            scheduleReload();
                         }
                     } catch (CmsException e) {
                         LOG.error(e.getLocalizedMessage(), e);
@@ -390,38 +455,122 @@ public class CmsVfsBundleManager implements I_CmsEventListener {
                 }
                 break;
             case I_CmsEventListener.EVENT_CLEAR_CACHES:
+                synchronized (m_pendingChanges) {
+                    m_fullReloadPending = true;
+                }
                 scheduleReload();
                 break;
             default:
         }
     }
 
+    /**
+     * Processes the pending changes collected since the reload was scheduled.<p>
+     */
+    private void reloadPending() {
+
+        List<CmsPublishedResource> changes;
+        boolean fullReload;
+        synchronized (m_pendingChanges) {
+            changes = new ArrayList<CmsPublishedResource>(m_pendingChanges);
+            m_pendingChanges.clear();
+            fullReload = m_fullReloadPending;
+            m_fullReloadPending = false;
+            // changes arriving from now on schedule a new reload
+            setReloadScheduled(false);
+        }
+        if (fullReload) {
+            reload(false);
+        } else {
+            reload(changes);
+        }
+    }
+
     /**
      * Schedules a bundle reload.<p>
      */
     private void scheduleReload() {
 
-        if (!isReloadScheduled() && (OpenCms.getRunLevel() > OpenCms.RUNLEVEL_1_CORE_OBJECT)) {
+        if (OpenCms.getRunLevel() > OpenCms.RUNLEVEL_1_CORE_OBJECT) {
             // only schedule a reload if the system is not going down already
-            m_threadCount++;
-            Thread thread = new Thread("Bundle reload Thread " + m_threadCount) {
+            int threadCount;
+            synchronized (m_pendingChanges) {
+                if (isReloadScheduled()) {
+                    // the scheduled reload will also process the new changes
+                    return;
+                }
+                setReloadScheduled(true);
+                threadCount = ++m_threadCount;
+            }
+            Thread thread = new Thread("Bundle reload Thread " + threadCount) {
 
                 @Override
                 public void run() {
 
-                    setReloadScheduled(true);
                     try {
                         Thread.sleep(1000);
                     } catch (Exception e) {
                         // ignore
                     }
                     if (isReloadScheduled()) {
-                        reload(false);
+                        reloadPending();
                     }
-                    setReloadScheduled(false);
                 }
             };
             thread.start();
         }
     }
+
+    /**
+     * Updates the registered bundle resources and replaces the bundles of all affected base names
+     * in the resource bundle loader.<p>
+     *
+     * @param structureIds the structure ids of the resources to update
+     * @param bundles the current bundle resources for the structure ids, missing entries mean the bundle was removed
+     */
+    private void updateBundles(Set<CmsUUID> structureIds, Map<CmsUUID, CmsResource> bundles) {
+
+        Set<String> baseNames = new HashSet<String>();
+        for (CmsUUID structureId : structureIds) {
+            CmsResource oldBundle = m_bundleResources.remove(structureId);
+            if (oldBundle != null) {
+                baseNames.add(getNameAndLocale(oldBundle).getName());
+            }
+            CmsResource newBundle = bundles.get(structureId);
+            if (newBundle != null) {
+                m_bundleResources.put(structureId, newBundle);
+                baseNames.add(getNameAndLocale(newBundle).getName());
+            }
+        }
+        if (baseNames.isEmpty()) {
+            return;
+        }
+        // create the bundles of all resources sharing a base name with a changed resource
+        Map<String, Map<Locale, I_CmsResourceBundle>> newBundles = new HashMap<String, Map<Locale, I_CmsResourceBundle>>();
+        for (String baseName : baseNames) {
+            newBundles.put(baseName, new HashMap<Locale, I_CmsResourceBundle>());
+        }
+        for (CmsResource bundleResource : m_bundleResources.values()) {
+            Map<Locale, I_CmsResourceBundle> bundlesForName = newBundles.get(
+                getNameAndLocale(bundleResource).getName());
+            if (bundlesForName != null) {
+                if (OpenCms.getResourceManager().matchResourceType(TYPE_XML_BUNDLE, bundleResource.getTypeId())) {
+                    addXmlBundle(bundleResource, bundlesForName);
+                } else {
+                    addPropertyBundle(bundleResource, bundlesForName);
+                }
+            }
+        }
+        for (String baseName : baseNames) {
+            Map<Locale, I_CmsResourceBundle> bundlesForName = newBundles.get(baseName);
+            Set<Locale> oldLocales = m_bundleLocales.remove(baseName);
+            CmsResourceBundleLoader.replaceBundles(
+                baseName,
+                bundlesForName,
+                oldLocales != null ? oldLocales : Collections.<Locale> emptySet());
+            if (!bundlesForName.isEmpty()) {
+                m_bundleLocales.put(baseName, new HashSet<Locale>(bundlesForName.keySet()));
+            }
+        }
+    }
 }
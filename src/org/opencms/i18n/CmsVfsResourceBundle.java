@@ -27,7 +27,6 @@
 
 package org.opencms.i18n;
 
-import org.opencms.cache.CmsVfsMemoryObjectCache;
 import org.opencms.file.CmsObject;
 import org.opencms.main.CmsLog;
 import org.opencms.main.OpenCms;
@@ -42,6 +41,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 
@@ -82,8 +82,8 @@ public class CmsVfsResourceBundle extends ResourceBundle implements I_CmsResourc
     /** The logger instance for this class. */
     private static final Log LOG = CmsLog.getLog(CmsVfsResourceBundle.class);
 
-    /** The cache instance used for caching the resource bundle data. */
-    private static CmsVfsMemoryObjectCache m_cache = new CmsVfsMemoryObjectCache();
+    /** The cached resource bundle data, by root path of the bundle file. */
+    private static Map<String, Map<Locale, Map<String, String>>> m_data = new ConcurrentHashMap<String, Map<Locale, Map<String, String>>>();
 
     /** The bundle loader instance to use. */
     protected I_Loader m_loader;
@@ -102,6 +102,27 @@ public class CmsVfsResourceBundle extends ResourceBundle implements I_CmsResourc
         m_loader = initLoader(params.getType());
     }
 
+    /**
+     * Flushes the cached data of all VFS bundles.<p>
+     */
+    public static void flushData() {
+
+        m_data.clear();
+    }
+
+    /**
+     * Flushes the cached data of the VFS bundle with the given root path.<p>
+     *
+     * The cached data is not flushed on every publish, the VFS bundle manager
+     * flushes it when the bundle file is changed.<p>
+     *
+     * @param rootPath the root path of the bundle file
+     */
+    public static void flushData(String rootPath) {
+
+        m_data.remove(rootPath);
+    }
+
     /**
      * Sets the CMS context used by this class.<p>
      *
@@ -226,14 +247,11 @@ public class CmsVfsResourceBundle extends ResourceBundle implements I_CmsResourc
      */
     private Map<Locale, Map<String, String>> getData() {
 
-        @SuppressWarnings("unchecked")
-        Map<Locale, Map<String, String>> result = (Map<Locale, Map<String, String>>)m_cache.getCachedObject(
-            m_cms,
-            getFilePath());
+        Map<Locale, Map<String, String>> result = m_data.get(getFilePath());
         if (result == null) {
             try {
                 result = m_loader.loadData(m_cms, m_parameters);
-                m_cache.putCachedObject(m_cms, getFilePath(), result);
+                m_data.put(getFilePath(), result);
             } catch (Exception e) {
                 LOG.error(e.getLocalizedMessage(), e);
             }
@@ -27,6 +27,7 @@
 
 package org.opencms.loader;
 
+import org.opencms.cache.CmsVfsContentMirror;
 import org.opencms.configuration.CmsParameterConfiguration;
 import org.opencms.file.CmsFile;
 import org.opencms.file.CmsObject;
@@ -39,7 +40,12 @@ import org.opencms.util.CmsRequestUtil;
 import org.opencms.util.CmsStringUtil;
 import org.opencms.workplace.CmsWorkplaceManager;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.Iterator;
 import java.util.Locale;
 
@@ -58,15 +64,33 @@ import javax.servlet.http.HttpServletResponse;
  */
 public class CmsDumpLoader implements I_CmsResourceLoader {
 
+    /** The configuration parameter to set the RFS folder in which the content of large files is mirrored. */
+    public static final String CONFIGURATION_CONTENT_MIRROR_FOLDER = "content.mirror.folder";
+
+    /** The configuration parameter to set the minimum size in bytes of files which are mirrored in the RFS. */
+    public static final String CONFIGURATION_CONTENT_MIRROR_MINSIZE = "content.mirror.minsize";
+
+    /** The default minimum size of files which are mirrored in the RFS. */
+    public static final long CONTENT_MIRROR_MINSIZE_DEFAULT = 1024 * 1024;
+
+    /** The range unit supported for partial requests. */
+    public static final String RANGE_UNIT_BYTES = "bytes";
+
     /** The id of this loader. */
     public static final int RESOURCE_LOADER_ID = 1;
 
+    /** Result of {@link #parseRange(String, long)} if the requested range can not be satisfied. */
+    protected static final long[] RANGE_NOT_SATISFIABLE = new long[0];
+
     /** The maximum age for dumped contents in the clients cache. */
     private static long m_clientCacheMaxAge;
 
     /** The resource loader configuration. */
     private CmsParameterConfiguration m_configuration;
 
+    /** The RFS mirror for the content of large files, or <code>null</code> if no mirror is configured. */
+    protected CmsVfsContentMirror m_contentMirror;
+
     /**
      * The constructor of the class is empty and does nothing.<p>
      */
@@ -75,6 +99,64 @@ public class CmsDumpLoader implements I_CmsResourceLoader {
         m_configuration = new CmsParameterConfiguration();
     }
 
+    /**
+     * Parses the value of a HTTP "Range" header for a content of the given length.<p>
+     *
+     * Only a single range of bytes is supported. If the header is missing, uses another unit,
+     * is malformed or requests more than one range, the complete content must be delivered and
+     * <code>null</code> is returned.<p>
+     *
+     * @param range the value of the "Range" header, may be <code>null</code>
+     * @param length the length of the content
+     *
+     * @return an array with the first and the last requested byte position,
+     *      {@link #RANGE_NOT_SATISFIABLE} if no requested byte is part of the content,
+     *      or <code>null</code> if the complete content must be delivered
+     */
+    public static long[] parseRange(String range, long length) {
+
+        if (range == null) {
+            return null;
+        }
+        range = range.trim();
+        if (!range.startsWith(RANGE_UNIT_BYTES + "=")) {
+            return null;
+        }
+        String spec = range.substring(RANGE_UNIT_BYTES.length() + 1).trim();
+        int dash = spec.indexOf('-');
+        if ((dash < 0) || (spec.indexOf(',') >= 0)) {
+            // multiple ranges would require a "multipart/byteranges" response
+            return null;
+        }
+        String first = spec.substring(0, dash).trim();
+        String last = spec.substring(dash + 1).trim();
+        long start;
+        long end;
+        try {
+            if (first.length() == 0) {
+                // suffix range, e.g. "bytes=-500" for the last 500 bytes
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return suffix < 0 ? null : RANGE_NOT_SATISFIABLE;
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.length() == 0 ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+                if ((start < 0) || ((last.length() > 0) && (Long.parseLong(last) < start))) {
+                    return null;
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (start >= length) {
+            return RANGE_NOT_SATISFIABLE;
+        }
+        return new long[] {start, end};
+    }
+
     /**
      * @see org.opencms.configuration.I_CmsConfigurationParameterHandler#addConfigurationParameter(java.lang.String, java.lang.String)
      */
@@ -176,15 +258,51 @@ public class CmsDumpLoader implements I_CmsResourceLoader {
             m_clientCacheMaxAge = Long.parseLong(String.valueOf(maxAge));
         }
 
+        String mirrorFolder = m_configuration.getString(CONFIGURATION_CONTENT_MIRROR_FOLDER, null);
+        if (CmsStringUtil.isNotEmptyOrWhitespaceOnly(mirrorFolder)) {
+            long minSize = CONTENT_MIRROR_MINSIZE_DEFAULT;
+            String minSizeParam = m_configuration.getString(CONFIGURATION_CONTENT_MIRROR_MINSIZE, null);
+            if (minSizeParam != null) {
+                minSize = Long.parseLong(minSizeParam.trim());
+            }
+            m_contentMirror = new CmsVfsContentMirror(
+                OpenCms.getSystemInfo().getWebApplicationRfsPath(),
+                mirrorFolder.trim(),
+                minSize);
+        } else {
+            m_contentMirror = null;
+        }
+
         if (CmsLog.INIT.isInfoEnabled()) {
             if (maxAge != null) {
                 CmsLog.INIT.info(Messages.get().getBundle().key(Messages.INIT_CLIENT_CACHE_MAX_AGE_1, maxAge));
             }
+            if (m_contentMirror != null) {
+                CmsLog.INIT.info(
+                    Messages.get().getBundle().key(
+                        Messages.INIT_CONTENT_MIRROR_PATH_2,
+                        m_contentMirror.getRepositoryPath(),
+                        new Long(m_contentMirror.getMinSize())));
+            }
             CmsLog.INIT.info(
                 Messages.get().getBundle().key(Messages.INIT_LOADER_INITIALIZED_1, this.getClass().getName()));
         }
     }
 
+    /**
+     * Initializes the parts of the loader which need an OpenCms user context.<p>
+     *
+     * @param cms an OpenCms user context
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public void initialize(CmsObject cms) throws CmsException {
+
+        if (m_contentMirror != null) {
+            m_contentMirror.initialize(cms);
+        }
+    }
+
     /**
      * @see org.opencms.loader.I_CmsResourceLoader#isStaticExportEnabled()
      */
@@ -228,13 +346,44 @@ public class CmsDumpLoader implements I_CmsResourceLoader {
             return;
         }
 
-        // make sure we have the file contents available
-        CmsFile file = cms.readFile(resource);
-
-        // set response status to "200 - OK" (required for static export "on-demand")
-        res.setStatus(HttpServletResponse.SC_OK);
-        // set content length header
-        res.setContentLength(file.getContents().length);
+        // large files are delivered from the content mirror, if the content is not already available
+        File mirrorFile = null;
+        if ((m_contentMirror != null) && !hasContents(resource)) {
+            mirrorFile = m_contentMirror.getFile(cms, resource);
+        }
+        CmsFile file = null;
+        long[] range = null;
+        if (mirrorFile == null) {
+            // make sure we have the file contents available
+            file = cms.readFile(resource);
+
+            // set response status to "200 - OK" (required for static export "on-demand")
+            res.setStatus(HttpServletResponse.SC_OK);
+            // set content length header
+            res.setContentLength(file.getContents().length);
+        } else {
+            long length = mirrorFile.length();
+            res.setHeader(CmsRequestUtil.HEADER_ACCEPT_RANGES, RANGE_UNIT_BYTES);
+            if (isRangeValid(req, resource)) {
+                range = parseRange(req.getHeader(CmsRequestUtil.HEADER_RANGE), length);
+            }
+            if (range == RANGE_NOT_SATISFIABLE) {
+                res.setHeader(CmsRequestUtil.HEADER_CONTENT_RANGE, RANGE_UNIT_BYTES + " */" + length);
+                res.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (range == null) {
+                range = new long[] {0, length - 1};
+                res.setStatus(HttpServletResponse.SC_OK);
+            } else {
+                res.setHeader(
+                    CmsRequestUtil.HEADER_CONTENT_RANGE,
+                    RANGE_UNIT_BYTES + " " + range[0] + "-" + range[1] + "/" + length);
+                res.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            }
+            // the length of large files may exceed the int range
+            res.setHeader(CmsRequestUtil.HEADER_CONTENT_LENGTH, Long.toString((range[1] - range[0]) + 1));
+        }
 
         if (CmsWorkplaceManager.isWorkplaceUser(req)) {
             // prevent caching for Workplace users
@@ -242,7 +391,7 @@ public class CmsDumpLoader implements I_CmsResourceLoader {
             CmsRequestUtil.setNoCacheHeaders(res);
         } else {
             // set date last modified header
-            res.setDateHeader(CmsRequestUtil.HEADER_LAST_MODIFIED, file.getDateLastModified());
+            res.setDateHeader(CmsRequestUtil.HEADER_LAST_MODIFIED, resource.getDateLastModified());
 
             // set "Expires" only if cache control is not already set
             if (!res.containsHeader(CmsRequestUtil.HEADER_CACHE_CONTROL)) {
@@ -256,7 +405,11 @@ public class CmsDumpLoader implements I_CmsResourceLoader {
             }
         }
 
-        service(cms, file, req, res);
+        if (mirrorFile == null) {
+            service(cms, file, req, res);
+        } else {
+            transferFile(mirrorFile, range[0], (range[1] - range[0]) + 1, res);
+        }
     }
 
     /**
@@ -265,7 +418,12 @@ public class CmsDumpLoader implements I_CmsResourceLoader {
     public void service(CmsObject cms, CmsResource resource, ServletRequest req, ServletResponse res)
     throws CmsException, IOException {
 
-        res.getOutputStream().write(cms.readFile(resource).getContents());
+        if (hasContents(resource)) {
+            res.getOutputStream().write(((CmsFile)resource).getContents());
+        } else {
+            // copy the content without holding it in memory as a whole
+            cms.readContent(resource, res.getOutputStream());
+        }
     }
 
     /**
@@ -300,4 +458,84 @@ public class CmsDumpLoader implements I_CmsResourceLoader {
         }
         return false;
     }
+
+    /**
+     * Checks if a "Range" header of the current request may be applied to the resource.<p>
+     *
+     * This is the case if the request has no "If-Range" header, or if the date of
+     * the "If-Range" header matches the date the resource was last modified.
+     * Entity tags are not supported, so a range conditional on an entity tag is never applied.<p>
+     *
+     * @param req the current request
+     * @param resource the requested resource
+     *
+     * @return <code>true</code> if a "Range" header may be applied
+     */
+    protected boolean isRangeValid(HttpServletRequest req, CmsResource resource) {
+
+        if (req.getHeader(CmsRequestUtil.HEADER_IF_RANGE) == null) {
+            return true;
+        }
+        if (CmsWorkplaceManager.isWorkplaceUser(req)) {
+            // workplace users always get the current date as last modified date
+            return false;
+        }
+        long ifRange;
+        try {
+            ifRange = req.getDateHeader(CmsRequestUtil.HEADER_IF_RANGE);
+        } catch (IllegalArgumentException e) {
+            // the header contains an entity tag
+            return false;
+        }
+        // HTTP dates have a precision of seconds
+        return (ifRange / 1000) == (resource.getDateLastModified() / 1000);
+    }
+
+    /**
+     * Writes a part of a file to the response.<p>
+     *
+     * The file is copied with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)},
+     * so the content is not copied to the heap if the output stream of the servlet container allows it.<p>
+     *
+     * @param file the file to write
+     * @param start the position of the first byte to write
+     * @param count the number of bytes to write
+     * @param res the current response
+     *
+     * @throws IOException if something goes wrong
+     */
+    protected void transferFile(File file, long start, long count, ServletResponse res) throws IOException {
+
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            WritableByteChannel target = Channels.newChannel(res.getOutputStream());
+            long position = start;
+            long end = start + count;
+            while (position < end) {
+                long transferred = channel.transferTo(position, end - position, target);
+                if (transferred <= 0) {
+                    // the file has been truncated
+                    break;
+                }
+                position += transferred;
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Checks if the content of the given resource has already been read.<p>
+     *
+     * @param resource the resource to check
+     *
+     * @return <code>true</code> if the content of the resource has already been read
+     */
+    private boolean hasContents(CmsResource resource) {
+
+        return (resource instanceof CmsFile)
+            && (((CmsFile)resource).getContents() != null)
+            && (((CmsFile)resource).getContents().length > 0);
+    }
 }
\ No newline at end of file
@@ -38,10 +38,27 @@ import org.opencms.main.CmsLog;
 import org.opencms.main.I_CmsEventListener;
 import org.opencms.main.OpenCms;
 import org.opencms.scheduler.jobs.CmsImageCacheCleanupJob;
+import org.opencms.staticexport.CmsStaticExportResponseWrapper;
 import org.opencms.util.CmsStringUtil;
+import org.opencms.util.CmsUUID;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -58,6 +75,13 @@ import org.apache.commons.logging.Log;
  * For example, to scale an image to exact 800x600 pixel with center fitting and a background color of grey,
  * the following parameter String can be used: <code>w:800,h:600,t:0,c:c0c0c0</code>.<p>
  *
+ * Images are scaled by a bounded thread pool, and concurrent requests for the same scaled version
+ * wait for the same scaling operation. If the queue of the pool is full or the scaling takes longer
+ * than the configured timeout, the request gets the fallback response
+ * set with {@link #CONFIGURATION_SCALING_FALLBACK}. The static export does not use the fallback, since it
+ * would write the fallback response to the export folder: it waits for the scaled image instead.
+ * Cache hits and scaling times are recorded in the {@link CmsImageScalingStatistics}.<p>
+ *
  * @since 6.2.0
  */
 public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener {
@@ -74,9 +98,45 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
     /** The configuration parameter for the OpenCms XML configuration to set the maximum image scale size. */
     public static final String CONFIGURATION_MAX_SCALE_SIZE = "image.scaling.maxsize";
 
+    /** The configuration parameter for the OpenCms XML configuration to generate image variants after publishing. */
+    public static final String CONFIGURATION_PREGENERATE = "image.scaling.pregenerate";
+
+    /** The configuration parameter for the OpenCms XML configuration to set the delay between generated variants. */
+    public static final String CONFIGURATION_PREGENERATE_DELAY = "image.scaling.pregenerate.delay";
+
+    /** The configuration parameter for the OpenCms XML configuration to add scale parameters to generate. */
+    public static final String CONFIGURATION_PREGENERATE_VARIANT = "image.scaling.pregenerate.variant";
+
     /** The configuration parameter for the OpenCms XML configuration to enable the image scaling. */
     public static final String CONFIGURATION_SCALING_ENABLED = "image.scaling.enabled";
 
+    /** The configuration parameter for the OpenCms XML configuration to set the response if scaling takes too long. */
+    public static final String CONFIGURATION_SCALING_FALLBACK = "image.scaling.fallback";
+
+    /** The configuration parameter for the OpenCms XML configuration to set the maximum number of queued images. */
+    public static final String CONFIGURATION_SCALING_QUEUE_SIZE = "image.scaling.queuesize";
+
+    /** The configuration parameter for the OpenCms XML configuration to set the number of threads scaling images. */
+    public static final String CONFIGURATION_SCALING_THREADS = "image.scaling.threads";
+
+    /** The configuration parameter for the OpenCms XML configuration to set the timeout for scaling images. */
+    public static final String CONFIGURATION_SCALING_TIMEOUT = "image.scaling.timeout";
+
+    /** The default delay in milliseconds between two variants generated after publishing. */
+    public static final int DEFAULT_PREGENERATE_DELAY = 100;
+
+    /** The default maximum number of images waiting to be scaled. */
+    public static final int DEFAULT_SCALING_QUEUE_SIZE = 100;
+
+    /** The default time in milliseconds a request waits for a scaled image. */
+    public static final int DEFAULT_SCALING_TIMEOUT = 30000;
+
+    /** Fallback which delivers the unscaled image if the image can not be scaled in time. */
+    public static final String FALLBACK_ORIGINAL = "original";
+
+    /** Fallback which responds with status 503 (service unavailable) if the image can not be scaled in time. */
+    public static final String FALLBACK_UNAVAILABLE = "unavailable";
+
     /** Default name for the image cache repository. */
     public static final String IMAGE_REPOSITORY_DEFAULT = "/WEB-INF/imagecache/";
 
@@ -89,6 +149,9 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
     /** The log object for this class. */
     protected static final Log LOG = CmsLog.getLog(CmsImageLoader.class);
 
+    /** The name of the header telling the client when to retry a request. */
+    private static final String HEADER_RETRY_AFTER = "Retry-After";
+
     /** The (optional) image down scale parameters for image write operations. */
     protected static String m_downScaleParams;
 
@@ -107,6 +170,39 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
     /** The maximum image size (width or height) to allow when up scaling an image using request parameters. */
     protected int m_maxScaleSize = CmsImageScaler.SCALE_DEFAULT_MAX_SIZE;
 
+    /** Indicates if the variants of published images are generated in the background. */
+    protected boolean m_pregenerate;
+
+    /** The delay in milliseconds between two variants generated after publishing. */
+    protected int m_pregenerateDelay = DEFAULT_PREGENERATE_DELAY;
+
+    /** The configured scale parameters generated after publishing. */
+    protected List<String> m_pregenerateVariants = new ArrayList<String>();
+
+    /** The thread pool scaling the images. */
+    protected ThreadPoolExecutor m_scalingExecutor;
+
+    /** The response if an image can not be scaled in time. */
+    protected String m_scalingFallback = FALLBACK_UNAVAILABLE;
+
+    /** The maximum number of images waiting to be scaled. */
+    protected int m_scalingQueueSize = DEFAULT_SCALING_QUEUE_SIZE;
+
+    /** The statistics of the image cache and the image scaling. */
+    protected CmsImageScalingStatistics m_scalingStatistics;
+
+    /** The running scaling operations, by cache name. */
+    protected ConcurrentHashMap<String, Future<byte[]>> m_scalingTasks = new ConcurrentHashMap<String, Future<byte[]>>();
+
+    /** The number of threads scaling images, 0 for the number of processors. */
+    protected int m_scalingThreads;
+
+    /** The time in milliseconds a request waits for a scaled image. */
+    protected int m_scalingTimeout = DEFAULT_SCALING_TIMEOUT;
+
+    /** The generator for the variants of published images. */
+    protected CmsImageVariantGenerator m_variantGenerator;
+
     /**
      * Creates a new image loader.<p>
      */
@@ -200,6 +296,29 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
             if (CONFIGURATION_DOWNSCALE.equals(paramName)) {
                 m_downScaleParams = paramValue.trim();
             }
+            if (CONFIGURATION_SCALING_THREADS.equals(paramName)) {
+                m_scalingThreads = CmsStringUtil.getIntValue(paramValue, 0, paramName);
+            }
+            if (CONFIGURATION_SCALING_QUEUE_SIZE.equals(paramName)) {
+                m_scalingQueueSize = CmsStringUtil.getIntValue(paramValue, DEFAULT_SCALING_QUEUE_SIZE, paramName);
+            }
+            if (CONFIGURATION_SCALING_TIMEOUT.equals(paramName)) {
+                m_scalingTimeout = CmsStringUtil.getIntValue(paramValue, DEFAULT_SCALING_TIMEOUT, paramName);
+            }
+            if (CONFIGURATION_PREGENERATE.equals(paramName)) {
+                m_pregenerate = Boolean.valueOf(paramValue).booleanValue();
+            }
+            if (CONFIGURATION_PREGENERATE_DELAY.equals(paramName)) {
+                m_pregenerateDelay = CmsStringUtil.getIntValue(paramValue, DEFAULT_PREGENERATE_DELAY, paramName);
+            }
+            if (CONFIGURATION_PREGENERATE_VARIANT.equals(paramName)) {
+                m_pregenerateVariants.add(paramValue.trim());
+            }
+            if (CONFIGURATION_SCALING_FALLBACK.equals(paramName)) {
+                m_scalingFallback = FALLBACK_ORIGINAL.equalsIgnoreCase(paramValue.trim())
+                ? FALLBACK_ORIGINAL
+                : FALLBACK_UNAVAILABLE;
+            }
         }
         super.addConfigurationParameter(paramName, paramValue);
     }
@@ -212,16 +331,23 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
         if (event == null) {
             return;
         }
-        // only react on the clear caches event
+        Map<String, ?> data = event.getData();
+        if (data == null) {
+            return;
+        }
         int type = event.getType();
-        if (type != I_CmsEventListener.EVENT_CLEAR_CACHES) {
+        if (type == I_CmsEventListener.EVENT_PUBLISH_PROJECT) {
+            Object publishHistoryId = data.get(I_CmsEventListener.KEY_PUBLISHID);
+            if ((m_variantGenerator != null) && (publishHistoryId != null)) {
+                m_variantGenerator.generateVariants(new CmsUUID((String)publishHistoryId));
+            }
             return;
         }
-        // only react if the clear images cache parameter is set
-        Map<String, ?> data = event.getData();
-        if (data == null) {
+        // otherwise only react on the clear caches event
+        if (type != I_CmsEventListener.EVENT_CLEAR_CACHES) {
             return;
         }
+        // only react if the clear images cache parameter is set
         Object param = data.get(PARAM_CLEAR_IMAGES_CACHE);
         if (param == null) {
             return;
@@ -244,6 +370,15 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
         m_enabled = false;
         m_imageRepositoryFolder = null;
         m_vfsDiskCache = null;
+        if (m_scalingExecutor != null) {
+            m_scalingExecutor.shutdownNow();
+        }
+        if (m_scalingStatistics != null) {
+            m_scalingStatistics.unregister();
+        }
+        if (m_variantGenerator != null) {
+            m_variantGenerator.shutDown();
+        }
     }
 
     /**
@@ -271,6 +406,27 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
         return RESOURCE_LOADER_ID_IMAGE_LOADER;
     }
 
+    /**
+     * Returns the statistics of the image cache and the image scaling.<p>
+     *
+     * @return the statistics of the image cache and the image scaling
+     */
+    public I_CmsImageScalingStatistics getScalingStatistics() {
+
+        return m_scalingStatistics;
+    }
+
+    /**
+     * Returns the generator for the variants of published images.<p>
+     *
+     * @return the generator for the variants of published images,
+     *      or <code>null</code> if no variants are generated after publishing
+     */
+    public CmsImageVariantGenerator getVariantGenerator() {
+
+        return m_variantGenerator;
+    }
+
     /**
      * @see org.opencms.configuration.I_CmsConfigurationParameterHandler#initConfiguration()
      */
@@ -286,6 +442,34 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
                 OpenCms.getSystemInfo().getWebApplicationRfsPath(),
                 m_imageRepositoryFolder);
         }
+        // initialize the thread pool for scaling images
+        if (m_scalingThreads <= 0) {
+            m_scalingThreads = Runtime.getRuntime().availableProcessors();
+        }
+        m_scalingTimeout = Math.max(1, m_scalingTimeout);
+        m_scalingExecutor = new ThreadPoolExecutor(
+            m_scalingThreads,
+            m_scalingThreads,
+            60,
+            TimeUnit.SECONDS,
+            new ArrayBlockingQueue<Runnable>(Math.max(1, m_scalingQueueSize)),
+            new ThreadFactory() {
+
+                private AtomicInteger m_count = new AtomicInteger();
+
+                public Thread newThread(Runnable r) {
+
+                    Thread thread = new Thread(r, "OpenCms: Image scaling " + m_count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        m_scalingExecutor.allowCoreThreadTimeOut(true);
+        m_scalingStatistics = new CmsImageScalingStatistics(m_scalingExecutor);
+        m_scalingStatistics.register();
+        if (m_enabled && m_pregenerate) {
+            m_variantGenerator = new CmsImageVariantGenerator(this, m_pregenerateVariants, m_pregenerateDelay);
+        }
         OpenCms.addCmsEventListener(this);
         // output setup information
         if (CmsLog.INIT.isInfoEnabled()) {
@@ -295,6 +479,35 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
                     m_vfsDiskCache.getRepositoryPath()));
             CmsLog.INIT.info(
                 Messages.get().getBundle().key(Messages.INIT_IMAGE_SCALING_ENABLED_1, Boolean.valueOf(m_enabled)));
+            CmsLog.INIT.info(
+                Messages.get().getBundle().key(
+                    Messages.INIT_IMAGE_SCALING_POOL_4,
+                    new Integer(m_scalingThreads),
+                    new Integer(m_scalingQueueSize),
+                    new Integer(m_scalingTimeout),
+                    m_scalingFallback));
+            CmsLog.INIT.info(
+                Messages.get().getBundle().key(
+                    Messages.INIT_IMAGE_VARIANTS_3,
+                    Boolean.valueOf(m_variantGenerator != null),
+                    m_pregenerateVariants,
+                    new Integer(m_pregenerateDelay)));
+        }
+    }
+
+    /**
+     * Initializes the parts of the loader which need an OpenCms user context.<p>
+     *
+     * @param cms an OpenCms user context with permissions to read all images
+     *
+     * @throws CmsException if something goes wrong
+     */
+    @Override
+    public void initialize(CmsObject cms) throws CmsException {
+
+        super.initialize(cms);
+        if (m_variantGenerator != null) {
+            m_variantGenerator.initialize(cms);
         }
     }
 
@@ -312,8 +525,14 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
             }
             // get the scale information from the request
             CmsImageScaler scaler = new CmsImageScaler(req, m_maxScaleSize, m_maxBlurSize);
-            // load the file from the cache
-            CmsFile file = getScaledImage(cms, resource, scaler);
+            // load the file from the cache, the static export must not get the fallback response
+            CmsFile file = getScaledImage(cms, resource, scaler, res instanceof CmsStaticExportResponseWrapper);
+            if (file == null) {
+                // the image could not be scaled in time, the client should try again later
+                res.setHeader(HEADER_RETRY_AFTER, String.valueOf(Math.max(1, m_scalingTimeout / 1000)));
+                res.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                return;
+            }
             // now perform standard load operation inherited from dump loader
             super.load(cms, file, req, res);
         } else {
@@ -322,6 +541,77 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
         }
     }
 
+    /**
+     * Creates the operation which scales an image in the scaling thread pool and saves the result in the disk cache.<p>
+     *
+     * @param cms the current users OpenCms context
+     * @param resource the base VFS resource for the image
+     * @param scaler the image scaler
+     * @param cacheName the name of the scaled image in the disk cache
+     *
+     * @return the operation which returns the scaled image
+     *
+     * @throws CmsException if the OpenCms context for the scaling thread could not be created
+     */
+    protected Callable<byte[]> createScalingTask(
+        CmsObject cms,
+        final CmsResource resource,
+        final CmsImageScaler scaler,
+        final String cacheName)
+    throws CmsException {
+
+        final CmsObject scalingCms = OpenCms.initCmsObject(cms);
+        return new Callable<byte[]>() {
+
+            public byte[] call() throws Exception {
+
+                // another request may have finished the scaling after the cache was checked
+                byte[] content = m_vfsDiskCache.getCacheContent(cacheName);
+                if (content == null) {
+                    long start = System.currentTimeMillis();
+                    content = scaler.scaleImage(scalingCms.readFile(resource));
+                    long time = System.currentTimeMillis() - start;
+                    m_scalingStatistics.addScaling(time);
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug(
+                            Messages.get().getBundle().key(
+                                Messages.LOG_IMAGE_SCALED_3,
+                                resource.getRootPath(),
+                                scaler.toString(),
+                                new Long(time)));
+                    }
+                    m_vfsDiskCache.saveCacheFile(cacheName, content);
+                }
+                return content;
+            }
+        };
+    }
+
+    /**
+     * Generates a scaled variant of an image in the disk cache, if it does not exist yet.<p>
+     *
+     * The method waits until the variant has been generated, or the scaling timeout has passed.<p>
+     *
+     * @param cms the current users OpenCms context
+     * @param resource the base VFS resource for the image
+     * @param scaler the image scaler
+     *
+     * @return <code>true</code> if the variant has been generated,
+     *      <code>false</code> if it already existed or could not be generated in time
+     *
+     * @throws IOException in case of errors accessing the disk based cache
+     * @throws CmsException in case of errors accessing the OpenCms VFS
+     */
+    protected boolean generateVariant(CmsObject cms, CmsResource resource, CmsImageScaler scaler)
+    throws IOException, CmsException {
+
+        String cacheName = m_vfsDiskCache.getCacheName(resource, scaler.toString());
+        if (m_vfsDiskCache.hasCacheContent(cacheName)) {
+            return false;
+        }
+        return scaleImage(cms, resource, scaler, cacheName, false) != null;
+    }
+
     /**
      * Returns a scaled version of the given OpenCms VFS image resource.<p>
      *
@@ -329,46 +619,198 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
      * If the scaled version does not exist in the cache, it is created.
      * Unscaled versions of the images are also stored in the cache.<p>
      *
+     * If the image can not be scaled in time, the configured fallback is used:
+     * either the unscaled image is returned, or <code>null</code>.<p>
+     *
      * @param cms the current users OpenCms context
      * @param resource the base VFS resource for the image
      * @param scaler the configured image scaler
      *
-     * @return a scaled version of the given OpenCms VFS image resource
+     * @return a scaled version of the given OpenCms VFS image resource,
+     *      or <code>null</code> if the image could not be scaled in time
      *
      * @throws IOException in case of errors accessing the disk based cache
      * @throws CmsException in case of errors accessing the OpenCms VFS
      */
     protected CmsFile getScaledImage(CmsObject cms, CmsResource resource, CmsImageScaler scaler)
+    throws IOException, CmsException {
+
+        return getScaledImage(cms, resource, scaler, false);
+    }
+
+    /**
+     * Returns a scaled version of the given OpenCms VFS image resource.<p>
+     *
+     * If the caller waits for the scaled image, it gets the scaled image in any case, and the
+     * configured fallback is never used. The image is scaled in the current thread if the queue of the
+     * scaling thread pool is full. This is required for the static export, which writes the result to
+     * the export folder.<p>
+     *
+     * @param cms the current users OpenCms context
+     * @param resource the base VFS resource for the image
+     * @param scaler the configured image scaler
+     * @param wait <code>true</code> to wait for the scaled image, without using the configured fallback
+     *
+     * @return a scaled version of the given OpenCms VFS image resource,
+     *      or <code>null</code> if the image could not be scaled in time
+     *
+     * @throws IOException in case of errors accessing the disk based cache
+     * @throws CmsException in case of errors accessing the OpenCms VFS
+     *
+     * @see #getScaledImage(CmsObject, CmsResource, CmsImageScaler)
+     */
+    protected CmsFile getScaledImage(CmsObject cms, CmsResource resource, CmsImageScaler scaler, boolean wait)
     throws IOException, CmsException {
 
         String cacheParam = scaler.isValid() ? scaler.toString() : null;
         String cacheName = m_vfsDiskCache.getCacheName(resource, cacheParam);
         byte[] content = m_vfsDiskCache.getCacheContent(cacheName);
 
-        CmsFile file;
         if (content != null) {
-            if (resource instanceof CmsFile) {
-                // the original file content must be modified (required e.g. for static export)
-                file = (CmsFile)resource;
-            } else {
-                // this is no file, but we don't want to use "upgrade" since we don't need to read the content from the VFS
-                file = new CmsFile(resource);
-            }
-            // save the content in the file
-            file.setContents(content);
+            m_scalingStatistics.addCacheHit();
         } else {
-            // we must read the content from the VFS (if this has not been done yet)
-            file = cms.readFile(resource);
-            // upgrade the file (load the content)
-            if (scaler.isValid()) {
-                // valid scaling parameters found, scale the content
-                content = scaler.scaleImage(file);
-                // exchange the content of the file with the scaled version
-                file.setContents(content);
+            m_scalingStatistics.addCacheMiss();
+            if (!scaler.isValid()) {
+                // no scaling required, save the original file content in the cache
+                CmsFile file = cms.readFile(resource);
+                m_vfsDiskCache.saveCacheFile(cacheName, file.getContents());
+                return file;
+            }
+            content = scaleImage(cms, resource, scaler, cacheName, wait);
+            if (content == null) {
+                if (wait) {
+                    // only happens if the current thread has been interrupted
+                    throw new CmsLoaderException(
+                        Messages.get().container(
+                            Messages.ERR_UNABLE_TO_SCALE_IMAGE_2,
+                            resource.getRootPath(),
+                            scaler.toString()));
+                }
+                // the image could not be scaled in time
+                return FALLBACK_ORIGINAL.equals(m_scalingFallback) ? cms.readFile(resource) : null;
             }
-            // save the file content in the cache
-            m_vfsDiskCache.saveCacheFile(cacheName, file.getContents());
         }
+        if ((m_variantGenerator != null)
+            && scaler.isValid()
+            && cms.getRequestContext().getCurrentProject().isOnlineProject()) {
+            // remember the cached variant to generate it again after the image has been published
+            m_variantGenerator.recordVariant(resource, scaler);
+        }
+
+        CmsFile file;
+        if (resource instanceof CmsFile) {
+            // the original file content must be modified (required e.g. for static export)
+            file = (CmsFile)resource;
+        } else {
+            // this is no file, but we don't want to use "upgrade" since we don't need to read the content from the VFS
+            file = new CmsFile(resource);
+        }
+        // save the content in the file
+        file.setContents(content);
         return file;
     }
-}
\ No newline at end of file
+
+    /**
+     * Scales an image with the scaling thread pool and saves the result in the disk cache.<p>
+     *
+     * Concurrent requests for the same cache name wait for the same scaling operation,
+     * so the original image is read and scaled only once.<p>
+     *
+     * @param cms the current users OpenCms context
+     * @param resource the base VFS resource for the image
+     * @param scaler the image scaler
+     * @param cacheName the name of the scaled image in the disk cache
+     * @param wait <code>true</code> to wait for the scaled image without timeout,
+     *      and to scale it in the current thread if the queue of the thread pool is full
+     *
+     * @return the scaled image, or <code>null</code> if the caller does not wait and the queue
+     *      of the thread pool is full or the image was not scaled within the timeout
+     *
+     * @throws IOException in case of errors accessing the disk based cache
+     * @throws CmsException in case of errors accessing the OpenCms VFS
+     */
+    private byte[] scaleImage(
+        CmsObject cms,
+        CmsResource resource,
+        CmsImageScaler scaler,
+        final String cacheName,
+        boolean wait)
+    throws IOException, CmsException {
+
+        Future<byte[]> task = m_scalingTasks.get(cacheName);
+        boolean coalesced = task != null;
+        if (task == null) {
+            FutureTask<byte[]> newTask = new FutureTask<byte[]>(createScalingTask(cms, resource, scaler, cacheName)) {
+
+                @Override
+                protected void done() {
+
+                    m_scalingTasks.remove(cacheName, this);
+                }
+            };
+            task = m_scalingTasks.putIfAbsent(cacheName, newTask);
+            coalesced = task != null;
+            if (task == null) {
+                task = newTask;
+                try {
+                    m_scalingExecutor.execute(newTask);
+                } catch (RejectedExecutionException e) {
+                    if (wait) {
+                        // the scaled image is required, so it is scaled in the current thread
+                        newTask.run();
+                    } else {
+                        // cancelling the task also removes it from the running scaling operations
+                        newTask.cancel(false);
+                    }
+                }
+            }
+        }
+        if (coalesced) {
+            m_scalingStatistics.addCoalesced();
+        }
+        try {
+            if (wait) {
+                return task.get();
+            }
+            return task.get(m_scalingTimeout, TimeUnit.MILLISECONDS);
+        } catch (CancellationException e) {
+            if (wait) {
+                // the scaling operation of another request has been rejected, try again with a new one
+                return scaleImage(cms, resource, scaler, cacheName, true);
+            }
+            m_scalingStatistics.addRejected();
+            LOG.warn(Messages.get().getBundle().key(Messages.LOG_IMAGE_SCALING_REJECTED_1, resource.getRootPath()));
+        } catch (TimeoutException e) {
+            // the scaling goes on, later requests will find the scaled image in the cache
+            m_scalingStatistics.addTimedOut();
+            LOG.warn(
+                Messages.get().getBundle().key(
+                    Messages.LOG_IMAGE_SCALING_TIMEOUT_2,
+                    resource.getRootPath(),
+                    new Integer(m_scalingTimeout)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            }
+            if (cause instanceof CmsException) {
+                throw (CmsException)cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new CmsLoaderException(
+                Messages.get().container(
+                    Messages.ERR_UNABLE_TO_SCALE_IMAGE_2,
+                    resource.getRootPath(),
+                    scaler.toString()),
+                cause);
+        }
+        return null;
+    }
+}
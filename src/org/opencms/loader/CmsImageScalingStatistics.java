@@ -0,0 +1,297 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.loader;
+
+import org.opencms.main.CmsLog;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Records the cache hits and the scaling times of the image loader.<p>
+ *
+ * The statistics are available as MXBean with the name {@link #OBJECT_NAME}.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsImageScalingStatistics implements I_CmsImageScalingStatistics {
+
+    /** The name of the MXBean. */
+    public static final String OBJECT_NAME = "org.opencms:type=ImageScalingStatistics";
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsImageScalingStatistics.class);
+
+    /** The number of cache hits. */
+    private AtomicLong m_cacheHits = new AtomicLong();
+
+    /** The number of cache misses. */
+    private AtomicLong m_cacheMisses = new AtomicLong();
+
+    /** The number of coalesced requests. */
+    private AtomicLong m_coalesced = new AtomicLong();
+
+    /** The executor which scales the images. */
+    private ThreadPoolExecutor m_executor;
+
+    /** The number of rejected requests. */
+    private AtomicLong m_rejected = new AtomicLong();
+
+    /** The number of images scaled. */
+    private AtomicLong m_scaled = new AtomicLong();
+
+    /** The maximum scaling time. */
+    private AtomicLong m_scalingTimeMax = new AtomicLong();
+
+    /** The total scaling time. */
+    private AtomicLong m_scalingTimeTotal = new AtomicLong();
+
+    /** The number of timed out requests. */
+    private AtomicLong m_timedOut = new AtomicLong();
+
+    /**
+     * Creates new statistics.<p>
+     *
+     * @param executor the executor which scales the images
+     */
+    public CmsImageScalingStatistics(ThreadPoolExecutor executor) {
+
+        m_executor = executor;
+    }
+
+    /**
+     * Records a request served from the image cache.<p>
+     */
+    public void addCacheHit() {
+
+        m_cacheHits.incrementAndGet();
+    }
+
+    /**
+     * Records a request for an image not found in the image cache.<p>
+     */
+    public void addCacheMiss() {
+
+        m_cacheMisses.incrementAndGet();
+    }
+
+    /**
+     * Records a request which waits for the scaling started by another request.<p>
+     */
+    public void addCoalesced() {
+
+        m_coalesced.incrementAndGet();
+    }
+
+    /**
+     * Records a request rejected because the scaling queue was full.<p>
+     */
+    public void addRejected() {
+
+        m_rejected.incrementAndGet();
+    }
+
+    /**
+     * Records a scaled image.<p>
+     *
+     * @param time the time in milliseconds needed to read and scale the image
+     */
+    public void addScaling(long time) {
+
+        m_scaled.incrementAndGet();
+        m_scalingTimeTotal.addAndGet(time);
+        long max = m_scalingTimeMax.get();
+        while ((time > max) && !m_scalingTimeMax.compareAndSet(max, time)) {
+            max = m_scalingTimeMax.get();
+        }
+    }
+
+    /**
+     * Records a request which gave up waiting for the scaled image.<p>
+     */
+    public void addTimedOut() {
+
+        m_timedOut.incrementAndGet();
+    }
+
+    /**
+     * @see org.opencms.loader.I_CmsImageScalingStatistics#getActiveScalings()
+     */
+    public int getActiveScalings() {
+
+        return m_executor.getActiveCount();
+    }
+
+    /**
+     * @see org.opencms.loader.I_CmsImageScalingStatistics#getCacheHitRate()
+     */
+    public double getCacheHitRate() {
+
+        long hits = m_cacheHits.get();
+        long requests = hits + m_cacheMisses.get();
+        return requests > 0 ? (double)hits / requests : 0;
+    }
+
+    /**
+     * @see org.opencms.loader.I_CmsImageScalingStatistics#getCacheHits()
+     */
+    public long getCacheHits() {
+
+        return m_cacheHits.get();
+    }
+
+    /**
+     * @see org.opencms.loader.I_CmsImageScalingStatistics#getCacheMisses()
+     */
+    public long getCacheMisses() {
+
+        return m_cacheMisses.get();
+    }
+
+    /**
+     * @see org.opencms.loader.I_CmsImageScalingStatistics#getCoalescedRequests()
+     */
+    public long getCoalescedRequests() {
+
+        return m_coalesced.get();
+    }
+
+    /**
+     * @see org.opencms.loader.I_CmsImageScalingStatistics#getQueuedScalings()
+     */
+    public int getQueuedScalings() {
+
+        return m_executor.getQueue().size();
+    }
+
+    /**
+     * @see org.opencms.loader.I_CmsImageScalingStatistics#getRejectedRequests()
+     */
+    public long getRejectedRequests() {
+
+        return m_rejected.get();
+    }
+
+    /**
+     * @see org.opencms.loader.I_CmsImageScalingStatistics#getScaledImages()
+     */
+    public long getScaledImages() {
+
+        return m_scaled.get();
+    }
+
+    /**
+     * @see org.opencms.loader.I_CmsImageScalingStatistics#getScalingTimeAverage()
+     */
+    public long getScalingTimeAverage() {
+
+        long scaled = m_scaled.get();
+        return scaled > 0 ? m_scalingTimeTotal.get() / scaled : 0;
+    }
+
+    /**
+     * @see org.opencms.loader.I_CmsImageScalingStatistics#getScalingTimeMax()
+     */
+    public long getScalingTimeMax() {
+
+        return m_scalingTimeMax.get();
+    }
+
+    /**
+     * @see org.opencms.loader.I_CmsImageScalingStatistics#getScalingTimeTotal()
+     */
+    public long getScalingTimeTotal() {
+
+        return m_scalingTimeTotal.get();
+    }
+
+    /**
+     * @see org.opencms.loader.I_CmsImageScalingStatistics#getTimedOutRequests()
+     */
+    public long getTimedOutRequests() {
+
+        return m_timedOut.get();
+    }
+
+    /**
+     * Registers the MXBean.<p>
+     */
+    public void register() {
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                // replace the statistics of a previous loader instance
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (Exception e) {
+            LOG.warn(
+                Messages.get().getBundle().key(Messages.LOG_IMAGE_SCALING_STATISTICS_JMX_FAILED_1, OBJECT_NAME),
+                e);
+        }
+    }
+
+    /**
+     * @see org.opencms.loader.I_CmsImageScalingStatistics#reset()
+     */
+    public void reset() {
+
+        m_cacheHits.set(0);
+        m_cacheMisses.set(0);
+        m_coalesced.set(0);
+        m_rejected.set(0);
+        m_scaled.set(0);
+        m_scalingTimeMax.set(0);
+        m_scalingTimeTotal.set(0);
+        m_timedOut.set(0);
+    }
+
+    /**
+     * Unregisters the MXBean.<p>
+     */
+    public void unregister() {
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (Exception e) {
+            LOG.debug(e.getLocalizedMessage(), e);
+        }
+    }
+}
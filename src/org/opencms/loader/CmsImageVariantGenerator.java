@@ -0,0 +1,333 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.loader;
+
+import org.opencms.db.CmsPublishedResource;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProject;
+import org.opencms.file.CmsResource;
+import org.opencms.file.CmsResourceFilter;
+import org.opencms.file.types.CmsResourceTypeImage;
+import org.opencms.i18n.CmsLocaleManager;
+import org.opencms.main.CmsException;
+import org.opencms.main.CmsLog;
+import org.opencms.main.OpenCms;
+import org.opencms.report.CmsLogReport;
+import org.opencms.report.I_CmsReport;
+import org.opencms.util.CmsUUID;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.commons.logging.Log;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Generates the scaled variants of published images in the background,
+ * so the first visitors after a publish do not have to wait for the image scaling.<p>
+ *
+ * The variants generated for an image are the configured scale parameters,
+ * see {@link CmsImageLoader#CONFIGURATION_PREGENERATE_VARIANT}, and the scale parameters
+ * which have been served for the image in the Online project before, either from the image cache
+ * or after scaling it.
+ * Scale parameters with only a width or a height are completed using the <code>image.size</code> property,
+ * like the image tag does.<p>
+ *
+ * The images of one publish job are processed one after the other by a single thread,
+ * which uses the scaling thread pool of the image loader and waits for each variant,
+ * optionally with a delay between the variants. The progress is written to a log report.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsImageVariantGenerator {
+
+    /** The maximum number of images the requested scale parameters are remembered for. */
+    public static final int MAX_RECORDED_IMAGES = 5000;
+
+    /** The maximum number of requested scale parameters remembered per image. */
+    public static final int MAX_RECORDED_VARIANTS = 16;
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsImageVariantGenerator.class);
+
+    /** The admin CMS context in the Online project. */
+    private volatile CmsObject m_cms;
+
+    /** The delay in milliseconds between two generated variants. */
+    private long m_delay;
+
+    /** The executor processing the publish jobs. */
+    private ExecutorService m_executor;
+
+    /** The image loader. */
+    private CmsImageLoader m_loader;
+
+    /** The scale parameters served in the Online project, by structure id of the image. */
+    private ConcurrentMap<CmsUUID, Set<String>> m_requestedVariants;
+
+    /** The configured scale parameters. */
+    private List<String> m_variants;
+
+    /**
+     * Creates a new variant generator.<p>
+     *
+     * @param loader the image loader
+     * @param variants the configured scale parameters
+     * @param delay the delay in milliseconds between two generated variants
+     */
+    public CmsImageVariantGenerator(CmsImageLoader loader, List<String> variants, long delay) {
+
+        m_loader = loader;
+        m_variants = new ArrayList<String>(variants);
+        m_delay = Math.max(0, delay);
+        Cache<CmsUUID, Set<String>> requestedVariants = CacheBuilder.newBuilder().maximumSize(
+            MAX_RECORDED_IMAGES).build();
+        m_requestedVariants = requestedVariants.asMap();
+        m_executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+            public Thread newThread(Runnable r) {
+
+                Thread thread = new Thread(r, "OpenCms: Image variant generator");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Generates the scaled variants of the images published with the given publish job in the background.<p>
+     *
+     * Nothing is done if the generator has not been initialized yet.<p>
+     *
+     * @param publishHistoryId the publish history id of the publish job
+     */
+    public void generateVariants(final CmsUUID publishHistoryId) {
+
+        if (m_cms == null) {
+            return;
+        }
+        m_executor.execute(new Runnable() {
+
+            public void run() {
+
+                generateVariants(publishHistoryId, new CmsLogReport(
+                    CmsLocaleManager.getDefaultLocale(),
+                    CmsImageVariantGenerator.class));
+            }
+        });
+    }
+
+    /**
+     * Returns the configured scale parameters.<p>
+     *
+     * @return the configured scale parameters
+     */
+    public List<String> getConfiguredVariants() {
+
+        return Collections.unmodifiableList(m_variants);
+    }
+
+    /**
+     * Returns the delay in milliseconds between two generated variants.<p>
+     *
+     * @return the delay in milliseconds between two generated variants
+     */
+    public long getDelay() {
+
+        return m_delay;
+    }
+
+    /**
+     * Returns the image scalers for the variants to generate for the given image.<p>
+     *
+     * @param cms the current OpenCms user context
+     * @param image the image
+     *
+     * @return the image scalers for the variants to generate, without duplicates
+     */
+    public List<CmsImageScaler> getVariants(CmsObject cms, CmsResource image) {
+
+        Set<String> parameters = new LinkedHashSet<String>(m_variants);
+        Set<String> requested = m_requestedVariants.get(image.getStructureId());
+        if (requested != null) {
+            parameters.addAll(requested);
+        }
+        CmsImageScaler original = new CmsImageScaler(cms, image);
+        Set<String> known = new LinkedHashSet<String>();
+        List<CmsImageScaler> result = new ArrayList<CmsImageScaler>();
+        for (String parameter : parameters) {
+            CmsImageScaler scaler = new CmsImageScaler(parameter);
+            if (!scaler.isValid() && original.isValid()) {
+                // calculate the missing dimension from the original image size
+                scaler = original.getReScaler(scaler);
+            }
+            if (scaler.isValid() && known.add(scaler.toString())) {
+                result.add(scaler);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Initializes the generator with an admin OpenCms user context.<p>
+     *
+     * @param cms an OpenCms user context with permissions to read all images
+     *
+     * @throws CmsException if something goes wrong
+     */
+    public void initialize(CmsObject cms) throws CmsException {
+
+        CmsObject onlineCms = OpenCms.initCmsObject(cms);
+        onlineCms.getRequestContext().setCurrentProject(onlineCms.readProject(CmsProject.ONLINE_PROJECT_ID));
+        m_cms = onlineCms;
+    }
+
+    /**
+     * Remembers the scale parameters of a variant which has been served for an image in the Online project.<p>
+     *
+     * Only the parameters of variants which exist in the image cache should be recorded,
+     * so clients can not fill the generator with arbitrary parameters.<p>
+     *
+     * @param image the requested image
+     * @param scaler the image scaler of the served variant
+     */
+    public void recordVariant(CmsResource image, CmsImageScaler scaler) {
+
+        Set<String> requested = m_requestedVariants.get(image.getStructureId());
+        if (requested == null) {
+            Set<String> newRequested = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+            requested = m_requestedVariants.putIfAbsent(image.getStructureId(), newRequested);
+            if (requested == null) {
+                requested = newRequested;
+            }
+        }
+        String parameters = scaler.toString();
+        // concurrent requests may exceed the limit slightly
+        if (!requested.contains(parameters) && (requested.size() < MAX_RECORDED_VARIANTS)) {
+            requested.add(parameters);
+        }
+    }
+
+    /**
+     * Stops the generator, variants of pending publish jobs are not generated.<p>
+     */
+    public void shutDown() {
+
+        m_executor.shutdownNow();
+    }
+
+    /**
+     * Generates the scaled variants of the images published with the given publish job.<p>
+     *
+     * @param publishHistoryId the publish history id of the publish job
+     * @param report the report to write the progress to
+     */
+    protected void generateVariants(CmsUUID publishHistoryId, I_CmsReport report) {
+
+        List<CmsResource> images;
+        try {
+            List<CmsUUID> imageIds = new ArrayList<CmsUUID>();
+            for (CmsPublishedResource pubRes : m_cms.readPublishedResources(publishHistoryId)) {
+                if ((pubRes.getType() == CmsResourceTypeImage.getStaticTypeId()) && !pubRes.getState().isDeleted()) {
+                    imageIds.add(pubRes.getStructureId());
+                }
+            }
+            // images which do not exist in the Online project any more are skipped
+            images = m_cms.readResources(imageIds, CmsResourceFilter.ALL);
+        } catch (CmsException e) {
+            LOG.error(e.getLocalizedMessage(), e);
+            return;
+        }
+        if (images.isEmpty()) {
+            return;
+        }
+
+        report.println(
+            Messages.get().container(Messages.RPT_IMAGE_VARIANTS_START_1, String.valueOf(images.size())),
+            I_CmsReport.FORMAT_HEADLINE);
+        int count = 0;
+        for (int i = 0; i < images.size(); i++) {
+            CmsResource image = images.get(i);
+            report.print(
+                Messages.get().container(
+                    Messages.RPT_IMAGE_VARIANTS_PROCESS_3,
+                    String.valueOf(i + 1),
+                    String.valueOf(images.size()),
+                    image.getRootPath()),
+                I_CmsReport.FORMAT_HEADLINE);
+            report.print(org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_DOTS_0));
+            List<CmsImageScaler> variants = getVariants(m_cms, image);
+            int generated = 0;
+            try {
+                for (CmsImageScaler scaler : variants) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        // the generator has been shut down
+                        return;
+                    }
+                    if (m_loader.generateVariant(m_cms, image, scaler)) {
+                        generated++;
+                        if (m_delay > 0) {
+                            Thread.sleep(m_delay);
+                        }
+                    }
+                }
+                report.println(
+                    Messages.get().container(
+                        Messages.RPT_IMAGE_VARIANTS_GENERATED_2,
+                        String.valueOf(generated),
+                        String.valueOf(variants.size())),
+                    I_CmsReport.FORMAT_OK);
+            } catch (InterruptedException e) {
+                // the generator has been shut down
+                return;
+            } catch (Exception e) {
+                report.println(e);
+            }
+            count += generated;
+        }
+        report.println(Messages.get().container(Messages.RPT_IMAGE_VARIANTS_END_0), I_CmsReport.FORMAT_HEADLINE);
+        if (LOG.isInfoEnabled()) {
+            LOG.info(
+                Messages.get().getBundle().key(
+                    Messages.LOG_IMAGE_VARIANTS_GENERATED_2,
+                    new Integer(count),
+                    new Integer(images.size())));
+        }
+    }
+}
@@ -1170,6 +1170,18 @@ public class CmsResourceManager {
             type.initialize(cms);
         }
 
+        // the dump loaders need an OpenCms user context to delete mirrored content after publishing,
+        // the image loader also to generate image variants
+        for (I_CmsResourceLoader loader : getLoaders()) {
+            if (loader instanceof CmsDumpLoader) {
+                try {
+                    ((CmsDumpLoader)loader).initialize(cms);
+                } catch (CmsException e) {
+                    LOG.error(e.getLocalizedMessage(), e);
+                }
+            }
+        }
+
         if (CmsLog.INIT.isInfoEnabled()) {
             CmsLog.INIT.info(Messages.get().getBundle().key(Messages.INIT_LOADER_CONFIG_FINISHED_0));
         }
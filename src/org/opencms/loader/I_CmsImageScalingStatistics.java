@@ -0,0 +1,129 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.loader;
+
+import javax.management.MXBean;
+
+/**
+ * Management interface of the image scaling statistics, registered in the platform MBean server
+ * with the name {@link CmsImageScalingStatistics#OBJECT_NAME}.<p>
+ *
+ * @since 10.5.0
+ */
+@MXBean
+public interface I_CmsImageScalingStatistics {
+
+    /**
+     * Returns the number of images currently scaled.<p>
+     *
+     * @return the number of images currently scaled
+     */
+    int getActiveScalings();
+
+    /**
+     * Returns the ratio of requests served from the image cache.<p>
+     *
+     * @return the cache hit rate between 0 and 1
+     */
+    double getCacheHitRate();
+
+    /**
+     * Returns the number of requests served from the image cache.<p>
+     *
+     * @return the number of cache hits
+     */
+    long getCacheHits();
+
+    /**
+     * Returns the number of requests for images not found in the image cache.<p>
+     *
+     * @return the number of cache misses
+     */
+    long getCacheMisses();
+
+    /**
+     * Returns the number of requests which waited for the scaling started by another request.<p>
+     *
+     * @return the number of coalesced requests
+     */
+    long getCoalescedRequests();
+
+    /**
+     * Returns the number of images waiting to be scaled.<p>
+     *
+     * @return the number of queued scalings
+     */
+    int getQueuedScalings();
+
+    /**
+     * Returns the number of requests which got the fallback response because the scaling queue was full.<p>
+     *
+     * @return the number of rejected requests
+     */
+    long getRejectedRequests();
+
+    /**
+     * Returns the number of images scaled.<p>
+     *
+     * @return the number of images scaled
+     */
+    long getScaledImages();
+
+    /**
+     * Returns the average time in milliseconds needed to read and scale an image.<p>
+     *
+     * @return the average scaling time
+     */
+    long getScalingTimeAverage();
+
+    /**
+     * Returns the maximum time in milliseconds needed to read and scale an image.<p>
+     *
+     * @return the maximum scaling time
+     */
+    long getScalingTimeMax();
+
+    /**
+     * Returns the total time in milliseconds needed to read and scale images.<p>
+     *
+     * @return the total scaling time
+     */
+    long getScalingTimeTotal();
+
+    /**
+     * Returns the number of requests which got the fallback response because the scaling took too long.<p>
+     *
+     * @return the number of timed out requests
+     */
+    long getTimedOutRequests();
+
+    /**
+     * Resets all counters.<p>
+     */
+    void reset();
+}
@@ -166,6 +166,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String INIT_COLLECTOR_REPLACED_1 = "INIT_COLLECTOR_REPLACED_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String INIT_CONTENT_MIRROR_PATH_2 = "INIT_CONTENT_MIRROR_PATH_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String INIT_DUPLICATE_COLLECTOR_SKIPPED_1 = "INIT_DUPLICATE_COLLECTOR_SKIPPED_1";
 
@@ -178,6 +181,12 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String INIT_IMAGE_SCALING_ENABLED_1 = "INIT_IMAGE_SCALING_ENABLED_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String INIT_IMAGE_SCALING_POOL_4 = "INIT_IMAGE_SCALING_POOL_4";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String INIT_IMAGE_VARIANTS_3 = "INIT_IMAGE_VARIANTS_3";
+
     /** Message constant for key in the resource bundle. */
     public static final String INIT_JSP_CACHE_SIZE_1 = "INIT_JSP_CACHE_SIZE_1";
 
@@ -238,6 +247,21 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_IGNORING_EXC_1 = "LOG_IGNORING_EXC_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_IMAGE_SCALED_3 = "LOG_IMAGE_SCALED_3";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_IMAGE_SCALING_REJECTED_1 = "LOG_IMAGE_SCALING_REJECTED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_IMAGE_SCALING_STATISTICS_JMX_FAILED_1 = "LOG_IMAGE_SCALING_STATISTICS_JMX_FAILED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_IMAGE_SCALING_TIMEOUT_2 = "LOG_IMAGE_SCALING_TIMEOUT_2";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_IMAGE_VARIANTS_GENERATED_2 = "LOG_IMAGE_VARIANTS_GENERATED_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_JSP_PERMCHECK_4 = "LOG_JSP_PERMCHECK_4";
 
@@ -265,6 +289,18 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_X_DIRECTIVE_DETECTED_1 = "LOG_X_DIRECTIVE_DETECTED_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String RPT_IMAGE_VARIANTS_END_0 = "RPT_IMAGE_VARIANTS_END_0";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String RPT_IMAGE_VARIANTS_GENERATED_2 = "RPT_IMAGE_VARIANTS_GENERATED_2";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String RPT_IMAGE_VARIANTS_PROCESS_3 = "RPT_IMAGE_VARIANTS_PROCESS_3";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String RPT_IMAGE_VARIANTS_START_1 = "RPT_IMAGE_VARIANTS_START_1";
+
     /** Name of the used resource bundle. */
     private static final String BUNDLE_NAME = "org.opencms.loader.messages";
 
@@ -393,6 +393,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_ERROR_EXPORT_SHUTDOWN_1 = "LOG_ERROR_EXPORT_SHUTDOWN_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_ERROR_FLEXCACHE_SHUTDOWN_1 = "LOG_ERROR_FLEXCACHE_SHUTDOWN_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_ERROR_GENERIC_0 = "LOG_ERROR_GENERIC_0";
 
@@ -450,6 +453,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_INIT_INVALID_ERROR_2 = "LOG_INIT_INVALID_ERROR_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_REQUEST_READCACHE_STATS_3 = "LOG_REQUEST_READCACHE_STATS_3";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_SESSION_CREATED_1 = "LOG_SESSION_CREATED_1";
 
@@ -42,6 +42,7 @@ import org.opencms.db.CmsDbEntryNotFoundException;
 import org.opencms.db.CmsDefaultUsers;
 import org.opencms.db.CmsExportPoint;
 import org.opencms.db.CmsLoginManager;
+import org.opencms.db.CmsRequestReadCache;
 import org.opencms.db.CmsSecurityManager;
 import org.opencms.db.CmsSqlManager;
 import org.opencms.db.CmsSubscriptionManager;
@@ -207,6 +208,9 @@ public final class OpenCmsCore {
     /** The set of configured export points. */
     private Set<CmsExportPoint> m_exportPoints;
 
+    /** The FlexCache, or <code>null</code> if it could not be initialized. */
+    private CmsFlexCache m_flexCache;
+
     /** The context objects for GWT services. */
     private Map<String, CmsGwtServiceContext> m_gwtServiceContexts;
 
@@ -246,6 +250,9 @@ public final class OpenCmsCore {
     /** The configured request handlers that handle "special" requests, for example in the static export on demand. */
     private Map<String, I_CmsRequestHandler> m_requestHandlers;
 
+    /** Indicates if repeated reads within a single online request are memoized. */
+    private boolean m_requestReadCacheEnabled;
+
     /** Stores the resource init handlers that allow modification of the requested resource. */
     private List<I_CmsResourceInit> m_resourceInitHandlers;
 
@@ -1211,6 +1218,7 @@ public final class OpenCmsCore {
                 e);
         }
         m_memoryMonitor.initialize(systemConfiguration);
+        m_requestReadCacheEnabled = systemConfiguration.getCacheSettings().isRequestReadCacheEnabled();
 
         // get the event manager from the configuration and initialize it with the events already registered
         CmsEventManager configuredEventManager = systemConfiguration.getEventManager();
@@ -1291,6 +1299,7 @@ public final class OpenCmsCore {
             getSystemInfo().setDeviceSelector(flexCacheConfiguration.getDeviceSelector());
             // pass configuration to flex cache for initialization
             flexCache = new CmsFlexCache(flexCacheConfiguration);
+            m_flexCache = flexCache;
             if (CmsLog.INIT.isInfoEnabled()) {
                 CmsLog.INIT.info(Messages.get().getBundle().key(Messages.INIT_FLEX_CACHE_FINISHED_0));
             }
@@ -1470,6 +1479,15 @@ public final class OpenCmsCore {
         } catch (Exception e) {
             CmsLog.INIT.error("Problem with clearing caches after initialization: " + e.getLocalizedMessage(), e);
         }
+
+        if (m_flexCache != null) {
+            try {
+                // must be done after clearing the caches, since this restores the entries of the last snapshot
+                m_flexCache.initialize(initCmsObject(adminCms));
+            } catch (CmsException e) {
+                throw new CmsInitException(Messages.get().container(Messages.ERR_CRITICAL_INIT_MANAGERS_0), e);
+            }
+        }
     }
 
     /**
@@ -1772,6 +1790,9 @@ public final class OpenCmsCore {
             cms = initCmsObject(req, res);
 
             if (cms.getRequestContext().getCurrentProject().isOnlineProject()) {
+                if (m_requestReadCacheEnabled) {
+                    cms.getRequestContext().setReadCache(new CmsRequestReadCache());
+                }
                 String uri = cms.getRequestContext().getUri();
                 if (OpenCms.getStaticExportManager().isExportLink(cms, uri)) {
                     // if we used the request's query string for getRfsName, clients could cause an unlimited number
@@ -1789,6 +1810,15 @@ public final class OpenCmsCore {
                 m_resourceManager.loadResource(cms, resource, req, res);
                 m_sessionManager.updateSessionInfo(cms, req);
             }
+            CmsRequestReadCache readCache = cms.getRequestContext().getReadCache();
+            if ((readCache != null) && LOG.isDebugEnabled()) {
+                LOG.debug(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_REQUEST_READCACHE_STATS_3,
+                        cms.getRequestContext().getUri(),
+                        new Integer(readCache.getHits()),
+                        new Integer(readCache.getMisses())));
+            }
 
         } catch (Throwable t) {
             errorHandling(cms, req, res, t);
@@ -1841,6 +1871,16 @@ public final class OpenCmsCore {
                         Messages.get().getBundle().key(Messages.LOG_ERROR_PUBLISH_SHUTDOWN_1, e.getMessage()),
                         e);
                 }
+                try {
+                    // write the FlexCache snapshot while the database is still available
+                    if (m_flexCache != null) {
+                        m_flexCache.shutDown();
+                    }
+                } catch (Throwable e) {
+                    CmsLog.INIT.error(
+                        Messages.get().getBundle().key(Messages.LOG_ERROR_FLEXCACHE_SHUTDOWN_1, e.getMessage()),
+                        e);
+                }
                 try {
                     // search manager must be shut down early since there may be background indexing still ongoing
                     if (m_searchManager != null) {
@@ -27,14 +27,17 @@
 
 package org.opencms.monitor;
 
+import org.opencms.cache.CmsCacheMap;
 import org.opencms.cache.CmsLruCache;
 import org.opencms.cache.CmsMemoryObjectCache;
 import org.opencms.cache.CmsVfsMemoryObjectCache;
 import org.opencms.configuration.CmsSystemConfiguration;
+import org.opencms.db.CmsAclTree;
 import org.opencms.db.CmsCacheSettings;
 import org.opencms.db.CmsDriverManager;
 import org.opencms.db.CmsPublishedResource;
 import org.opencms.db.CmsSecurityManager;
+import org.opencms.db.I_CmsDbPool;
 import org.opencms.file.CmsFile;
 import org.opencms.file.CmsGroup;
 import org.opencms.file.CmsObject;
@@ -71,6 +74,7 @@ import org.opencms.xml.CmsXmlContentDefinition;
 import org.opencms.xml.CmsXmlEntityResolver;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.Date;
@@ -88,7 +92,9 @@ import org.apache.commons.collections.buffer.SynchronizedBuffer;
 import org.apache.commons.collections.map.LRUMap;
 import org.apache.commons.logging.Log;
 
-import com.google.common.cache.CacheBuilder;
+import com.google.common.base.Predicate;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
 
 /**
  * Monitors OpenCms memory consumption.<p>
@@ -103,6 +109,8 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
     public enum CacheType {
         /** Access Control Lists cache. */
         ACL,
+        /** Tree of inherited access control entries. */
+        ACL_TREE,
         /** Content Definition cache. */
         CONTENT_DEFINITION,
         /** Group cache. */
@@ -153,12 +161,15 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         XML_ENTITY_TEMP;
     }
 
-    /** The concurrency level for the guava caches. */
-    private static final int CONCURRENCY_LEVEL = 8;
+    /** Dependency of cache entries which have been cached without their actual dependencies. */
+    private static final String DEPENDENCY_ANY = "*";
 
     /** Set interval for clearing the caches to 10 minutes. */
     private static final int INTERVAL_CLEAR = 1000 * 60 * 10;
 
+    /** The average number of resources per list the weight limit of the resource list cache is calculated with. */
+    private static final int RESOURCE_LIST_AVERAGE_SIZE = 128;
+
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsMemoryMonitor.class);
 
@@ -168,6 +179,12 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
     /** Maximum depth for object size recursion. */
     private static final int MAX_DEPTH = 5;
 
+    /** Tree of the inherited access control entries in the offline projects. */
+    private CmsAclTree m_aclTreeOffline;
+
+    /** Tree of the inherited access control entries in the online project. */
+    private CmsAclTree m_aclTreeOnline;
+
     /** Cache for access control lists. */
     private Map<String, CmsAccessControlList> m_cacheAccessControlList;
 
@@ -193,7 +210,7 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
     private Map<String, CmsOrganizationalUnit> m_cacheOrgUnit;
 
     /** Cache for permission checks. */
-    private Map<String, I_CmsPermissionHandler.CmsPermissionCheckResult> m_cachePermission;
+    private CmsCacheMap<String, I_CmsPermissionHandler.CmsPermissionCheckResult> m_cachePermission;
 
     /** Cache for offline projects. */
     private Map<String, CmsProject> m_cacheProject;
@@ -205,16 +222,16 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
     private Map<String, CmsProperty> m_cacheProperty;
 
     /** Cache for property lists. */
-    private Map<String, List<CmsProperty>> m_cachePropertyList;
+    private CmsCacheMap<String, List<CmsProperty>> m_cachePropertyList;
 
     /** Cache for published resources. */
     private Map<String, List<CmsPublishedResource>> m_cachePublishedResources;
 
     /** Cache for resources. */
-    private Map<String, CmsResource> m_cacheResource;
+    private CmsCacheMap<String, CmsResource> m_cacheResource;
 
     /** Cache for resource lists. */
-    private Map<String, List<CmsResource>> m_cacheResourceList;
+    private CmsCacheMap<String, List<CmsResource>> m_cacheResourceList;
 
     /** Cache for role lists. */
     private Map<String, List<CmsRole>> m_cacheRoleLists;
@@ -223,7 +240,7 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
     private Map<String, CmsUser> m_cacheUser;
 
     /** Cache for user groups. */
-    private Map<String, List<CmsGroup>> m_cacheUserGroups;
+    private CmsCacheMap<String, List<CmsGroup>> m_cacheUserGroups;
 
     /** Cache for user lists. */
     private Map<String, List<CmsUser>> m_cacheUserList;
@@ -310,13 +327,9 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
      *
      * @return the cache map
      */
-    @SuppressWarnings("unchecked")
-    public static <T, V> Map<T, V> createLRUCacheMap(int capacity) {
+    public static <T, V> CmsCacheMap<T, V> createLRUCacheMap(int capacity) {
 
-        CacheBuilder<?, ?> builder = CacheBuilder.newBuilder().concurrencyLevel(CONCURRENCY_LEVEL).maximumSize(
-            capacity);
-        builder.build();
-        return (Map<T, V>)(builder.build().asMap());
+        return new CmsCacheMap<T, V>(capacity);
     }
 
     /**
@@ -657,7 +670,33 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         if (m_disabled.get(CacheType.PERMISSION) != null) {
             return;
         }
-        m_cachePermission.put(key, permission);
+        m_cachePermission.put(key, permission, Collections.singletonList(DEPENDENCY_ANY));
+    }
+
+    /**
+     * Caches the given permission check result for the given resource under the given cache key.<p>
+     *
+     * The result is removed from the cache if the resource or one of its parent folders changes,
+     * and is not cached if this happened after the given snapshot was taken.<p>
+     *
+     * @param key the cache key
+     * @param permission the permission check result to cache
+     * @param resource the resource the permissions were checked for
+     * @param snapshot the snapshot of the permission cache taken before the permissions were checked
+     *
+     * @see #flushCache(CmsResource, CacheType[])
+     * @see #getCacheSnapshot(CacheType)
+     */
+    public void cachePermission(
+        String key,
+        I_CmsPermissionHandler.CmsPermissionCheckResult permission,
+        CmsResource resource,
+        long[] snapshot) {
+
+        if (m_disabled.get(CacheType.PERMISSION) != null) {
+            return;
+        }
+        m_cachePermission.put(key, permission, getPathDependencies(resource.getRootPath(), true), snapshot);
     }
 
     /**
@@ -713,7 +752,39 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         if (m_disabled.get(CacheType.PROPERTY_LIST) != null) {
             return;
         }
-        m_cachePropertyList.put(key, propertyList);
+        m_cachePropertyList.put(key, propertyList, Collections.singletonList(DEPENDENCY_ANY));
+    }
+
+    /**
+     * Caches the given property list of the given resource under the given cache key.<p>
+     *
+     * The list is removed from the cache if the properties of the resource change, or,
+     * if the properties have been searched, the properties of one of its parent folders.
+     * It is not cached if this happened after the given snapshot was taken.<p>
+     *
+     * @param key the cache key
+     * @param propertyList the property list to cache
+     * @param resource the resource the properties were read from
+     * @param search <code>true</code> if the properties of the parent folders are included in the list
+     * @param snapshot the snapshot of the property list cache taken before the properties were read
+     *
+     * @see #flushCache(CmsResource, CacheType[])
+     * @see #getCacheSnapshot(CacheType)
+     */
+    public void cachePropertyList(
+        String key,
+        List<CmsProperty> propertyList,
+        CmsResource resource,
+        boolean search,
+        long[] snapshot) {
+
+        if (m_disabled.get(CacheType.PROPERTY_LIST) != null) {
+            return;
+        }
+        List<String> dependencies = getPathDependencies(resource.getRootPath(), search);
+        // resource properties are shared by all siblings
+        dependencies.add(resource.getResourceId().toString());
+        m_cachePropertyList.put(key, propertyList, dependencies, snapshot);
     }
 
     /**
@@ -766,10 +837,28 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
      */
     public void cacheResource(String key, CmsResource resource) {
 
+        cacheResource(key, resource, m_cacheResource.snapshot());
+    }
+
+    /**
+     * Caches the given resource under the given cache key, unless the resource has changed
+     * after the given snapshot was taken.<p>
+     *
+     * @param key the cache key
+     * @param resource the resource to cache
+     * @param snapshot the snapshot of the resource cache taken before the resource was read
+     *
+     * @see #getCacheSnapshot(CacheType)
+     */
+    public void cacheResource(String key, CmsResource resource, long[] snapshot) {
+
         if (m_disabled.get(CacheType.RESOURCE) != null) {
             return;
         }
-        m_cacheResource.put(key, resource);
+        List<String> dependencies = new ArrayList<String>(2);
+        dependencies.add(resource.getStructureId().toString());
+        dependencies.add(resource.getResourceId().toString());
+        m_cacheResource.put(key, resource, dependencies, snapshot);
     }
 
     /**
@@ -783,7 +872,33 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         if (m_disabled.get(CacheType.RESOURCE_LIST) != null) {
             return;
         }
-        m_cacheResourceList.put(key, resourceList);
+        m_cacheResourceList.put(key, resourceList, Collections.singletonList(DEPENDENCY_ANY));
+    }
+
+    /**
+     * Caches the given list of resources read from the given folder under the given cache key.<p>
+     *
+     * The list is removed from the cache if a resource in the sub-tree of the folder changes,
+     * and is not cached if this happened after the given snapshot was taken.<p>
+     *
+     * @param key the cache key
+     * @param resourceList the resource list to cache
+     * @param folderRootPath the root path of the folder the resources were read from
+     * @param snapshot the snapshot of the resource list cache taken before the resources were read
+     *
+     * @see #flushCache(CmsResource, CacheType[])
+     * @see #getCacheSnapshot(CacheType)
+     */
+    public void cacheResourceList(
+        String key,
+        List<CmsResource> resourceList,
+        String folderRootPath,
+        long[] snapshot) {
+
+        if (m_disabled.get(CacheType.RESOURCE_LIST) != null) {
+            return;
+        }
+        m_cacheResourceList.put(key, resourceList, Collections.singletonList(folderRootPath), snapshot);
     }
 
     /**
@@ -922,6 +1037,7 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         flushCache(CacheType.PROPERTY_LIST);
         flushCache(CacheType.PROJECT_RESOURCES);
         flushCache(CacheType.PUBLISHED_RESOURCES);
+        flushCache(CacheType.ACL_TREE);
     }
 
     /**
@@ -1020,6 +1136,10 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
                 case ACL:
                     m_cacheAccessControlList.clear();
                     break;
+                case ACL_TREE:
+                    m_aclTreeOnline.clear();
+                    m_aclTreeOffline.clear();
+                    break;
                 case CONTENT_DEFINITION:
                     m_cacheContentDefinitions.clear();
                     break;
@@ -1098,6 +1218,50 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         }
     }
 
+    /**
+     * Removes the cache entries which depend on the given resource from the given caches.<p>
+     *
+     * This is used after changes of the content, the attributes, the properties or the lock of a resource,
+     * which do not change its path. Caches which do not track the resources their entries depend on,
+     * and all caches if the resource has siblings, are flushed completely.<p>
+     *
+     * @param resource the changed resource
+     * @param types the cache types to remove the entries from
+     */
+    public void flushCache(CmsResource resource, CacheType... types) {
+
+        if (resource.getSiblingCount() > 1) {
+            flushCache(types);
+            return;
+        }
+        String structureId = resource.getStructureId().toString();
+        String resourceId = resource.getResourceId().toString();
+        String rootPath = resource.getRootPath();
+        for (CacheType type : types) {
+            switch (type) {
+                case ACL_TREE:
+                    m_aclTreeOnline.invalidate(resource);
+                    m_aclTreeOffline.invalidate(resource);
+                    break;
+                case PERMISSION:
+                    invalidateDependents(m_cachePermission, Collections.singletonList(rootPath));
+                    break;
+                case PROPERTY_LIST:
+                    invalidateDependents(m_cachePropertyList, Arrays.asList(rootPath, resourceId));
+                    break;
+                case RESOURCE:
+                    invalidateDependents(m_cacheResource, Arrays.asList(structureId, resourceId));
+                    break;
+                case RESOURCE_LIST:
+                    // lists read from all parent folders may contain the resource, or match it now
+                    invalidateDependents(m_cacheResourceList, getPathDependencies(rootPath, true));
+                    break;
+                default:
+                    flushCache(type);
+            }
+        }
+    }
+
     /**
      * Flushes the xml content definitions cache.<p>
      *
@@ -1364,6 +1528,21 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         flushCache(CacheType.XML_ENTITY_TEMP);
     }
 
+    /**
+     * Returns the tree of inherited access control entries for the online or the offline projects.<p>
+     *
+     * @param online <code>true</code> for the tree of the online project
+     *
+     * @return the tree, or <code>null</code> if the tree is disabled
+     */
+    public CmsAclTree getAclTree(boolean online) {
+
+        if (m_disabled.get(CacheType.ACL_TREE) != null) {
+            return null;
+        }
+        return online ? m_aclTreeOnline : m_aclTreeOffline;
+    }
+
     /**
      * Returns all cached lock root paths.<p>
      *
@@ -1406,6 +1585,121 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         return new ArrayList<CmsPublishJobInfoBean>(m_publishHistory);
     }
 
+    /**
+     * Returns a snapshot of the invalidations of the given cache.<p>
+     *
+     * The snapshot must be taken before the value to cache is read, and be passed to the method
+     * caching it. If the resources the value depends on change in the meantime, the value is not cached.<p>
+     *
+     * @param type the cache type
+     *
+     * @return the snapshot, or <code>null</code> if the cache does not track the resources its entries depend on
+     *
+     * @see CmsCacheMap#snapshot()
+     */
+    public long[] getCacheSnapshot(CacheType type) {
+
+        switch (type) {
+            case PERMISSION:
+                return m_cachePermission.snapshot();
+            case PROPERTY_LIST:
+                return m_cachePropertyList.snapshot();
+            case RESOURCE:
+                return m_cacheResource.snapshot();
+            case RESOURCE_LIST:
+                return m_cacheResourceList.snapshot();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Returns the statistics of the given cache.<p>
+     *
+     * @param type the cache type
+     *
+     * @return the statistics, or <code>null</code> if the cache records no statistics
+     */
+    public CacheStats getCacheStats(CacheType type) {
+
+        Object cache;
+        switch (type) {
+            case ACL:
+                cache = m_cacheAccessControlList;
+                break;
+            case CONTENT_DEFINITION:
+                cache = m_cacheContentDefinitions;
+                break;
+            case GROUP:
+                cache = m_cacheGroup;
+                break;
+            case HAS_ROLE:
+                cache = m_cacheHasRoles;
+                break;
+            case LOCALE:
+                cache = m_cacheLocale;
+                break;
+            case MEMORY_OBJECT:
+                cache = m_cacheMemObject;
+                break;
+            case ORG_UNIT:
+                cache = m_cacheOrgUnit;
+                break;
+            case PERMISSION:
+                cache = m_cachePermission;
+                break;
+            case PROJECT:
+                cache = m_cacheProject;
+                break;
+            case PROJECT_RESOURCES:
+                cache = m_cacheProjectResources;
+                break;
+            case PROPERTY:
+                cache = m_cacheProperty;
+                break;
+            case PROPERTY_LIST:
+                cache = m_cachePropertyList;
+                break;
+            case PUBLISHED_RESOURCES:
+                cache = m_cachePublishedResources;
+                break;
+            case RESOURCE:
+                cache = m_cacheResource;
+                break;
+            case RESOURCE_LIST:
+                cache = m_cacheResourceList;
+                break;
+            case ROLE_LIST:
+                cache = m_cacheRoleLists;
+                break;
+            case USER:
+                cache = m_cacheUser;
+                break;
+            case USERGROUPS:
+                cache = m_cacheUserGroups;
+                break;
+            case USER_LIST:
+                cache = m_cacheUserList;
+                break;
+            case VFS_OBJECT:
+                cache = m_cacheVfsObject;
+                break;
+            case XML_ENTITY_PERM:
+                cache = m_cacheXmlPermanentEntity;
+                break;
+            case XML_ENTITY_TEMP:
+                cache = m_cacheXmlTemporaryEntity;
+                break;
+            default:
+                // the lock cache and the publish queues are no caches with statistics
+                cache = null;
+        }
+        if (cache instanceof CmsCacheMap) {
+            return ((CmsCacheMap<?, ?>)cache).getStats();
+        }
+        return null;
+    }
+
     /**
      * Returns the ACL cached with the given cache key or <code>null</code> if not found.<p>
      *
@@ -1842,7 +2136,7 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         register(CmsXmlEntityResolver.class.getName() + ".xmlEntityTemporaryCache", m_cacheXmlTemporaryEntity);
 
         // permanent xml entities cache
-        m_cacheXmlPermanentEntity = new ConcurrentHashMap<String, byte[]>(32);
+        m_cacheXmlPermanentEntity = new CmsCacheMap<String, byte[]>(-1);
         register(CmsXmlEntityResolver.class.getName() + ".xmlEntityPermanentCache", m_cacheXmlPermanentEntity);
 
         // xml content definitions cache
@@ -1854,7 +2148,7 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         register(CmsLockManager.class.getName(), m_cacheLock);
 
         // locale cache
-        m_cacheLocale = new ConcurrentHashMap<String, Locale>();
+        m_cacheLocale = new CmsCacheMap<String, Locale>(-1);
         register(CmsLocaleManager.class.getName(), m_cacheLocale);
 
         // permissions cache
@@ -1912,8 +2206,16 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         m_cacheRoleLists = createLRUCacheMap(cacheSettings.getRolesCacheSize());
         register(CmsDriverManager.class.getName() + ".roleListsCache", m_cacheRoleLists);
 
-        // resource list cache
-        m_cacheResourceList = createLRUCacheMap(cacheSettings.getResourcelistCacheSize());
+        // resource list cache, limited by the total number of cached resources
+        m_cacheResourceList = new CmsCacheMap<String, List<CmsResource>>(
+            (long)cacheSettings.getResourcelistCacheSize() * RESOURCE_LIST_AVERAGE_SIZE,
+            new Weigher<String, List<CmsResource>>() {
+
+                public int weigh(String key, List<CmsResource> value) {
+
+                    return value.size() + 1;
+                }
+            });
         register(CmsDriverManager.class.getName() + ".resourceListCache", m_cacheResourceList);
 
         // property cache
@@ -1932,12 +2234,19 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         m_cacheAccessControlList = createLRUCacheMap(cacheSettings.getAclCacheSize());
         register(CmsDriverManager.class.getName() + ".accessControlListCache", m_cacheAccessControlList);
 
+        // trees of inherited access control entries, only used if enabled
+        m_aclTreeOnline = new CmsAclTree();
+        m_aclTreeOffline = new CmsAclTree();
+        if (!cacheSettings.isAclTreeEnabled()) {
+            m_disabled.put(CacheType.ACL_TREE, Boolean.TRUE);
+        }
+
         // vfs object cache
-        m_cacheVfsObject = new ConcurrentHashMap<String, Object>();
+        m_cacheVfsObject = new CmsCacheMap<String, Object>(-1);
         register(CmsVfsMemoryObjectCache.class.getName(), m_cacheVfsObject);
 
         // memory object cache
-        m_cacheMemObject = new ConcurrentHashMap<String, Object>();
+        m_cacheMemObject = new CmsCacheMap<String, Object>(-1);
         register(CmsMemoryObjectCache.class.getName(), m_cacheMemObject);
 
         if (LOG.isDebugEnabled()) {
@@ -2275,6 +2584,24 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         m_cacheUser.remove(user.getName());
     }
 
+    /**
+     * Removes all group lists whose cache key ends with the given suffix from the cache.<p>
+     *
+     * @param keySuffix the suffix of the cache keys to remove
+     *
+     * @see org.opencms.db.CmsCacheKey#getUserGroupsKeySuffix(CmsUser)
+     */
+    public void uncacheUserGroups(final String keySuffix) {
+
+        m_cacheUserGroups.invalidateIf(new Predicate<String>() {
+
+            public boolean apply(String key) {
+
+                return key.endsWith(keySuffix);
+            }
+        });
+    }
+
     /**
      * Removes the given vfs object from the cache.<p>
      *
@@ -2426,7 +2753,9 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
     /**
      * Returns the max costs for all items within a monitored object.<p>
      *
-     * <code>obj</code> must be of type {@link CmsLruCache} or {@link LRUMap}.<p>
+     * <code>obj</code> must be of type {@link CmsLruCache}, {@link CmsCacheMap} or {@link LRUMap}.<p>
+     *
+     * For a {@link CmsCacheMap} limited by weight, the weight limit is returned.<p>
      *
      * @param obj the object
      *
@@ -2437,6 +2766,16 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         if (obj instanceof CmsLruCache) {
             return Long.toString(((CmsLruCache)obj).getMaxCacheCosts());
         }
+        if (obj instanceof CmsCacheMap) {
+            CmsCacheMap<?, ?> cache = (CmsCacheMap<?, ?>)obj;
+            if (cache.getMaxWeight() >= 0) {
+                return Long.toString(cache.getMaxWeight());
+            }
+            if (cache.getMaxSize() >= 0) {
+                return Long.toString(cache.getMaxSize());
+            }
+            return "-";
+        }
         if (obj instanceof LRUMap) {
             return Integer.toString(((LRUMap)obj).maxSize());
         }
@@ -2662,6 +3001,18 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
                             form.sprintf(getItems(obj)),
                             form.sprintf(getLimit(obj)),
                             form.sprintf(Long.toString(size))}));
+                if (obj instanceof CmsCacheMap) {
+                    CacheStats stats = ((CmsCacheMap<?, ?>)obj).getStats();
+                    LOG.info(
+                        Messages.get().getBundle().key(
+                            Messages.LOG_MM_CACHE_STATS_5,
+                            new Object[] {
+                                name1.sprintf(key),
+                                new Long(stats.hitCount()),
+                                new Long(stats.missCount()),
+                                new Long(stats.evictionCount()),
+                                new Long((long)(stats.averageLoadPenalty() / 1000000))}));
+                }
             }
 
             LOG.info(
@@ -2710,6 +3061,16 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
                             poolname,
                             Integer.toString(OpenCms.getSqlManager().getActiveConnections(poolname)),
                             Integer.toString(OpenCms.getSqlManager().getIdleConnections(poolname))));
+                    I_CmsDbPool pool = OpenCms.getSqlManager().getConnectionPool(poolname);
+                    LOG.info(
+                        Messages.get().getBundle().key(
+                            Messages.LOG_MM_CONNECTION_STATS_5,
+                            new Object[] {
+                                poolname,
+                                new Long(pool.getBorrowCount()),
+                                new Long(pool.getBorrowWaitMillis()),
+                                new Long(pool.getMaxBorrowWaitMillis()),
+                                new Integer(pool.getLeakedConnections())}));
                 } catch (Exception exc) {
                     LOG.info(
                         Messages.get().getBundle().key(
@@ -2736,4 +3097,41 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         m_memoryCurrent.update();
         m_memoryAverage.calculateAverage(m_memoryCurrent);
     }
+
+    /**
+     * Returns the dependencies of a cache entry calculated from the resource with the given root path.<p>
+     *
+     * @param rootPath the root path of the resource
+     * @param includeParents <code>true</code> if the entry also depends on the parent folders of the resource
+     *
+     * @return the dependencies
+     */
+    private List<String> getPathDependencies(String rootPath, boolean includeParents) {
+
+        List<String> dependencies = new ArrayList<String>();
+        dependencies.add(rootPath);
+        if (includeParents) {
+            String parent = CmsResource.getParentFolder(rootPath);
+            while (parent != null) {
+                dependencies.add(parent);
+                parent = CmsResource.getParentFolder(parent);
+            }
+        }
+        return dependencies;
+    }
+
+    /**
+     * Removes the entries depending on one of the given dependencies from the given cache,
+     * as well as all entries cached without their dependencies.<p>
+     *
+     * @param cache the cache
+     * @param dependencies the changed dependencies
+     */
+    private void invalidateDependents(CmsCacheMap<String, ?> cache, List<String> dependencies) {
+
+        cache.invalidateDependents(DEPENDENCY_ANY);
+        for (String dependency : dependencies) {
+            cache.invalidateDependents(dependency);
+        }
+    }
 }
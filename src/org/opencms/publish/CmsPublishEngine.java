@@ -50,16 +50,22 @@ import org.opencms.security.CmsAuthentificationException;
 import org.opencms.security.CmsRole;
 import org.opencms.util.CmsUUID;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.commons.logging.Log;
 
 /**
  * This class is responsible for the publish process.<p>
  *
+ * Up to the configured maximum number of publish jobs are published concurrently,
+ * as long as their resources do not overlap, see {@link CmsPublishQueue#next(List)}.<p>
+ *
  * @since 6.5.5
  */
 public final class CmsPublishEngine {
@@ -70,9 +76,6 @@ public final class CmsPublishEngine {
     /** The id of the admin user. */
     private CmsUUID m_adminUserId;
 
-    /** The current running publish job. */
-    private CmsPublishThread m_currentPublishThread;
-
     /** The runtime info factory used during publishing. */
     private final I_CmsDbContextFactory m_dbContextFactory;
 
@@ -82,9 +85,21 @@ public final class CmsPublishEngine {
     /** The engine state. */
     private CmsPublishEngineState m_engineState;
 
+    /** The number of times a free publish slot could not be used since all waiting publish jobs conflicted. */
+    private long m_conflictCount;
+
     /** The publish listeners. */
     private final CmsPublishListenerCollection m_listeners;
 
+    /** The maximum number of concurrently running publish jobs. */
+    private int m_maxConcurrentJobs = CmsPublishManager.DEFAULT_MAX_CONCURRENT_JOBS;
+
+    /** The maximum time in milliseconds a started publish job had to wait in the queue. */
+    private long m_maxWaitTime;
+
+    /** The highest number of concurrently running publish jobs. */
+    private int m_peakRunningJobs;
+
     /** The publish history list with already published jobs. */
     private final CmsPublishHistory m_publishHistory;
 
@@ -94,9 +109,18 @@ public final class CmsPublishEngine {
     /** The amount of time the system will wait for a running publish job during shutdown. */
     private int m_publishQueueShutdowntime;
 
+    /** The currently running publish threads, in the order they have been started. */
+    private final List<CmsPublishThread> m_runningPublishThreads = new CopyOnWriteArrayList<CmsPublishThread>();
+
     /** Is set during shutdown. */
     private boolean m_shuttingDown;
 
+    /** The number of publish jobs started since the engine was initialized. */
+    private long m_startedJobs;
+
+    /** The accumulated time in milliseconds the started publish jobs had to wait in the queue. */
+    private long m_totalWaitTime;
+
     /**
      * Default constructor.<p>
      *
@@ -132,28 +156,28 @@ public final class CmsPublishEngine {
     }
 
     /**
-     * Abandons the given publish thread.<p>
+     * Abandons the longest running publish thread.<p>
      */
     public void abandonThread() {
 
-        if (!m_currentPublishThread.isAlive()) {
-            // thread is dead
-            if (LOG.isDebugEnabled()) {
-                LOG.debug(Messages.get().getBundle().key(Messages.LOG_PUBLISH_ENGINE_DEAD_JOB_0));
-            }
-        } else {
-            // thread is not dead, and we suppose it hangs :(
-            if (LOG.isWarnEnabled()) {
-                LOG.warn(
-                    Messages.get().getBundle().key(
-                        Messages.LOG_THREADSTORE_PUBLISH_THREAD_INTERRUPT_2,
-                        m_currentPublishThread.getName(),
-                        m_currentPublishThread.getUUID()));
-            }
-            m_currentPublishThread.interrupt();
+        CmsPublishThread thread = getCurrentPublishJob();
+        if (thread != null) {
+            abandonThread(thread.getUUID());
         }
-        // just throw it away
-        m_currentPublishThread = null;
+    }
+
+    /**
+     * Abandons the running publish thread with the given id.<p>
+     *
+     * @param threadUUID the id of the publish thread to abandon
+     */
+    public void abandonThread(CmsUUID threadUUID) {
+
+        CmsPublishThread thread = getRunningPublishThread(threadUUID);
+        if (thread == null) {
+            return;
+        }
+        removeThread(thread);
         // and try again
         checkCurrentPublishJobThread();
     }
@@ -186,31 +210,52 @@ public final class CmsPublishEngine {
             return;
         }
 
-        // there is no running publish job
-        if (m_currentPublishThread == null) {
-            // but something is waiting in the queue
-            if (!m_publishQueue.isEmpty()) {
-                // start the next waiting publish job
-                CmsPublishJobInfoBean publishJob = m_publishQueue.next();
-                m_currentPublishThread = new CmsPublishThread(this, publishJob);
-                m_currentPublishThread.start();
-            } else {
+        // clean up dead threads
+        for (CmsPublishThread thread : m_runningPublishThreads) {
+            if (!thread.isAlive()) {
+                removeThread(thread);
+            }
+        }
+
+        // start waiting publish jobs as long as there are free slots
+        while (m_runningPublishThreads.size() < m_maxConcurrentJobs) {
+            if (m_publishQueue.isEmpty()) {
                 // nothing to do
-                if (LOG.isDebugEnabled()) {
+                if (LOG.isDebugEnabled() && m_runningPublishThreads.isEmpty()) {
                     LOG.debug(Messages.get().getBundle().key(Messages.LOG_PUBLISH_ENGINE_NO_RUNNING_JOB_0));
                 }
+                return;
             }
-            return;
-        }
-        if (m_currentPublishThread.isAlive()) {
-            // normal running
-            // wait until it is finished
-            if (LOG.isDebugEnabled()) {
-                LOG.debug(Messages.get().getBundle().key(Messages.LOG_PUBLISH_ENGINE_WAITING_0));
+            List<CmsPublishJobInfoBean> runningJobs = new ArrayList<CmsPublishJobInfoBean>();
+            for (CmsPublishThread thread : m_runningPublishThreads) {
+                runningJobs.add(thread.getPublishJob());
             }
-        } else {
-            // clean up the dead thread
-            abandonThread();
+            CmsPublishJobInfoBean publishJob = m_publishQueue.next(runningJobs);
+            if (publishJob == null) {
+                // all waiting jobs have to wait for the running jobs
+                m_conflictCount++;
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug(
+                        Messages.get().getBundle().key(
+                            Messages.LOG_PUBLISH_ENGINE_CONFLICTING_JOBS_1,
+                            new Integer(runningJobs.size())));
+                }
+                return;
+            }
+            // start the next waiting publish job
+            long waitTime = System.currentTimeMillis() - publishJob.getEnqueueTime();
+            m_startedJobs++;
+            m_totalWaitTime += waitTime;
+            m_maxWaitTime = Math.max(m_maxWaitTime, waitTime);
+            CmsPublishThread thread = new CmsPublishThread(this, publishJob);
+            m_runningPublishThreads.add(thread);
+            m_peakRunningJobs = Math.max(m_peakRunningJobs, m_runningPublishThreads.size());
+            thread.start();
+        }
+        // normal running
+        // wait until a running job is finished
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(Messages.get().getBundle().key(Messages.LOG_PUBLISH_ENGINE_WAITING_0));
         }
     }
 
@@ -272,10 +317,11 @@ public final class CmsPublishEngine {
      */
     public CmsPublishJobBase getJobByPublishHistoryId(CmsUUID publishHistoryId) {
 
-        // try current running job
-        if ((m_currentPublishThread != null)
-            && m_currentPublishThread.getPublishJob().getPublishHistoryId().equals(publishHistoryId)) {
-            return new CmsPublishJobRunning(m_currentPublishThread.getPublishJob());
+        // try current running jobs
+        for (CmsPublishThread thread : m_runningPublishThreads) {
+            if (thread.getPublishJob().getPublishHistoryId().equals(publishHistoryId)) {
+                return new CmsPublishJobRunning(thread.getPublishJob());
+            }
         }
         // try enqueued jobs
         Iterator<CmsPublishJobEnqueued> itEnqueuedJobs = getPublishQueue().asList().iterator();
@@ -334,10 +380,10 @@ public final class CmsPublishEngine {
         // prevent new publish jobs are accepted
         m_shuttingDown = true;
 
-        // if a job is currently running,
+        // if jobs are currently running,
         // wait the specified amount of time,
-        // then write an abort message to the report
-        if (m_currentPublishThread != null) {
+        // then write an abort message to the reports
+        if (!m_runningPublishThreads.isEmpty()) {
 
             // if a shutdown time is defined, wait  if a publish process is running
             if (m_publishQueueShutdowntime > 0) {
@@ -350,8 +396,8 @@ public final class CmsPublishEngine {
                 }
             }
 
-            if (m_currentPublishThread != null) {
-                CmsPublishJobInfoBean publishJob = m_currentPublishThread.getPublishJob();
+            for (CmsPublishThread thread : m_runningPublishThreads) {
+                CmsPublishJobInfoBean publishJob = thread.getPublishJob();
                 try {
                     abortPublishJob(m_adminUserId, new CmsPublishJobEnqueued(publishJob), false);
                 } catch (CmsException e) {
@@ -398,9 +444,15 @@ public final class CmsPublishEngine {
         // abort event should be raised before the job is removed implicitly
         m_listeners.fireAbort(userId, publishJob);
 
-        if ((m_currentPublishThread == null)
-            || !publishJob.m_publishJob.equals(m_currentPublishThread.getPublishJob())) {
-            // engine is currently publishing another job or is not publishing
+        CmsPublishThread runningThread = null;
+        for (CmsPublishThread thread : m_runningPublishThreads) {
+            if (publishJob.m_publishJob.equals(thread.getPublishJob())) {
+                runningThread = thread;
+                break;
+            }
+        }
+        if (runningThread == null) {
+            // engine is currently publishing other jobs or is not publishing
             if (!m_publishQueue.abortPublishJob(publishJob.m_publishJob)) {
                 // job not found
                 throw new CmsPublishException(
@@ -408,10 +460,10 @@ public final class CmsPublishEngine {
             }
         } else if (!m_shuttingDown) {
             // engine is currently publishing the job to abort
-            m_currentPublishThread.abort();
-        } else if (m_shuttingDown && (m_currentPublishThread != null)) {
-            // aborting the current job during shut down
-            I_CmsReport report = m_currentPublishThread.getReport();
+            runningThread.abort();
+        } else {
+            // aborting a running job during shut down
+            I_CmsReport report = runningThread.getReport();
             report.println();
             report.println();
             report.println(
@@ -458,20 +510,43 @@ public final class CmsPublishEngine {
     protected void enableEngine() {
 
         m_engineState = CmsPublishEngineState.ENGINE_STARTED;
-        // start publish job if jobs waiting
-        if ((m_currentPublishThread == null) && !m_publishQueue.isEmpty()) {
+        // start publish jobs if jobs waiting
+        if (!m_publishQueue.isEmpty()) {
             checkCurrentPublishJobThread();
         }
     }
 
     /**
-     * Returns the current running publish job.<p>
+     * Returns the average time in milliseconds the started publish jobs had to wait in the queue.<p>
      *
-     * @return the current running publish job
+     * @return the average queue wait time
+     */
+    protected long getAverageWaitTime() {
+
+        long startedJobs = m_startedJobs;
+        return startedJobs == 0 ? 0 : m_totalWaitTime / startedJobs;
+    }
+
+    /**
+     * Returns the number of times a free publish slot could not be used,
+     * since all waiting publish jobs conflicted with the running publish jobs.<p>
+     *
+     * @return the number of conflicts
+     */
+    protected long getConflictCount() {
+
+        return m_conflictCount;
+    }
+
+    /**
+     * Returns the longest running publish job.<p>
+     *
+     * @return the longest running publish job, or <code>null</code> if no job is running
      */
     protected CmsPublishThread getCurrentPublishJob() {
 
-        return m_currentPublishThread;
+        Iterator<CmsPublishThread> it = m_runningPublishThreads.iterator();
+        return it.hasNext() ? it.next() : null;
     }
 
     /**
@@ -496,6 +571,36 @@ public final class CmsPublishEngine {
         return m_driverManager;
     }
 
+    /**
+     * Returns the maximum number of concurrently running publish jobs.<p>
+     *
+     * @return the maximum number of concurrently running publish jobs
+     */
+    protected int getMaxConcurrentJobs() {
+
+        return m_maxConcurrentJobs;
+    }
+
+    /**
+     * Returns the maximum time in milliseconds a publish job had to wait in the queue before it was started.<p>
+     *
+     * @return the maximum queue wait time
+     */
+    protected long getMaxWaitTime() {
+
+        return m_maxWaitTime;
+    }
+
+    /**
+     * Returns the highest number of concurrently running publish jobs.<p>
+     *
+     * @return the highest number of concurrently running publish jobs
+     */
+    protected int getPeakRunningJobs() {
+
+        return m_peakRunningJobs;
+    }
+
     /**
      * Returns the publish history list with already publish job.<p>
      *
@@ -540,6 +645,26 @@ public final class CmsPublishEngine {
         return result;
     }
 
+    /**
+     * Returns the currently running publish threads, in the order they have been started.<p>
+     *
+     * @return the running publish threads
+     */
+    protected List<CmsPublishThread> getRunningPublishJobs() {
+
+        return Collections.unmodifiableList(new ArrayList<CmsPublishThread>(m_runningPublishThreads));
+    }
+
+    /**
+     * Returns the number of publish jobs started since the engine was initialized.<p>
+     *
+     * @return the number of started publish jobs
+     */
+    protected long getStartedJobs() {
+
+        return m_startedJobs;
+    }
+
     /**
      * Returns the user identified by the given id.<p>
      *
@@ -567,10 +692,15 @@ public final class CmsPublishEngine {
      * @param adminCms the admin cms
      * @param publishQueuePersistance flag if the queue is persisted
      * @param publishQueueShutdowntime amount of time to wait for a publish job during shutdown
+     * @param maxConcurrentJobs the maximum number of concurrently running publish jobs
      *
      * @throws CmsException if something goes wrong
      */
-    protected void initialize(CmsObject adminCms, boolean publishQueuePersistance, int publishQueueShutdowntime)
+    protected void initialize(
+        CmsObject adminCms,
+        boolean publishQueuePersistance,
+        int publishQueueShutdowntime,
+        int maxConcurrentJobs)
     throws CmsException {
 
         // check the driver manager
@@ -579,6 +709,13 @@ public final class CmsPublishEngine {
         }
 
         m_publishQueueShutdowntime = publishQueueShutdowntime;
+        m_maxConcurrentJobs = Math.max(1, maxConcurrentJobs);
+        if (CmsLog.INIT.isInfoEnabled()) {
+            CmsLog.INIT.info(
+                Messages.get().getBundle().key(
+                    Messages.INIT_PUBLISH_MAX_CONCURRENT_JOBS_1,
+                    new Integer(m_maxConcurrentJobs)));
+        }
 
         // initially the engine is stopped, must be restartet after full system initialization
         m_engineState = CmsPublishEngineState.ENGINE_STOPPED;
@@ -598,7 +735,7 @@ public final class CmsPublishEngine {
     protected boolean isRunning() {
 
         return (((m_engineState == CmsPublishEngineState.ENGINE_STARTED) && !m_publishQueue.isEmpty())
-            || (m_currentPublishThread != null));
+            || !m_runningPublishThreads.isEmpty());
     }
 
     /**
@@ -693,10 +830,8 @@ public final class CmsPublishEngine {
             // log failure, most likely a database problem
             LOG.error(t.getLocalizedMessage(), t);
         }
-        if (Thread.currentThread() == m_currentPublishThread) {
-            // wipe the dead thread, only if this thread has not been abandoned
-            m_currentPublishThread = null;
-        }
+        // wipe the finished thread, if it has not been abandoned
+        m_runningPublishThreads.remove(Thread.currentThread());
         // clear the published resources cache
         OpenCms.getMemoryMonitor().flushCache(CmsMemoryMonitor.CacheType.PUBLISHED_RESOURCES);
         // try to start a new publish job
@@ -770,8 +905,8 @@ public final class CmsPublishEngine {
 
         if (m_engineState != CmsPublishEngineState.ENGINE_STARTED) {
             m_engineState = CmsPublishEngineState.ENGINE_STARTED;
-            // start publish job if jobs waiting
-            if ((m_currentPublishThread == null) && !m_publishQueue.isEmpty()) {
+            // start publish jobs if jobs waiting
+            if (!m_publishQueue.isEmpty()) {
                 checkCurrentPublishJobThread();
             }
         }
@@ -812,6 +947,23 @@ public final class CmsPublishEngine {
         }
     }
 
+    /**
+     * Returns the running publish thread with the given id.<p>
+     *
+     * @param threadUUID the thread id
+     *
+     * @return the running publish thread, or <code>null</code> if not found
+     */
+    private CmsPublishThread getRunningPublishThread(CmsUUID threadUUID) {
+
+        for (CmsPublishThread thread : m_runningPublishThreads) {
+            if (thread.getUUID().equals(threadUUID)) {
+                return thread;
+            }
+        }
+        return null;
+    }
+
     /**
      * Returns <code>true</code> if the login manager allows login.<p>
      *
@@ -831,4 +983,31 @@ public final class CmsPublishEngine {
             return false;
         }
     }
+
+    /**
+     * Removes the given publish thread from the running threads, interrupting it if it is still alive.<p>
+     *
+     * @param thread the publish thread to remove
+     */
+    private void removeThread(CmsPublishThread thread) {
+
+        if (!thread.isAlive()) {
+            // thread is dead
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(Messages.get().getBundle().key(Messages.LOG_PUBLISH_ENGINE_DEAD_JOB_0));
+            }
+        } else {
+            // thread is not dead, and we suppose it hangs :(
+            if (LOG.isWarnEnabled()) {
+                LOG.warn(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_THREADSTORE_PUBLISH_THREAD_INTERRUPT_2,
+                        thread.getName(),
+                        thread.getUUID()));
+            }
+            thread.interrupt();
+        }
+        // just throw it away
+        m_runningPublishThreads.remove(thread);
+    }
 }
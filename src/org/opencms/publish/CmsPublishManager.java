@@ -69,6 +69,9 @@ public class CmsPublishManager {
     /** The default history size. */
     public static final int DEFAULT_HISTORY_SIZE = 100;
 
+    /** The default maximum number of concurrently running publish jobs. */
+    public static final int DEFAULT_MAX_CONCURRENT_JOBS = 1;
+
     /** The default persistence setting for the publish queue. */
     public static final boolean DEFAULT_QUEUE_PERSISTANCE = false;
 
@@ -81,6 +84,9 @@ public class CmsPublishManager {
     /** Indicates if the configuration can be modified. */
     private boolean m_frozen;
 
+    /** The maximum number of concurrently running publish jobs. */
+    private int m_maxConcurrentJobs = DEFAULT_MAX_CONCURRENT_JOBS;
+
     /** The underlying publish engine. */
     private CmsPublishEngine m_publishEngine;
 
@@ -128,13 +134,23 @@ public class CmsPublishManager {
     }
 
     /**
-     * Abandons the current publish thread.<p>
+     * Abandons the longest running publish thread.<p>
      */
     public void abandonThread() {
 
         m_publishEngine.abandonThread();
     }
 
+    /**
+     * Abandons the running publish thread with the given id.<p>
+     *
+     * @param threadUUID the id of the publish thread to abandon
+     */
+    public void abandonThread(CmsUUID threadUUID) {
+
+        m_publishEngine.abandonThread(threadUUID);
+    }
+
     /**
      * Aborts the given publish job.<p>
      *
@@ -195,10 +211,24 @@ public class CmsPublishManager {
         m_publishEngine.enableEngine();
     }
 
+    /**
+     * Returns the average time in milliseconds the publish jobs had to wait in the queue before they were started.<p>
+     *
+     * @return the average queue wait time
+     */
+    public long getAverageQueueWaitTime() {
+
+        return m_publishEngine.getAverageWaitTime();
+    }
+
     /**
      * Returns the current running publish job.<p>
      *
+     * If several publish jobs are running concurrently, the longest running one is returned.<p>
+     *
      * @return the current running publish job
+     *
+     * @see #getRunningPublishJobs()
      */
     public CmsPublishJobRunning getCurrentPublishJob() {
 
@@ -222,6 +252,48 @@ public class CmsPublishManager {
         return m_publishEngine.getJobByPublishHistoryId(publishHistoryId);
     }
 
+    /**
+     * Returns the maximum number of concurrently running publish jobs.<p>
+     *
+     * @return the maximum number of concurrently running publish jobs
+     */
+    public int getMaxConcurrentPublishJobs() {
+
+        return m_maxConcurrentJobs;
+    }
+
+    /**
+     * Returns the maximum time in milliseconds a publish job had to wait in the queue before it was started.<p>
+     *
+     * @return the maximum queue wait time
+     */
+    public long getMaxQueueWaitTime() {
+
+        return m_publishEngine.getMaxWaitTime();
+    }
+
+    /**
+     * Returns the highest number of publish jobs which have been running concurrently.<p>
+     *
+     * @return the highest number of concurrently running publish jobs
+     */
+    public int getPeakConcurrentPublishJobs() {
+
+        return m_publishEngine.getPeakRunningJobs();
+    }
+
+    /**
+     * Returns the number of times a waiting publish job could not be started although the maximum
+     * number of concurrently running publish jobs was not reached, because its resources overlapped
+     * with the resources of a running publish job.<p>
+     *
+     * @return the number of publish job conflicts
+     */
+    public long getPublishConflictCount() {
+
+        return m_publishEngine.getConflictCount();
+    }
+
     /**
      * Returns the publish history list with already publish jobs.<p>
      *
@@ -252,6 +324,16 @@ public class CmsPublishManager {
         return result;
     }
 
+    /**
+     * Returns the number of publish jobs which have been started since the publish engine was initialized.<p>
+     *
+     * @return the number of started publish jobs
+     */
+    public long getPublishJobsStartedCount() {
+
+        return m_publishEngine.getStartedJobs();
+    }
+
     /**
      * Returns the publish History Size.<p>
      *
@@ -446,6 +528,21 @@ public class CmsPublishManager {
         return m_publishEngine.getReportContents(publishJob);
     }
 
+    /**
+     * Returns the currently running publish jobs, in the order they have been started.<p>
+     *
+     * @return a list of {@link CmsPublishJobRunning} objects
+     */
+    public List<CmsPublishJobRunning> getRunningPublishJobs() {
+
+        List<CmsPublishJobRunning> result = new ArrayList<CmsPublishJobRunning>();
+        Iterator<CmsPublishThread> it = m_publishEngine.getRunningPublishJobs().iterator();
+        while (it.hasNext()) {
+            result.add(new CmsPublishJobRunning(it.next().getPublishJob()));
+        }
+        return result;
+    }
+
     /**
      * Returns the current user's publish list.<p>
      *
@@ -469,7 +566,7 @@ public class CmsPublishManager {
      */
     public void initialize(CmsObject cms) throws CmsException {
 
-        m_publishEngine.initialize(cms, m_publishQueuePersistance, m_publishQueueShutdowntime);
+        m_publishEngine.initialize(cms, m_publishQueuePersistance, m_publishQueueShutdowntime, m_maxConcurrentJobs);
         m_frozen = true;
     }
 
@@ -647,6 +744,21 @@ public class CmsPublishManager {
         m_securityManager.removeResourceFromUsersPubList(cms.getRequestContext(), structureIds);
     }
 
+    /**
+     * Sets the maximum number of concurrently running publish jobs.<p>
+     *
+     * Publish jobs only run concurrently if their resources do not overlap.<p>
+     *
+     * @param maxConcurrentJobs the maximum number of concurrent publish jobs, parsed as <code>int</code>
+     */
+    public void setMaxConcurrentPublishJobs(String maxConcurrentJobs) {
+
+        if (m_frozen) {
+            throw new CmsRuntimeException(Messages.get().container(Messages.ERR_CONFIG_FROZEN_0));
+        }
+        m_maxConcurrentJobs = Integer.parseInt(maxConcurrentJobs);
+    }
+
     /**
      * Sets the publish engine during initialization.<p>
      *
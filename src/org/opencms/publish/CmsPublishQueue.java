@@ -39,6 +39,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import org.apache.commons.collections.Buffer;
 import org.apache.commons.collections.BufferUtils;
@@ -59,6 +61,10 @@ public class CmsPublishQueue {
     /** The publish engine. */
     protected final CmsPublishEngine m_publishEngine;
 
+    /** The cached publish scopes of the enqueued and running publish jobs. */
+    private final Map<CmsPublishJobInfoBean, CmsPublishScope> m_publishScopes = Collections.synchronizedMap(
+        new WeakHashMap<CmsPublishJobInfoBean, CmsPublishScope>());
+
     /**
      * Default constructor, for an empty queue.<p>
      *
@@ -185,6 +191,23 @@ public class CmsPublishQueue {
         return false;
     }
 
+    /**
+     * Returns the publish scope of the given publish job.<p>
+     *
+     * @param publishJob the publish job
+     *
+     * @return the publish scope, or <code>null</code> if the publish list of the job is not available
+     */
+    protected CmsPublishScope getPublishScope(CmsPublishJobInfoBean publishJob) {
+
+        CmsPublishScope scope = m_publishScopes.get(publishJob);
+        if ((scope == null) && (publishJob.getPublishList() != null)) {
+            scope = new CmsPublishScope(publishJob.getPublishList());
+            m_publishScopes.put(publishJob, scope);
+        }
+        return scope;
+    }
+
     /**
      * Initializes the internal FIFO queue with publish jobs from the database.<p>
      *
@@ -283,6 +306,54 @@ public class CmsPublishQueue {
         return publishJob;
     }
 
+    /**
+     * Returns the next publish job which can be published concurrently to the given running publish jobs,
+     * removing it from the queue, or <code>null</code> if there is no such publish job.<p>
+     *
+     * A publish job is only returned if its resources do neither overlap with the resources of a running
+     * publish job, nor with the resources of a publish job waiting in front of it,
+     * so that publish jobs working on the same resources are still published in the order they were enqueued.<p>
+     *
+     * @param runningJobs the currently running publish jobs
+     *
+     * @return the next publish job to be published
+     */
+    protected CmsPublishJobInfoBean next(List<CmsPublishJobInfoBean> runningJobs) {
+
+        if (runningJobs.isEmpty()) {
+            return next();
+        }
+        List<CmsPublishScope> blockingScopes = new ArrayList<CmsPublishScope>(runningJobs.size());
+        for (CmsPublishJobInfoBean runningJob : runningJobs) {
+            CmsPublishScope scope = getPublishScope(runningJob);
+            if (scope == null) {
+                // nothing is known about the running job, so it may conflict with any other job
+                return null;
+            }
+            blockingScopes.add(scope);
+        }
+        for (CmsPublishJobInfoBean publishJob : OpenCms.getMemoryMonitor().getAllCachedPublishJobs()) {
+            CmsPublishScope scope = getPublishScope(publishJob);
+            if (scope == null) {
+                // keep the order of all jobs after this one
+                return null;
+            }
+            boolean overlaps = false;
+            for (CmsPublishScope blockingScope : blockingScopes) {
+                if (scope.overlaps(blockingScope)) {
+                    overlaps = true;
+                    break;
+                }
+            }
+            if (!overlaps) {
+                OpenCms.getMemoryMonitor().uncachePublishJob(publishJob);
+                return publishJob;
+            }
+            blockingScopes.add(scope);
+        }
+        return null;
+    }
+
     /**
      * Removes the given job from the list.<p>
      *
@@ -0,0 +1,138 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.publish;
+
+import org.opencms.db.CmsPublishList;
+import org.opencms.file.CmsResource;
+import org.opencms.util.CmsUUID;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * The set of resources touched by a publish job, used to decide if two publish jobs may run concurrently.<p>
+ *
+ * Two scopes overlap if they share a resource (also as sibling), or if a resource of one scope is
+ * a folder containing a resource of the other scope.<p>
+ *
+ * @since 10.5.0
+ */
+/* default */final class CmsPublishScope {
+
+    /** The resource ids of the resources in this scope. */
+    private final Set<CmsUUID> m_resourceIds;
+
+    /** The root paths of the resources in this scope. */
+    private final Set<String> m_rootPaths;
+
+    /**
+     * Creates a new publish scope for the given resources.<p>
+     *
+     * @param resources the resources of the publish job
+     */
+    protected CmsPublishScope(Collection<CmsResource> resources) {
+
+        m_rootPaths = new HashSet<String>(resources.size());
+        m_resourceIds = new HashSet<CmsUUID>(resources.size());
+        Iterator<CmsResource> it = resources.iterator();
+        while (it.hasNext()) {
+            CmsResource resource = it.next();
+            m_rootPaths.add(resource.getRootPath());
+            m_resourceIds.add(resource.getResourceId());
+        }
+    }
+
+    /**
+     * Creates a new publish scope for the resources of the given publish list.<p>
+     *
+     * @param publishList the publish list
+     */
+    protected CmsPublishScope(CmsPublishList publishList) {
+
+        this(publishList.getAllResources());
+    }
+
+    /**
+     * Checks if this scope overlaps with the given scope.<p>
+     *
+     * @param other the other scope
+     *
+     * @return <code>true</code> if the publish jobs of both scopes must not run concurrently
+     */
+    protected boolean overlaps(CmsPublishScope other) {
+
+        // start with the smaller set of resource ids
+        Set<CmsUUID> smaller = m_resourceIds;
+        Set<CmsUUID> larger = other.m_resourceIds;
+        if (smaller.size() > larger.size()) {
+            smaller = other.m_resourceIds;
+            larger = m_resourceIds;
+        }
+        Iterator<CmsUUID> itIds = smaller.iterator();
+        while (itIds.hasNext()) {
+            if (larger.contains(itIds.next())) {
+                return true;
+            }
+        }
+        return containsAnyParentOf(other.m_rootPaths) || other.containsAnyParentOf(m_rootPaths);
+    }
+
+    /**
+     * Returns the number of resources in this scope.<p>
+     *
+     * @return the number of resources in this scope
+     */
+    protected int size() {
+
+        return m_rootPaths.size();
+    }
+
+    /**
+     * Checks if this scope contains any of the given root paths, or a parent folder of one of them.<p>
+     *
+     * @param rootPaths the root paths to check
+     *
+     * @return <code>true</code> if one of the given paths is contained in this scope
+     */
+    private boolean containsAnyParentOf(Set<String> rootPaths) {
+
+        Iterator<String> itPaths = rootPaths.iterator();
+        while (itPaths.hasNext()) {
+            String path = itPaths.next();
+            while (path != null) {
+                if (m_rootPaths.contains(path)) {
+                    return true;
+                }
+                path = CmsResource.getParentFolder(path);
+            }
+        }
+        return false;
+    }
+}
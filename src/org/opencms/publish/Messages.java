@@ -124,9 +124,15 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String INIT_PUBLISH_HISTORY_SIZE_SET_1 = "INIT_PUBLISH_HISTORY_SIZE_SET_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String INIT_PUBLISH_MAX_CONCURRENT_JOBS_1 = "INIT_PUBLISH_MAX_CONCURRENT_JOBS_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String INIT_PUBLISH_REPORT_PATH_SET_1 = "INIT_PUBLISH_REPORT_PATH_SET_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_PUBLISH_ENGINE_CONFLICTING_JOBS_1 = "LOG_PUBLISH_ENGINE_CONFLICTING_JOBS_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_PUBLISH_ENGINE_DEAD_JOB_0 = "LOG_PUBLISH_ENGINE_DEAD_JOB_0";
 
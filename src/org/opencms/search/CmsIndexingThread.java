@@ -29,6 +29,7 @@ package org.opencms.search;
 
 import org.opencms.file.CmsObject;
 import org.opencms.file.CmsResource;
+import org.opencms.i18n.CmsMessageContainer;
 import org.opencms.main.CmsException;
 import org.opencms.main.CmsLog;
 import org.opencms.report.I_CmsReport;
@@ -89,6 +90,26 @@ public class CmsIndexingThread extends Thread {
         m_result = null;
     }
 
+    /**
+     * Returns the report count of the resource indexed by this thread.<p>
+     *
+     * @return the report count of the resource indexed by this thread
+     */
+    public int getCount() {
+
+        return m_count;
+    }
+
+    /**
+     * Returns the resource indexed by this thread.<p>
+     *
+     * @return the resource indexed by this thread
+     */
+    public CmsResource getResource() {
+
+        return m_res;
+    }
+
     /**
      * Returns the document created by this indexer thread.<p>
      *
@@ -125,20 +146,23 @@ public class CmsIndexingThread extends Thread {
 
         } catch (CmsIndexNoContentException e) {
             // Ignore exception caused by empty documents, so that the report is not messed up with error message
-            m_report.println(
+            reportResult(
+                m_report,
+                m_res,
+                m_count,
                 org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_OK_0),
-                I_CmsReport.FORMAT_OK);
+                I_CmsReport.FORMAT_OK,
+                null);
         } catch (Throwable exc) {
-            if (m_report != null) {
-                m_report.println(
-                    org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_FAILED_0),
-                    I_CmsReport.FORMAT_ERROR);
-                m_report.println(
-                    org.opencms.report.Messages.get().container(
-                        org.opencms.report.Messages.RPT_ARGUMENT_1,
-                        exc.toString()),
-                    I_CmsReport.FORMAT_ERROR);
-            }
+            reportResult(
+                m_report,
+                m_res,
+                m_count,
+                org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_FAILED_0),
+                I_CmsReport.FORMAT_ERROR,
+                org.opencms.report.Messages.get().container(
+                    org.opencms.report.Messages.RPT_ARGUMENT_1,
+                    exc.toString()));
             if (LOG.isErrorEnabled()) {
                 LOG.error(
                     Messages.get().getBundle().key(
@@ -152,17 +176,16 @@ public class CmsIndexingThread extends Thread {
         } finally {
             if (!docOk) {
                 // apparently there was a Throwable that causes an issue
-                if (m_report != null) {
-                    m_report.println(
-                        org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_FAILED_0),
-                        I_CmsReport.FORMAT_ERROR);
-                    m_report.println(
-                        Messages.get().container(
-                            Messages.ERR_INDEX_RESOURCE_FAILED_2,
-                            m_res.getRootPath(),
-                            m_index.getName()),
-                        I_CmsReport.FORMAT_ERROR);
-                }
+                reportResult(
+                    m_report,
+                    m_res,
+                    m_count,
+                    org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_FAILED_0),
+                    I_CmsReport.FORMAT_ERROR,
+                    Messages.get().container(
+                        Messages.ERR_INDEX_RESOURCE_FAILED_2,
+                        m_res.getRootPath(),
+                        m_index.getName()));
                 if (LOG.isErrorEnabled()) {
                     LOG.error(
                         Messages.get().getBundle().key(
@@ -196,22 +219,6 @@ public class CmsIndexingThread extends Thread {
 
         I_CmsSearchDocument result = null;
 
-        if (report != null) {
-            report.print(
-                org.opencms.report.Messages.get().container(
-                    org.opencms.report.Messages.RPT_SUCCESSION_1,
-                    String.valueOf(count)),
-                I_CmsReport.FORMAT_NOTE);
-            report.print(Messages.get().container(Messages.RPT_SEARCH_INDEXING_FILE_BEGIN_0), I_CmsReport.FORMAT_NOTE);
-            report.print(
-                org.opencms.report.Messages.get().container(
-                    org.opencms.report.Messages.RPT_ARGUMENT_1,
-                    report.removeSiteRoot(res.getRootPath())));
-            report.print(
-                org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_DOTS_0),
-                I_CmsReport.FORMAT_DEFAULT);
-        }
-
         // check if this resource should be excluded from the index, if so skip it
         boolean excludeFromIndex = index.excludeFromIndex(cms, res);
 
@@ -233,23 +240,73 @@ public class CmsIndexingThread extends Thread {
         }
         if (result == null) {
             // this resource is not contained in the given search index or locale did not match
-            if (report != null) {
-                report.println(
-                    org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_SKIPPED_0),
-                    I_CmsReport.FORMAT_NOTE);
-            }
+            reportResult(
+                report,
+                res,
+                count,
+                org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_SKIPPED_0),
+                I_CmsReport.FORMAT_NOTE,
+                null);
             if (LOG.isDebugEnabled()) {
                 LOG.debug(Messages.get().getBundle().key(Messages.LOG_SKIPPED_1, res.getRootPath()));
             }
         } else {
             // index document was successfully created
-            if ((m_report != null)) {
-                m_report.println(
-                    org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_OK_0),
-                    I_CmsReport.FORMAT_OK);
-            }
+            reportResult(
+                report,
+                res,
+                count,
+                org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_OK_0),
+                I_CmsReport.FORMAT_OK,
+                null);
         }
 
         return result;
     }
+
+    /**
+     * Writes the result of indexing a resource to the report.<p>
+     *
+     * Since several indexing threads may write to the same report in parallel,
+     * the complete output for a resource is written while holding the lock of the report,
+     * so the lines of different resources are not mixed up.<p>
+     *
+     * @param report the report to write the output to, may be <code>null</code>
+     * @param res the indexed resource
+     * @param count the report count
+     * @param status the status message to print after the resource name
+     * @param format the format for the status message
+     * @param details an optional message with additional details, may be <code>null</code>
+     */
+    protected void reportResult(
+        I_CmsReport report,
+        CmsResource res,
+        int count,
+        CmsMessageContainer status,
+        int format,
+        CmsMessageContainer details) {
+
+        if (report == null) {
+            return;
+        }
+        synchronized (report) {
+            report.print(
+                org.opencms.report.Messages.get().container(
+                    org.opencms.report.Messages.RPT_SUCCESSION_1,
+                    String.valueOf(count)),
+                I_CmsReport.FORMAT_NOTE);
+            report.print(Messages.get().container(Messages.RPT_SEARCH_INDEXING_FILE_BEGIN_0), I_CmsReport.FORMAT_NOTE);
+            report.print(
+                org.opencms.report.Messages.get().container(
+                    org.opencms.report.Messages.RPT_ARGUMENT_1,
+                    report.removeSiteRoot(res.getRootPath())));
+            report.print(
+                org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_DOTS_0),
+                I_CmsReport.FORMAT_DEFAULT);
+            report.println(status, format);
+            if (details != null) {
+                report.println(details, I_CmsReport.FORMAT_ERROR);
+            }
+        }
+    }
 }
\ No newline at end of file
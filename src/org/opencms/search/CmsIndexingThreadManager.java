@@ -28,29 +28,111 @@
 package org.opencms.search;
 
 import org.opencms.db.CmsPublishedResource;
+import org.opencms.file.CmsObject;
 import org.opencms.file.CmsResource;
 import org.opencms.i18n.CmsMessageContainer;
+import org.opencms.main.CmsException;
 import org.opencms.main.CmsLog;
+import org.opencms.main.OpenCms;
 import org.opencms.report.CmsLogReport;
 import org.opencms.report.I_CmsReport;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
 
 /**
  * Implements the management of indexing threads.<p>
  *
+ * The manager runs up to a configurable number of indexing threads in parallel.
+ * The documents created by the indexing threads are handed back to the thread that
+ * feeds the manager with resources, which is the only thread that writes to the
+ * {@link I_CmsIndexWriter}. Since a new resource is only dispatched if less than
+ * the maximum number of threads are running or waiting for their result to be written,
+ * the number of extracted documents kept in memory is bounded by the number of threads.<p>
+ *
  * @since 6.0.0
  */
 public class CmsIndexingThreadManager {
 
+    /**
+     * Indexing thread that remembers the indexer and writer it was started for,
+     * and notifies the manager when it has finished.<p>
+     */
+    private class CmsManagedIndexingThread extends CmsIndexingThread {
+
+        /** The indexer the thread was started for. */
+        private CmsVfsIndexer m_indexer;
+
+        /** The time the thread was started. */
+        private long m_startTime;
+
+        /** The index writer to write the result to. */
+        private I_CmsIndexWriter m_writer;
+
+        /**
+         * Creates a new managed indexing thread.<p>
+         *
+         * @param cms the OpenCms user context to use for indexing
+         * @param indexer the indexer the thread is started for
+         * @param writer the index writer to write the result to
+         * @param res the resource to index
+         * @param count the report count
+         */
+        CmsManagedIndexingThread(
+            CmsObject cms,
+            CmsVfsIndexer indexer,
+            I_CmsIndexWriter writer,
+            CmsResource res,
+            int count) {
+
+            super(cms, res, indexer.getIndex(), count, indexer.getReport());
+            m_indexer = indexer;
+            m_writer = writer;
+        }
+
+        /**
+         * @see org.opencms.search.CmsIndexingThread#run()
+         */
+        @Override
+        public void run() {
+
+            try {
+                super.run();
+            } finally {
+                m_finishedThreads.offer(this);
+            }
+        }
+
+        /**
+         * @see java.lang.Thread#start()
+         */
+        @Override
+        public synchronized void start() {
+
+            m_startTime = System.currentTimeMillis();
+            super.start();
+        }
+    }
+
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsIndexingThreadManager.class);
 
+    /** The time in milliseconds to wait for an indexing thread to finish before the timeouts are checked again. */
+    private static final long POLL_INTERVAL = 100;
+
     /** Number of threads abandoned. */
     private int m_abandonedCounter;
 
+    /** The queue the indexing threads add themselves to after they have finished. */
+    private BlockingQueue<CmsManagedIndexingThread> m_finishedThreads;
+
     /** The time the last error was written to the log. */
     private long m_lastLogErrorTime;
 
@@ -60,34 +142,59 @@ public class CmsIndexingThreadManager {
     /** The maximum number of modifications before a commit in the search index is triggered. */
     private int m_maxModificationsBeforeCommit;
 
+    /** The maximum number of indexing threads running in parallel. */
+    private int m_maxThreads;
+
     /** Number of thread returned. */
     private int m_returnedCounter;
 
+    /** The indexing threads that have been started, but whose result has not yet been written to the index. */
+    private List<CmsManagedIndexingThread> m_runningThreads;
+
     /** Overall number of threads started. */
     private int m_startedCounter;
 
+    /** The time the first indexing thread was started. */
+    private long m_startTime;
+
     /** Timeout for abandoning threads. */
     private long m_timeout;
 
     /**
-     * Creates and starts a thread manager for indexing threads.<p>
+     * Creates and starts a thread manager for indexing threads that indexes one resource at a time.<p>
      *
      * @param timeout timeout after a thread is abandoned
      * @param maxModificationsBeforeCommit the maximum number of modifications before a commit in the search index is triggered
      */
     public CmsIndexingThreadManager(long timeout, int maxModificationsBeforeCommit) {
 
+        this(timeout, maxModificationsBeforeCommit, 1);
+    }
+
+    /**
+     * Creates and starts a thread manager for indexing threads.<p>
+     *
+     * @param timeout timeout after a thread is abandoned
+     * @param maxModificationsBeforeCommit the maximum number of modifications before a commit in the search index is triggered
+     * @param maxThreads the maximum number of indexing threads running in parallel
+     */
+    public CmsIndexingThreadManager(long timeout, int maxModificationsBeforeCommit, int maxThreads) {
+
         m_timeout = timeout;
         m_maxModificationsBeforeCommit = maxModificationsBeforeCommit;
+        m_maxThreads = Math.max(1, maxThreads);
+        m_runningThreads = new ArrayList<CmsManagedIndexingThread>(m_maxThreads);
+        m_finishedThreads = new LinkedBlockingQueue<CmsManagedIndexingThread>();
     }
 
     /**
      * Creates and starts a new indexing thread for a resource.<p>
      *
-     * After an indexing thread was started, the manager suspends itself
-     * and waits for an amount of time specified by the <code>timeout</code>
-     * value. If the timeout value is reached, the indexing thread is
-     * aborted by an interrupt signal.<p>
+     * If the maximum number of indexing threads is already running, the manager
+     * suspends itself until one of the running threads has finished or has reached
+     * the <code>timeout</code>, in which case the thread is aborted by an interrupt signal.
+     * The documents of all finished threads are written to the index before this method returns.
+     * If only one indexing thread is allowed, the method waits until the resource has been indexed.<p>
      *
      * @param indexer the VFS indexer to create the index thread for
      * @param writer the index writer that can update the index
@@ -95,71 +202,74 @@ public class CmsIndexingThreadManager {
      */
     public void createIndexingThread(CmsVfsIndexer indexer, I_CmsIndexWriter writer, CmsResource res) {
 
-        I_CmsReport report = indexer.getReport();
+        // wait until a running thread has finished if the maximum number of threads is reached
+        while (m_runningThreads.size() >= m_maxThreads) {
+            processFinishedThreads(POLL_INTERVAL);
+        }
+
+        if (m_startTime <= 0) {
+            m_startTime = System.currentTimeMillis();
+        }
         m_startedCounter++;
-        CmsIndexingThread thread = new CmsIndexingThread(
-            indexer.getCms(),
-            res,
-            indexer.getIndex(),
-            m_startedCounter,
-            report);
-        thread.setPriority(Thread.MIN_PRIORITY);
-        thread.start();
-        try {
-            thread.join(m_timeout);
-        } catch (InterruptedException e) {
-            // ignore
-        }
-        if (thread.isAlive()) {
-            // the thread has not finished - so it must be marked as an abandoned thread
-            m_abandonedCounter++;
-            thread.interrupt();
-            if (LOG.isWarnEnabled()) {
-                LOG.warn(Messages.get().getBundle().key(Messages.LOG_INDEXING_TIMEOUT_1, res.getRootPath()));
-            }
-            if (report != null) {
-                report.println();
-                report.print(
-                    org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_FAILED_0),
-                    I_CmsReport.FORMAT_WARNING);
-                report.println(
-                    Messages.get().container(Messages.RPT_SEARCH_INDEXING_TIMEOUT_1, res.getRootPath()),
-                    I_CmsReport.FORMAT_WARNING);
+        CmsObject cms = indexer.getCms();
+        if (m_maxThreads > 1) {
+            // the request context of a CmsObject must not be shared between threads
+            try {
+                cms = OpenCms.initCmsObject(cms);
+            } catch (CmsException e) {
+                LOG.error(e.getLocalizedMessage(), e);
             }
-        } else {
-            // the thread finished normally
-            m_returnedCounter++;
         }
-        I_CmsSearchDocument doc = thread.getResult();
-        if (doc != null) {
-            // write the document to the index
-            indexer.updateResource(writer, res.getRootPath(), doc);
+        CmsManagedIndexingThread thread = new CmsManagedIndexingThread(cms, indexer, writer, res, m_startedCounter);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        m_runningThreads.add(thread);
+        thread.start();
+
+        if (m_maxThreads == 1) {
+            // with a single thread the resource is indexed synchronously, as before
+            waitForThread(thread);
         } else {
-            indexer.deleteResource(writer, new CmsPublishedResource(res));
+            // write the results of all threads that have already finished
+            processFinishedThreads(0);
         }
-        if ((m_startedCounter % m_maxModificationsBeforeCommit) == 0) {
-            try {
-                writer.commit();
-            } catch (IOException e) {
-                if (LOG.isWarnEnabled()) {
-                    LOG.warn(
-                        Messages.get().getBundle().key(
-                            Messages.LOG_IO_INDEX_WRITER_COMMIT_2,
-                            indexer.getIndex().getName(),
-                            indexer.getIndex().getPath()),
-                        e);
-                }
-            }
+    }
+
+    /**
+     * Returns the number of documents per second that have been indexed so far.<p>
+     *
+     * @return the number of documents per second that have been indexed so far
+     */
+    public double getDocumentsPerSecond() {
+
+        long duration = System.currentTimeMillis() - m_startTime;
+        if ((m_startTime <= 0) || (duration <= 0)) {
+            return 0;
         }
+        return ((m_returnedCounter + m_abandonedCounter) * 1000.0) / duration;
+    }
+
+    /**
+     * Returns the maximum number of indexing threads running in parallel.<p>
+     *
+     * @return the maximum number of indexing threads running in parallel
+     */
+    public int getMaxThreads() {
+
+        return m_maxThreads;
     }
 
     /**
      * Returns if the indexing manager still have indexing threads.<p>
      *
+     * The documents of all threads that have finished in the meantime are written to the index,
+     * and threads that have reached the timeout are abandoned.<p>
+     *
      * @return true if the indexing manager still have indexing threads
      */
     public boolean isRunning() {
 
+        processFinishedThreads(0);
+
         if (m_lastLogErrorTime <= 0) {
             m_lastLogErrorTime = System.currentTimeMillis();
             m_lastLogWarnTime = m_lastLogErrorTime;
@@ -187,8 +297,8 @@ public class CmsIndexingThreadManager {
             }
         }
 
-        boolean result = (m_returnedCounter + m_abandonedCounter) < m_startedCounter;
-        if (result && LOG.isInfoEnabled()) {
+        boolean result = !m_runningThreads.isEmpty();
+        if (!result && LOG.isInfoEnabled()) {
             // write a note to the log that all threads have finished
             LOG.info(Messages.get().getBundle().key(Messages.LOG_THREADS_FINISHED_0));
         }
@@ -201,7 +311,8 @@ public class CmsIndexingThreadManager {
      * The method reports the total number of threads started
      * (equals to the number of indexed files), the number of returned
      * threads (equals to the number of successfully indexed files),
-     * and the number of abandoned threads (hanging threads reaching the timeout).
+     * and the number of abandoned threads (hanging threads reaching the timeout),
+     * as well as the indexing throughput.
      *
      * @param report the report to write the statistics to
      */
@@ -215,12 +326,149 @@ public class CmsIndexingThreadManager {
                     new Integer(m_returnedCounter),
                     new Integer(m_abandonedCounter),
                     report.formatRuntime()});
+            CmsMessageContainer throughput = Messages.get().container(
+                Messages.RPT_SEARCH_INDEXING_THROUGHPUT_2,
+                String.format("%.1f", new Double(getDocumentsPerSecond())),
+                new Integer(m_maxThreads));
 
             report.println(message);
+            report.println(throughput);
             if (!(report instanceof CmsLogReport) && LOG.isInfoEnabled()) {
                 // only write to the log if report is not already a log report
                 LOG.info(message.key());
+                LOG.info(throughput.key());
+            }
+        }
+    }
+
+    /**
+     * Abandons an indexing thread that has reached the timeout.<p>
+     *
+     * The resource of the thread is removed from the index.<p>
+     *
+     * @param thread the thread to abandon
+     */
+    private void abandonThread(CmsManagedIndexingThread thread) {
+
+        m_abandonedCounter++;
+        thread.interrupt();
+        CmsResource res = thread.getResource();
+        if (LOG.isWarnEnabled()) {
+            LOG.warn(Messages.get().getBundle().key(Messages.LOG_INDEXING_TIMEOUT_1, res.getRootPath()));
+        }
+        thread.reportResult(
+            thread.m_indexer.getReport(),
+            res,
+            thread.getCount(),
+            org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_FAILED_0),
+            I_CmsReport.FORMAT_WARNING,
+            Messages.get().container(Messages.RPT_SEARCH_INDEXING_TIMEOUT_1, res.getRootPath()));
+        thread.m_indexer.deleteResource(thread.m_writer, new CmsPublishedResource(res));
+        documentWritten(thread);
+    }
+
+    /**
+     * Counts a document written to the index and triggers a commit if required.<p>
+     *
+     * @param thread the thread that created the document
+     */
+    private void documentWritten(CmsManagedIndexingThread thread) {
+
+        int written = m_returnedCounter + m_abandonedCounter;
+        if ((written % m_maxModificationsBeforeCommit) == 0) {
+            CmsSearchIndex index = thread.m_indexer.getIndex();
+            try {
+                thread.m_writer.commit();
+            } catch (IOException e) {
+                if (LOG.isWarnEnabled()) {
+                    LOG.warn(
+                        Messages.get().getBundle().key(
+                            Messages.LOG_IO_INDEX_WRITER_COMMIT_2,
+                            index.getName(),
+                            index.getPath()),
+                        e);
+                }
+            }
+            I_CmsReport report = thread.m_indexer.getReport();
+            if (report != null) {
+                report.println(
+                    Messages.get().container(
+                        Messages.RPT_SEARCH_INDEXING_PROGRESS_3,
+                        new Integer(written),
+                        new Integer(m_runningThreads.size()),
+                        String.format("%.1f", new Double(getDocumentsPerSecond()))),
+                    I_CmsReport.FORMAT_NOTE);
+            }
+        }
+    }
+
+    /**
+     * Writes the documents of the finished indexing threads to the index and abandons
+     * all threads that have reached the timeout.<p>
+     *
+     * If the current thread is interrupted while waiting, the interrupt flag is restored
+     * and all running indexing threads are abandoned.<p>
+     *
+     * @param wait the time in milliseconds to wait for a thread to finish, if no thread has finished yet
+     */
+    private void processFinishedThreads(long wait) {
+
+        CmsManagedIndexingThread thread = null;
+        boolean interrupted = false;
+        try {
+            thread = wait > 0 ? m_finishedThreads.poll(wait, TimeUnit.MILLISECONDS) : m_finishedThreads.poll();
+        } catch (InterruptedException e) {
+            // stop waiting for the running threads, but keep the interrupt flag for the caller
+            Thread.currentThread().interrupt();
+            interrupted = true;
+            thread = m_finishedThreads.poll();
+        }
+        while (thread != null) {
+            // threads that have already been abandoned are not contained in the list of running threads
+            if (m_runningThreads.remove(thread)) {
+                m_returnedCounter++;
+                I_CmsSearchDocument doc = thread.getResult();
+                if (doc != null) {
+                    // write the document to the index
+                    thread.m_indexer.updateResource(thread.m_writer, thread.getResource().getRootPath(), doc);
+                } else {
+                    thread.m_indexer.deleteResource(thread.m_writer, new CmsPublishedResource(thread.getResource()));
+                }
+                documentWritten(thread);
+            }
+            thread = m_finishedThreads.poll();
+        }
+
+        long currentTime = System.currentTimeMillis();
+        Iterator<CmsManagedIndexingThread> i = m_runningThreads.iterator();
+        while (i.hasNext()) {
+            CmsManagedIndexingThread running = i.next();
+            if (interrupted || ((currentTime - running.m_startTime) > m_timeout)) {
+                // the thread has not finished in time - so it must be marked as an abandoned thread
+                i.remove();
+                abandonThread(running);
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Waits until an indexing thread has finished or has reached the timeout,
+     * and writes its document to the index.<p>
+     *
+     * @param thread the thread to wait for
+     */
+    private void waitForThread(CmsManagedIndexingThread thread) {
+
+        try {
+            thread.join(m_timeout);
+        } catch (InterruptedException e) {
+            // keep the interrupt flag for the caller, the thread is abandoned below
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive() && m_runningThreads.remove(thread)) {
+            // the thread has not finished in time - so it must be marked as an abandoned thread
+            abandonThread(thread);
+        }
+        processFinishedThreads(0);
+    }
+}
@@ -633,6 +633,9 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
     /** The default value used for keeping the extraction results in the cache (672 hours = 4 weeks). */
     public static final float DEFAULT_EXTRACTION_CACHE_MAX_AGE = 672.0f;
 
+    /** Default for the maximum number of indexing threads running in parallel (1). */
+    public static final int DEFAULT_MAX_INDEXING_THREADS = 1;
+
     /** Default for the maximum number of modifications before a commit in the search index is triggered (500). */
     public static final int DEFAULT_MAX_MODIFICATIONS_BEFORE_COMMIT = 500;
 
@@ -708,6 +711,9 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
     /** The max. char. length of the excerpt in the search result. */
     private int m_maxExcerptLength;
 
+    /** The maximum number of indexing threads running in parallel. */
+    private int m_maxIndexingThreads;
+
     /** The maximum number of modifications before a commit in the search index is triggered. */
     private int m_maxModificationsBeforeCommit;
 
@@ -745,6 +751,7 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         m_offlineUpdateFrequency = DEFAULT_OFFLINE_UPDATE_FREQNENCY;
         m_maxIndexWaitTime = DEFAULT_MAX_INDEX_WAITTIME;
         m_maxModificationsBeforeCommit = DEFAULT_MAX_MODIFICATIONS_BEFORE_COMMIT;
+        m_maxIndexingThreads = DEFAULT_MAX_INDEXING_THREADS;
 
         m_fieldConfigurations = new HashMap<String, CmsSearchFieldConfiguration>();
         // make sure we have a "standard" field configuration
@@ -1371,6 +1378,16 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         return m_maxIndexWaitTime;
     }
 
+    /**
+     * Returns the maximum number of indexing threads running in parallel.<p>
+     *
+     * @return the maximum number of indexing threads running in parallel
+     */
+    public int getMaxIndexingThreads() {
+
+        return m_maxIndexingThreads;
+    }
+
     /**
      * Returns the maximum number of modifications before a commit in the search index is triggered.<p>
      *
@@ -2177,6 +2194,36 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         }
     }
 
+    /**
+     * Sets the maximum number of indexing threads running in parallel.<p>
+     *
+     * @param maxIndexingThreads the maximum number of indexing threads to set
+     */
+    public void setMaxIndexingThreads(int maxIndexingThreads) {
+
+        m_maxIndexingThreads = maxIndexingThreads;
+    }
+
+    /**
+     * Sets the maximum number of indexing threads running in parallel as a string.<p>
+     *
+     * @param value the maximum number of indexing threads to set
+     */
+    public void setMaxIndexingThreads(String value) {
+
+        try {
+            setMaxIndexingThreads(Integer.parseInt(value));
+        } catch (Exception e) {
+            LOG.error(
+                Messages.get().getBundle().key(
+                    Messages.LOG_PARSE_MAX_INDEXING_THREADS_FAILED_2,
+                    value,
+                    new Integer(DEFAULT_MAX_INDEXING_THREADS)),
+                e);
+            setMaxIndexingThreads(DEFAULT_MAX_INDEXING_THREADS);
+        }
+    }
+
     /**
      * Sets the maximum number of modifications before a commit in the search index is triggered.<p>
      *
@@ -2357,6 +2404,52 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         m_extractionResultCache.cleanCache(m_extractionCacheMaxAge);
     }
 
+    /**
+     * Adds the resources whose read permissions stored in the given index are out of date
+     * because the permissions of a changed parent folder have changed.<p>
+     *
+     * The resources are only collected if the index filters the search results by the read permissions
+     * stored in the index, so other indexes are not updated for the resources below changed folders.<p>
+     *
+     * @param adminCms an OpenCms user context with Admin permissions
+     * @param index the index to update
+     * @param changedFolders the changed folders that have been published
+     * @param updateResources the resources to be re-indexed
+     *
+     * @return the list of resources to re-index in the given index
+     */
+    protected List<CmsPublishedResource> findPermissionChanges(
+        CmsObject adminCms,
+        CmsSearchIndex index,
+        List<CmsPublishedResource> changedFolders,
+        List<CmsPublishedResource> updateResources) {
+
+        if (changedFolders.isEmpty()
+            || !(index instanceof CmsSolrIndex)
+            || !((CmsSolrIndex)index).isPermissionFilter()) {
+            return updateResources;
+        }
+        List<CmsPublishedResource> result = new ArrayList<CmsPublishedResource>(updateResources);
+        Set<CmsUUID> ids = new HashSet<CmsUUID>();
+        for (CmsPublishedResource pubRes : updateResources) {
+            ids.add(pubRes.getStructureId());
+        }
+        for (CmsPublishedResource folder : changedFolders) {
+            try {
+                for (CmsResource res : ((CmsSolrIndex)index).findPermissionChanges(adminCms, folder.getRootPath())) {
+                    if (ids.add(res.getStructureId())) {
+                        // ensure each resource is added only once
+                        result.add(new CmsPublishedResource(res));
+                    }
+                }
+            } catch (CmsException e) {
+                LOG.error(e.getLocalizedMessage(), e);
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
     /**
      * Collects the related containerpages to the resources that have been published.<p>
      *
@@ -2485,7 +2578,7 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
      */
     protected CmsIndexingThreadManager getThreadManager() {
 
-        return new CmsIndexingThreadManager(m_timeout, m_maxModificationsBeforeCommit);
+        return new CmsIndexingThreadManager(m_timeout, m_maxModificationsBeforeCommit, m_maxIndexingThreads);
     }
 
     /**
@@ -2632,9 +2725,13 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
             // When published resources with both states 'new' and 'deleted' exist in the same publish job history, the resource has been moved
 
             List<CmsPublishedResource> updateResources = new ArrayList<CmsPublishedResource>();
+            List<CmsPublishedResource> changedFolders = new ArrayList<CmsPublishedResource>();
             for (CmsPublishedResource res : publishedResources) {
                 if (res.isFolder() || res.getState().isUnchanged()) {
                     // folders and unchanged resources don't need to be indexed after publish
+                    if (res.isFolder() && res.getState().isChanged()) {
+                        changedFolders.add(res);
+                    }
                     continue;
                 }
                 if (res.getState().isDeleted() || res.getState().isNew() || res.getState().isChanged()) {
@@ -2689,7 +2786,7 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
             }
 
             findRelatedContainerPages(adminCms, updateResources);
-            if (!updateResources.isEmpty()) {
+            if (!updateResources.isEmpty() || !changedFolders.isEmpty()) {
                 // sort the resource to update
                 Collections.sort(updateResources);
                 // only update the indexes if the list of remaining published resources is not empty
@@ -2699,7 +2796,15 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
                     if (CmsSearchIndex.REBUILD_MODE_AUTO.equals(index.getRebuildMode())) {
                         // only update indexes which have the rebuild mode set to "auto"
                         try {
-                            updateIndex(index, report, updateResources);
+                            List<CmsPublishedResource> indexResources = findPermissionChanges(
+                                adminCms,
+                                index,
+                                changedFolders,
+                                updateResources);
+                            if (!indexResources.isEmpty()) {
+                                // an empty list would rebuild the whole index
+                                updateIndex(index, report, indexResources);
+                            }
                         } catch (CmsException e) {
                             LOG.error(
                                 Messages.get().getBundle().key(Messages.LOG_UPDATE_INDEX_FAILED_1, index.getName()),
@@ -50,6 +50,9 @@ public class CmsSearchField implements Serializable {
     /** Th default boost factor (1.0), used in case no boost has been set for a field. */
     public static final float BOOST_DEFAULT = 1.0f;
 
+    /** Name of the field that contains the ids of the principals with an access control entry for the document. */
+    public static final String FIELD_ACL_PRINCIPALS = "acl_principals";
+
     /** Name of the field that contains the (optional) category of the document (hardcoded). */
     public static final String FIELD_CATEGORY = "category";
 
@@ -146,6 +149,12 @@ public class CmsSearchField implements Serializable {
      */
     public static final String FIELD_PRIORITY = "priority";
 
+    /** Name of the field that contains the ids of the principals which are allowed to read the document. */
+    public static final String FIELD_READ_ALLOWED = "read_allowed";
+
+    /** Name of the field that contains the ids of the principals which are denied to read the document. */
+    public static final String FIELD_READ_DENIED = "read_denied";
+
     /** Name of the field that contains the resource locales of the document. */
     public static final String FIELD_RESOURCE_LOCALES = "res_locales";
 
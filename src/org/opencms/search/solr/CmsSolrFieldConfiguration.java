@@ -55,7 +55,10 @@ import org.opencms.search.fields.CmsSearchFieldConfiguration;
 import org.opencms.search.fields.CmsSearchFieldMapping;
 import org.opencms.search.fields.CmsSearchFieldMappingType;
 import org.opencms.search.fields.I_CmsSearchFieldMapping;
+import org.opencms.security.CmsAccessControlList;
+import org.opencms.security.CmsPermissionSet;
 import org.opencms.util.CmsStringUtil;
+import org.opencms.util.CmsUUID;
 import org.opencms.xml.CmsXmlContentDefinition;
 import org.opencms.xml.containerpage.CmsContainerElementBean;
 import org.opencms.xml.containerpage.CmsContainerPageBean;
@@ -83,6 +86,9 @@ import org.apache.solr.common.SolrInputDocument;
  */
 public class CmsSolrFieldConfiguration extends CmsSearchFieldConfiguration {
 
+    /** The value of the ACL principals field for resources with an empty access control list. */
+    public static final String NO_PRINCIPALS = CmsUUID.getNullUUID().toString();
+
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsSolrFieldConfiguration.class);
 
@@ -100,6 +106,52 @@ public class CmsSolrFieldConfiguration extends CmsSearchFieldConfiguration {
         super();
     }
 
+    /**
+     * Returns the values of the read permission fields for a resource.<p>
+     *
+     * The values are the ids of the principals of the effective access control list of the resource,
+     * with the field name as key. The field {@link CmsSearchField#FIELD_ACL_PRINCIPALS} is always
+     * contained, with {@link #NO_PRINCIPALS} as value if the list has no entries, so documents with
+     * permission information can be told from documents without.<p>
+     *
+     * @param cms the OpenCms context used for building the search index
+     * @param resource the resource that is indexed
+     *
+     * @return the values of the read permission fields, with the field name as key
+     *
+     * @throws CmsException if the access control list could not be read
+     */
+    public static Map<String, List<String>> getReadPermissionFields(CmsObject cms, CmsResource resource)
+    throws CmsException {
+
+        CmsAccessControlList acl = cms.getAccessControlList(cms.getSitePath(resource));
+        List<String> principals = new ArrayList<String>();
+        List<String> allowed = new ArrayList<String>();
+        List<String> denied = new ArrayList<String>();
+        for (CmsUUID principalId : acl.getPrincipals()) {
+            CmsPermissionSet permissions = acl.getPermissions(principalId);
+            principals.add(principalId.toString());
+            if ((permissions.getAllowedPermissions() & CmsPermissionSet.PERMISSION_READ) > 0) {
+                allowed.add(principalId.toString());
+            }
+            if ((permissions.getDeniedPermissions() & CmsPermissionSet.PERMISSION_READ) > 0) {
+                denied.add(principalId.toString());
+            }
+        }
+        if (principals.isEmpty()) {
+            principals.add(NO_PRINCIPALS);
+        }
+        Map<String, List<String>> result = new HashMap<String, List<String>>();
+        result.put(CmsSearchField.FIELD_ACL_PRINCIPALS, principals);
+        if (!allowed.isEmpty()) {
+            result.put(CmsSearchField.FIELD_READ_ALLOWED, allowed);
+        }
+        if (!denied.isEmpty()) {
+            result.put(CmsSearchField.FIELD_READ_DENIED, denied);
+        }
+        return result;
+    }
+
     /**
      * Adds the additional fields to the configuration, if they are not null.<p>
      *
@@ -225,6 +277,9 @@ public class CmsSolrFieldConfiguration extends CmsSearchFieldConfiguration {
         } else {
             document.addSearchField(m_solrFields.get(CmsSearchField.FIELD_SEARCH_CHANNEL), "content");
         }
+        if ((getIndex() instanceof CmsSolrIndex) && ((CmsSolrIndex)getIndex()).isPermissionFilter()) {
+            appendReadPermissions(document, cms, resource);
+        }
 
         return document;
     }
@@ -595,6 +650,37 @@ public class CmsSolrFieldConfiguration extends CmsSearchFieldConfiguration {
         return document;
     }
 
+    /**
+     * Appends the principals of the effective access control list of the resource to the document.<p>
+     *
+     * The Solr index uses these fields to filter the search results by read permission
+     * before the results are paged, see {@link CmsSolrIndex#PERMISSION_FILTER}.<p>
+     *
+     * @param document the document to extend
+     * @param cms the OpenCms context used for building the search index
+     * @param resource the resource that is indexed
+     *
+     * @return the document extended by the read permission fields
+     */
+    protected I_CmsSearchDocument appendReadPermissions(
+        I_CmsSearchDocument document,
+        CmsObject cms,
+        CmsResource resource) {
+
+        try {
+            for (Map.Entry<String, List<String>> field : getReadPermissionFields(cms, resource).entrySet()) {
+                // multi-valued fields are split at line breaks
+                document.addSearchField(
+                    m_solrFields.get(field.getKey()),
+                    CmsStringUtil.listAsString(field.getValue(), "\n"));
+            }
+        } catch (CmsException e) {
+            // without the fields, the permissions of the document are only checked after the search
+            LOG.warn(e.getLocalizedMessage(), e);
+        }
+        return document;
+    }
+
     /**
      * Retrieves the locales for an content, that is whether an XML content nor an XML page.<p>
      *
@@ -740,6 +826,15 @@ public class CmsSolrFieldConfiguration extends CmsSearchFieldConfiguration {
         sfield = new CmsSolrField(CmsSearchField.FIELD_SEARCH_CHANNEL, null, null, null, 0);
         m_solrFields.put(sfield.getName(), sfield);
 
+        sfield = new CmsSolrField(CmsSearchField.FIELD_ACL_PRINCIPALS, null, null, null, 0);
+        m_solrFields.put(sfield.getName(), sfield);
+
+        sfield = new CmsSolrField(CmsSearchField.FIELD_READ_ALLOWED, null, null, null, 0);
+        m_solrFields.put(sfield.getName(), sfield);
+
+        sfield = new CmsSolrField(CmsSearchField.FIELD_READ_DENIED, null, null, null, 0);
+        m_solrFields.put(sfield.getName(), sfield);
+
         /*
          * Fields with mapping
          */
@@ -33,10 +33,12 @@ package org.opencms.search.solr;
 
 import org.opencms.configuration.CmsConfigurationException;
 import org.opencms.configuration.CmsParameterConfiguration;
+import org.opencms.file.CmsGroup;
 import org.opencms.file.CmsObject;
 import org.opencms.file.CmsProject;
 import org.opencms.file.CmsResource;
 import org.opencms.file.CmsResourceFilter;
+import org.opencms.file.CmsUser;
 import org.opencms.file.types.CmsResourceTypeXmlContainerPage;
 import org.opencms.file.types.CmsResourceTypeXmlContent;
 import org.opencms.i18n.CmsEncoder;
@@ -60,10 +62,12 @@ import org.opencms.search.fields.CmsSearchField;
 import org.opencms.search.galleries.CmsGallerySearchParameters;
 import org.opencms.search.galleries.CmsGallerySearchResult;
 import org.opencms.search.galleries.CmsGallerySearchResultList;
+import org.opencms.security.CmsAccessControlEntry;
 import org.opencms.security.CmsRole;
 import org.opencms.security.CmsRoleViolationException;
 import org.opencms.util.CmsRequestUtil;
 import org.opencms.util.CmsStringUtil;
+import org.opencms.util.CmsUUID;
 
 import java.io.IOException;
 import java.io.OutputStreamWriter;
@@ -71,9 +75,14 @@ import java.io.UnsupportedEncodingException;
 import java.io.Writer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 import javax.servlet.ServletResponse;
 
@@ -120,6 +129,20 @@ public class CmsSolrIndex extends CmsSearchIndex {
     /** The name of the default Solr Online index. */
     public static final String DEFAULT_INDEX_NAME_ONLINE = "Solr Online";
 
+    /** The default number of documents requested from Solr with one batch when iterating over all results. */
+    public static final int ITERATOR_BATCH_SIZE = 500;
+
+    /**
+     * Constant for additional parameter to filter the results by read permission inside Solr (default: false).
+     * The permission check of each result is only performed as safety net then.<p>
+     *
+     * The filter requires the multi-valued string fields <code>acl_principals</code>, <code>read_allowed</code>
+     * and <code>read_denied</code> with <code>stored="true"</code> in the schema of the index, see the default
+     * schema.xml. Custom schemas must add these fields before enabling the filter, and the index must be rebuilt
+     * afterwards.<p>
+     */
+    public static final String PERMISSION_FILTER = "search.solr.permissionFilter";
+
     /** Constant for additional parameter to set the post processor class name. */
     public static final String POST_PROCESSOR = "search.solr.postProcessor";
 
@@ -138,6 +161,9 @@ public class CmsSolrIndex extends CmsSearchIndex {
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsSolrIndex.class);
 
+    /** The maximum number of direct children of a changed folder whose read permissions are checked first. */
+    private static final int PERMISSION_CHECK_CHILDREN = 10;
+
     /** Pseudo resource used for not permission checked indexes. */
     private static final CmsResource PSEUDO_RES = new CmsResource(
         null,
@@ -171,6 +197,9 @@ public class CmsSolrIndex extends CmsSearchIndex {
     /** The embedded Solr client for this index. */
     SolrClient m_solr;
 
+    /** Indicates if the results are filtered by read permission inside Solr. */
+    private boolean m_permissionFilter;
+
     /** The post document manipulator. */
     private I_CmsSolrPostSearchProcessor m_postProcessor;
 
@@ -236,6 +265,8 @@ public class CmsSolrIndex extends CmsSearchIndex {
                     LOG.error(ex.getMessage(), ex);
                 }
             }
+        } else if (PERMISSION_FILTER.equals(key)) {
+            m_permissionFilter = Boolean.valueOf(value).booleanValue();
         }
         super.addConfigurationParameter(key, value);
     }
@@ -260,6 +291,52 @@ public class CmsSolrIndex extends CmsSearchIndex {
         return new CmsSolrIndexWriter(m_solr, this);
     }
 
+    /**
+     * Returns the resources below the given folder whose read permissions stored in the index
+     * differ from their current read permissions.<p>
+     *
+     * The stored read permissions are inherited from the parent folders, so they may change
+     * for all resources below a folder if the access control entries of the folder change.
+     * To avoid reading the whole sub-tree for folders whose other attributes have changed, the
+     * read permissions of up to {@value #PERMISSION_CHECK_CHILDREN} direct children are compared first.
+     * Only if one of them differs, the read permissions of all resources below the folder are compared.
+     * Resources that are not contained in the index are ignored.<p>
+     *
+     * @param cms an OpenCms user context with Admin permissions
+     * @param folderRootPath the root path of the folder
+     *
+     * @return the resources whose stored read permissions are out of date
+     *
+     * @throws CmsException if reading the resources or the permissions fails
+     */
+    public List<CmsResource> findPermissionChanges(CmsObject cms, String folderRootPath) throws CmsException {
+
+        CmsObject indexCms = OpenCms.initCmsObject(cms);
+        indexCms.getRequestContext().setSiteRoot("/");
+        indexCms.getRequestContext().setCurrentProject(indexCms.readProject(getProject()));
+        List<CmsResource> children = indexCms.readResources(folderRootPath, CmsResourceFilter.ALL, false);
+        if (children.isEmpty()) {
+            return new ArrayList<CmsResource>();
+        }
+        if (children.size() > PERMISSION_CHECK_CHILDREN) {
+            children = children.subList(0, PERMISSION_CHECK_CHILDREN);
+        }
+        StringBuffer childQuery = new StringBuffer();
+        for (CmsResource child : children) {
+            childQuery.append(childQuery.length() == 0 ? CmsSearchField.FIELD_ID + ":(" : " OR ");
+            childQuery.append('"').append(child.getStructureId()).append('"');
+        }
+        childQuery.append(')');
+        if (comparePermissions(indexCms, children, childQuery.toString()).isEmpty()) {
+            // the permissions the folder passes on to its children have not changed
+            return new ArrayList<CmsResource>();
+        }
+        return comparePermissions(
+            indexCms,
+            indexCms.readResources(folderRootPath, CmsResourceFilter.ALL, true),
+            CmsSearchField.FIELD_PARENT_FOLDERS + ":\"" + folderRootPath + "\"");
+    }
+
     /**
      * Performs a search with according to the gallery search parameters.<p>
      *
@@ -314,6 +391,9 @@ public class CmsSolrIndex extends CmsSearchIndex {
         if (getPostProcessor() != null) {
             result.put(POST_PROCESSOR, getPostProcessor().getClass().getName());
         }
+        if (m_permissionFilter) {
+            result.put(PERMISSION_FILTER, String.valueOf(m_permissionFilter));
+        }
         return result;
     }
 
@@ -440,6 +520,109 @@ public class CmsSolrIndex extends CmsSearchIndex {
         return null == m_solr;
     }
 
+    /**
+     * Returns <code>true</code> if the results are filtered by read permission inside Solr.<p>
+     *
+     * The permissions of the results are only filtered if permissions are checked at all for this index.<p>
+     *
+     * @return <code>true</code> if the results are filtered by read permission inside Solr
+     *
+     * @see #PERMISSION_FILTER
+     */
+    public boolean isPermissionFilter() {
+
+        return m_permissionFilter && isCheckingPermissions();
+    }
+
+    /**
+     * Returns an iterator over all results of the given query.<p>
+     *
+     * @param cms the current OpenCms context object
+     * @param query the query
+     *
+     * @return an iterator over all results the current user may read
+     *
+     * @throws CmsSearchException if the user is not allowed to access this index
+     *
+     * @see #iterator(CmsObject, CmsSolrQuery, int, CmsResourceFilter)
+     */
+    public CmsSolrResultIterator iterator(CmsObject cms, CmsSolrQuery query) throws CmsSearchException {
+
+        return iterator(cms, query, ITERATOR_BATCH_SIZE, null);
+    }
+
+    /**
+     * Returns an iterator over all results of the given query.<p>
+     *
+     * Other than {@link #search(CmsObject, CmsSolrQuery, boolean)} this method does not hold the complete
+     * result in memory: the results are requested from Solr batch by batch using a cursor mark.
+     * Start and rows of the query are ignored, highlighting and faceting are disabled,
+     * and the sort of the query is completed by the unique key, as required for cursor marks.
+     * The given query itself is not changed.<p>
+     *
+     * The results are checked for read permission like the results of
+     * {@link #search(CmsObject, CmsSolrQuery, boolean, ServletResponse, boolean, CmsResourceFilter)},
+     * documents excluded from the search are skipped.
+     * If a batch can not be requested from Solr, the iterator throws a {@link org.opencms.main.CmsRuntimeException}.<p>
+     *
+     * @param cms the current OpenCms context object
+     * @param query the query
+     * @param batchSize the number of documents requested from Solr with one batch
+     * @param filter the resource filter to use for the permission check, may be <code>null</code>
+     *
+     * @return an iterator over all results the current user may read
+     *
+     * @throws CmsSearchException if the user is not allowed to access this index
+     */
+    public CmsSolrResultIterator iterator(
+        CmsObject cms,
+        CmsSolrQuery query,
+        int batchSize,
+        CmsResourceFilter filter)
+    throws CmsSearchException {
+
+        // check if the user is allowed to access this index
+        checkOfflineAccess(cms);
+        CmsObject searchCms;
+        try {
+            searchCms = OpenCms.initCmsObject(cms);
+        } catch (CmsException e) {
+            throw new CmsSearchException(e.getMessageContainer(), e);
+        }
+
+        SolrQuery iteratorQuery = query.clone();
+        iteratorQuery.addFilterQuery(CmsSearchField.FIELD_SEARCH_EXCLUDE + ":\"false\"");
+        String permissionFilter = getPermissionFilterQuery(searchCms);
+        if (permissionFilter != null) {
+            iteratorQuery.addFilterQuery(permissionFilter);
+        }
+        iteratorQuery.setHighlight(false);
+        iteratorQuery.setFacet(false);
+        iteratorQuery.setStart(new Integer(0));
+        iteratorQuery.setRows(new Integer(Math.max(1, batchSize)));
+
+        // a cursor mark requires the unique key as last sort criterion
+        String sort = iteratorQuery.get(CommonParams.SORT);
+        String idSort = CmsSearchField.FIELD_ID + " " + SolrQuery.ORDER.asc;
+        if (CmsStringUtil.isEmptyOrWhitespaceOnly(sort)) {
+            sort = "score " + SolrQuery.ORDER.desc + "," + idSort;
+        } else {
+            boolean sortedById = false;
+            for (String clause : CmsStringUtil.splitAsList(sort, ',', true)) {
+                if (clause.startsWith(CmsSearchField.FIELD_ID + " ")) {
+                    sortedById = true;
+                    break;
+                }
+            }
+            if (!sortedById) {
+                sort = sort + "," + idSort;
+            }
+        }
+        iteratorQuery.set(CommonParams.SORT, sort);
+
+        return new CmsSolrResultIterator(this, searchCms, iteratorQuery, filter);
+    }
+
     /**
      * Not yet implemented for Solr.<p>
      *
@@ -591,6 +774,7 @@ public class CmsSolrIndex extends CmsSearchIndex {
 
         query.setHighlight(false);
         LocalSolrQueryRequest solrQueryRequest = null;
+        String permissionFilter = null;
         try {
 
             // initialize the search context
@@ -617,16 +801,36 @@ public class CmsSolrIndex extends CmsSearchIndex {
                 page = Math.round(start / rows) + 1;
             }
 
-            // set the start to '0' and expand the rows before performing the query
-            query.setStart(new Integer(0));
-            query.setRows(new Integer((5 * rows * page) + start));
+            // let Solr filter by read permission, then the result pages can be requested from Solr directly,
+            // otherwise set the start to '0' and expand the rows before performing the query
+            permissionFilter = getPermissionFilterQuery(searchCms);
+            if (permissionFilter != null) {
+                query.addFilterQuery(permissionFilter);
+            }
+            boolean solrPaging = (permissionFilter != null) && (rows > 0);
+            int solrStart = 0;
+            if (solrPaging) {
+                solrStart = rows * (page - 1);
+                query.setRows(new Integer(rows));
+            } else {
+                query.setRows(new Integer((5 * rows * page) + start));
+            }
+            query.setStart(new Integer(solrStart));
 
             // perform the Solr query and remember the original Solr response
             QueryResponse queryResponse = m_solr.query(query);
+            long hitCount = queryResponse.getResults().getNumFound();
+            if (solrPaging && (hitCount > 0) && (solrStart >= hitCount)) {
+                // the requested page is behind the last result, return the last page instead
+                page = new Long(((hitCount - 1) / rows) + 1).intValue();
+                solrStart = rows * (page - 1);
+                query.setStart(new Integer(solrStart));
+                queryResponse = m_solr.query(query);
+                hitCount = queryResponse.getResults().getNumFound();
+            }
             long solrTime = System.currentTimeMillis() - startTime;
 
             // initialize the counts
-            long hitCount = queryResponse.getResults().getNumFound();
             start = -1;
             end = -1;
             if ((rows > 0) && (page > 0) && (hitCount > 0)) {
@@ -651,10 +855,26 @@ public class CmsSolrIndex extends CmsSearchIndex {
 
             // process found documents
             List<CmsSearchResource> allDocs = new ArrayList<CmsSearchResource>();
-            int cnt = 0;
-            for (int i = 0; (i < queryResponse.getResults().size()) && (cnt < end); i++) {
+            SolrDocumentList results = queryResponse.getResults();
+            int fetched = results.size();
+            // the documents before the requested page have been skipped by Solr
+            int cnt = solrStart;
+            int i = 0;
+            while (cnt < end) {
+                if (i >= results.size()) {
+                    if (!solrPaging || results.isEmpty() || ((solrStart + fetched) >= hitCount)) {
+                        break;
+                    }
+                    // some documents have been removed by the permission check, fetch the missing ones
+                    query.setStart(new Integer(solrStart + fetched));
+                    query.setRows(new Integer(end - cnt));
+                    results = m_solr.query(query).getResults();
+                    fetched += results.size();
+                    i = 0;
+                    continue;
+                }
                 try {
-                    SolrDocument doc = queryResponse.getResults().get(i);
+                    SolrDocument doc = results.get(i++);
                     CmsSolrDocument searchDoc = new CmsSolrDocument(doc);
                     if (needsPermissionCheck(searchDoc)) {
                         // only if the document is an OpenCms internal resource perform the permission check
@@ -694,8 +914,9 @@ public class CmsSolrIndex extends CmsSearchIndex {
                     LOG.warn(Messages.get().getBundle().key(Messages.LOG_SOLR_ERR_RESULT_ITERATION_FAILED_0), e);
                 }
             }
-            // the last documents were all secret so let's take the last found docs
-            if (resourceDocumentList.isEmpty() && (allDocs.size() > 0)) {
+            // the last documents were all secret so let's take the last found docs,
+            // not required if Solr pages the results, since the last page has already been requested then
+            if (!solrPaging && resourceDocumentList.isEmpty() && (allDocs.size() > 0)) {
                 page = Math.round(allDocs.size() / rows) + 1;
                 int showCount = allDocs.size() % rows;
                 showCount = showCount == 0 ? rows : showCount;
@@ -865,6 +1086,10 @@ public class CmsSolrIndex extends CmsSearchIndex {
             if (solrQueryRequest != null) {
                 solrQueryRequest.close();
             }
+            if (permissionFilter != null) {
+                // the query may be reused by the caller
+                query.removeFilterQuery(permissionFilter);
+            }
             // re-set thread to previous priority
             Thread.currentThread().setPriority(previousPriority);
         }
@@ -1135,6 +1360,25 @@ public class CmsSolrIndex extends CmsSearchIndex {
         return false;
     }
 
+    /**
+     * Returns the search resource for the given Solr document, if the current user may read it.<p>
+     *
+     * @param cms the CMS object initialized with the current request context / user
+     * @param doc the Solr document
+     * @param filter the resource filter to use for the permission check, may be <code>null</code>
+     *
+     * @return the search resource, or <code>null</code> if the user may not read the resource of the document
+     */
+    CmsSearchResource getSearchResource(CmsObject cms, SolrDocument doc, CmsResourceFilter filter) {
+
+        CmsSolrDocument searchDoc = new CmsSolrDocument(doc);
+        if (!needsPermissionCheck(searchDoc)) {
+            return new CmsSearchResource(PSEUDO_RES, searchDoc);
+        }
+        CmsResource resource = filter == null ? getResource(cms, searchDoc) : getResource(cms, searchDoc, filter);
+        return resource != null ? new CmsSearchResource(resource, searchDoc) : null;
+    }
+
     /**
      * Checks if the current user is allowed to access non-online indexes.<p>
      *
@@ -1162,6 +1406,140 @@ public class CmsSolrIndex extends CmsSearchIndex {
         }
     }
 
+    /**
+     * Returns the given resources whose read permissions stored in the index differ from their
+     * current read permissions.<p>
+     *
+     * @param indexCms the OpenCms user context of the index
+     * @param resources the resources to compare
+     * @param filterQuery the filter query selecting the documents of the resources
+     *
+     * @return the resources whose stored read permissions are out of date
+     *
+     * @throws CmsException if reading the permissions or querying the index fails
+     */
+    private List<CmsResource> comparePermissions(CmsObject indexCms, List<CmsResource> resources, String filterQuery)
+    throws CmsException {
+
+        List<CmsResource> result = new ArrayList<CmsResource>();
+        if (resources.isEmpty()) {
+            return result;
+        }
+        Map<String, CmsResource> resourcesById = new HashMap<String, CmsResource>();
+        for (CmsResource resource : resources) {
+            resourcesById.put(resource.getStructureId().toString(), resource);
+        }
+        String[] fields = new String[] {
+            CmsSearchField.FIELD_ACL_PRINCIPALS,
+            CmsSearchField.FIELD_READ_ALLOWED,
+            CmsSearchField.FIELD_READ_DENIED};
+        SolrQuery query = new SolrQuery("*:*");
+        query.addFilterQuery(filterQuery);
+        query.setFields(CmsSearchField.FIELD_ID);
+        query.addField(fields[0]).addField(fields[1]).addField(fields[2]);
+        query.setRows(new Integer(resourcesById.size()));
+        SolrDocumentList docs;
+        try {
+            docs = m_solr.query(query).getResults();
+        } catch (Exception e) {
+            throw new CmsSearchException(
+                Messages.get().container(Messages.LOG_SOLR_ERR_SEARCH_EXECUTION_FAILD_1, query),
+                e);
+        }
+        for (SolrDocument doc : docs) {
+            CmsResource resource = resourcesById.get(doc.getFirstValue(CmsSearchField.FIELD_ID));
+            if (resource == null) {
+                continue;
+            }
+            Map<String, List<String>> current = CmsSolrFieldConfiguration.getReadPermissionFields(
+                indexCms,
+                resource);
+            for (String field : fields) {
+                Set<String> stored = new HashSet<String>();
+                Collection<Object> values = doc.getFieldValues(field);
+                if (values != null) {
+                    for (Object value : values) {
+                        stored.add(String.valueOf(value));
+                    }
+                }
+                Set<String> expected = new HashSet<String>();
+                if (current.containsKey(field)) {
+                    expected.addAll(current.get(field));
+                }
+                if (!stored.equals(expected)) {
+                    result.add(resource);
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the filter query that restricts the results to the documents the current user may read.<p>
+     *
+     * The filter uses the principals of the effective access control list which are stored in the index,
+     * see {@link CmsSolrFieldConfiguration#appendReadPermissions(I_CmsSearchDocument, CmsObject, CmsResource)}.
+     * Documents without permission information pass the filter, they are checked after the search only.<p>
+     *
+     * @param cms the CMS object initialized with the current request context / user
+     *
+     * @return the filter query, or <code>null</code> if the results are only checked after the search
+     */
+    private String getPermissionFilterQuery(CmsObject cms) {
+
+        if (!isPermissionFilter()) {
+            return null;
+        }
+        CmsUser user = cms.getRequestContext().getCurrentUser();
+        List<CmsUUID> principals = new ArrayList<CmsUUID>();
+        principals.add(user.getId());
+        try {
+            for (CmsGroup group : cms.getGroupsOfUser(user.getName(), false, true)) {
+                principals.add(group.getId());
+            }
+            if (!user.isGuestUser()) {
+                List<CmsRole> roles = OpenCms.getRoleManager().getRolesOfUser(
+                    cms,
+                    user.getName(),
+                    "",
+                    true,
+                    false,
+                    false);
+                for (CmsRole role : roles) {
+                    if (role.getRoleName().equals(CmsRole.VFS_MANAGER.getRoleName())) {
+                        // the user may ignore the permissions, at least for the resources of some organizational unit
+                        return null;
+                    }
+                    principals.add(role.forOrgUnit(null).getId());
+                }
+            }
+        } catch (CmsException e) {
+            LOG.warn(e.getLocalizedMessage(), e);
+            return null;
+        }
+        StringBuffer ids = new StringBuffer("(");
+        for (CmsUUID principal : principals) {
+            if (ids.length() > 1) {
+                ids.append(" OR ");
+            }
+            ids.append('"').append(principal).append('"');
+        }
+        ids.append(')');
+        String allOthers = "\"" + CmsAccessControlEntry.PRINCIPAL_ALL_OTHERS_ID + "\"";
+        StringBuffer result = new StringBuffer();
+        // the entries of the user and the groups and roles of the user allow reading, none denies it
+        result.append("(+").append(CmsSearchField.FIELD_READ_ALLOWED).append(':').append(ids);
+        result.append(" -").append(CmsSearchField.FIELD_READ_DENIED).append(':').append(ids).append(')');
+        // or there is no such entry, and the entry for all others allows reading
+        result.append(" OR (+").append(CmsSearchField.FIELD_READ_ALLOWED).append(':').append(allOthers);
+        result.append(" -").append(CmsSearchField.FIELD_READ_DENIED).append(':').append(allOthers);
+        result.append(" -").append(CmsSearchField.FIELD_ACL_PRINCIPALS).append(':').append(ids).append(')');
+        // or the document has no permission information, e.g. because it was indexed before the fields existed
+        result.append(" OR (*:* -").append(CmsSearchField.FIELD_ACL_PRINCIPALS).append(":[* TO *])");
+        return result.toString();
+    }
+
     /**
      * Generates a valid core name from the provided name (the index name).
      * @param name the index name.
@@ -0,0 +1,186 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.search.solr;
+
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsResourceFilter;
+import org.opencms.main.CmsLog;
+import org.opencms.main.CmsRuntimeException;
+import org.opencms.search.CmsSearchResource;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.logging.Log;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.params.CursorMarkParams;
+
+/**
+ * Iterates over all results of a Solr query.<p>
+ *
+ * The results are requested from Solr batch by batch using a cursor mark, so only one batch
+ * is kept in memory and the deep paging costs of growing start offsets do not apply.
+ * Every document is checked for read permission before it is returned.<p>
+ *
+ * Instances are created with {@link CmsSolrIndex#iterator(CmsObject, CmsSolrQuery)}.<p>
+ *
+ * @since 10.5.0
+ */
+public class CmsSolrResultIterator implements Iterator<CmsSearchResource> {
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsSolrResultIterator.class);
+
+    /** The documents of the current batch that have not been returned yet. */
+    private Iterator<SolrDocument> m_batch;
+
+    /** The CMS object used for the permission check. */
+    private CmsObject m_cms;
+
+    /** The cursor mark for the next batch. */
+    private String m_cursorMark;
+
+    /** Flag indicating if the last batch has been requested. */
+    private boolean m_done;
+
+    /** The resource filter used for the permission check, may be <code>null</code>. */
+    private CmsResourceFilter m_filter;
+
+    /** The index to search in. */
+    private CmsSolrIndex m_index;
+
+    /** The next result, or <code>null</code> if it has not been determined yet. */
+    private CmsSearchResource m_next;
+
+    /** The number of documents found by Solr, before the permission check. */
+    private long m_numFound;
+
+    /** The query to execute. */
+    private SolrQuery m_query;
+
+    /**
+     * Creates a new result iterator.<p>
+     *
+     * @param index the index to search in
+     * @param cms the CMS object used for the permission check
+     * @param query the query to execute, sorted by the unique key at last
+     * @param filter the resource filter used for the permission check, may be <code>null</code>
+     */
+    CmsSolrResultIterator(CmsSolrIndex index, CmsObject cms, SolrQuery query, CmsResourceFilter filter) {
+
+        m_index = index;
+        m_cms = cms;
+        m_query = query;
+        m_filter = filter;
+        m_cursorMark = CursorMarkParams.CURSOR_MARK_START;
+        m_numFound = -1;
+    }
+
+    /**
+     * Returns the number of documents found by Solr.<p>
+     *
+     * The number is determined with the first batch and includes the documents
+     * the current user is not allowed to read.<p>
+     *
+     * @return the number of documents found by Solr
+     */
+    public long getNumFound() {
+
+        if (m_numFound < 0) {
+            hasNext();
+        }
+        return Math.max(0, m_numFound);
+    }
+
+    /**
+     * @see java.util.Iterator#hasNext()
+     */
+    public boolean hasNext() {
+
+        while (m_next == null) {
+            if ((m_batch != null) && m_batch.hasNext()) {
+                try {
+                    m_next = m_index.getSearchResource(m_cms, m_batch.next(), m_filter);
+                } catch (Exception e) {
+                    // should not happen, but if it does we want to go on with the next result nevertheless
+                    LOG.warn(Messages.get().getBundle().key(Messages.LOG_SOLR_ERR_RESULT_ITERATION_FAILED_0), e);
+                }
+            } else if (m_done) {
+                return false;
+            } else {
+                fetchNextBatch();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @see java.util.Iterator#next()
+     */
+    public CmsSearchResource next() {
+
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        CmsSearchResource result = m_next;
+        m_next = null;
+        return result;
+    }
+
+    /**
+     * @see java.util.Iterator#remove()
+     */
+    public void remove() {
+
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Requests the next batch of documents from Solr.<p>
+     */
+    private void fetchNextBatch() {
+
+        m_query.set(CursorMarkParams.CURSOR_MARK_PARAM, m_cursorMark);
+        QueryResponse response;
+        try {
+            response = m_index.m_solr.query(m_query);
+        } catch (Exception e) {
+            throw new CmsRuntimeException(
+                Messages.get().container(Messages.LOG_SOLR_ERR_SEARCH_EXECUTION_FAILD_1, m_query),
+                e);
+        }
+        m_numFound = response.getResults().getNumFound();
+        m_batch = response.getResults().iterator();
+        String nextCursorMark = response.getNextCursorMark();
+        // Solr returns the same cursor mark again if there are no more results
+        m_done = (nextCursorMark == null) || nextCursorMark.equals(m_cursorMark);
+        m_cursorMark = nextCursorMark;
+    }
+}
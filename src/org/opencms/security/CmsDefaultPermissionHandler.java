@@ -43,6 +43,7 @@ import org.opencms.main.CmsException;
 import org.opencms.main.CmsInitException;
 import org.opencms.main.CmsLog;
 import org.opencms.main.OpenCms;
+import org.opencms.monitor.CmsMemoryMonitor;
 
 import java.util.Iterator;
 
@@ -96,6 +97,7 @@ public class CmsDefaultPermissionHandler implements I_CmsPermissionHandler {
         if (cacheResult != null) {
             return cacheResult;
         }
+        long[] snapshot = OpenCms.getMemoryMonitor().getCacheSnapshot(CmsMemoryMonitor.CacheType.PERMISSION);
 
         int denied = 0;
 
@@ -215,7 +217,7 @@ public class CmsDefaultPermissionHandler implements I_CmsPermissionHandler {
             }
         }
         if (dbc.getProjectId().isNullUUID()) {
-            OpenCms.getMemoryMonitor().cachePermission(cacheKey, result);
+            OpenCms.getMemoryMonitor().cachePermission(cacheKey, result, resource, snapshot);
         }
 
         return result;
@@ -57,6 +57,14 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletResponse;
@@ -80,6 +88,9 @@ public class CmsAfterPublishStaticExportHandler extends A_CmsStaticExportHandler
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsAfterPublishStaticExportHandler.class);
 
+    /** The time in seconds to wait for running exports after an export has ended. */
+    private static final int TERMINATION_TIMEOUT = 60;
+
     /** Request method get constant. */
     private static final String REQUEST_METHOD_GET = "GET";
 
@@ -228,6 +239,7 @@ public class CmsAfterPublishStaticExportHandler extends A_CmsStaticExportHandler
                 report.addError(t);
             }
         } finally {
+            OpenCms.getStaticExportManager().removeTempFolder();
             m_busy = false;
         }
     }
@@ -291,7 +303,7 @@ public class CmsAfterPublishStaticExportHandler extends A_CmsStaticExportHandler
      * @throws ServletException in case of errors accessing the servlet
      */
     protected boolean exportNonTemplateResources(
-        CmsObject cms,
+        final CmsObject cms,
         List<CmsPublishedResource> publishedResources,
         I_CmsReport report) throws CmsException, IOException, ServletException {
 
@@ -306,60 +318,76 @@ public class CmsAfterPublishStaticExportHandler extends A_CmsStaticExportHandler
                     new Integer(publishedResources.size())));
         }
 
-        CmsStaticExportManager manager = OpenCms.getStaticExportManager();
         List<CmsStaticExportData> resourcesToExport = new ArrayList<CmsStaticExportData>();
         boolean templatesFound = readNonTemplateResourcesToExport(cms, publishedResources, resourcesToExport);
 
-        int count = 1;
         int size = resourcesToExport.size();
         if (LOG.isDebugEnabled()) {
             LOG.debug(Messages.get().getBundle().key(Messages.LOG_NUM_EXPORT_1, new Integer(size)));
         }
-        // now do the export
-        Iterator<CmsStaticExportData> i = resourcesToExport.iterator();
-        while (i.hasNext()) {
-            CmsStaticExportData exportData = i.next();
-            if (LOG.isDebugEnabled()) {
-                LOG.debug(
-                    Messages.get().getBundle().key(
-                        Messages.LOG_EXPORT_FILE_2,
-                        exportData.getVfsName(),
-                        exportData.getRfsName()));
+        long startTime = System.currentTimeMillis();
+        ExecutorService executor = createExecutor();
+        try {
+            // render the resources in the thread pool
+            List<Future<Integer>> results = new ArrayList<Future<Integer>>(size);
+            for (final CmsStaticExportData exportData : resourcesToExport) {
+                results.add(executor.submit(new Callable<Integer>() {
+
+                    public Integer call() throws Exception {
+
+                        // the request context must not be shared between the threads
+                        CmsObject exportCms = OpenCms.initCmsObject(cms);
+                        return new Integer(
+                            OpenCms.getStaticExportManager().export(null, null, exportCms, exportData));
+                    }
+                }));
             }
+            // now report the results in the order of the resources
+            for (int i = 0; i < size; i++) {
+                CmsStaticExportData exportData = resourcesToExport.get(i);
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug(
+                        Messages.get().getBundle().key(
+                            Messages.LOG_EXPORT_FILE_2,
+                            exportData.getVfsName(),
+                            exportData.getRfsName()));
+                }
 
-            report.print(
-                org.opencms.report.Messages.get().container(
-                    org.opencms.report.Messages.RPT_SUCCESSION_2,
-                    new Integer(count++),
-                    new Integer(size)),
-                I_CmsReport.FORMAT_NOTE);
-            report.print(Messages.get().container(Messages.RPT_EXPORTING_0), I_CmsReport.FORMAT_NOTE);
-            report.print(
-                org.opencms.report.Messages.get().container(
-                    org.opencms.report.Messages.RPT_ARGUMENT_1,
-                    exportData.getVfsName()));
-            report.print(org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_DOTS_0));
-            int status = manager.export(null, null, cms, exportData);
-            if (status == HttpServletResponse.SC_OK) {
-                report.println(
-                    org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_OK_0),
-                    I_CmsReport.FORMAT_OK);
-            } else {
-                report.println(
-                    org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_IGNORED_0),
+                report.print(
+                    org.opencms.report.Messages.get().container(
+                        org.opencms.report.Messages.RPT_SUCCESSION_2,
+                        new Integer(i + 1),
+                        new Integer(size)),
                     I_CmsReport.FORMAT_NOTE);
-            }
+                report.print(Messages.get().container(Messages.RPT_EXPORTING_0), I_CmsReport.FORMAT_NOTE);
+                report.print(
+                    org.opencms.report.Messages.get().container(
+                        org.opencms.report.Messages.RPT_ARGUMENT_1,
+                        exportData.getVfsName()));
+                report.print(org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_DOTS_0));
+                int status = getExportStatus(results.get(i), exportData.getVfsName());
+                if (status == HttpServletResponse.SC_OK) {
+                    report.println(
+                        org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_OK_0),
+                        I_CmsReport.FORMAT_OK);
+                } else {
+                    report.println(
+                        org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_IGNORED_0),
+                        I_CmsReport.FORMAT_NOTE);
+                }
 
-            if (LOG.isInfoEnabled()) {
-                Object[] arguments = new Object[] {
-                    exportData.getVfsName(),
-                    exportData.getRfsName(),
-                    new Integer(status)};
-                LOG.info(Messages.get().getBundle().key(Messages.LOG_EXPORT_FILE_STATUS_3, arguments));
+                if (LOG.isInfoEnabled()) {
+                    Object[] arguments = new Object[] {
+                        exportData.getVfsName(),
+                        exportData.getRfsName(),
+                        new Integer(status)};
+                    LOG.info(Messages.get().getBundle().key(Messages.LOG_EXPORT_FILE_STATUS_3, arguments));
+                }
             }
-            //don't lock up the CPU exclusively - allow other Threads to run as well
-            Thread.yield();
+        } finally {
+            shutDown(executor);
         }
+        reportRate(report, size, startTime);
 
         resourcesToExport = null;
 
@@ -498,6 +526,67 @@ public class CmsAfterPublishStaticExportHandler extends A_CmsStaticExportHandler
     //        return HttpServletResponse.SC_SEE_OTHER;
     //    }
 
+    /**
+     * Exports a single (template) resource specified by its RFS name, including its detail pages.<p>
+     *
+     * @param cms the cms context, in the root site as Export user, used by the current thread only
+     * @param rfsName the RFS name of the resource
+     * @param cookies cookies to keep the session
+     *
+     * @return the status of the http request used to perform the export,
+     *      or <code>null</code> if no resource was found for the RFS name
+     *
+     * @throws IOException if the http request fails
+     */
+    protected Integer exportTemplateResource(CmsObject cms, String rfsName, StringBuffer cookies)
+    throws IOException {
+
+        CmsStaticExportManager manager = OpenCms.getStaticExportManager();
+        CmsStaticExportData data = null;
+        try {
+            data = manager.getVfsNameInternal(cms, rfsName);
+        } catch (CmsVfsResourceNotFoundException e) {
+            String rfsBaseName = rfsName;
+            int pos = rfsName.lastIndexOf('_');
+            if (pos >= 0) {
+                rfsBaseName = rfsName.substring(0, pos);
+            }
+            try {
+                data = manager.getVfsNameInternal(cms, rfsBaseName);
+            } catch (CmsVfsResourceNotFoundException e2) {
+                if (LOG.isInfoEnabled()) {
+                    LOG.info(
+                        Messages.get().getBundle().key(
+                            Messages.LOG_NO_INTERNAL_VFS_RESOURCE_FOUND_1,
+                            new String[] {rfsName}));
+                }
+            }
+        }
+        if (data == null) {
+            // no valid resource found for rfs name (already deleted)
+            return null;
+        }
+        data.setRfsName(rfsName);
+
+        CmsResource resource = data.getResource();
+        try {
+            Collection<String> detailPages = CmsDetailPageUtil.getAllDetailPagesWithUrlName(cms, resource);
+            for (String detailPageUri : detailPages) {
+                String altRfsName = manager.getRfsName(cms, detailPageUri);
+                CmsStaticExportData detailData = new CmsStaticExportData(
+                    data.getVfsName(),
+                    altRfsName,
+                    data.getResource(),
+                    data.getParameters());
+                exportTemplateResource(detailData, cookies);
+            }
+        } catch (CmsException e) {
+            LOG.error(e.getLocalizedMessage(), e);
+        }
+
+        return new Integer(exportTemplateResource(data, cookies));
+    }
+
     /**
      * Exports a single (template) resource specified by its export data.<p>
      *
@@ -571,20 +660,24 @@ public class CmsAfterPublishStaticExportHandler extends A_CmsStaticExportHandler
                     exportFile.getName(),
                     new Long((dateLastModified / 1000) * 1000)));
         }
-        if (cookies.length() > 0) {
+        String cookieHeader = cookies.toString();
+        if (cookieHeader.length() > 0) {
             // set the cookies, included the session id to keep the same session
-            urlcon.setRequestProperty(REQUEST_PROPERTY_COOKIE, cookies.toString());
+            urlcon.setRequestProperty(REQUEST_PROPERTY_COOKIE, cookieHeader);
         }
 
         // now perform the request
         urlcon.connect();
         int status = urlcon.getResponseCode();
 
-        if (cookies.length() == 0) {
-            //Now retrieve the cookies. The jsessionid is here
-            cookies.append(urlcon.getHeaderField(HEADER_FIELD_SET_COOKIE));
-            if (LOG.isDebugEnabled()) {
-                LOG.debug(Messages.get().getBundle().key(Messages.LOG_STATICEXPORT_COOKIES_1, cookies));
+        // the cookies are shared by the threads of the export, keep the first session only
+        synchronized (cookies) {
+            if (cookies.length() == 0) {
+                //Now retrieve the cookies. The jsessionid is here
+                cookies.append(urlcon.getHeaderField(HEADER_FIELD_SET_COOKIE));
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug(Messages.get().getBundle().key(Messages.LOG_STATICEXPORT_COOKIES_1, cookies));
+                }
             }
         }
         urlcon.disconnect();
@@ -606,9 +699,11 @@ public class CmsAfterPublishStaticExportHandler extends A_CmsStaticExportHandler
      * @param publishedTemplateResources list of potential candidates to export
      * @param report an I_CmsReport instance to print output message, or null to write messages to the log file
      */
-    protected void exportTemplateResources(CmsObject cms, List<String> publishedTemplateResources, I_CmsReport report) {
+    protected void exportTemplateResources(
+        final CmsObject cms,
+        List<String> publishedTemplateResources,
+        I_CmsReport report) {
 
-        CmsStaticExportManager manager = OpenCms.getStaticExportManager();
         int size = publishedTemplateResources.size();
         int count = 1;
 
@@ -619,33 +714,52 @@ public class CmsAfterPublishStaticExportHandler extends A_CmsStaticExportHandler
             Messages.get().container(Messages.RPT_STATICEXPORT_TEMPLATE_RESOURCES_BEGIN_0),
             I_CmsReport.FORMAT_HEADLINE);
 
-        StringBuffer cookies = new StringBuffer();
-        // now loop through all of them and request them from the server
-        Iterator<String> i = publishedTemplateResources.iterator();
-        while (i.hasNext()) {
-            String rfsName = i.next();
-            CmsStaticExportData data = null;
-            try {
-                data = manager.getVfsNameInternal(cms, rfsName);
-            } catch (CmsVfsResourceNotFoundException e) {
-                String rfsBaseName = rfsName;
-                int pos = rfsName.lastIndexOf('_');
-                if (pos >= 0) {
-                    rfsBaseName = rfsName.substring(0, pos);
-                }
-                try {
-                    data = manager.getVfsNameInternal(cms, rfsBaseName);
-                } catch (CmsVfsResourceNotFoundException e2) {
-                    if (LOG.isInfoEnabled()) {
-                        LOG.info(
-                            Messages.get().getBundle().key(
-                                Messages.LOG_NO_INTERNAL_VFS_RESOURCE_FOUND_1,
-                                new String[] {rfsName}));
+        long startTime = System.currentTimeMillis();
+        final StringBuffer cookies = new StringBuffer();
+        ExecutorService executor = createExecutor();
+        try {
+            // request the resources from the server in the thread pool
+            List<Future<Integer>> results = new ArrayList<Future<Integer>>(size);
+            for (final String rfsName : publishedTemplateResources) {
+                Future<Integer> result = executor.submit(new Callable<Integer>() {
+
+                    public Integer call() throws Exception {
+
+                        // the request context must not be shared between the threads
+                        return exportTemplateResource(OpenCms.initCmsObject(cms), rfsName, cookies);
+                    }
+                });
+                results.add(result);
+                if (cookies.length() == 0) {
+                    // the first request opens the session, so wait for it before the following requests are sent
+                    try {
+                        result.get();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    } catch (ExecutionException e) {
+                        // the error is written to the report with the other results
                     }
                 }
             }
-            if (data != null) {
-                data.setRfsName(rfsName);
+            // now report the results in the order of the resources
+            for (int i = 0; i < results.size(); i++) {
+                String rfsName = publishedTemplateResources.get(i);
+                Integer status;
+                try {
+                    status = results.get(i).get();
+                } catch (InterruptedException e) {
+                    report.println(e);
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException e) {
+                    report.println(e.getCause());
+                    continue;
+                }
+                if (status == null) {
+                    // no valid resource found for rfs name (already deleted), skip it
+                    continue;
+                }
                 report.print(
                     org.opencms.report.Messages.get().container(
                         org.opencms.report.Messages.RPT_SUCCESSION_2,
@@ -656,40 +770,17 @@ public class CmsAfterPublishStaticExportHandler extends A_CmsStaticExportHandler
                 report.print(
                     org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_ARGUMENT_1, rfsName));
                 report.print(org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_DOTS_0));
-            } else {
-                // no valid resource found for rfs name (already deleted), skip it
-                continue;
-            }
-
-            try {
-                CmsResource resource = data.getResource();
-                try {
-                    Collection<String> detailPages = CmsDetailPageUtil.getAllDetailPagesWithUrlName(cms, resource);
-                    for (String detailPageUri : detailPages) {
-                        String altRfsName = manager.getRfsName(cms, detailPageUri);
-                        CmsStaticExportData detailData = new CmsStaticExportData(
-                            data.getVfsName(),
-                            altRfsName,
-                            data.getResource(),
-                            data.getParameters());
-                        exportTemplateResource(detailData, cookies);
-                    }
-                } catch (CmsException e) {
-                    LOG.error(e.getLocalizedMessage(), e);
-                }
-
-                int status = exportTemplateResource(data, cookies);
 
                 // write the report
-                if (status == HttpServletResponse.SC_OK) {
+                if (status.intValue() == HttpServletResponse.SC_OK) {
                     report.println(
                         org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_OK_0),
                         I_CmsReport.FORMAT_OK);
-                } else if (status == HttpServletResponse.SC_NOT_MODIFIED) {
+                } else if (status.intValue() == HttpServletResponse.SC_NOT_MODIFIED) {
                     report.println(
                         org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_SKIPPED_0),
                         I_CmsReport.FORMAT_NOTE);
-                } else if (status == HttpServletResponse.SC_SEE_OTHER) {
+                } else if (status.intValue() == HttpServletResponse.SC_SEE_OTHER) {
                     report.println(
                         org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_IGNORED_0),
                         I_CmsReport.FORMAT_NOTE);
@@ -697,15 +788,14 @@ public class CmsAfterPublishStaticExportHandler extends A_CmsStaticExportHandler
                     report.println(
                         org.opencms.report.Messages.get().container(
                             org.opencms.report.Messages.RPT_ARGUMENT_1,
-                            new Integer(status)),
+                            status),
                         I_CmsReport.FORMAT_OK);
                 }
-            } catch (IOException e) {
-                report.println(e);
             }
-            //don't lock up the CPU exclusively - allow other Threads to run as well
-            Thread.yield();
+        } finally {
+            shutDown(executor);
         }
+        reportRate(report, count - 1, startTime);
         report.println(
             Messages.get().container(Messages.RPT_STATICEXPORT_TEMPLATE_RESOURCES_END_0),
             I_CmsReport.FORMAT_HEADLINE);
@@ -895,4 +985,104 @@ public class CmsAfterPublishStaticExportHandler extends A_CmsStaticExportHandler
 
         return templatesFound;
     }
+
+    /**
+     * Creates the thread pool rendering the resources of an export.<p>
+     *
+     * @return the thread pool rendering the resources of an export
+     */
+    private ExecutorService createExecutor() {
+
+        int threads = OpenCms.getStaticExportManager().getExportThreads().intValue();
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+            private AtomicInteger m_count = new AtomicInteger();
+
+            public Thread newThread(Runnable r) {
+
+                Thread thread = new Thread(r, "OpenCms: Static export " + m_count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Waits for the export of a non template resource and returns its status.<p>
+     *
+     * @param result the result of the export
+     * @param vfsName the VFS name of the exported resource
+     *
+     * @return the status of the export
+     *
+     * @throws CmsException in case of errors accessing the VFS
+     * @throws IOException in case of errors writing to the export output stream
+     * @throws ServletException in case of errors accessing the servlet
+     */
+    private int getExportStatus(Future<Integer> result, String vfsName)
+    throws CmsException, IOException, ServletException {
+
+        try {
+            return result.get().intValue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CmsStaticExportException(Messages.get().container(Messages.ERR_EXPORT_INTERRUPTED_0), e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CmsException) {
+                throw (CmsException)cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException)cause;
+            } else if (cause instanceof ServletException) {
+                throw (ServletException)cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new CmsStaticExportException(
+                Messages.get().container(Messages.ERR_EXPORT_FILE_FAILED_1, vfsName),
+                cause);
+        }
+    }
+
+    /**
+     * Writes the number of exported resources per second to the report.<p>
+     *
+     * @param report the report to write to
+     * @param count the number of exported resources
+     * @param startTime the time the export has been started
+     */
+    private void reportRate(I_CmsReport report, int count, long startTime) {
+
+        long runtime = Math.max(1, System.currentTimeMillis() - startTime);
+        report.println(
+            Messages.get().container(
+                Messages.RPT_STATICEXPORT_RATE_3,
+                new Integer(count),
+                CmsStringUtil.formatRuntime(runtime),
+                new Double((count * 1000.0) / runtime)),
+            I_CmsReport.FORMAT_NOTE);
+    }
+
+    /**
+     * Stops the thread pool of an export and waits until the running exports have finished,
+     * so no exported files are written after the export has ended.<p>
+     *
+     * @param executor the thread pool of the export
+     */
+    private void shutDown(ExecutorService executor) {
+
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(TERMINATION_TIMEOUT, TimeUnit.SECONDS)) {
+                LOG.warn(
+                    Messages.get().getBundle().key(
+                        Messages.LOG_EXPORT_THREADS_RUNNING_1,
+                        new Integer(TERMINATION_TIMEOUT)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
\ No newline at end of file
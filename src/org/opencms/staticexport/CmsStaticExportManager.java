@@ -67,6 +67,9 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -75,6 +78,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -114,9 +118,15 @@ public class CmsStaticExportManager implements I_CmsEventListener {
     /** Name for the folder default index file. */
     public static final String EXPORT_DEFAULT_FILE = "index_export.html";
 
+    /** Default number of threads rendering the resources of an export. */
+    public static final Integer EXPORT_DEFAULT_THREADS = new Integer(1);
+
     /** Name for the default work path. */
     public static final String EXPORT_DEFAULT_WORKPATH = CmsSystemInfo.FOLDER_WEBINF + "temp";
 
+    /** Name of the folder exported resources are written to before they are moved to the export path. */
+    public static final String EXPORT_TEMP_FOLDER = CmsSystemInfo.FOLDER_WEBINF + "exporttemp";
+
     /** Flag value for links without parameters. */
     public static final int EXPORT_LINK_WITH_PARAMETER = 2;
 
@@ -141,6 +151,9 @@ public class CmsStaticExportManager implements I_CmsEventListener {
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsStaticExportManager.class);
 
+    /** Suffix of the temporary files exported resources are written to. */
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
     /** HTTP header Accept-Charset. */
     private String m_acceptCharsetHeader;
 
@@ -192,6 +205,9 @@ public class CmsStaticExportManager implements I_CmsEventListener {
     /** List of export suffixes where the "export" property default is always <code>true</code>. */
     private List<String> m_exportSuffixes;
 
+    /** The number of threads rendering the resources of an export. */
+    private Integer m_exportThreads;
+
     /** Temporary variable for reading the xml config file. */
     private CmsStaticExportExportRule m_exportTmpRule;
 
@@ -258,6 +274,12 @@ public class CmsStaticExportManager implements I_CmsEventListener {
     /** The path to where the static export will be written during the static export process without the complete rfs path. */
     private String m_staticExportWorkPathConfigured;
 
+    /** Lock to prevent the removal of the folder for temporary files while resources are written. */
+    private ReentrantReadWriteLock m_tempFolderLock = new ReentrantReadWriteLock();
+
+    /** The path of the folder exported resources are written to before they are moved to the export path. */
+    private String m_tempFolderPath;
+
     /** Vfs Name of a resource used to do a "static export required" test. */
     private String m_testResource;
 
@@ -761,6 +783,7 @@ public class CmsStaticExportManager implements I_CmsEventListener {
         } else if (report.hasError()) {
             report.println(Messages.get().container(Messages.ERR_EXPORT_NOT_SUCCESSFUL_0), I_CmsReport.FORMAT_WARNING);
         }
+        removeTempFolder();
     }
 
     /**
@@ -1073,6 +1096,20 @@ public class CmsStaticExportManager implements I_CmsEventListener {
         return m_exportSuffixes;
     }
 
+    /**
+     * Returns the number of threads rendering the resources of an export in parallel.<p>
+     *
+     * @return the number of threads rendering the resources of an export
+     */
+    public Integer getExportThreads() {
+
+        if (m_exportThreads != null) {
+            return m_exportThreads;
+        }
+        // if threads not configured set to default value
+        return EXPORT_DEFAULT_THREADS;
+    }
+
     /**
      * Returns the export URL used for internal requests for exporting resources that require a
      * request / response (like JSP).<p>
@@ -1598,6 +1635,9 @@ public class CmsStaticExportManager implements I_CmsEventListener {
         // initialize static export RFS path (relative to web application)
         m_staticExportPath = normalizeExportPath(m_staticExportPathConfigured);
         m_staticExportWorkPath = normalizeExportPath(getExportWorkPathForConfiguration());
+        m_tempFolderPath = normalizeExportPath(EXPORT_TEMP_FOLDER);
+        // remove temporary files left over from an interrupted export
+        removeTempFolder();
         if (m_staticExportPath.equals(OpenCms.getSystemInfo().getWebApplicationRfsPath())) {
             throw new CmsIllegalArgumentException(Messages.get().container(Messages.ERR_INVALID_EXPORT_PATH_0));
         }
@@ -1735,6 +1775,7 @@ public class CmsStaticExportManager implements I_CmsEventListener {
                     Messages.get().getBundle().key(Messages.INIT_EXPORT_OPTIMIZATION_1, getPlainExportOptimization()));
                 CmsLog.INIT.info(
                     Messages.get().getBundle().key(Messages.INIT_EXPORT_TESTRESOURCE_1, getTestResource()));
+                CmsLog.INIT.info(Messages.get().getBundle().key(Messages.INIT_EXPORT_THREADS_1, getExportThreads()));
                 CmsLog.INIT.info(
                     Messages.get().getBundle().key(
                         Messages.INIT_LINKSUBSTITUTION_HANDLER_1,
@@ -2120,6 +2161,16 @@ public class CmsStaticExportManager implements I_CmsEventListener {
         m_exportSuffixes.add(suffix.toLowerCase());
     }
 
+    /**
+     * Sets the number of threads rendering the resources of an export in parallel.<p>
+     *
+     * @param threads the number of threads
+     */
+    public void setExportThreads(String threads) {
+
+        m_exportThreads = new Integer(Math.max(1, Integer.parseInt(threads.trim())));
+    }
+
     /**
      * Sets the export url.<p>
      *
@@ -2257,6 +2308,7 @@ public class CmsStaticExportManager implements I_CmsEventListener {
                 count = HANDLER_FINISH_TIME;
             }
         }
+        removeTempFolder();
 
         if (CmsLog.INIT.isInfoEnabled()) {
             CmsLog.INIT.info(Messages.get().getBundle().key(Messages.INIT_SHUTDOWN_1, this.getClass().getName()));
@@ -2571,6 +2623,19 @@ public class CmsStaticExportManager implements I_CmsEventListener {
         return retVal;
     }
 
+    /**
+     * Returns the folder the exported resources are written to, before they are moved to the export path.<p>
+     *
+     * The folder is placed in the <code>WEB-INF</code> folder, so it can not be accessed from outside,
+     * and is removed with {@link #removeTempFolder()} when an export has finished.<p>
+     *
+     * @return the folder for the temporary files of the export
+     */
+    protected File getTempFolder() {
+
+        return new File(m_tempFolderPath);
+    }
+
     /**
      * Substitutes the ${CONTEXT_NAME} and ${SERVLET_NAME} in a path with the real values.<p>
      *
@@ -2716,6 +2781,21 @@ public class CmsStaticExportManager implements I_CmsEventListener {
         return result;
     }
 
+    /**
+     * Removes the folder for the temporary files of the export, after all resources currently written are finished.<p>
+     *
+     * The folder is created again if further resources are exported.<p>
+     */
+    protected void removeTempFolder() {
+
+        m_tempFolderLock.writeLock().lock();
+        try {
+            CmsFileUtil.purgeDirectory(getTempFolder());
+        } finally {
+            m_tempFolderLock.writeLock().unlock();
+        }
+    }
+
     /**
      * Scrubs all the "export" folders.<p>
      *
@@ -2831,11 +2911,32 @@ public class CmsStaticExportManager implements I_CmsEventListener {
         createExportFolder(exportPath, rfsName);
         // generate export file instance and output stream
         File exportFile = new File(exportFileName);
-        // write new exported file content
+        // write the content to a temporary file which is moved to the export file afterwards,
+        // so the export file is never read while it is only partially written
+        m_tempFolderLock.readLock().lock();
+        File tempFolder = getTempFolder();
+        if (!tempFolder.isDirectory() && !tempFolder.mkdirs() && !tempFolder.isDirectory()) {
+            // the folder could not be created, e.g. because of missing permissions, use the export folder
+            tempFolder = exportFile.getParentFile();
+        }
+        File tempFile = new File(tempFolder, exportFile.getName() + "." + new CmsUUID() + TEMP_FILE_SUFFIX);
         try {
-            FileOutputStream exportStream = new FileOutputStream(exportFile);
-            exportStream.write(content);
-            exportStream.close();
+            FileOutputStream exportStream = new FileOutputStream(tempFile);
+            try {
+                exportStream.write(content);
+            } finally {
+                exportStream.close();
+            }
+            setLastModified(req, tempFile, resource);
+            try {
+                Files.move(
+                    tempFile.toPath(),
+                    exportFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile.toPath(), exportFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
 
             // log export success
             if (LOG.isInfoEnabled()) {
@@ -2847,26 +2948,12 @@ public class CmsStaticExportManager implements I_CmsEventListener {
             }
 
         } catch (Throwable t) {
+            tempFile.delete();
             throw new CmsStaticExportException(
                 Messages.get().container(Messages.ERR_OUTPUT_STREAM_1, exportFileName),
                 t);
-        }
-        // update the file with the modification date from the server
-        if (req != null) {
-            Long dateLastModified = (Long)req.getAttribute(CmsRequestUtil.HEADER_OPENCMS_EXPORT);
-            if ((dateLastModified != null) && (dateLastModified.longValue() != -1)) {
-                exportFile.setLastModified((dateLastModified.longValue() / 1000) * 1000);
-                if (LOG.isDebugEnabled()) {
-                    LOG.debug(
-                        Messages.get().getBundle().key(
-                            Messages.LOG_SET_LAST_MODIFIED_2,
-                            exportFile.getName(),
-                            new Long((dateLastModified.longValue() / 1000) * 1000)));
-                }
-            }
-        } else {
-            // otherwise take the last modification date form the OpenCms resource
-            exportFile.setLastModified((resource.getDateLastModified() / 1000) * 1000);
+        } finally {
+            m_tempFolderLock.readLock().unlock();
         }
     }
 
@@ -2925,4 +3012,32 @@ public class CmsStaticExportManager implements I_CmsEventListener {
             return Collections.emptyMap();
         }
     }
+
+    /**
+     * Sets the last modification date of an exported file.<p>
+     *
+     * @param req the current request, or <code>null</code> to use the date of the resource
+     * @param exportFile the exported file
+     * @param resource the exported resource
+     */
+    private void setLastModified(HttpServletRequest req, File exportFile, CmsResource resource) {
+
+        // update the file with the modification date from the server
+        if (req != null) {
+            Long dateLastModified = (Long)req.getAttribute(CmsRequestUtil.HEADER_OPENCMS_EXPORT);
+            if ((dateLastModified != null) && (dateLastModified.longValue() != -1)) {
+                exportFile.setLastModified((dateLastModified.longValue() / 1000) * 1000);
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug(
+                        Messages.get().getBundle().key(
+                            Messages.LOG_SET_LAST_MODIFIED_2,
+                            exportFile.getName(),
+                            new Long((dateLastModified.longValue() / 1000) * 1000)));
+                }
+            }
+        } else {
+            // otherwise take the last modification date form the OpenCms resource
+            exportFile.setLastModified((resource.getDateLastModified() / 1000) * 1000);
+        }
+    }
 }
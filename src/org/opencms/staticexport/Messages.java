@@ -46,6 +46,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_EXPORT_FILE_FAILED_1 = "ERR_EXPORT_FILE_FAILED_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_EXPORT_INTERRUPTED_0 = "ERR_EXPORT_INTERRUPTED_0";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_EXPORT_NOT_SUCCESSFUL_0 = "ERR_EXPORT_NOT_SUCCESSFUL_0";
 
@@ -97,6 +100,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String INIT_EXPORT_TESTRESOURCE_1 = "INIT_EXPORT_TESTRESOURCE_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String INIT_EXPORT_THREADS_1 = "INIT_EXPORT_THREADS_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String INIT_EXPORT_URL_1 = "INIT_EXPORT_URL_1";
 
@@ -172,6 +178,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_EXPORT_TEMPLATES_1 = "LOG_EXPORT_TEMPLATES_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_EXPORT_THREADS_RUNNING_1 = "LOG_EXPORT_THREADS_RUNNING_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_EXPORTING_NON_TEMPLATE_1 = "LOG_EXPORTING_NON_TEMPLATE_1";
 
@@ -331,6 +340,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String RPT_STATICEXPORT_NONTEMPLATE_RESOURCES_END_0 = "RPT_STATICEXPORT_NONTEMPLATE_RESOURCES_END_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String RPT_STATICEXPORT_RATE_3 = "RPT_STATICEXPORT_RATE_3";
+
     /** Message constant for key in the resource bundle. */
     public static final String RPT_STATICEXPORT_TEMPLATE_RESOURCES_BEGIN_0 = "RPT_STATICEXPORT_TEMPLATE_RESOURCES_BEGIN_0";
 
@@ -38,12 +38,14 @@ import org.opencms.loader.CmsLoaderException;
 import org.opencms.lock.CmsLock;
 import org.opencms.main.CmsException;
 import org.opencms.main.CmsLog;
+import org.opencms.main.CmsRuntimeException;
 import org.opencms.main.OpenCms;
 import org.opencms.report.A_CmsReportThread;
 import org.opencms.report.I_CmsReport;
 import org.opencms.search.CmsSearchException;
 import org.opencms.search.solr.CmsSolrIndex;
 import org.opencms.search.solr.CmsSolrQuery;
+import org.opencms.search.solr.CmsSolrResultIterator;
 import org.opencms.ui.apps.Messages;
 import org.opencms.util.CmsRequestUtil;
 import org.opencms.util.CmsStringUtil;
@@ -643,12 +645,16 @@ public class CmsSearchReplaceThread extends A_CmsReportThread {
                 if ((m_settings.getTypesArray() != null) && (m_settings.getTypesArray().length > 0)) {
                     query.setResourceTypes(m_settings.getTypesArray());
                 }
-                query.setRows(new Integer(999999999));
                 query.ensureParameters();
                 try {
-                    resources.addAll(index.search(getCms(), query, true));
+                    CmsSolrResultIterator results = index.iterator(getCms(), query);
+                    while (results.hasNext()) {
+                        resources.add(results.next());
+                    }
                 } catch (CmsSearchException e) {
                     LOG.error(e.getMessage(), e);
+                } catch (CmsRuntimeException e) {
+                    LOG.error(e.getMessage(), e);
                 }
             }
         } else {
@@ -27,27 +27,33 @@
 
 package org.opencms.util;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
+import com.google.common.collect.Sets;
 
 /**
  * Special collection class which allows lookup from keys to values  and from values to sets of keys.<p>
  *
  * It also  implements efficient removal of values, not just keys.<p>
  *
+ * The lookup of values with {@link #get(Object)} can be used concurrently with a single thread
+ * changing the map, so the map can be updated in place instead of being copied for each change.
+ * Neither keys nor values may be <code>null</code>.<p>
+ *
  * @param <K> the key type
  * @param <V> the value type
  */
 public class CmsManyToOneMap<K, V> {
 
     /** Map from keys to values . */
-    private Map<K, V> m_forwardMap = Maps.newHashMap();
+    private Map<K, V> m_forwardMap = new ConcurrentHashMap<K, V>();
 
     /** Map from values to sets of keys. */
     private HashMultimap<V, K> m_reverseMap = HashMultimap.create();
@@ -83,6 +89,16 @@ public class CmsManyToOneMap<K, V> {
         return m_forwardMap.get(key);
     }
 
+    /**
+     * Gets the (immutable) map from keys to values.
+     *
+     * @return the map from keys to values
+     */
+    public Map<K, V> getForwardMap() {
+
+        return Collections.unmodifiableMap(m_forwardMap);
+    }
+
     /**
      * Associates a value with a key.<p>
      *
@@ -91,7 +107,10 @@ public class CmsManyToOneMap<K, V> {
      */
     public void put(K key, V value) {
 
-        m_forwardMap.put(key, value);
+        V oldValue = m_forwardMap.put(key, value);
+        if ((oldValue != null) && !oldValue.equals(value)) {
+            m_reverseMap.remove(oldValue, key);
+        }
         m_reverseMap.put(value, key);
 
     }
@@ -123,13 +142,34 @@ public class CmsManyToOneMap<K, V> {
     }
 
     /**
-     * Gets the (immutable) map from keys to values.
+     * Replaces the keys of a value.<p>
      *
-     * @return the map from keys to values
+     * Only the entries which actually change are touched. Keys which are kept
+     * can be looked up during the whole operation.<p>
+     *
+     * @param value the value
+     * @param keys the new keys of the value
      */
-    Map<K, V> getForwardMap() {
+    public void replaceKeys(V value, Collection<K> keys) {
 
-        return Collections.unmodifiableMap(m_forwardMap);
+        for (K key : keys) {
+            put(key, value);
+        }
+        Set<K> removedKeys = Sets.newHashSet(m_reverseMap.get(value));
+        removedKeys.removeAll(keys);
+        for (K key : removedKeys) {
+            remove(key);
+        }
+    }
+
+    /**
+     * Returns the number of keys.<p>
+     *
+     * @return the number of keys
+     */
+    public int size() {
+
+        return m_forwardMap.size();
     }
 
     /**
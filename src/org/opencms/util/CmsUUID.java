@@ -42,6 +42,9 @@ import org.safehaus.uuid.EthernetAddress;
 import org.safehaus.uuid.UUID;
 import org.safehaus.uuid.UUIDGenerator;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
 /**
  * Generates a UUID using spatial and temporal uniqueness.<p>
  *
@@ -56,7 +59,10 @@ import org.safehaus.uuid.UUIDGenerator;
  * (without using JNI), the MAC address has to be provided first
  * by using the static {@link #init(String)} method.<p>
  *
- * This class is just a facade wrapper for the "real" UUID implementation.<p>
+ * New UUIDs are generated with the "real" UUID implementation, but are stored as two
+ * primitive long values, so a UUID only needs a single small object on the heap.
+ * IDs that are repeated in many objects, like the ids of users and projects, can be shared
+ * with {@link #intern(CmsUUID)}.<p>
  *
  * @since 6.0.0
  */
@@ -65,9 +71,18 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
     /** A regular expression for matching UUIDs. */
     public static final String UUID_REGEX = "[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}";
 
+    /** The hexadecimal digits used for the String representation. */
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /** The pool of interned UUIDs. */
+    private static final Interner<CmsUUID> INTERNER = Interners.newWeakInterner();
+
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsUUID.class);
 
+    /** The length of the String representation of a UUID. */
+    private static final int STRING_LENGTH = 36;
+
     /** Ethernet address of the server machine. */
     private static EthernetAddress m_ethernetAddress;
 
@@ -77,13 +92,16 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
         "www.opencms.org");
 
     /** Constant for the null UUID. */
-    private static final CmsUUID NULL_UUID = new CmsUUID(UUID.getNullUUID());
+    private static final CmsUUID NULL_UUID = new CmsUUID(0L, 0L);
 
     /** Serial version UID required for safe serialization. */
     private static final long serialVersionUID = 1736324454709298676L;
 
-    /** Internal UUID implementation. */
-    private transient UUID m_uuid;
+    /** The least significant 64 bits of this UUID. */
+    private transient long m_leastSigBits;
+
+    /** The most significant 64 bits of this UUID. */
+    private transient long m_mostSigBits;
 
     /**
      * Creates a new UUID.<p>
@@ -99,7 +117,10 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
             // since the empty constructor is called when the de-serialization takes place
             init(CmsStringUtil.getEthernetAddress());
         }
-        m_uuid = UUIDGenerator.getInstance().generateTimeBasedUUID(m_ethernetAddress);
+        UUID uuid = UUIDGenerator.getInstance().generateTimeBasedUUID(m_ethernetAddress);
+        byte[] data = uuid.asByteArray();
+        m_mostSigBits = toLong(data, 0);
+        m_leastSigBits = toLong(data, 8);
     }
 
     /**
@@ -109,7 +130,8 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
      */
     public CmsUUID(byte[] data) {
 
-        m_uuid = new UUID(data);
+        m_mostSigBits = toLong(data, 0);
+        m_leastSigBits = toLong(data, 8);
     }
 
     /**
@@ -121,17 +143,59 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
     public CmsUUID(String uuid)
     throws NumberFormatException {
 
-        m_uuid = new UUID(uuid);
+        if (uuid == null) {
+            throw new NullPointerException();
+        }
+        if (uuid.length() != STRING_LENGTH) {
+            throw new NumberFormatException(Messages.get().getBundle().key(Messages.ERR_INVALID_UUID_1, uuid));
+        }
+        long most = 0;
+        long least = 0;
+        int digits = 0;
+        for (int i = 0; i < STRING_LENGTH; i++) {
+            char c = uuid.charAt(i);
+            if ((i == 8) || (i == 13) || (i == 18) || (i == 23)) {
+                if (c != '-') {
+                    throw new NumberFormatException(
+                        Messages.get().getBundle().key(Messages.ERR_INVALID_UUID_1, uuid));
+                }
+                continue;
+            }
+            int value = hexValue(c);
+            if (value < 0) {
+                throw new NumberFormatException(Messages.get().getBundle().key(Messages.ERR_INVALID_UUID_1, uuid));
+            }
+            if (digits < 16) {
+                most = (most << 4) | value;
+            } else {
+                least = (least << 4) | value;
+            }
+            digits++;
+        }
+        m_mostSigBits = most;
+        m_leastSigBits = least;
+    }
+
+    /**
+     * Create a new UUID from its two halves.<p>
+     *
+     * @param mostSigBits the most significant 64 bits of the UUID
+     * @param leastSigBits the least significant 64 bits of the UUID
+     */
+    private CmsUUID(long mostSigBits, long leastSigBits) {
+
+        m_mostSigBits = mostSigBits;
+        m_leastSigBits = leastSigBits;
     }
 
     /**
-     * Create a new UUID based on another one (used internal for cloning).<p>
+     * Create a new UUID based on a "real" UUID.<p>
      *
-     * @param uuid the UUID to clone
+     * @param uuid the UUID
      */
     private CmsUUID(UUID uuid) {
 
-        m_uuid = uuid;
+        this(uuid.asByteArray());
     }
 
     /**
@@ -215,6 +279,28 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
         }
     }
 
+    /**
+     * Returns a shared instance of the given UUID.<p>
+     *
+     * Use this for ids which are referenced by many objects that are kept in memory,
+     * e.g. the ids of the users and projects referenced by cached resources.
+     * The pool only holds weak references, so unused ids are garbage collected.<p>
+     *
+     * @param uuid the UUID to intern, may be <code>null</code>
+     *
+     * @return the shared instance equal to the given UUID
+     */
+    public static CmsUUID intern(CmsUUID uuid) {
+
+        if (uuid == null) {
+            return null;
+        }
+        if (uuid.isNullUUID()) {
+            return NULL_UUID;
+        }
+        return INTERNER.intern(uuid);
+    }
+
     /**
      * Returns <code>true</code> if the given UUID is valid.<p>
      *
@@ -225,7 +311,7 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
     public static boolean isValidUUID(String uuid) {
 
         try {
-            return (null != uuid) && (null != UUID.valueOf(uuid));
+            return (null != uuid) && (null != valueOf(uuid));
         } catch (NumberFormatException e) {
             // return false
         }
@@ -243,7 +329,76 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
      */
     public static CmsUUID valueOf(String uuid) throws NumberFormatException {
 
-        return new CmsUUID(UUID.valueOf(uuid));
+        return new CmsUUID(uuid);
+    }
+
+    /**
+     * Appends the hexadecimal digits of a value to a character buffer.<p>
+     *
+     * @param buffer the character buffer
+     * @param offset the position of the first digit in the buffer
+     * @param value the value
+     * @param digits the number of digits to append
+     */
+    private static void appendHex(char[] buffer, int offset, long value, int digits) {
+
+        for (int i = digits - 1; i >= 0; i--) {
+            buffer[offset + i] = HEX_DIGITS[(int)(value & 0xf)];
+            value >>>= 4;
+        }
+    }
+
+    /**
+     * Compares two long values as unsigned numbers.<p>
+     *
+     * @param a the first value
+     * @param b the second value
+     *
+     * @return a negative number, zero or a positive number as the first value is less than, equal to, or greater than the second
+     */
+    private static int compareUnsigned(long a, long b) {
+
+        long x = a + Long.MIN_VALUE;
+        long y = b + Long.MIN_VALUE;
+        return (x < y) ? -1 : ((x == y) ? 0 : 1);
+    }
+
+    /**
+     * Returns the value of a hexadecimal digit.<p>
+     *
+     * @param c the digit
+     *
+     * @return the value of the digit, or -1 if the character is no hexadecimal digit
+     */
+    private static int hexValue(char c) {
+
+        if ((c >= '0') && (c <= '9')) {
+            return c - '0';
+        }
+        if ((c >= 'a') && (c <= 'f')) {
+            return (c - 'a') + 10;
+        }
+        if ((c >= 'A') && (c <= 'F')) {
+            return (c - 'A') + 10;
+        }
+        return -1;
+    }
+
+    /**
+     * Reads 8 bytes in network byte order as long value.<p>
+     *
+     * @param data the bytes
+     * @param offset the position of the first byte
+     *
+     * @return the long value
+     */
+    private static long toLong(byte[] data, int offset) {
+
+        long result = 0;
+        for (int i = offset; i < (offset + 8); i++) {
+            result = (result << 8) | (data[i] & 0xff);
+        }
+        return result;
     }
 
     /**
@@ -257,15 +412,35 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
         if (this == NULL_UUID) {
             return NULL_UUID;
         }
-        return new CmsUUID((UUID)m_uuid.clone());
+        return new CmsUUID(m_mostSigBits, m_leastSigBits);
     }
 
     /**
+     * Compares this UUID with another one.<p>
+     *
+     * UUIDs are ordered by their version first. Time based UUIDs are then ordered by their
+     * time stamp, all other UUIDs by their bytes. This is the same order as used by the
+     * "real" UUID implementation.<p>
+     *
      * @see java.lang.Comparable#compareTo(Object)
      */
     public int compareTo(CmsUUID obj) {
 
-        return m_uuid.compareTo(obj.m_uuid);
+        int version = getVersion();
+        int otherVersion = obj.getVersion();
+        if (version != otherVersion) {
+            return version > otherVersion ? 1 : -1;
+        }
+        int result;
+        if (version == 1) {
+            result = compareUnsigned(getTimeKey(), obj.getTimeKey());
+        } else {
+            result = compareUnsigned(m_mostSigBits, obj.m_mostSigBits);
+        }
+        if (result == 0) {
+            result = compareUnsigned(m_leastSigBits, obj.m_leastSigBits);
+        }
+        return result;
     }
 
     /**
@@ -278,7 +453,8 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
             return true;
         }
         if (obj instanceof CmsUUID) {
-            return ((CmsUUID)obj).m_uuid.equals(m_uuid);
+            CmsUUID other = (CmsUUID)obj;
+            return (other.m_mostSigBits == m_mostSigBits) && (other.m_leastSigBits == m_leastSigBits);
         }
         return false;
     }
@@ -303,7 +479,8 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
     @Override
     public int hashCode() {
 
-        return m_uuid.hashCode();
+        long bits = m_mostSigBits ^ m_leastSigBits;
+        return (int)(bits >> 32) ^ (int)bits;
     }
 
     /**
@@ -313,10 +490,7 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
      */
     public boolean isNullUUID() {
 
-        if (this == NULL_UUID) {
-            return true;
-        }
-        return m_uuid.equals(UUID.getNullUUID());
+        return (m_mostSigBits == 0L) && (m_leastSigBits == 0L);
     }
 
     /**
@@ -346,11 +520,10 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
             if (LOG.isDebugEnabled()) {
                 LOG.debug(Messages.get().getBundle().key(Messages.LOG_READ_UUID_1, o));
             }
-            m_uuid = new UUID((String)o);
-        }
-
-        // log an error if the uuid could not be deserialized
-        if (m_uuid == null) {
+            CmsUUID uuid = new CmsUUID((String)o);
+            m_mostSigBits = uuid.m_mostSigBits;
+            m_leastSigBits = uuid.m_leastSigBits;
+        } else {
             // UUID cannot be deserialized
             if (LOG.isDebugEnabled()) {
                 LOG.debug(Messages.get().getBundle().key(Messages.LOG_ERR_READ_UUID_0));
@@ -365,7 +538,12 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
      */
     public byte[] toByteArray() {
 
-        return m_uuid.toByteArray();
+        byte[] result = new byte[16];
+        for (int i = 0; i < 8; i++) {
+            result[i] = (byte)(m_mostSigBits >>> (56 - (i * 8)));
+            result[i + 8] = (byte)(m_leastSigBits >>> (56 - (i * 8)));
+        }
+        return result;
     }
 
     /**
@@ -374,7 +552,17 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
     @Override
     public String toString() {
 
-        return m_uuid.toString();
+        char[] result = new char[STRING_LENGTH];
+        appendHex(result, 0, m_mostSigBits >>> 32, 8);
+        result[8] = '-';
+        appendHex(result, 9, m_mostSigBits >>> 16, 4);
+        result[13] = '-';
+        appendHex(result, 14, m_mostSigBits, 4);
+        result[18] = '-';
+        appendHex(result, 19, m_leastSigBits >>> 48, 4);
+        result[23] = '-';
+        appendHex(result, 24, m_leastSigBits, 12);
+        return new String(result);
     }
 
     /**
@@ -388,4 +576,25 @@ public final class CmsUUID extends Object implements Cloneable, Comparable<CmsUU
         }
         out.writeObject(toString());
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the time stamp of a time based UUID, with the bits of the time stamp in their order of significance.<p>
+     *
+     * @return the time stamp of a time based UUID
+     */
+    private long getTimeKey() {
+
+        // time_hi (including the version), time_mid, time_low
+        return (m_mostSigBits << 48) | ((m_mostSigBits & 0xffff0000L) << 16) | (m_mostSigBits >>> 32);
+    }
+
+    /**
+     * Returns the version of this UUID, e.g. 1 for time based UUIDs.<p>
+     *
+     * @return the version of this UUID
+     */
+    private int getVersion() {
+
+        return (int)((m_mostSigBits >>> 12) & 0xf);
+    }
+}
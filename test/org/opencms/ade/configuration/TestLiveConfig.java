@@ -326,6 +326,35 @@ public class TestLiveConfig extends OpenCmsTestCase {
 
     }
 
+    /**
+     * Tests that the merged configuration of a sub-sitemap is only computed once per cache state.<p>
+     *
+     * @throws Exception -
+     */
+    public void testMemoizedConfiguration() throws Exception {
+
+        CmsObject offlineCms = getCmsObject();
+        OpenCms.getADEManager().refresh();
+        CmsADEManager manager = OpenCms.getADEManager();
+        CmsADEConfigData config1 = manager.lookupConfiguration(offlineCms, "/sites/default/today/news");
+        CmsADEConfigData config2 = manager.lookupConfiguration(offlineCms, "/sites/default/today/news/foo");
+        assertSame(config1, config2);
+        assertSame(config1.getResourceTypes(), config2.getResourceTypes());
+        assertSame(config1.getPropertyConfigurationAsMap(), config2.getPropertyConfigurationAsMap());
+        assertSame(config1.parent(), config2.parent());
+        for (CmsResourceTypeConfig typeConfig : config1.getResourceTypes()) {
+            assertSame(typeConfig, config1.getResourceType(typeConfig.getTypeName()));
+        }
+        assertNull(config1.getResourceType("this-type-does-not-exist"));
+
+        // a new cache state starts with new configuration objects
+        OpenCms.getADEManager().refresh();
+        CmsADEConfigData config3 = manager.lookupConfiguration(offlineCms, "/sites/default/today/news");
+        assertNotSame(config1, config3);
+        assertNotSame(config1.getResourceTypes(), config3.getResourceTypes());
+        checkResourceTypes(offlineCms, "/sites/default/today/news", "foldername", "c3", "e3", "a1", "b1");
+    }
+
     /**
      * Tests that newly created module configurations are reflected in the configuration objects.<p>
      *
@@ -0,0 +1,244 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.cache;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import com.google.common.base.Predicate;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+
+import junit.framework.TestCase;
+
+/**
+ * Test case for CmsCacheMap.<p>
+ */
+public class TestCmsCacheMap extends TestCase {
+
+    /**
+     * Tests the selective invalidation of entries.<p>
+     */
+    public void testInvalidate() {
+
+        CmsCacheMap<String, String> cache = new CmsCacheMap<String, String>(-1);
+        cache.put("a_user1", "1");
+        cache.put("b_user1", "2");
+        cache.put("a_user2", "3");
+        cache.put("c", "4");
+        int removed = cache.invalidateIf(new Predicate<String>() {
+
+            public boolean apply(String key) {
+
+                return key.endsWith("_user1");
+            }
+        });
+        assertEquals(2, removed);
+        assertEquals(2, cache.size());
+        assertEquals("3", cache.get("a_user2"));
+        cache.invalidate(Arrays.asList("c", "x"));
+        assertEquals(1, cache.size());
+        assertNull(cache.get("c"));
+    }
+
+    /**
+     * Tests that a value is not cached if one of its dependencies has been invalidated, or the cache
+     * has been cleared, after the value was read.<p>
+     */
+    public void testInvalidateBeforePut() {
+
+        CmsCacheMap<String, String> cache = new CmsCacheMap<String, String>(-1);
+        List<String> dependencies = Collections.singletonList("/folder/");
+
+        long[] snapshot = cache.snapshot();
+        // the value is read from its source here, then the folder changes
+        cache.invalidateDependents("/folder/");
+        cache.put("list", "stale", dependencies, snapshot);
+        assertNull(cache.get("list"));
+
+        snapshot = cache.snapshot();
+        cache.clear();
+        cache.put("list", "stale", dependencies, snapshot);
+        assertNull(cache.get("list"));
+
+        snapshot = cache.snapshot();
+        cache.put("list", "current", dependencies, snapshot);
+        assertEquals("current", cache.get("list"));
+        assertEquals(1, cache.invalidateDependents("/folder/"));
+        assertNull(cache.get("list"));
+    }
+
+    /**
+     * Tests that a value is not cached if one of its dependencies is invalidated while it is added.<p>
+     */
+    public void testInvalidateDuringPut() {
+
+        final CmsCacheMap<String, String> cache = new CmsCacheMap<String, String>(-1);
+        // invalidates the dependency every time the cache iterates over the dependencies
+        Collection<String> dependencies = new AbstractCollection<String>() {
+
+            @Override
+            public Iterator<String> iterator() {
+
+                cache.invalidateDependents("/folder/");
+                return Collections.singletonList("/folder/").iterator();
+            }
+
+            @Override
+            public int size() {
+
+                return 1;
+            }
+        };
+        cache.put("list", "stale", dependencies);
+        assertNull(cache.get("list"));
+
+        cache.put("list", "current", Collections.singletonList("/folder/"));
+        assertEquals("current", cache.get("list"));
+        assertEquals(1, cache.invalidateDependents("/folder/"));
+        assertNull(cache.get("list"));
+    }
+
+    /**
+     * Tests that values are loaded only once.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testLoad() throws Exception {
+
+        CmsCacheMap<String, String> cache = new CmsCacheMap<String, String>(10);
+        final int[] loads = new int[1];
+        Callable<String> loader = new Callable<String>() {
+
+            public String call() {
+
+                loads[0]++;
+                return "value";
+            }
+        };
+        assertEquals("value", cache.get("key", loader));
+        assertEquals("value", cache.get("key", loader));
+        assertEquals(1, loads[0]);
+        assertEquals(1, cache.getStats().loadCount());
+        try {
+            cache.get("fail", new Callable<String>() {
+
+                public String call() throws Exception {
+
+                    throw new IllegalStateException("fail");
+                }
+            });
+            fail("The exception of the loader must be passed on");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertFalse(cache.containsKey("fail"));
+    }
+
+    /**
+     * Tests the size limit and the statistics.<p>
+     */
+    public void testSizeLimit() {
+
+        CmsCacheMap<String, String> cache = new CmsCacheMap<String, String>(2);
+        assertEquals(2, cache.getMaxSize());
+        assertEquals(-1, cache.getMaxWeight());
+        cache.put("a", "1");
+        cache.put("b", "2");
+        assertEquals("1", cache.get("a"));
+        cache.put("c", "3");
+        // the least recently used entry has been evicted
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b"));
+        assertEquals("3", cache.get("c"));
+        assertNull(cache.get(null));
+
+        CacheStats stats = cache.getStats();
+        assertEquals(2, stats.hitCount());
+        assertEquals(1, stats.missCount());
+        assertEquals(1, stats.evictionCount());
+    }
+
+    /**
+     * Tests the weight limit.<p>
+     */
+    public void testWeightLimit() {
+
+        CmsCacheMap<String, List<String>> cache = new CmsCacheMap<String, List<String>>(
+            10,
+            new Weigher<String, List<String>>() {
+
+                public int weigh(String key, List<String> value) {
+
+                    return value.size();
+                }
+            });
+        assertEquals(10, cache.getMaxWeight());
+        cache.put("a", Arrays.asList("1", "2", "3", "4"));
+        cache.put("b", Arrays.asList("1", "2", "3", "4"));
+        assertEquals(2, cache.size());
+        cache.put("c", Arrays.asList("1", "2", "3", "4"));
+        assertEquals(2, cache.size());
+        assertNull(cache.get("a"));
+        assertEquals(1, cache.getStats().evictionCount());
+    }
+
+    /**
+     * Tests that an entry heavier than the share of a single cache segment stays cached.<p>
+     */
+    public void testWeightLimitLargeEntry() {
+
+        CmsCacheMap<String, List<String>> cache = new CmsCacheMap<String, List<String>>(
+            1000,
+            new Weigher<String, List<String>>() {
+
+                public int weigh(String key, List<String> value) {
+
+                    return value.size() + 1;
+                }
+            });
+        List<String> largeList = new ArrayList<String>();
+        for (int i = 0; i < 600; i++) {
+            largeList.add(String.valueOf(i));
+        }
+        cache.put("large", largeList);
+        for (int i = 0; i < 10; i++) {
+            cache.put("small" + i, Arrays.asList("1", "2", "3", "4"));
+        }
+        assertSame(largeList, cache.get("large"));
+        assertEquals(11, cache.size());
+        assertEquals(0, cache.getStats().evictionCount());
+    }
+}
@@ -0,0 +1,342 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.cache;
+
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProject;
+import org.opencms.file.CmsResource;
+import org.opencms.file.types.CmsResourceTypeBinary;
+import org.opencms.main.CmsException;
+import org.opencms.main.OpenCms;
+import org.opencms.report.CmsShellReport;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+import org.opencms.util.CmsFileUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the streaming content reads and the RFS mirror for the content of large files.<p>
+ */
+public class TestCmsVfsContentMirror extends OpenCmsTestCase {
+
+    /** The folder of the mirror used in the tests, relative to the web application. */
+    private static final String MIRROR_FOLDER = "WEB-INF/contentmirror-test/";
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsVfsContentMirror(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     *
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsVfsContentMirror.class.getName());
+
+        suite.addTest(new TestCmsVfsContentMirror("testReadContent"));
+        suite.addTest(new TestCmsVfsContentMirror("testMirror"));
+        suite.addTest(new TestCmsVfsContentMirror("testMirrorConcurrently"));
+        suite.addTest(new TestCmsVfsContentMirror("testRemoveAfterPublish"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Tests that the content of large online files is mirrored, and replaced when the content changes.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testMirror() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the RFS mirror for the content of large files");
+
+        byte[] content = createContent(4096, 1);
+        cms.createResource("/mirror.bin", CmsResourceTypeBinary.getStaticTypeId(), content, null);
+        cms.createResource("/small.bin", CmsResourceTypeBinary.getStaticTypeId(), createContent(100, 2), null);
+        publishProject(cms);
+
+        CmsVfsContentMirror mirror = new CmsVfsContentMirror(
+            OpenCms.getSystemInfo().getWebApplicationRfsPath(),
+            MIRROR_FOLDER,
+            1024);
+        try {
+            CmsObject onlineCms = getOnlineCmsObject(cms);
+            CmsResource resource = onlineCms.readResource("/mirror.bin");
+            File file = mirror.getFile(onlineCms, resource);
+            assertNotNull(file);
+            assertTrue(Arrays.equals(content, CmsFileUtil.readFile(file)));
+            // the mirror file is reused as long as the content does not change
+            assertEquals(file, mirror.getFile(onlineCms, resource));
+
+            // small files and offline files are not mirrored
+            assertNull(mirror.getFile(onlineCms, onlineCms.readResource("/small.bin")));
+            assertNull(mirror.getFile(cms, cms.readResource("/mirror.bin")));
+
+            // a new content version replaces the old mirror file
+            byte[] changedContent = createContent(8192, 3);
+            cms.lockResource("/mirror.bin");
+            cms.replaceResource("/mirror.bin", CmsResourceTypeBinary.getStaticTypeId(), changedContent, null);
+            cms.unlockResource("/mirror.bin");
+            publishProject(cms);
+            CmsResource changed = onlineCms.readResource("/mirror.bin");
+            File changedFile = mirror.getFile(onlineCms, changed);
+            assertNotNull(changedFile);
+            assertFalse(file.equals(changedFile));
+            assertFalse(file.exists());
+            assertTrue(Arrays.equals(changedContent, CmsFileUtil.readFile(changedFile)));
+        } finally {
+            CmsFileUtil.purgeDirectory(new File(mirror.getRepositoryPath()));
+        }
+    }
+
+    /**
+     * Tests that concurrent requests for a file which is not mirrored yet write the mirror file only once.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testMirrorConcurrently() throws Exception {
+
+        final CmsObject cms = getCmsObject();
+        echo("Testing concurrent requests for a file which is not mirrored yet");
+
+        byte[] content = createContent(4096, 7);
+        cms.createResource("/concurrent.bin", CmsResourceTypeBinary.getStaticTypeId(), content, null);
+        publishProject(cms);
+
+        final AtomicInteger writes = new AtomicInteger();
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch proceed = new CountDownLatch(1);
+        final CmsVfsContentMirror mirror = new CmsVfsContentMirror(
+            OpenCms.getSystemInfo().getWebApplicationRfsPath(),
+            MIRROR_FOLDER,
+            1024) {
+
+            @Override
+            protected File writeFile(CmsObject userCms, CmsResource resource, File file)
+            throws CmsException, IOException {
+
+                writes.incrementAndGet();
+                writing.countDown();
+                try {
+                    proceed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.writeFile(userCms, resource, file);
+            }
+        };
+        int requests = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        try {
+            List<Future<File>> results = new ArrayList<Future<File>>();
+            for (int i = 0; i < requests; i++) {
+                results.add(executor.submit(new Callable<File>() {
+
+                    public File call() throws Exception {
+
+                        CmsObject onlineCms = getOnlineCmsObject(cms);
+                        return mirror.getFile(onlineCms, onlineCms.readResource("/concurrent.bin"));
+                    }
+                }));
+            }
+            // let the other requests find the running write before it finishes
+            assertTrue(writing.await(10, TimeUnit.SECONDS));
+            Thread.sleep(500);
+            proceed.countDown();
+
+            File file = results.get(0).get(10, TimeUnit.SECONDS);
+            assertNotNull(file);
+            for (Future<File> result : results) {
+                assertEquals(file, result.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(1, writes.get());
+            assertTrue(Arrays.equals(content, CmsFileUtil.readFile(file)));
+        } finally {
+            proceed.countDown();
+            executor.shutdownNow();
+            CmsFileUtil.purgeDirectory(new File(mirror.getRepositoryPath()));
+        }
+    }
+
+    /**
+     * Tests that the content written to a stream matches the content read as a whole.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testReadContent() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the streaming content read");
+
+        byte[] content = createContent(100000, 4);
+        cms.createResource("/stream.bin", CmsResourceTypeBinary.getStaticTypeId(), content, null);
+        publishProject(cms);
+
+        ByteArrayOutputStream offline = new ByteArrayOutputStream();
+        assertEquals(content.length, cms.readContent(cms.readResource("/stream.bin"), offline));
+        assertTrue(Arrays.equals(content, offline.toByteArray()));
+
+        CmsObject onlineCms = getOnlineCmsObject(cms);
+        ByteArrayOutputStream online = new ByteArrayOutputStream();
+        assertEquals(content.length, onlineCms.readContent(onlineCms.readResource("/stream.bin"), online));
+        assertTrue(Arrays.equals(content, online.toByteArray()));
+    }
+
+    /**
+     * Tests that the mirror files of republished and deleted resources are removed after publishing.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testRemoveAfterPublish() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the removal of mirror files after publishing");
+
+        cms.createResource("/removed.bin", CmsResourceTypeBinary.getStaticTypeId(), createContent(4096, 5), null);
+        publishProject(cms);
+
+        CmsVfsContentMirror mirror = new CmsVfsContentMirror(
+            OpenCms.getSystemInfo().getWebApplicationRfsPath(),
+            MIRROR_FOLDER,
+            1024);
+        mirror.initialize(cms);
+        try {
+            CmsObject onlineCms = getOnlineCmsObject(cms);
+            File file = mirror.getFile(onlineCms, onlineCms.readResource("/removed.bin"));
+            assertTrue(file.exists());
+
+            // republishing a changed content removes the mirror file of the old content
+            cms.lockResource("/removed.bin");
+            cms.replaceResource("/removed.bin", CmsResourceTypeBinary.getStaticTypeId(), createContent(8192, 6), null);
+            publishProject(cms);
+            assertFalse(file.exists());
+
+            // deleting the resource removes the mirror file of the current content
+            file = mirror.getFile(onlineCms, onlineCms.readResource("/removed.bin"));
+            assertTrue(file.exists());
+            cms.lockResource("/removed.bin");
+            cms.deleteResource("/removed.bin", CmsResource.DELETE_PRESERVE_SIBLINGS);
+            publishProject(cms);
+            assertFalse(file.exists());
+        } finally {
+            OpenCms.removeCmsEventListener(mirror);
+            CmsFileUtil.purgeDirectory(new File(mirror.getRepositoryPath()));
+        }
+    }
+
+    /**
+     * Creates a test content.<p>
+     *
+     * @param length the length of the content
+     * @param seed the value used to vary the content
+     *
+     * @return the test content
+     */
+    private byte[] createContent(int length, int seed) {
+
+        byte[] result = new byte[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = (byte)((i * seed) % 251);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a copy of the given cms context for the online project.<p>
+     *
+     * @param cms the cms context
+     *
+     * @return the online cms context
+     *
+     * @throws Exception if something goes wrong
+     */
+    private CmsObject getOnlineCmsObject(CmsObject cms) throws Exception {
+
+        CmsObject onlineCms = OpenCms.initCmsObject(cms);
+        onlineCms.getRequestContext().setCurrentProject(cms.readProject(CmsProject.ONLINE_PROJECT_ID));
+        return onlineCms;
+    }
+
+    /**
+     * Publishes the current project and waits for the publish job to finish.<p>
+     *
+     * @param cms the cms context
+     *
+     * @throws Exception if something goes wrong
+     */
+    private void publishProject(CmsObject cms) throws Exception {
+
+        cms.unlockProject(cms.getRequestContext().getCurrentProject().getUuid());
+        OpenCms.getPublishManager().publishProject(cms, new CmsShellReport(cms.getRequestContext().getLocale()));
+        OpenCms.getPublishManager().waitWhileRunning();
+    }
+}
@@ -80,6 +80,9 @@ public class TestConfiguration extends OpenCmsTestCase {
         CmsWorkplaceConfiguration wpConfig = (CmsWorkplaceConfiguration)manager.getConfiguration(
             CmsWorkplaceConfiguration.class);
         wpConfig.getWorkplaceManager().getDefaultUserSettings().initPreferences(wpConfig.getWorkplaceManager());
+        CmsImportExportConfiguration ieConfig = (CmsImportExportConfiguration)manager.getConfiguration(
+            CmsImportExportConfiguration.class);
+        assertEquals(new Integer(4), ieConfig.getStaticExportManager().getExportThreads());
 
         // generate an output XML format
         List<I_CmsXmlConfiguration> allConfigurations = new ArrayList<I_CmsXmlConfiguration>();
@@ -65,6 +65,15 @@ public final class AllTests {
         suite.addTest(TestSubscriptionManager.suite());
         suite.addTest(TestAliases.suite());
         suite.addTest(TestUrlNameMapping.suite());
+        suite.addTest(new TestSuite(TestCmsRewriteAliasMatcher.class));
+        suite.addTest(TestPublishBatch.suite());
+        suite.addTest(TestCacheInvalidation.suite());
+        suite.addTest(TestCmsRequestReadCache.suite());
+        suite.addTest(TestCmsAclTree.suite());
+        suite.addTest(new TestSuite(TestCmsConcurrentDbPool.class));
+        suite.addTest(new TestSuite(TestCmsSqlStatistics.class));
+        suite.addTest(TestCmsBulkRead.suite());
+        suite.addTest(new TestSuite(TestCmsLogWriter.class));
         // $JUnit-END$
         return suite;
     }
@@ -0,0 +1,256 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.db;
+
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProperty;
+import org.opencms.file.CmsPropertyDefinition;
+import org.opencms.file.CmsResource;
+import org.opencms.file.CmsResourceFilter;
+import org.opencms.main.OpenCms;
+import org.opencms.monitor.CmsMemoryMonitor;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import com.google.common.cache.CacheStats;
+
+/**
+ * Tests that changes of single resources only remove the dependent entries from the driver manager caches,
+ * and measures the cache hit ratio under a simulated editing workload.<p>
+ */
+public class TestCacheInvalidation extends OpenCmsTestCase {
+
+    /** The number of edit operations of the simulated editing workload. */
+    private static final int EDIT_COUNT = 20;
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCacheInvalidation(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     *
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCacheInvalidation.class.getName());
+
+        suite.addTest(new TestCacheInvalidation("testPropertyInvalidation"));
+        suite.addTest(new TestCacheInvalidation("testResourceListInvalidation"));
+        suite.addTest(new TestCacheInvalidation("testEditingWorkloadHitRatio"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Measures the hit ratio of the permission, property and resource list caches while the files
+     * of one folder are edited and the files of another folder are read.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testEditingWorkloadHitRatio() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Measuring the cache hit ratio under a simulated editing workload");
+
+        List<CmsResource> readFiles = cms.readResources("/folder1/", CmsResourceFilter.DEFAULT_FILES, true);
+        List<CmsResource> editedFiles = new ArrayList<CmsResource>(
+            cms.readResources("/folder2/", CmsResourceFilter.DEFAULT_FILES, true));
+        // changes of resources with siblings still flush the caches completely
+        Iterator<CmsResource> it = editedFiles.iterator();
+        while (it.hasNext()) {
+            if (it.next().getSiblingCount() > 1) {
+                it.remove();
+            }
+        }
+        assertFalse(readFiles.isEmpty());
+        assertFalse(editedFiles.isEmpty());
+
+        // warm up the caches
+        readAll(cms, readFiles);
+
+        CmsMemoryMonitor monitor = OpenCms.getMemoryMonitor();
+        CacheStats permissionStats = monitor.getCacheStats(CmsMemoryMonitor.CacheType.PERMISSION);
+        CacheStats propertyStats = monitor.getCacheStats(CmsMemoryMonitor.CacheType.PROPERTY_LIST);
+        CacheStats listStats = monitor.getCacheStats(CmsMemoryMonitor.CacheType.RESOURCE_LIST);
+
+        for (int i = 0; i < EDIT_COUNT; i++) {
+            String path = cms.getSitePath(editedFiles.get(i % editedFiles.size()));
+            cms.lockResource(path);
+            cms.writePropertyObject(path, new CmsProperty(CmsPropertyDefinition.PROPERTY_TITLE, "Edit " + i, null));
+            cms.unlockResource(path);
+            readAll(cms, readFiles);
+        }
+
+        permissionStats = monitor.getCacheStats(CmsMemoryMonitor.CacheType.PERMISSION).minus(permissionStats);
+        propertyStats = monitor.getCacheStats(CmsMemoryMonitor.CacheType.PROPERTY_LIST).minus(propertyStats);
+        listStats = monitor.getCacheStats(CmsMemoryMonitor.CacheType.RESOURCE_LIST).minus(listStats);
+        echoHitRatio("Permission", permissionStats);
+        echoHitRatio("Property list", propertyStats);
+        echoHitRatio("Resource list", listStats);
+
+        // edits in another folder must not remove the entries of the read files
+        assertTrue(permissionStats.hitRate() > 0.9);
+        assertTrue(propertyStats.hitRate() > 0.9);
+        assertTrue(listStats.hitRate() > 0.9);
+    }
+
+    /**
+     * Tests that searched properties are updated after a property of a parent folder has changed.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testPropertyInvalidation() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the invalidation of cached properties");
+
+        String folder = "/folder1/subfolder11/";
+        String file = "/folder1/subfolder11/subsubfolder111/text.txt";
+        String name = CmsPropertyDefinition.PROPERTY_DESCRIPTION;
+
+        // cache the properties of the file and of a file in another folder
+        assertTrue(cms.readPropertyObject(file, name, true).isNullProperty());
+        cms.readPropertyObjects("/folder2/index.html", true);
+
+        cms.lockResource(folder);
+        cms.writePropertyObject(folder, new CmsProperty(name, "Folder description", null));
+        cms.unlockResource(folder);
+
+        assertEquals("Folder description", cms.readPropertyObject(file, name, true).getValue());
+        assertTrue(cms.readPropertyObject(file, name, false).isNullProperty());
+
+        // the properties of the file itself
+        cms.lockResource(file);
+        cms.writePropertyObject(file, new CmsProperty(name, "File description", null));
+        cms.unlockResource(file);
+
+        assertEquals("File description", cms.readPropertyObject(file, name, false).getValue());
+        assertEquals("File description", cms.readPropertyObject(file, name, true).getValue());
+        assertEquals("Folder description", cms.readPropertyObject(folder, name, false).getValue());
+    }
+
+    /**
+     * Tests that cached resource lists are updated after the state of a resource in their sub-tree has changed.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testResourceListInvalidation() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the invalidation of cached resource lists");
+
+        String file = "/folder1/subfolder12/page2.html";
+        CmsResource resource = cms.readResource(file);
+        assertTrue(resource.getState().isUnchanged());
+
+        List<CmsResource> changed = cms.readResources("/folder1/", CmsResourceFilter.ALL_MODIFIED, true);
+        assertFalse(changed.contains(resource));
+
+        cms.lockResource(file);
+        cms.writePropertyObject(file, new CmsProperty(CmsPropertyDefinition.PROPERTY_TITLE, "Changed title", null));
+        cms.unlockResource(file);
+
+        assertTrue(cms.readResource(file).getState().isChanged());
+        changed = cms.readResources("/folder1/", CmsResourceFilter.ALL_MODIFIED, true);
+        assertTrue(changed.contains(resource));
+        assertTrue(cms.readResources("/folder1/subfolder12/", CmsResourceFilter.ALL_MODIFIED, false).contains(
+            resource));
+    }
+
+    /**
+     * Writes the hit ratio of a cache to the test output.<p>
+     *
+     * @param name the name of the cache
+     * @param stats the statistics of the cache
+     */
+    private void echoHitRatio(String name, CacheStats stats) {
+
+        echo(
+            name
+                + " cache hit ratio: "
+                + stats.hitRate()
+                + " ("
+                + stats.hitCount()
+                + " hits, "
+                + stats.missCount()
+                + " misses)");
+    }
+
+    /**
+     * Reads the given resources, their properties and the resources of their parent folders.<p>
+     *
+     * @param cms the CMS context
+     * @param resources the resources to read
+     *
+     * @throws Exception if something goes wrong
+     */
+    private void readAll(CmsObject cms, List<CmsResource> resources) throws Exception {
+
+        for (CmsResource resource : resources) {
+            String path = cms.getSitePath(resource);
+            cms.readResource(path);
+            cms.readPropertyObjects(path, true);
+            cms.getResourcesInFolder(CmsResource.getParentFolder(path), CmsResourceFilter.DEFAULT);
+        }
+    }
+}
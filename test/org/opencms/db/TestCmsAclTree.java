@@ -0,0 +1,330 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.db;
+
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProject;
+import org.opencms.file.CmsResource;
+import org.opencms.file.CmsResourceFilter;
+import org.opencms.file.types.CmsResourceTypeFolder;
+import org.opencms.file.types.CmsResourceTypePlain;
+import org.opencms.main.OpenCms;
+import org.opencms.monitor.CmsMemoryMonitor;
+import org.opencms.security.CmsAccessControlEntry;
+import org.opencms.security.CmsAccessControlList;
+import org.opencms.security.CmsPermissionSetCustom;
+import org.opencms.security.I_CmsPrincipal;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+import org.opencms.util.CmsUUID;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the tree of inherited access control entries.<p>
+ */
+public class TestCmsAclTree extends OpenCmsTestCase {
+
+    /** The folder the test resources are created in. */
+    private static final String FOLDER = "/acltree/";
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsAclTree(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     *
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsAclTree.class.getName());
+
+        suite.addTest(new TestCmsAclTree("testSameAccessControlLists"));
+        suite.addTest(new TestCmsAclTree("testNoDatabaseAccess"));
+        suite.addTest(new TestCmsAclTree("testChangedEntries"));
+        suite.addTest(new TestCmsAclTree("testMoveAndDelete"));
+        suite.addTest(new TestCmsAclTree("testPublishAndUndo"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                OpenCms.getMemoryMonitor().disableCache(CmsMemoryMonitor.CacheType.ACL_TREE);
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Tests that the tree is updated after access control entries have been changed.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testChangedEntries() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the tree after changes of access control entries");
+
+        assertSameAccessControlLists(cms);
+        cms.lockResource(FOLDER);
+        cms.chacc(FOLDER + "a/", I_CmsPrincipal.PRINCIPAL_GROUP, "Guests", "-r+i");
+        assertSameAccessControlLists(cms);
+        cms.chacc(FOLDER + "a/b/", I_CmsPrincipal.PRINCIPAL_GROUP, "Users", "+w+o+i");
+        assertSameAccessControlLists(cms);
+        cms.rmacc(FOLDER + "a/b/c/", I_CmsPrincipal.PRINCIPAL_GROUP, CmsAccessControlEntry.PRINCIPAL_OVERWRITE_ALL_NAME);
+        assertSameAccessControlLists(cms);
+        cms.chacc(FOLDER + "a/b/c/", I_CmsPrincipal.PRINCIPAL_GROUP, "Guests", "+v+i");
+        assertSameAccessControlLists(cms);
+        cms.chacc(FOLDER + "a/file.txt", I_CmsPrincipal.PRINCIPAL_GROUP, "Guests", "+r");
+        assertSameAccessControlLists(cms);
+        cms.unlockResource(FOLDER);
+    }
+
+    /**
+     * Tests that the tree is updated after folders have been moved or deleted.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testMoveAndDelete() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the tree after moving and deleting folders");
+
+        assertSameAccessControlLists(cms);
+        cms.lockResource(FOLDER);
+        cms.moveResource(FOLDER + "a/b/", FOLDER + "d/b/");
+        assertSameAccessControlLists(cms);
+        cms.moveResource(FOLDER + "d/", FOLDER + "a/d/");
+        assertSameAccessControlLists(cms);
+        // create a folder with the former path of a moved folder
+        cms.createResource(FOLDER + "a/b/", CmsResourceTypeFolder.getStaticTypeId());
+        cms.createResource(FOLDER + "a/b/file.txt", CmsResourceTypePlain.getStaticTypeId());
+        cms.chacc(FOLDER + "a/b/", I_CmsPrincipal.PRINCIPAL_GROUP, "Guests", "+w+i");
+        assertSameAccessControlLists(cms);
+        cms.copyResource(FOLDER + "a/d/", FOLDER + "e/", CmsResource.COPY_AS_NEW);
+        assertSameAccessControlLists(cms);
+        cms.deleteResource(FOLDER + "a/d/", CmsResource.DELETE_PRESERVE_SIBLINGS);
+        assertSameAccessControlLists(cms);
+        cms.unlockResource(FOLDER);
+    }
+
+    /**
+     * Tests that access control lists computed by the tree are not read from the database again.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testNoDatabaseAccess() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing that the tree does not read from the database after it has been filled");
+
+        OpenCms.getMemoryMonitor().enableCache(CmsMemoryMonitor.CacheType.ACL_TREE);
+        CmsAclTree aclTree = OpenCms.getMemoryMonitor().getAclTree(false);
+        assertNotNull(aclTree);
+        getAccessControlLists(cms);
+        long readCount = aclTree.getReadCount();
+        assertTrue(aclTree.getFolderCount() > 0);
+        for (int i = 0; i < 3; i++) {
+            OpenCms.getMemoryMonitor().flushCache(CmsMemoryMonitor.CacheType.ACL);
+            getAccessControlLists(cms);
+        }
+        assertEquals(readCount, aclTree.getReadCount());
+
+        // changes of users or groups do not affect the tree
+        OpenCms.getMemoryMonitor().clearPrincipalsCache();
+        getAccessControlLists(cms);
+        assertEquals(readCount, aclTree.getReadCount());
+
+        // a disabled tree is not used
+        OpenCms.getMemoryMonitor().disableCache(CmsMemoryMonitor.CacheType.ACL_TREE);
+        assertNull(OpenCms.getMemoryMonitor().getAclTree(false));
+        assertEquals(0, aclTree.getFolderCount());
+    }
+
+    /**
+     * Tests the tree in the online project and after undoing changes of access control entries.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testPublishAndUndo() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the tree after publishing and undoing changes");
+
+        OpenCms.getPublishManager().publishResource(cms, FOLDER);
+        OpenCms.getPublishManager().waitWhileRunning();
+        assertSameAccessControlLists(getOnlineCmsObject());
+        assertSameAccessControlLists(cms);
+
+        cms.lockResource(FOLDER);
+        cms.chacc(FOLDER + "a/", I_CmsPrincipal.PRINCIPAL_GROUP, "Guests", "+r+w+i");
+        cms.chacc(FOLDER + "a/", I_CmsPrincipal.PRINCIPAL_GROUP, "Users", "-w+i");
+        assertSameAccessControlLists(cms);
+        cms.undoChanges(FOLDER + "a/", CmsResource.UNDO_CONTENT);
+        assertSameAccessControlLists(cms);
+        assertSameAccessControlLists(getOnlineCmsObject());
+        cms.unlockResource(FOLDER);
+    }
+
+    /**
+     * Tests that the tree computes the same access control lists as the driver manager without the tree.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testSameAccessControlLists() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing that the tree computes the same access control lists");
+
+        cms.createResource(FOLDER, CmsResourceTypeFolder.getStaticTypeId());
+        String path = FOLDER;
+        for (String name : new String[] {"a", "b", "c"}) {
+            path += name + "/";
+            cms.createResource(path, CmsResourceTypeFolder.getStaticTypeId());
+            cms.createResource(path + "file.txt", CmsResourceTypePlain.getStaticTypeId());
+        }
+        cms.createResource(FOLDER + "d/", CmsResourceTypeFolder.getStaticTypeId());
+        cms.createResource(FOLDER + "file.txt", CmsResourceTypePlain.getStaticTypeId());
+
+        // entries which are inherited, not inherited, overwrite inherited entries or stop the inheritance
+        cms.chacc(FOLDER, I_CmsPrincipal.PRINCIPAL_GROUP, "Users", "+r+v+i");
+        cms.chacc(FOLDER, I_CmsPrincipal.PRINCIPAL_GROUP, "Guests", "+r");
+        cms.chacc(FOLDER + "a/", I_CmsPrincipal.PRINCIPAL_GROUP, "Users", "+w");
+        cms.chacc(FOLDER + "a/", I_CmsPrincipal.PRINCIPAL_GROUP, "Administrators", "-d+i");
+        cms.chacc(FOLDER + "a/b/", I_CmsPrincipal.PRINCIPAL_GROUP, "Users", "+r+o+i");
+        cms.chacc(FOLDER + "a/b/", I_CmsPrincipal.PRINCIPAL_GROUP, CmsAccessControlEntry.PRINCIPAL_ALL_OTHERS_NAME, "+v+i");
+        cms.chacc(
+            FOLDER + "a/b/c/",
+            I_CmsPrincipal.PRINCIPAL_GROUP,
+            CmsAccessControlEntry.PRINCIPAL_OVERWRITE_ALL_NAME,
+            "");
+        cms.chacc(FOLDER + "a/b/c/", I_CmsPrincipal.PRINCIPAL_GROUP, "Guests", "+r+i");
+        cms.chacc(FOLDER + "a/b/c/file.txt", I_CmsPrincipal.PRINCIPAL_GROUP, "Users", "-r+o");
+        cms.unlockResource(FOLDER);
+
+        assertSameAccessControlLists(cms);
+    }
+
+    /**
+     * Asserts that the tree computes the same access control lists for the test resources
+     * as the driver manager without the tree.<p>
+     *
+     * The tree keeps its state from the last call, so changes since then are
+     * computed by the updated tree.<p>
+     *
+     * @param cms the current users context
+     *
+     * @throws Exception if something goes wrong
+     */
+    private void assertSameAccessControlLists(CmsObject cms) throws Exception {
+
+        CmsMemoryMonitor monitor = OpenCms.getMemoryMonitor();
+        monitor.enableCache(CmsMemoryMonitor.CacheType.ACL_TREE);
+        Map<String, String> treeAcls = getAccessControlLists(cms);
+        monitor.disableCache(CmsMemoryMonitor.CacheType.ACL_TREE);
+        monitor.flushCache(CmsMemoryMonitor.CacheType.ACL);
+        Map<String, String> expectedAcls = getAccessControlLists(cms);
+        monitor.enableCache(CmsMemoryMonitor.CacheType.ACL_TREE);
+        assertEquals(expectedAcls, treeAcls);
+        // fill the tree again, so the next call checks the updated tree
+        getAccessControlLists(cms);
+    }
+
+    /**
+     * Returns the access control lists of all test resources.<p>
+     *
+     * @param cms the current users context
+     *
+     * @return the permissions of the principals by resource path
+     *
+     * @throws Exception if something goes wrong
+     */
+    private Map<String, String> getAccessControlLists(CmsObject cms) throws Exception {
+
+        List<String> paths = new ArrayList<String>();
+        paths.add("/");
+        paths.add(FOLDER);
+        for (CmsResource resource : cms.readResources(FOLDER, CmsResourceFilter.ALL, true)) {
+            paths.add(cms.getSitePath(resource));
+        }
+        Map<String, String> result = new TreeMap<String, String>();
+        for (String path : paths) {
+            for (boolean inheritedOnly : new boolean[] {false, true}) {
+                CmsAccessControlList acl = cms.getAccessControlList(path, inheritedOnly);
+                Map<String, String> permissions = new TreeMap<String, String>();
+                for (Map.Entry<CmsUUID, CmsPermissionSetCustom> entry : acl.getPermissionMap().entrySet()) {
+                    permissions.put(entry.getKey().toString(), entry.getValue().getPermissionString());
+                }
+                result.put(path + (inheritedOnly ? " (inherited)" : ""), permissions.toString());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a context for the online project.<p>
+     *
+     * @return a context for the online project
+     *
+     * @throws Exception if something goes wrong
+     */
+    private CmsObject getOnlineCmsObject() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        cms.getRequestContext().setCurrentProject(cms.readProject(CmsProject.ONLINE_PROJECT_ID));
+        return cms;
+    }
+}
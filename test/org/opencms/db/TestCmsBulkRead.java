@@ -0,0 +1,265 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProject;
+import org.opencms.file.CmsProperty;
+import org.opencms.file.CmsPropertyDefinition;
+import org.opencms.file.CmsResource;
+import org.opencms.file.CmsResourceFilter;
+import org.opencms.main.OpenCms;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+import org.opencms.util.CmsUUID;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests reading resources and properties for a list of resources at once.<p>
+ */
+public class TestCmsBulkRead extends OpenCmsTestCase {
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsBulkRead(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     *
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsBulkRead.class.getName());
+
+        suite.addTest(new TestCmsBulkRead("testReadResources"));
+        suite.addTest(new TestCmsBulkRead("testReadResourcesFilter"));
+        suite.addTest(new TestCmsBulkRead("testReadPropertyObjects"));
+        suite.addTest(new TestCmsBulkRead("testReadPropertyObjectsSiblings"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Tests that the bulk read of properties returns the same properties as the single reads.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testReadPropertyObjects() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the bulk read of properties");
+
+        List<CmsResource> resources = cms.readResources("/", CmsResourceFilter.ALL, true);
+        assertFalse(resources.isEmpty());
+        assertSameProperties(cms, resources, false);
+        assertSameProperties(cms, resources, true);
+
+        // read again in the online project, where the results are cached
+        CmsObject onlineCms = OpenCms.initCmsObject(cms);
+        onlineCms.getRequestContext().setCurrentProject(cms.readProject(CmsProject.ONLINE_PROJECT_ID));
+        resources = onlineCms.readResources("/", CmsResourceFilter.ALL, true);
+        assertSameProperties(onlineCms, resources, false);
+        assertSameProperties(onlineCms, resources, false);
+        assertSameProperties(onlineCms, resources, true);
+    }
+
+    /**
+     * Tests that resource values of properties are assigned to all siblings in a bulk read.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testReadPropertyObjectsSiblings() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the bulk read of properties of siblings");
+
+        String source = "/folder1/page1.html";
+        String sibling = "/folder1/page1_bulk_sibling.html";
+        cms.lockResource(source);
+        cms.writePropertyObject(source, new CmsProperty(CmsPropertyDefinition.PROPERTY_TITLE, null, "shared title"));
+        cms.createSibling(source, sibling, null);
+        cms.writePropertyObject(sibling, new CmsProperty(CmsPropertyDefinition.PROPERTY_NAVTEXT, "own", null));
+
+        List<CmsResource> resources = new ArrayList<CmsResource>();
+        resources.add(cms.readResource(source));
+        resources.add(cms.readResource(sibling));
+        Map<CmsUUID, List<CmsProperty>> properties = cms.readPropertyObjects(resources, false);
+        for (CmsResource resource : resources) {
+            CmsProperty title = CmsProperty.get(
+                CmsPropertyDefinition.PROPERTY_TITLE,
+                properties.get(resource.getStructureId()));
+            assertEquals("shared title", title.getResourceValue());
+        }
+        CmsProperty navText = CmsProperty.get(
+            CmsPropertyDefinition.PROPERTY_NAVTEXT,
+            properties.get(resources.get(1).getStructureId()));
+        assertEquals("own", navText.getStructureValue());
+        assertSameProperties(cms, resources, false);
+    }
+
+    /**
+     * Tests that the bulk read of resources returns the same resources as the single reads.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testReadResources() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the bulk read of resources");
+
+        List<CmsResource> expected = cms.readResources("/", CmsResourceFilter.ALL, true);
+        // use an order that differs from the one of the database
+        Collections.reverse(expected);
+        List<CmsUUID> ids = new ArrayList<CmsUUID>();
+        for (CmsResource resource : expected) {
+            ids.add(resource.getStructureId());
+        }
+        // IDs of resources that do not exist are skipped
+        ids.add(1, new CmsUUID());
+        ids.add(new CmsUUID());
+
+        List<CmsResource> resources = cms.readResources(ids, CmsResourceFilter.ALL);
+        assertEquals(expected.size(), resources.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getStructureId(), resources.get(i).getStructureId());
+            assertEquals(cms.readResource(expected.get(i).getStructureId(), CmsResourceFilter.ALL), resources.get(i));
+        }
+
+        // a second read is served from the request read cache
+        assertEquals(resources, cms.readResources(ids, CmsResourceFilter.ALL));
+    }
+
+    /**
+     * Tests that the resource filter is applied to the bulk read of resources.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testReadResourcesFilter() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the resource filter in the bulk read of resources");
+
+        String deleted = "/folder1/page2.html";
+        cms.lockResource(deleted);
+        cms.deleteResource(deleted, CmsResource.DELETE_PRESERVE_SIBLINGS);
+
+        List<CmsResource> all = cms.readResources("/folder1/", CmsResourceFilter.ALL, true);
+        List<CmsUUID> ids = new ArrayList<CmsUUID>();
+        int files = 0;
+        for (CmsResource resource : all) {
+            ids.add(resource.getStructureId());
+            if (resource.isFile() && !resource.getState().isDeleted()) {
+                files++;
+            }
+        }
+
+        assertEquals(all.size(), cms.readResources(ids, CmsResourceFilter.ALL).size());
+        List<CmsResource> undeleted = cms.readResources(ids, CmsResourceFilter.DEFAULT);
+        assertEquals(all.size() - 1, undeleted.size());
+        for (CmsResource resource : undeleted) {
+            assertFalse(resource.getState().isDeleted());
+        }
+        List<CmsResource> onlyFiles = cms.readResources(ids, CmsResourceFilter.DEFAULT_FILES);
+        assertEquals(files, onlyFiles.size());
+        for (CmsResource resource : onlyFiles) {
+            assertTrue(resource.isFile());
+        }
+    }
+
+    /**
+     * Asserts that the bulk read of properties returns the same properties as the single reads.<p>
+     *
+     * @param cms the current CmsObject
+     * @param resources the resources to read the properties for
+     * @param search if the properties are searched on the parent folders
+     *
+     * @throws Exception if something goes wrong
+     */
+    private void assertSameProperties(CmsObject cms, List<CmsResource> resources, boolean search)
+    throws Exception {
+
+        Map<CmsUUID, List<CmsProperty>> properties = cms.readPropertyObjects(resources, search);
+        assertEquals(resources.size(), properties.size());
+        for (CmsResource resource : resources) {
+            assertEquals(
+                resource.getRootPath(),
+                toMap(cms.readPropertyObjects(resource, search)),
+                toMap(properties.get(resource.getStructureId())));
+        }
+    }
+
+    /**
+     * Converts a list of properties to a map that can be compared.<p>
+     *
+     * @param properties the properties
+     *
+     * @return the structure and resource values of the properties, by property name
+     */
+    private Map<String, String> toMap(List<CmsProperty> properties) {
+
+        Map<String, String> result = new TreeMap<String, String>();
+        for (CmsProperty property : properties) {
+            result.put(property.getName(), property.getStructureValue() + "|" + property.getResourceValue());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import org.opencms.configuration.CmsParameterConfiguration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the lock-free JDBC connection pool.<p>
+ */
+public class TestCmsConcurrentDbPool extends TestCase {
+
+    /**
+     * Tests that closed connections are given back to the pool and reused.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testConnectionReuse() throws Exception {
+
+        I_CmsDbPool pool = createPool("reuse", 2, 0);
+        try {
+            assertEquals(0, pool.getNumActive());
+            assertEquals(1, pool.getNumIdle());
+            Connection con = pool.getConnection();
+            assertEquals(1, pool.getNumActive());
+            assertEquals(0, pool.getNumIdle());
+            assertTrue(con.createStatement().execute("VALUES(1)"));
+            con.close();
+            assertTrue(con.isClosed());
+            assertEquals(0, pool.getNumActive());
+            assertEquals(1, pool.getNumIdle());
+            // a closed connection can not be used anymore
+            try {
+                con.createStatement();
+                fail("Statement created on a closed connection");
+            } catch (SQLException e) {
+                // expected
+            }
+            Connection con2 = pool.getConnection();
+            assertEquals(0, pool.getNumIdle());
+            con2.close();
+            assertEquals(2, pool.getBorrowCount());
+        } finally {
+            closePool(pool);
+        }
+    }
+
+    /**
+     * Tests that borrowing fails if all connections are in use.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testExhaustedPool() throws Exception {
+
+        I_CmsDbPool pool = createPool("exhausted", 2, 0);
+        try {
+            Connection con1 = pool.getConnection();
+            Connection con2 = pool.getConnection();
+            assertEquals(2, pool.getNumActive());
+            try {
+                pool.getConnection();
+                fail("Connection borrowed from an exhausted pool");
+            } catch (SQLException e) {
+                // expected
+            }
+            assertTrue(pool.getMaxBorrowWaitMillis() >= 100);
+            con1.close();
+            pool.getConnection().close();
+            con2.close();
+            assertEquals(0, pool.getNumActive());
+            assertEquals(2, pool.getNumIdle());
+        } finally {
+            closePool(pool);
+        }
+    }
+
+    /**
+     * Tests the detection of connections which have not been closed.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testLeakDetection() throws Exception {
+
+        I_CmsDbPool pool = createPool("leak", 2, 50);
+        try {
+            Connection con = pool.getConnection();
+            assertEquals(0, pool.getLeakedConnections());
+            Thread.sleep(100);
+            assertEquals(1, pool.getLeakedConnections());
+            con.close();
+            assertEquals(0, pool.getLeakedConnections());
+        } finally {
+            closePool(pool);
+        }
+    }
+
+    /**
+     * Closes a pool and removes it from the initialized pools.<p>
+     *
+     * @param pool the pool to close
+     *
+     * @throws Exception if something goes wrong
+     */
+    private void closePool(I_CmsDbPool pool) throws Exception {
+
+        pool.close();
+        CmsDbPool.removePool(pool);
+        assertNull(CmsDbPool.getPool(pool.getPoolUrl()));
+    }
+
+    /**
+     * Creates a pool for an in-memory database.<p>
+     *
+     * @param key the key of the pool
+     * @param maxActive the maximum number of active connections
+     * @param leakDetectionThreshold the leak detection threshold in milliseconds
+     *
+     * @return the pool
+     *
+     * @throws Exception if something goes wrong
+     */
+    private I_CmsDbPool createPool(String key, int maxActive, int leakDetectionThreshold) throws Exception {
+
+        String prefix = CmsDbPool.KEY_DATABASE_POOL + '.' + key + '.';
+        CmsParameterConfiguration config = new CmsParameterConfiguration();
+        config.put(prefix + CmsDbPool.KEY_PROVIDER, CmsConcurrentDbPool.class.getName());
+        config.put(prefix + CmsDbPool.KEY_POOL_URL, CmsDbPool.OPENCMS_URL_PREFIX + key);
+        config.put(prefix + CmsDbPool.KEY_JDBC_DRIVER, "org.hsqldb.jdbcDriver");
+        config.put(prefix + CmsDbPool.KEY_JDBC_URL, "jdbc:hsqldb:mem:" + key);
+        config.put(prefix + CmsDbPool.KEY_USERNAME, "sa");
+        config.put(prefix + CmsDbPool.KEY_PASSWORD, "");
+        config.put(prefix + CmsDbPool.KEY_MAX_ACTIVE, String.valueOf(maxActive));
+        config.put(prefix + CmsDbPool.KEY_MAX_WAIT, "100");
+        config.put(prefix + CmsDbPool.KEY_LEAK_DETECTION_THRESHOLD, String.valueOf(leakDetectionThreshold));
+        I_CmsDbPool pool = CmsDbPool.createPool(config, key);
+        assertTrue(pool instanceof CmsConcurrentDbPool);
+        assertSame(pool, CmsDbPool.getPool(CmsDbPool.DBCP_JDBC_URL_PREFIX + pool.getPoolUrl()));
+        return pool;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import org.opencms.configuration.CmsParameterConfiguration;
+import org.opencms.db.log.CmsLogEntry;
+import org.opencms.db.log.CmsLogEntryType;
+import org.opencms.util.CmsUUID;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the queue of the background writer for log entries.<p>
+ */
+public class TestCmsLogWriter extends TestCase {
+
+    /**
+     * Tests that the pending entries are taken from the queue batch by batch, in the order they were added.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testDrainBatch() throws Exception {
+
+        CmsLogWriter writer = createWriter(2, 10, CmsLogWriter.OVERFLOW_BACKPRESSURE);
+        List<CmsLogEntry> entries = new ArrayList<CmsLogEntry>();
+        for (int i = 0; i < 5; i++) {
+            CmsLogEntry entry = createEntry(i);
+            entries.add(entry);
+            writer.add(null, entry);
+        }
+        assertEquals(5, writer.getPendingCount());
+
+        List<CmsLogEntry> drained = new ArrayList<CmsLogEntry>();
+        assertEquals(2, writer.drainBatch(drained));
+        assertEquals(2, writer.drainBatch(drained));
+        assertEquals(1, writer.drainBatch(drained));
+        assertEquals(0, writer.drainBatch(drained));
+        assertEquals(entries, drained);
+        assertEquals(0, writer.getPendingCount());
+    }
+
+    /**
+     * Tests that new entries are discarded if the queue is full and the drop policy is configured.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testDropOnOverflow() throws Exception {
+
+        CmsLogWriter writer = createWriter(1, 3, CmsLogWriter.OVERFLOW_DROP);
+        List<CmsLogEntry> entries = new ArrayList<CmsLogEntry>();
+        for (int i = 0; i < 10; i++) {
+            CmsLogEntry entry = createEntry(i);
+            entries.add(entry);
+            writer.add(null, entry);
+        }
+        assertEquals(3, writer.getPendingCount());
+
+        List<CmsLogEntry> drained = new ArrayList<CmsLogEntry>();
+        while (writer.drainBatch(drained) > 0) {
+            // drain all entries
+        }
+        // the oldest entries are kept
+        assertEquals(entries.subList(0, 3), drained);
+
+        // there is room again after the entries have been written
+        writer.add(null, entries.get(3));
+        assertEquals(1, writer.getPendingCount());
+    }
+
+    /**
+     * Creates a log entry.<p>
+     *
+     * @param i the number of the entry, used as date
+     *
+     * @return the log entry
+     */
+    private CmsLogEntry createEntry(int i) {
+
+        return new CmsLogEntry(
+            new CmsUUID(),
+            i,
+            new CmsUUID(),
+            CmsLogEntryType.RESOURCE_CONTENT_MODIFIED,
+            new String[] {"/test" + i + ".txt"});
+    }
+
+    /**
+     * Creates a log writer which is not started and has no driver manager.<p>
+     *
+     * @param batchSize the batch size
+     * @param queueSize the queue size
+     * @param overflow the overflow policy
+     *
+     * @return the log writer
+     */
+    private CmsLogWriter createWriter(int batchSize, int queueSize, String overflow) {
+
+        CmsParameterConfiguration config = new CmsParameterConfiguration();
+        config.put(CmsLogWriter.CONFIGURATION_BATCH_SIZE, String.valueOf(batchSize));
+        config.put(CmsLogWriter.CONFIGURATION_QUEUE_SIZE, String.valueOf(queueSize));
+        config.put(CmsLogWriter.CONFIGURATION_OVERFLOW, overflow);
+        return new CmsLogWriter(null, null, config);
+    }
+}
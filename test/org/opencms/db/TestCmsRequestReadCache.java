@@ -0,0 +1,257 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProject;
+import org.opencms.file.CmsProperty;
+import org.opencms.file.CmsPropertyDefinition;
+import org.opencms.file.CmsResource;
+import org.opencms.file.CmsResourceFilter;
+import org.opencms.flex.CmsFlexRequestContextInfo;
+import org.opencms.main.OpenCms;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+import org.opencms.util.CmsRequestUtil;
+
+import java.util.List;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the request-scoped read cache.<p>
+ */
+public class TestCmsRequestReadCache extends OpenCmsTestCase {
+
+    /** The path of the resource read in the tests. */
+    private static final String PATH = "/index.html";
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsRequestReadCache(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     *
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsRequestReadCache.class.getName());
+
+        suite.addTest(new TestCmsRequestReadCache("testRepeatedReads"));
+        suite.addTest(new TestCmsRequestReadCache("testCopies"));
+        suite.addTest(new TestCmsRequestReadCache("testInvalidation"));
+        suite.addTest(new TestCmsRequestReadCache("testContextDates"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Tests that resources served by the read cache update the dates of the current Flex request.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testContextDates() throws Exception {
+
+        CmsObject cms = getOnlineCmsObject();
+        echo("Testing the Flex request dates with the request read cache");
+
+        CmsRequestReadCache readCache = new CmsRequestReadCache();
+        cms.getRequestContext().setReadCache(readCache);
+        List<CmsResource> path = cms.readPath(PATH, CmsResourceFilter.ALL);
+        CmsResource resource = cms.readResource(PATH);
+        long dateLastModified = 0;
+        for (CmsResource pathResource : path) {
+            dateLastModified = Math.max(dateLastModified, pathResource.getDateLastModified());
+        }
+
+        CmsFlexRequestContextInfo info = new CmsFlexRequestContextInfo();
+        cms.getRequestContext().setAttribute(CmsRequestUtil.HEADER_LAST_MODIFIED, info);
+        int hits = readCache.getHits();
+        cms.readPath(PATH, CmsResourceFilter.ALL);
+        assertEquals(hits + 1, readCache.getHits());
+        assertEquals(dateLastModified, info.getDateLastModified());
+
+        info = new CmsFlexRequestContextInfo();
+        cms.getRequestContext().setAttribute(CmsRequestUtil.HEADER_LAST_MODIFIED, info);
+        cms.readResource(PATH);
+        assertEquals(hits + 2, readCache.getHits());
+        assertEquals(resource.getDateLastModified(), info.getDateLastModified());
+        cms.getRequestContext().removeAttribute(CmsRequestUtil.HEADER_LAST_MODIFIED);
+    }
+
+    /**
+     * Tests that cached results are returned as copies.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testCopies() throws Exception {
+
+        CmsObject cms = getOnlineCmsObject();
+        echo("Testing that the request read cache returns copies");
+
+        CmsRequestReadCache readCache = new CmsRequestReadCache();
+        cms.getRequestContext().setReadCache(readCache);
+
+        CmsResource first = cms.readResource(PATH);
+        CmsResource second = cms.readResource(PATH);
+        assertEquals(1, readCache.getHits());
+        assertNotSame(first, second);
+        assertEquals(first, second);
+
+        // reading the properties by path also reads the resource with another filter
+        List<CmsProperty> firstProperties = cms.readPropertyObjects(PATH, false);
+        firstProperties.clear();
+        List<CmsProperty> secondProperties = cms.readPropertyObjects(PATH, false);
+        assertEquals(3, readCache.getHits());
+        assertFalse(secondProperties.isEmpty());
+
+        CmsProperty firstTitle = cms.readPropertyObject(PATH, CmsPropertyDefinition.PROPERTY_TITLE, false);
+        firstTitle.setStructureValue("changed");
+        CmsProperty secondTitle = cms.readPropertyObject(PATH, CmsPropertyDefinition.PROPERTY_TITLE, false);
+        assertEquals(6, readCache.getHits());
+        assertNotSame(firstTitle, secondTitle);
+        assertFalse("changed".equals(secondTitle.getStructureValue()));
+    }
+
+    /**
+     * Tests that cached results are dropped if the user or the project of the request context changes.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testInvalidation() throws Exception {
+
+        CmsObject cms = getOnlineCmsObject();
+        echo("Testing the invalidation of the request read cache");
+
+        CmsRequestReadCache readCache = new CmsRequestReadCache();
+        cms.getRequestContext().setReadCache(readCache);
+        cms.readResource(PATH);
+        cms.readResource(PATH);
+        assertEquals(1, readCache.getHits());
+        assertEquals(1, readCache.getMisses());
+
+        // another user must not see the results read by the first user
+        CmsObject guestCms = OpenCms.initCmsObject(OpenCms.getDefaultUsers().getUserGuest());
+        guestCms.getRequestContext().setSiteRoot(cms.getRequestContext().getSiteRoot());
+        guestCms.getRequestContext().setReadCache(readCache);
+        guestCms.readResource(PATH);
+        assertEquals(1, readCache.getHits());
+        assertEquals(2, readCache.getMisses());
+
+        // the cache is not used in an offline project
+        CmsObject offlineCms = getCmsObject();
+        offlineCms.getRequestContext().setReadCache(readCache);
+        offlineCms.readResource(PATH);
+        offlineCms.readResource(PATH);
+        assertEquals(1, readCache.getHits());
+        assertEquals(2, readCache.getMisses());
+
+        // the guest results have been dropped when the first user read again
+        cms.readResource(PATH);
+        assertEquals(1, readCache.getHits());
+        assertEquals(3, readCache.getMisses());
+        cms.readResource(PATH);
+        assertEquals(2, readCache.getHits());
+    }
+
+    /**
+     * Tests that repeated reads within a request are served from the read cache.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testRepeatedReads() throws Exception {
+
+        CmsObject cms = getOnlineCmsObject();
+        echo("Testing repeated reads with the request read cache");
+
+        CmsRequestReadCache readCache = new CmsRequestReadCache();
+        cms.getRequestContext().setReadCache(readCache);
+        long totalHits = CmsRequestReadCache.getTotalHits();
+
+        CmsResource resource = cms.readResource(PATH);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(resource, cms.readResource(PATH));
+            assertEquals(resource, cms.readResource(resource.getStructureId()));
+            cms.readPropertyObjects(PATH, true);
+            cms.readPropertyObject(PATH, CmsPropertyDefinition.PROPERTY_TITLE, true);
+        }
+        // the first reads by path and id, the first read with the filter used for the properties
+        // and the first reads of the properties are misses
+        assertEquals(5, readCache.getMisses());
+        assertEquals(26, readCache.getHits());
+        assertEquals(totalHits + 26, CmsRequestReadCache.getTotalHits());
+
+        // without a read cache nothing is counted
+        cms.getRequestContext().setReadCache(null);
+        cms.readResource(PATH);
+        assertEquals(26, readCache.getHits());
+        assertEquals(5, readCache.getMisses());
+    }
+
+    /**
+     * Returns a CmsObject for the online project.<p>
+     *
+     * @return a CmsObject for the online project
+     *
+     * @throws Exception if something goes wrong
+     */
+    private CmsObject getOnlineCmsObject() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        cms.getRequestContext().setCurrentProject(cms.readProject(CmsProject.ONLINE_PROJECT_ID));
+        return cms;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import org.opencms.gwt.shared.alias.CmsAliasMode;
+import org.opencms.util.CmsUUID;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the rewrite alias matcher.<p>
+ */
+public class TestCmsRewriteAliasMatcher extends TestCase {
+
+    /**
+     * Tests the determination of the literal prefixes of patterns.<p>
+     */
+    public void testLiteralPrefix() {
+
+        assertEquals("/foo/bar", CmsRewriteAliasMatcher.getLiteralPrefix("/foo/bar"));
+        assertEquals("/foo/", CmsRewriteAliasMatcher.getLiteralPrefix("/foo/(.*)"));
+        assertEquals("/foo/", CmsRewriteAliasMatcher.getLiteralPrefix("^/foo/.*"));
+        assertEquals("/foo.html", CmsRewriteAliasMatcher.getLiteralPrefix("/foo\\.html"));
+        assertEquals("/fo", CmsRewriteAliasMatcher.getLiteralPrefix("/foo?/bar"));
+        assertEquals("/fo", CmsRewriteAliasMatcher.getLiteralPrefix("/foo*/bar"));
+        assertEquals("/fo", CmsRewriteAliasMatcher.getLiteralPrefix("/foo{1,2}/bar"));
+        assertEquals("/foo/", CmsRewriteAliasMatcher.getLiteralPrefix("/foo/\\d+"));
+        assertEquals("/foo/", CmsRewriteAliasMatcher.getLiteralPrefix("/foo/[a-z]+"));
+        assertEquals("", CmsRewriteAliasMatcher.getLiteralPrefix("/foo|/bar"));
+        assertEquals("", CmsRewriteAliasMatcher.getLiteralPrefix("(?i)/foo"));
+        assertEquals("", CmsRewriteAliasMatcher.getLiteralPrefix("\\Q/foo\\E"));
+        assertEquals("", CmsRewriteAliasMatcher.getLiteralPrefix(".*"));
+    }
+
+    /**
+     * Tests that the first matching alias is used, even if it has a shorter prefix than other matching aliases.<p>
+     */
+    public void testMatchOrder() {
+
+        List<CmsRewriteAlias> aliases = new ArrayList<CmsRewriteAlias>();
+        aliases.add(createAlias("/news/archive/(.*)", "/archive/$1"));
+        aliases.add(createAlias("/news/(.*)", "/newsroom/$1"));
+        aliases.add(createAlias("/news/archive/2010/(.*)", "/old/$1"));
+        aliases.add(createAlias("(.*)\\.htm", "$1.html"));
+        CmsRewriteAliasMatcher matcher = new CmsRewriteAliasMatcher(aliases);
+
+        assertEquals("/archive/2010/a.html", matcher.match("/news/archive/2010/a.html").getNewPath());
+        assertEquals("/newsroom/a.html", matcher.match("/news/a.html").getNewPath());
+        assertEquals("/newsroom/a.htm", matcher.match("/news/a.htm").getNewPath());
+        assertEquals("/other/a.html", matcher.match("/other/a.htm").getNewPath());
+        assertNull(matcher.match("/other/a.html"));
+        // second lookup is answered from the cache of paths without match
+        assertNull(matcher.match("/other/a.html"));
+    }
+
+    /**
+     * Tests that invalid patterns are ignored.<p>
+     */
+    public void testInvalidPattern() {
+
+        List<CmsRewriteAlias> aliases = new ArrayList<CmsRewriteAlias>();
+        aliases.add(createAlias("/foo/(.*", "/bar/$1"));
+        aliases.add(createAlias("/foo/(.*)", "/baz/$1"));
+        CmsRewriteAliasMatcher matcher = new CmsRewriteAliasMatcher(aliases);
+        assertEquals("/baz/x", matcher.match("/foo/x").getNewPath());
+    }
+
+    /**
+     * Compares the results of the matcher with a linear scan compiling each pattern
+     * on every request, for a large number of aliases.<p>
+     */
+    public void testMatchManyAliases() {
+
+        int aliasCount = 3000;
+        List<CmsRewriteAlias> aliases = new ArrayList<CmsRewriteAlias>();
+        for (int i = 0; i < aliasCount; i++) {
+            switch (i % 3) {
+                case 0:
+                    aliases.add(createAlias("/section" + i + "/(.*)\\.htm", "/new/section" + i + "/$1.html"));
+                    break;
+                case 1:
+                    aliases.add(createAlias("/old/page" + i + "\\.php", "/new/page" + i + ".html"));
+                    break;
+                default:
+                    aliases.add(createAlias("/id/" + i + "/([0-9]+)", "/item/$1/" + i));
+                    break;
+            }
+        }
+        List<String> paths = new ArrayList<String>();
+        for (int i = 0; i < aliasCount; i += 7) {
+            paths.add("/section" + i + "/index.htm");
+            paths.add("/old/page" + i + ".php");
+            paths.add("/id/" + i + "/42");
+            paths.add("/unmatched/" + i + "/index.html");
+        }
+
+        CmsRewriteAliasMatcher matcher = new CmsRewriteAliasMatcher(aliases);
+        List<String> expected = new ArrayList<String>();
+        for (String path : paths) {
+            expected.add(matchLinear(aliases, path));
+        }
+        List<String> actual = new ArrayList<String>();
+        for (String path : paths) {
+            CmsRewriteAliasMatcher.RewriteResult result = matcher.match(path);
+            actual.add(result != null ? result.getNewPath() : null);
+        }
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * Creates a rewrite alias for the test site.<p>
+     *
+     * @param pattern the pattern
+     * @param replacement the replacement
+     *
+     * @return the new rewrite alias
+     */
+    private CmsRewriteAlias createAlias(String pattern, String replacement) {
+
+        return new CmsRewriteAlias(new CmsUUID(), "/sites/default", pattern, replacement, CmsAliasMode.page);
+    }
+
+    /**
+     * Matches a path by compiling and trying the pattern of every alias in turn.<p>
+     *
+     * @param aliases the aliases
+     * @param path the path to match
+     *
+     * @return the rewritten path, or null if no alias matches
+     */
+    private String matchLinear(List<CmsRewriteAlias> aliases, String path) {
+
+        for (CmsRewriteAlias alias : aliases) {
+            Matcher matcher = Pattern.compile(alias.getPatternString()).matcher(path);
+            if (matcher.matches()) {
+                return matcher.replaceFirst(alias.getReplacementString());
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the statistics of named SQL queries.<p>
+ */
+public class TestCmsSqlStatistics extends TestCase {
+
+    /** The connection to the in-memory test database. */
+    private Connection m_con;
+
+    /**
+     * Tests that statements are not wrapped if the statistics are disabled.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testDisabled() throws Exception {
+
+        CmsSqlStatistics statistics = CmsSqlStatistics.getInstance();
+        statistics.setEnabled(false);
+        PreparedStatement stmt = m_con.prepareStatement("SELECT ID FROM STATS_TEST");
+        assertSame(stmt, statistics.wrap(stmt, "TEST_SELECT"));
+        stmt.close();
+    }
+
+    /**
+     * Tests the recorded executions and rows.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testExecutions() throws Exception {
+
+        CmsSqlStatistics statistics = CmsSqlStatistics.getInstance();
+        for (int i = 0; i < 3; i++) {
+            PreparedStatement stmt = statistics.wrap(
+                m_con.prepareStatement("INSERT INTO STATS_TEST (ID, NAME) VALUES (?, ?)"),
+                "TEST_INSERT");
+            stmt.setInt(1, i);
+            stmt.setString(2, "name" + i);
+            assertEquals(1, stmt.executeUpdate());
+            stmt.close();
+        }
+        PreparedStatement stmt = statistics.wrap(
+            m_con.prepareStatement("SELECT ID FROM STATS_TEST ORDER BY ID"),
+            "TEST_SELECT");
+        ResultSet res = stmt.executeQuery();
+        int count = 0;
+        while (res.next()) {
+            assertEquals(count, res.getInt("ID"));
+            count++;
+        }
+        assertEquals(3, count);
+        res.close();
+        stmt.close();
+        try {
+            stmt = statistics.wrap(m_con.prepareStatement("SELECT ID FROM STATS_TEST WHERE ID = ?"), "TEST_ERROR");
+            // the parameter is not set
+            stmt.executeQuery();
+            fail("Query without bind parameter executed");
+        } catch (Exception e) {
+            // expected
+        } finally {
+            stmt.close();
+        }
+
+        CmsSqlQueryStatistics insert = statistics.getStatistics("TEST_INSERT");
+        assertEquals(3, insert.getCount());
+        assertEquals(3, insert.getRows());
+        assertEquals(0, insert.getErrors());
+        assertTrue(insert.getMedianTime() <= insert.getMaxTime());
+        assertTrue(insert.getPercentile99Time() <= insert.getMaxTime());
+        CmsSqlQueryStatistics select = statistics.getStatistics("TEST_SELECT");
+        assertEquals(1, select.getCount());
+        assertEquals(3, select.getRows());
+        CmsSqlQueryStatistics error = statistics.getStatistics("TEST_ERROR");
+        assertEquals(1, error.getCount());
+        assertEquals(1, error.getErrors());
+        assertEquals(3, statistics.getQueryStatistics().size());
+    }
+
+    /**
+     * Tests the formatting of bind parameters in the slow query log.<p>
+     */
+    public void testFormatParameter() {
+
+        assertEquals("NULL", CmsSqlStatistics.formatParameter(null));
+        assertEquals("byte[3]", CmsSqlStatistics.formatParameter(new byte[3]));
+        assertEquals("42", CmsSqlStatistics.formatParameter(new Integer(42)));
+        StringBuffer longValue = new StringBuffer();
+        for (int i = 0; i < 200; i++) {
+            longValue.append('x');
+        }
+        assertEquals(103, CmsSqlStatistics.formatParameter(longValue.toString()).length());
+    }
+
+    /**
+     * @see junit.framework.TestCase#setUp()
+     */
+    @Override
+    protected void setUp() throws Exception {
+
+        Class.forName("org.hsqldb.jdbcDriver");
+        m_con = DriverManager.getConnection("jdbc:hsqldb:mem:sqlstatistics", "sa", "");
+        Statement stmt = m_con.createStatement();
+        stmt.execute("CREATE TABLE STATS_TEST (ID INTEGER, NAME VARCHAR(64))");
+        stmt.close();
+        CmsSqlStatistics.getInstance().reset();
+        CmsSqlStatistics.getInstance().setEnabled(true);
+    }
+
+    /**
+     * @see junit.framework.TestCase#tearDown()
+     */
+    @Override
+    protected void tearDown() throws Exception {
+
+        CmsSqlStatistics.getInstance().setEnabled(false);
+        CmsSqlStatistics.getInstance().reset();
+        Statement stmt = m_con.createStatement();
+        stmt.execute("DROP TABLE STATS_TEST");
+        stmt.close();
+        m_con.close();
+    }
+}
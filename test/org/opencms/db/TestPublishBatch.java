@@ -0,0 +1,482 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.db;
+
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProject;
+import org.opencms.file.CmsProperty;
+import org.opencms.file.CmsPropertyDefinition;
+import org.opencms.file.CmsResource;
+import org.opencms.file.CmsResourceFilter;
+import org.opencms.file.types.CmsResourceTypeFolder;
+import org.opencms.file.types.CmsResourceTypePlain;
+import org.opencms.main.OpenCms;
+import org.opencms.relations.CmsRelation;
+import org.opencms.relations.CmsRelationFilter;
+import org.opencms.report.CmsShellReport;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+import org.opencms.util.CmsFileUtil;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the batch publish mode of the project driver, and compares its run time
+ * with the default publish mode.<p>
+ */
+public class TestPublishBatch extends OpenCmsTestCase {
+
+    /** The number of resources published in one transaction. */
+    private static final int BATCH_SIZE = 100;
+
+    /** The number of files created in each test folder. */
+    private static final int FILE_COUNT = 50;
+
+    /** The number of test folders. */
+    private static final int FOLDER_COUNT = 10;
+
+    /** The run time of the publish job in the default publish mode. */
+    private static long m_defaultPublishTime;
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestPublishBatch(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     *
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite defaultSuite = new TestSuite();
+        defaultSuite.setName(TestPublishBatch.class.getName() + " (default mode)");
+        defaultSuite.addTest(new TestPublishBatch("testPublishDefault"));
+
+        TestSetup defaultWrapper = new TestSetup(defaultSuite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        TestSuite batchSuite = new TestSuite();
+        batchSuite.setName(TestPublishBatch.class.getName() + " (batch mode)");
+        batchSuite.addTest(new TestPublishBatch("testPublishBatchNew"));
+        batchSuite.addTest(new TestPublishBatch("testPublishBatchChanged"));
+        batchSuite.addTest(new TestPublishBatch("testPublishBatchDeleted"));
+        batchSuite.addTest(new TestPublishBatch("testPublishBatchTransaction"));
+
+        TestSetup batchWrapper = new TestSetup(batchSuite) {
+
+            @Override
+            protected void setUp() throws IOException {
+
+                setupOpenCms("simpletest", "/", createBatchConfiguration(), true);
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestPublishBatch.class.getName());
+        suite.addTest(defaultWrapper);
+        suite.addTest(batchWrapper);
+        return suite;
+    }
+
+    /**
+     * Tests publishing changed properties and relations in batch mode.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testPublishBatchChanged() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing publishing changed resources in batch mode");
+
+        String folder = "/batch0/";
+        for (int i = 0; i < FILE_COUNT; i++) {
+            String path = folder + "file" + i + ".txt";
+            cms.lockResource(path);
+            List<CmsProperty> properties = new ArrayList<CmsProperty>();
+            properties.add(new CmsProperty(CmsPropertyDefinition.PROPERTY_TITLE, "Changed title " + i, null));
+            properties.add(
+                new CmsProperty(
+                    CmsPropertyDefinition.PROPERTY_DESCRIPTION,
+                    CmsProperty.DELETE_VALUE,
+                    CmsProperty.DELETE_VALUE));
+            properties.add(new CmsProperty(CmsPropertyDefinition.PROPERTY_KEYWORDS, null, "keyword " + i));
+            cms.writePropertyObjects(path, properties);
+            if (i > 1) {
+                cms.deleteRelationsFromResource(path, CmsRelationFilter.TARGETS.filterNotDefinedInContent());
+                cms.addRelationToResource(path, folder + "file0.txt", "TESTRELATION1");
+            }
+        }
+        publishProject(cms);
+        assertPublished(cms, folder);
+        assertEquals(
+            "Changed title 3",
+            getOnlineCmsObject(cms).readPropertyObject(
+                folder + "file3.txt",
+                CmsPropertyDefinition.PROPERTY_TITLE,
+                false).getValue());
+    }
+
+    /**
+     * Tests publishing deleted resources in batch mode.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testPublishBatchDeleted() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing publishing deleted resources in batch mode");
+
+        cms.lockResource("/batch2/file0.txt");
+        cms.addRelationToResource("/batch2/file0.txt", "/batch1/file0.txt", "TESTRELATION1");
+        cms.lockResource("/batch1/");
+        cms.deleteResource("/batch1/", CmsResource.DELETE_PRESERVE_SIBLINGS);
+        publishProject(cms);
+
+        CmsObject onlineCms = getOnlineCmsObject(cms);
+        assertFalse(onlineCms.existsResource("/batch1/", CmsResourceFilter.ALL));
+        assertFalse(onlineCms.existsResource("/batch1/file0.txt", CmsResourceFilter.ALL));
+        assertFalse(cms.existsResource("/batch1/", CmsResourceFilter.ALL));
+        assertPublished(cms, "/batch2/");
+
+        // the relation to the deleted file is marked as broken when the batch is committed
+        List<CmsRelation> relations = onlineCms.getRelationsForResource(
+            "/batch2/file0.txt",
+            CmsRelationFilter.TARGETS);
+        assertEquals(1, relations.size());
+        assertTrue(relations.get(0).getTargetId().isNullUUID());
+    }
+
+    /**
+     * Tests publishing new resources in batch mode, and compares the run time with the default mode.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testPublishBatchNew() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing publishing new resources in batch mode");
+
+        createResources(cms, "/batch");
+        long time = publishProject(cms);
+        for (int f = 0; f < FOLDER_COUNT; f++) {
+            assertPublished(cms, "/batch" + f + "/");
+        }
+
+        int resourceCount = FOLDER_COUNT * (FILE_COUNT + 1);
+        echo(
+            "Published "
+                + resourceCount
+                + " new resources in "
+                + time
+                + " ms in batch mode ("
+                + BATCH_SIZE
+                + " resources per transaction), "
+                + m_defaultPublishTime
+                + " ms in default mode");
+    }
+
+    /**
+     * Tests that the operations of a publish batch are only kept if the batch is committed.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testPublishBatchTransaction() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the transaction handling of a publish batch");
+
+        String rootPath = cms.getRequestContext().addSiteRoot("/batch2/file1.txt");
+        long originalDate = readDateReleased(rootPath);
+
+        org.opencms.db.generic.CmsSqlManager sqlManager = new org.opencms.db.generic.CmsSqlManager();
+        sqlManager.init(I_CmsProjectDriver.DRIVER_TYPE_ID, OpenCms.getSqlManager().getDefaultDbPoolName());
+        CmsPublishBatch publishBatch = new CmsPublishBatch(BATCH_SIZE);
+        CmsDbContext dbc = new CmsDbContext();
+        dbc.setAttribute(CmsPublishBatch.KEY_PUBLISH_BATCH, publishBatch);
+        try {
+            Connection conn = sqlManager.getConnection(dbc);
+            // the drivers must see that their statements are part of a running transaction
+            assertFalse(conn.getAutoCommit());
+
+            writeDateReleased(conn, rootPath, originalDate + 1);
+            publishBatch.commit();
+            assertEquals(originalDate + 1, readDateReleased(rootPath));
+
+            // the operations of an aborted publish job are rolled back when the batch is released
+            writeDateReleased(sqlManager.getConnection(dbc), rootPath, originalDate + 2);
+        } finally {
+            dbc.removeAttribute(CmsPublishBatch.KEY_PUBLISH_BATCH);
+            publishBatch.release();
+        }
+        assertEquals(originalDate + 1, readDateReleased(rootPath));
+
+        Connection conn = OpenCms.getSqlManager().getConnection(OpenCms.getSqlManager().getDefaultDbPoolName());
+        try {
+            writeDateReleased(conn, rootPath, originalDate);
+        } finally {
+            conn.close();
+        }
+    }
+
+    /**
+     * Publishes new resources in default mode, for comparing the run time with the batch mode.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testPublishDefault() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing publishing new resources in default mode");
+
+        createResources(cms, "/default");
+        m_defaultPublishTime = publishProject(cms);
+        for (int f = 0; f < FOLDER_COUNT; f++) {
+            assertPublished(cms, "/default" + f + "/");
+        }
+    }
+
+    /**
+     * Asserts that the files of the given folder are published with all their properties and relations.<p>
+     *
+     * @param cms the cms context
+     * @param folder the folder
+     *
+     * @throws Exception if something goes wrong
+     */
+    private void assertPublished(CmsObject cms, String folder) throws Exception {
+
+        CmsObject onlineCms = getOnlineCmsObject(cms);
+        List<CmsResource> files = cms.readResources(folder, CmsResourceFilter.ALL, false);
+        assertEquals(FILE_COUNT, files.size());
+        for (CmsResource file : files) {
+            String path = cms.getSitePath(file);
+            assertEquals(CmsResource.STATE_UNCHANGED, file.getState());
+            CmsResource onlineFile = onlineCms.readResource(path, CmsResourceFilter.ALL);
+            assertEquals(file.getStructureId(), onlineFile.getStructureId());
+            assertEquals(
+                new String(cms.readFile(file).getContents()),
+                new String(onlineCms.readFile(onlineFile).getContents()));
+
+            List<CmsProperty> properties = cms.readPropertyObjects(file, false);
+            List<CmsProperty> onlineProperties = onlineCms.readPropertyObjects(onlineFile, false);
+            assertEquals(properties.size(), onlineProperties.size());
+            for (CmsProperty property : properties) {
+                CmsProperty onlineProperty = CmsProperty.get(property.getName(), onlineProperties);
+                assertNotNull(onlineProperty);
+                assertEquals(property.getStructureValue(), onlineProperty.getStructureValue());
+                assertEquals(property.getResourceValue(), onlineProperty.getResourceValue());
+            }
+
+            assertEquals(
+                cms.getRelationsForResource(file, CmsRelationFilter.TARGETS).size(),
+                onlineCms.getRelationsForResource(onlineFile, CmsRelationFilter.TARGETS).size());
+        }
+    }
+
+    /**
+     * Creates a copy of the database configuration of the test run with the batch publish mode enabled.<p>
+     *
+     * @return the folder with the configuration
+     *
+     * @throws IOException if writing the configuration fails
+     */
+    private static String createBatchConfiguration() throws IOException {
+
+        String configFolder = getTestDataPath("WEB-INF/config." + getDbProduct() + "/");
+        File batchConfigFolder = new File(System.getProperty("java.io.tmpdir"), "opencms-publish-batch");
+        batchConfigFolder.mkdirs();
+        String properties = new String(
+            CmsFileUtil.readFile(new File(configFolder, "opencms.properties")),
+            "ISO-8859-1");
+        properties += "\n" + I_CmsProjectDriver.CONFIGURATION_PUBLISH_BATCH_SIZE + "=" + BATCH_SIZE + "\n";
+        OutputStream out = new FileOutputStream(new File(batchConfigFolder, "opencms.properties"));
+        try {
+            out.write(properties.getBytes("ISO-8859-1"));
+        } finally {
+            out.close();
+        }
+        return batchConfigFolder.getAbsolutePath() + File.separator;
+    }
+
+    /**
+     * Creates the test folders with files, each with properties and a relation to the previous file.<p>
+     *
+     * @param cms the cms context
+     * @param prefix the prefix of the folder names
+     *
+     * @throws Exception if something goes wrong
+     */
+    private void createResources(CmsObject cms, String prefix) throws Exception {
+
+        for (int f = 0; f < FOLDER_COUNT; f++) {
+            String folder = prefix + f + "/";
+            cms.createResource(folder, CmsResourceTypeFolder.getStaticTypeId());
+            for (int i = 0; i < FILE_COUNT; i++) {
+                List<CmsProperty> properties = new ArrayList<CmsProperty>();
+                properties.add(new CmsProperty(CmsPropertyDefinition.PROPERTY_TITLE, "Title " + i, null));
+                properties.add(new CmsProperty(CmsPropertyDefinition.PROPERTY_DESCRIPTION, null, "Description " + i));
+                String path = folder + "file" + i + ".txt";
+                cms.createResource(
+                    path,
+                    CmsResourceTypePlain.getStaticTypeId(),
+                    ("Content " + i).getBytes(),
+                    properties);
+                if (i > 0) {
+                    cms.addRelationToResource(path, folder + "file" + (i - 1) + ".txt", "TESTRELATION1");
+                }
+            }
+        }
+        cms.unlockProject(cms.getRequestContext().getCurrentProject().getUuid());
+    }
+
+    /**
+     * Returns a copy of the given cms context for the online project.<p>
+     *
+     * @param cms the cms context
+     *
+     * @return the online cms context
+     *
+     * @throws Exception if something goes wrong
+     */
+    private CmsObject getOnlineCmsObject(CmsObject cms) throws Exception {
+
+        CmsObject onlineCms = OpenCms.initCmsObject(cms);
+        onlineCms.getRequestContext().setCurrentProject(cms.readProject(CmsProject.ONLINE_PROJECT_ID));
+        return onlineCms;
+    }
+
+    /**
+     * Publishes the current project and waits for the publish job to finish.<p>
+     *
+     * @param cms the cms context
+     *
+     * @return the run time in milliseconds
+     *
+     * @throws Exception if something goes wrong
+     */
+    private long publishProject(CmsObject cms) throws Exception {
+
+        long start = System.currentTimeMillis();
+        OpenCms.getPublishManager().publishProject(cms, new CmsShellReport(cms.getRequestContext().getLocale()));
+        OpenCms.getPublishManager().waitWhileRunning();
+        return System.currentTimeMillis() - start;
+    }
+
+    /**
+     * Reads the release date of an offline resource directly from the database.<p>
+     *
+     * @param rootPath the root path of the resource
+     *
+     * @return the release date
+     *
+     * @throws SQLException if something goes wrong
+     */
+    private long readDateReleased(String rootPath) throws SQLException {
+
+        Connection conn = OpenCms.getSqlManager().getConnection(OpenCms.getSqlManager().getDefaultDbPoolName());
+        PreparedStatement stmt = null;
+        ResultSet res = null;
+        try {
+            stmt = conn.prepareStatement("SELECT DATE_RELEASED FROM CMS_OFFLINE_STRUCTURE WHERE RESOURCE_PATH=?");
+            stmt.setString(1, rootPath);
+            res = stmt.executeQuery();
+            assertTrue(res.next());
+            return res.getLong(1);
+        } finally {
+            if (res != null) {
+                res.close();
+            }
+            if (stmt != null) {
+                stmt.close();
+            }
+            conn.close();
+        }
+    }
+
+    /**
+     * Writes the release date of an offline resource directly to the database.<p>
+     *
+     * @param conn the connection to use
+     * @param rootPath the root path of the resource
+     * @param dateReleased the release date
+     *
+     * @throws SQLException if something goes wrong
+     */
+    private void writeDateReleased(Connection conn, String rootPath, long dateReleased) throws SQLException {
+
+        PreparedStatement stmt = conn.prepareStatement(
+            "UPDATE CMS_OFFLINE_STRUCTURE SET DATE_RELEASED=? WHERE RESOURCE_PATH=?");
+        try {
+            stmt.setLong(1, dateReleased);
+            stmt.setString(2, rootPath);
+            assertEquals(1, stmt.executeUpdate());
+        } finally {
+            stmt.close();
+        }
+    }
+}
@@ -58,6 +58,7 @@ public final class AllTests {
         TestSuite suite = new TestSuite("Tests for package " + AllTests.class.getPackage().getName());
         OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
         //$JUnit-BEGIN$
+        suite.addTest(TestCmsFlexCache.suite());
         suite.addTest(new TestSuite(TestCmsFlexCacheEntry.class));
         suite.addTest(TestCmsFlexResponse.suite());
         //$JUnit-END$
@@ -0,0 +1,468 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.flex;
+
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProperty;
+import org.opencms.file.CmsPropertyDefinition;
+import org.opencms.flex.CmsFlexCache.CmsFlexCacheVariation;
+import org.opencms.main.CmsEvent;
+import org.opencms.main.I_CmsEventListener;
+import org.opencms.main.OpenCms;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the concurrent behavior of the {@link CmsFlexCache}.<p>
+ */
+public class TestCmsFlexCache extends OpenCmsTestCase {
+
+    /** The number of concurrent threads. */
+    private static final int THREAD_COUNT = 64;
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsFlexCache(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     *
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsFlexCache.class.getName());
+
+        suite.addTest(new TestCmsFlexCache("testClearEntries"));
+        suite.addTest(new TestCmsFlexCache("testKeyEviction"));
+        suite.addTest(new TestCmsFlexCache("testConcurrentAccess"));
+        suite.addTest(new TestCmsFlexCache("testOffHeapContent"));
+        suite.addTest(new TestCmsFlexCache("testSnapshot"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Tests that clearing the entries keeps the keys, and that all entries are released from the LRU cache.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testClearEntries() throws Exception {
+
+        CmsFlexCache cache = createCache(1000);
+        for (int i = 0; i < 20; i++) {
+            put(cache, "/file" + i + ".jsp", i % 2 == 0, "v1");
+            put(cache, "/file" + i + ".jsp", i % 2 == 0, "v2");
+        }
+        assertEquals(20, cache.keySize());
+        assertEquals(40, cache.size());
+
+        clear(cache, CmsFlexCache.CLEAR_ONLINE_ENTRIES);
+        waitForRelease(cache);
+        assertEquals(20, cache.keySize());
+        assertEquals(20, cache.size());
+        assertConsistent(cache);
+
+        clear(cache, CmsFlexCache.CLEAR_OFFLINE_ALL);
+        waitForRelease(cache);
+        assertEquals(10, cache.keySize());
+        assertEquals(0, cache.size());
+
+        put(cache, "/file0.jsp", true, "v1");
+        assertEquals(1, cache.size());
+        clear(cache, CmsFlexCache.CLEAR_ALL);
+        waitForRelease(cache);
+        assertEquals(0, cache.keySize());
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Tests concurrent lookups, additions and clears with many threads, and logs the throughput.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testConcurrentAccess() throws Exception {
+
+        final CmsFlexCache cache = createCache(500);
+        final int operations = 5000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        final AtomicLong hits = new AtomicLong();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < THREAD_COUNT; t++) {
+            final int threadNumber = t;
+            Thread thread = new Thread(new Runnable() {
+
+                public void run() {
+
+                    try {
+                        start.await();
+                        for (int i = 0; i < operations; i++) {
+                            String resource = "/file" + ((threadNumber * 31 + i) % 1000) + ".jsp";
+                            if ((threadNumber == 0) && ((i % 1000) == 999)) {
+                                clear(cache, (i / 1000) % 2 == 0 ? CmsFlexCache.CLEAR_ENTRIES : CmsFlexCache.CLEAR_ALL);
+                            } else if ((i % 4) == 0) {
+                                put(cache, resource, true, "v" + (i % 3));
+                            } else if (cache.getKey(CmsFlexCacheKey.getKeyName(resource, true)) != null) {
+                                hits.incrementAndGet();
+                            }
+                        }
+                    } catch (Throwable e) {
+                        error.compareAndSet(null, e);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        long startTime = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long time = Math.max(1, (System.nanoTime() - startTime) / 1000000);
+        if (error.get() != null) {
+            throw new Exception(error.get());
+        }
+        echo(
+            "FlexCache with "
+                + THREAD_COUNT
+                + " threads: "
+                + ((THREAD_COUNT * (long)operations) / time)
+                + " operations/ms, "
+                + hits.get()
+                + " key hits");
+
+        waitForRelease(cache);
+        assertTrue(cache.keySize() <= 500);
+        assertConsistent(cache);
+    }
+
+    /**
+     * Tests that the entries of evicted keys are released from the LRU cache.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testKeyEviction() throws Exception {
+
+        CmsFlexCache cache = createCache(10);
+        for (int i = 0; i < 100; i++) {
+            put(cache, "/file" + i + ".jsp", true, "v1");
+        }
+        waitForRelease(cache);
+        assertTrue(cache.keySize() <= 10);
+        assertEquals(cache.keySize(), cache.size());
+        assertConsistent(cache);
+    }
+
+    /**
+     * Tests that the content of cached entries is stored off the heap within the configured budget.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testOffHeapContent() throws Exception {
+
+        CmsFlexCacheConfiguration configuration = createConfiguration(100);
+        configuration.setMaxOffHeapBytes(5000);
+        CmsFlexCache cache = new CmsFlexCache(configuration);
+        CmsFlexCacheOffHeapStore store = cache.getOffHeapStore();
+        assertNotNull(store);
+
+        byte[] content = new byte[2000];
+        Arrays.fill(content, (byte)'x');
+        List<CmsFlexCacheEntry> entries = new ArrayList<CmsFlexCacheEntry>();
+        for (int i = 0; i < 3; i++) {
+            CmsFlexCacheEntry entry = new CmsFlexCacheEntry();
+            entry.add(content);
+            entry.add("/include.jsp", null, null);
+            entry.add(new byte[10]);
+            entry.complete();
+            int heapCosts = entry.getLruCacheCosts();
+            cache.put(new CmsFlexCacheKey("/file" + i + ".jsp", "always", true), entry, "v1");
+            entries.add(entry);
+            if (i < 2) {
+                // the large output is moved off the heap, the small output and the include stay
+                assertTrue(entry.elements().get(0) instanceof ByteBuffer);
+                assertTrue(entry.getLruCacheCosts() < heapCosts);
+            } else {
+                // the budget is exhausted
+                assertTrue(entry.elements().get(0) instanceof byte[]);
+                assertEquals(heapCosts, entry.getLruCacheCosts());
+            }
+            assertTrue(entry.elements().get(4) instanceof byte[]);
+            assertTrue(Arrays.equals(content, CmsFlexCacheEntry.getOutputBytes(entry.elements().get(0))));
+        }
+        assertEquals(4000, store.getUsedBytes());
+        assertEquals(2, store.getStoredCount());
+        assertEquals(1, store.getRejectedCount());
+
+        clear(cache, CmsFlexCache.CLEAR_ALL);
+        waitForRelease(cache);
+        assertEquals(0, store.getUsedBytes());
+        // removed entries can still be delivered by requests which are using them
+        assertTrue(Arrays.equals(content, CmsFlexCacheEntry.getOutputBytes(entries.get(0).elements().get(0))));
+    }
+
+    /**
+     * Tests that the online entries are restored from a snapshot, except for expired entries
+     * and entries of resources published after the snapshot.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testSnapshot() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        CmsFlexCacheConfiguration configuration = createConfiguration(100);
+        configuration.setSnapshotFile("flexcache-snapshot.dat");
+        CmsFlexCache cache = new CmsFlexCache(configuration);
+        File file = cache.getSnapshot().getFile();
+        file.delete();
+        cache.initialize(cms);
+        assertEquals(0, cache.size());
+
+        byte[] content = "<p>cached content</p>".getBytes();
+        String changedResource = "/sites/default/index.html";
+        String unchangedResource = "/sites/default/folder1/page1.html";
+        put(cache, changedResource, true, "v1", content);
+        CmsFlexCacheEntry entry = new CmsFlexCacheEntry();
+        entry.add(content);
+        Map<String, String[]> parameters = new HashMap<String, String[]>();
+        parameters.put("param", new String[] {"value"});
+        entry.add("/include.jsp", parameters, null);
+        entry.complete();
+        cache.put(new CmsFlexCacheKey(unchangedResource, "always", true), entry, "v1");
+        put(cache, unchangedResource, true, "v2", content).setDateExpires(System.currentTimeMillis() - 1000);
+        put(cache, unchangedResource, false, "v1", content);
+        assertEquals(4, cache.size());
+
+        // the offline entry and the expired entry are not written
+        assertEquals(2, cache.getSnapshot().save(cache, cms));
+        assertTrue(file.isFile());
+
+        // publish a change of one of the cached resources
+        cms.lockResource("/index.html");
+        cms.writePropertyObject("/index.html", new CmsProperty(CmsPropertyDefinition.PROPERTY_TITLE, "changed", null));
+        cms.unlockResource("/index.html");
+        OpenCms.getPublishManager().publishResource(cms, "/index.html");
+        OpenCms.getPublishManager().waitWhileRunning();
+
+        CmsFlexCache restored = new CmsFlexCache(configuration);
+        restored.initialize(cms);
+        assertFalse(file.exists());
+        assertEquals(1, restored.size());
+        List<CmsFlexCacheVariation> variations = restored.getOnlineVariations();
+        assertEquals(1, variations.size());
+        CmsFlexCacheVariation variation = variations.get(0);
+        assertEquals(CmsFlexCacheKey.getKeyName(unchangedResource, true), variation.m_key.getResource());
+        CmsFlexCacheEntry restoredEntry = (CmsFlexCacheEntry)variation.m_map.get("v1");
+        assertNotNull(restoredEntry);
+        assertEquals(entry.getDateExpires(), restoredEntry.getDateExpires());
+        List<Object> elements = restoredEntry.elements();
+        assertEquals(4, elements.size());
+        assertTrue(Arrays.equals(content, (byte[])elements.get(0)));
+        assertEquals("/include.jsp", elements.get(1));
+        assertEquals("value", ((String[])((Map<?, ?>)elements.get(2)).get("param"))[0]);
+    }
+
+    /**
+     * Asserts that the LRU cache contains exactly the entries of the variation maps.<p>
+     *
+     * @param cache the flex cache
+     *
+     * @throws Exception if something goes wrong
+     */
+    private void assertConsistent(CmsFlexCache cache) throws Exception {
+
+        assertEquals(countVariations(cache), cache.size());
+    }
+
+    /**
+     * Sends a partial clear event to the given cache.<p>
+     *
+     * @param cache the flex cache
+     * @param action the clear action
+     */
+    void clear(CmsFlexCache cache, int action) {
+
+        Map<String, Object> data = new HashMap<String, Object>();
+        data.put("action", new Integer(action));
+        cache.cmsEvent(new CmsEvent(I_CmsEventListener.EVENT_FLEX_CACHE_CLEAR, data));
+    }
+
+    /**
+     * Counts the entries in all variation maps of the given cache.<p>
+     *
+     * @param cache the flex cache
+     *
+     * @return the number of entries in the variation maps
+     *
+     * @throws Exception if something goes wrong
+     */
+    private int countVariations(CmsFlexCache cache) throws Exception {
+
+        CmsObject cms = getCmsObject();
+        int count = 0;
+        for (String resource : cache.getCachedResources(cms)) {
+            Set<String> variations = cache.getCachedVariations(resource, cms);
+            if (variations != null) {
+                count += variations.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Creates a new enabled flex cache.<p>
+     *
+     * @param maxKeys the maximum number of keys
+     *
+     * @return the flex cache
+     */
+    private CmsFlexCache createCache(int maxKeys) {
+
+        return new CmsFlexCache(createConfiguration(maxKeys));
+    }
+
+    /**
+     * Creates a configuration for an enabled flex cache.<p>
+     *
+     * @param maxKeys the maximum number of keys
+     *
+     * @return the flex cache configuration
+     */
+    private CmsFlexCacheConfiguration createConfiguration(int maxKeys) {
+
+        CmsFlexCacheConfiguration configuration = new CmsFlexCacheConfiguration();
+        configuration.setCacheEnabled(true);
+        configuration.setCacheOffline(true);
+        configuration.setMaxKeys(maxKeys);
+        configuration.setMaxCacheBytes(100 * 1024 * 1024);
+        configuration.setAvgCacheBytes(80 * 1024 * 1024);
+        configuration.setMaxEntryBytes(100 * 1024);
+        return configuration;
+    }
+
+    /**
+     * Adds an entry to the given cache.<p>
+     *
+     * @param cache the flex cache
+     * @param resource the resource name
+     * @param online the project flag
+     * @param variation the variation
+     */
+    void put(CmsFlexCache cache, String resource, boolean online, String variation) {
+
+        CmsFlexCacheEntry entry = new CmsFlexCacheEntry();
+        entry.complete();
+        cache.put(new CmsFlexCacheKey(resource, "always", online), entry, variation);
+    }
+
+    /**
+     * Adds an entry with the given content to the given cache.<p>
+     *
+     * @param cache the flex cache
+     * @param resource the resource name
+     * @param online the project flag
+     * @param variation the variation
+     * @param content the content of the entry
+     *
+     * @return the added entry
+     */
+    private CmsFlexCacheEntry put(
+        CmsFlexCache cache,
+        String resource,
+        boolean online,
+        String variation,
+        byte[] content) {
+
+        CmsFlexCacheEntry entry = new CmsFlexCacheEntry();
+        entry.add(content);
+        entry.complete();
+        cache.put(new CmsFlexCacheKey(resource, "always", online), entry, variation);
+        return entry;
+    }
+
+    /**
+     * Waits until the detached entries have been released from the LRU cache.<p>
+     *
+     * @param cache the flex cache
+     *
+     * @throws Exception if something goes wrong
+     */
+    private void waitForRelease(CmsFlexCache cache) throws Exception {
+
+        // the background task may still be releasing the last batch it has taken from the queue
+        for (int i = 0; i < 50; i++) {
+            cache.releasePendingEntries();
+            if (countVariations(cache) == cache.size()) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+    }
+}
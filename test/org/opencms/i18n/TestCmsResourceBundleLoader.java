@@ -0,0 +1,93 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.i18n;
+
+import org.opencms.test.OpenCmsTestCase;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+
+/**
+ * Tests for the permanent bundles of the CmsResourceBundleLoader.<p>
+ */
+public class TestCmsResourceBundleLoader extends OpenCmsTestCase {
+
+    /**
+     * Tests that replacing the bundles of a base name does not touch the bundles of other base names.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testReplaceBundles() throws Exception {
+
+        String baseName = "org.opencms.test.replaced";
+        String otherName = "org.opencms.test.other";
+        CmsResourceBundleLoader.addBundleToCache(baseName, Locale.ENGLISH, createBundle("old"));
+        CmsResourceBundleLoader.addBundleToCache(otherName, Locale.ENGLISH, createBundle("other"));
+        assertEquals("old", CmsResourceBundleLoader.getBundle(baseName, Locale.ENGLISH).getString("key"));
+        ResourceBundle other = CmsResourceBundleLoader.getBundle(otherName, Locale.ENGLISH);
+        assertEquals("other", other.getString("key"));
+
+        Map<Locale, I_CmsResourceBundle> bundles = new HashMap<Locale, I_CmsResourceBundle>();
+        bundles.put(Locale.ENGLISH, createBundle("new"));
+        CmsResourceBundleLoader.replaceBundles(baseName, bundles, Collections.singleton(Locale.ENGLISH));
+        assertEquals("new", CmsResourceBundleLoader.getBundle(baseName, Locale.ENGLISH).getString("key"));
+        // the cached lookup of the other base name is still the same
+        assertSame(other, CmsResourceBundleLoader.getBundle(otherName, Locale.ENGLISH));
+
+        // outdated bundles are removed
+        CmsResourceBundleLoader.replaceBundles(
+            baseName,
+            new HashMap<Locale, I_CmsResourceBundle>(),
+            Collections.singleton(Locale.ENGLISH));
+        try {
+            CmsResourceBundleLoader.getBundle(baseName, Locale.ENGLISH);
+            fail("Removed bundle still found");
+        } catch (MissingResourceException e) {
+            // expected
+        }
+        assertSame(other, CmsResourceBundleLoader.getBundle(otherName, Locale.ENGLISH));
+    }
+
+    /**
+     * Creates a bundle with a single message.<p>
+     *
+     * @param value the value of the message with the key "key"
+     *
+     * @return the bundle
+     */
+    private I_CmsResourceBundle createBundle(String value) {
+
+        CmsListResourceBundle bundle = new CmsListResourceBundle();
+        bundle.addMessage("key", value);
+        return bundle;
+    }
+}
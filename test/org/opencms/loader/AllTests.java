@@ -59,6 +59,9 @@ public final class AllTests {
         //$JUnit-BEGIN$
         suite.addTest(new TestSuite(TestCmsImageScaler.class));
         suite.addTest(new TestSuite(TestCmsDefaultFileNameGenerator.class));
+        suite.addTest(new TestSuite(TestCmsDumpLoader.class));
+        suite.addTest(new TestSuite(TestCmsImageLoader.class));
+        suite.addTest(new TestSuite(TestCmsImageVariantGenerator.class));
         //$JUnit-END$
         return suite;
     }
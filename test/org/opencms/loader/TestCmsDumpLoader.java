@@ -0,0 +1,80 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.loader;
+
+import org.opencms.test.OpenCmsTestCase;
+
+/**
+ * Tests the parsing of HTTP range requests in the dump loader.<p>
+ */
+public class TestCmsDumpLoader extends OpenCmsTestCase {
+
+    /**
+     * Tests that unsupported and malformed ranges result in the complete content.<p>
+     */
+    public void testParseIgnoredRanges() {
+
+        assertNull(CmsDumpLoader.parseRange(null, 1000));
+        assertNull(CmsDumpLoader.parseRange("items=0-10", 1000));
+        assertNull(CmsDumpLoader.parseRange("bytes=0-10,20-30", 1000));
+        assertNull(CmsDumpLoader.parseRange("bytes=abc-10", 1000));
+        assertNull(CmsDumpLoader.parseRange("bytes=10-5", 1000));
+        assertNull(CmsDumpLoader.parseRange("bytes=10", 1000));
+    }
+
+    /**
+     * Tests the parsing of satisfiable and unsatisfiable ranges.<p>
+     */
+    public void testParseRange() {
+
+        assertRange(0, 499, CmsDumpLoader.parseRange("bytes=0-499", 1000));
+        assertRange(500, 999, CmsDumpLoader.parseRange("bytes=500-", 1000));
+        assertRange(900, 999, CmsDumpLoader.parseRange("bytes=-100", 1000));
+        // ranges exceeding the content are limited to the content
+        assertRange(500, 999, CmsDumpLoader.parseRange("bytes=500-5000", 1000));
+        assertRange(0, 999, CmsDumpLoader.parseRange("bytes=-5000", 1000));
+
+        assertSame(CmsDumpLoader.RANGE_NOT_SATISFIABLE, CmsDumpLoader.parseRange("bytes=1000-", 1000));
+        assertSame(CmsDumpLoader.RANGE_NOT_SATISFIABLE, CmsDumpLoader.parseRange("bytes=-0", 1000));
+    }
+
+    /**
+     * Checks a parsed range.<p>
+     *
+     * @param start the expected first byte position
+     * @param end the expected last byte position
+     * @param range the parsed range
+     */
+    private void assertRange(long start, long end, long[] range) {
+
+        assertNotNull(range);
+        assertEquals(2, range.length);
+        assertEquals(start, range[0]);
+        assertEquals(end, range[1]);
+    }
+}
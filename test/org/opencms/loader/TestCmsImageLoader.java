@@ -0,0 +1,370 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.loader;
+
+import org.opencms.cache.CmsVfsNameBasedDiskCache;
+import org.opencms.file.CmsFile;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsResource;
+import org.opencms.test.OpenCmsTestResourceFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the scaling of images in the thread pool of the image loader.<p>
+ */
+public class TestCmsImageLoader extends TestCase {
+
+    /** The content of the original images. */
+    private static final byte[] ORIGINAL = "original".getBytes();
+
+    /** The content of the scaled images. */
+    private static final byte[] SCALED = "scaled".getBytes();
+
+    /** The disk cache of the image loader before the test. */
+    private CmsVfsNameBasedDiskCache m_diskCache;
+
+    /** The loader to test. */
+    private CmsImageLoader m_loader;
+
+    /** Released to finish the scaling operations. */
+    private CountDownLatch m_release;
+
+    /** The number of started scaling operations. */
+    private AtomicInteger m_scalings;
+
+    /**
+     * Tests that concurrent requests for the same scaled image wait for a single scaling operation.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testCoalescedScaling() throws Exception {
+
+        initLoader(2, 10, 10000);
+        final CmsResource image = createImage("coalesced");
+        final List<CmsFile> results = Collections.synchronizedList(new ArrayList<CmsFile>());
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 5; i++) {
+            threads.add(startRequest(image, results, false));
+        }
+        waitUntil(new Callable<Boolean>() {
+
+            public Boolean call() {
+
+                return Boolean.valueOf(m_loader.getScalingStatistics().getCoalescedRequests() == 4);
+            }
+        });
+        m_release.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1, m_scalings.get());
+        assertEquals(5, results.size());
+        for (CmsFile file : results) {
+            assertTrue(Arrays.equals(SCALED, file.getContents()));
+        }
+        assertEquals(5, m_loader.getScalingStatistics().getCacheMisses());
+        assertTrue(m_loader.m_scalingTasks.isEmpty());
+    }
+
+    /**
+     * Tests that the static export gets the scaled image instead of the fallback response,
+     * if the queue of the scaling thread pool is full or the scaling takes longer than the timeout.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testExportScaling() throws Exception {
+
+        initLoader(1, 1, 100);
+        m_loader.m_scalingFallback = CmsImageLoader.FALLBACK_UNAVAILABLE;
+        List<CmsFile> results = Collections.synchronizedList(new ArrayList<CmsFile>());
+        // the first image blocks the only thread, the second one fills the queue
+        Thread running = startRequest(createImage("running"), results, true);
+        Thread queued = startRequest(createImage("queued"), results, true);
+        waitUntil(new Callable<Boolean>() {
+
+            public Boolean call() {
+
+                I_CmsImageScalingStatistics statistics = m_loader.getScalingStatistics();
+                return Boolean.valueOf((statistics.getActiveScalings() == 1) && (statistics.getQueuedScalings() == 1));
+            }
+        });
+        // the export of a third image is scaled in the thread of the export
+        Thread rejected = startRequest(createImage("rejected"), results, true);
+        waitUntil(new Callable<Boolean>() {
+
+            public Boolean call() {
+
+                return Boolean.valueOf(m_scalings.get() == 2);
+            }
+        });
+        // the exports wait longer than the timeout
+        Thread.sleep(300);
+        assertTrue(running.isAlive());
+        assertTrue(rejected.isAlive());
+        assertTrue(results.isEmpty());
+
+        m_release.countDown();
+        running.join();
+        queued.join();
+        rejected.join();
+        assertEquals(3, m_scalings.get());
+        assertEquals(3, results.size());
+        for (CmsFile file : results) {
+            assertTrue(Arrays.equals(SCALED, file.getContents()));
+        }
+        assertEquals(0, m_loader.getScalingStatistics().getRejectedRequests());
+        assertEquals(0, m_loader.getScalingStatistics().getTimedOutRequests());
+    }
+
+    /**
+     * Tests the fallback responses if the queue of the scaling thread pool is full.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testRejectedScaling() throws Exception {
+
+        initLoader(1, 1, 10000);
+        List<CmsFile> results = Collections.synchronizedList(new ArrayList<CmsFile>());
+        // the first image blocks the only thread, the second one fills the queue
+        Thread running = startRequest(createImage("running"), results, false);
+        Thread queued = startRequest(createImage("queued"), results, false);
+        waitUntil(new Callable<Boolean>() {
+
+            public Boolean call() {
+
+                I_CmsImageScalingStatistics statistics = m_loader.getScalingStatistics();
+                return Boolean.valueOf((statistics.getActiveScalings() == 1) && (statistics.getQueuedScalings() == 1));
+            }
+        });
+
+        m_loader.m_scalingFallback = CmsImageLoader.FALLBACK_ORIGINAL;
+        CmsFile file = m_loader.getScaledImage(createCms(), createImage("original"), createScaler());
+        assertNotNull(file);
+        assertTrue(Arrays.equals(ORIGINAL, file.getContents()));
+
+        m_loader.m_scalingFallback = CmsImageLoader.FALLBACK_UNAVAILABLE;
+        assertNull(m_loader.getScaledImage(createCms(), createImage("unavailable"), createScaler()));
+        assertEquals(2, m_loader.getScalingStatistics().getRejectedRequests());
+
+        m_release.countDown();
+        running.join();
+        queued.join();
+        assertEquals(2, m_scalings.get());
+        assertEquals(2, results.size());
+    }
+
+    /**
+     * Tests that a request gets no image if the scaling takes longer than the timeout.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testScalingTimeout() throws Exception {
+
+        initLoader(1, 10, 100);
+        m_loader.m_scalingFallback = CmsImageLoader.FALLBACK_UNAVAILABLE;
+        assertNull(m_loader.getScaledImage(createCms(), createImage("timeout"), createScaler()));
+        assertEquals(1, m_loader.getScalingStatistics().getTimedOutRequests());
+
+        // the scaling goes on after the timeout
+        m_release.countDown();
+        waitUntil(new Callable<Boolean>() {
+
+            public Boolean call() {
+
+                return Boolean.valueOf(m_loader.m_scalingTasks.isEmpty());
+            }
+        });
+        assertEquals(1, m_scalings.get());
+    }
+
+    /**
+     * @see junit.framework.TestCase#setUp()
+     */
+    @Override
+    protected void setUp() throws Exception {
+
+        super.setUp();
+        m_diskCache = CmsImageLoader.m_vfsDiskCache;
+        File folder = File.createTempFile("imagecache", "");
+        folder.delete();
+        CmsImageLoader.m_vfsDiskCache = new CmsVfsNameBasedDiskCache(folder.getAbsolutePath(), "/");
+        m_release = new CountDownLatch(1);
+        m_scalings = new AtomicInteger();
+    }
+
+    /**
+     * @see junit.framework.TestCase#tearDown()
+     */
+    @Override
+    protected void tearDown() throws Exception {
+
+        m_release.countDown();
+        if (m_loader != null) {
+            m_loader.m_scalingExecutor.shutdownNow();
+            m_loader.m_scalingExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        CmsImageLoader.m_vfsDiskCache = m_diskCache;
+        super.tearDown();
+    }
+
+    /**
+     * Creates an OpenCms context which reads the original images.<p>
+     *
+     * @return the OpenCms context
+     */
+    private CmsObject createCms() {
+
+        return new CmsObject(null, null) {
+
+            @Override
+            public CmsFile readFile(CmsResource resource) {
+
+                CmsFile file = new CmsFile(resource);
+                file.setContents(ORIGINAL);
+                return file;
+            }
+        };
+    }
+
+    /**
+     * Creates an image resource with a new structure id.<p>
+     *
+     * @param name the name of the image
+     *
+     * @return the image resource
+     */
+    private CmsResource createImage(String name) {
+
+        return OpenCmsTestResourceFactory.createResource("/sites/default/" + name + ".png");
+    }
+
+    /**
+     * Creates the scaler used by all requests.<p>
+     *
+     * @return the scaler
+     */
+    private CmsImageScaler createScaler() {
+
+        return new CmsImageScaler("w:100,h:50");
+    }
+
+    /**
+     * Creates the loader to test, its scaling operations wait until they are released.<p>
+     *
+     * @param threads the number of scaling threads
+     * @param queueSize the maximum number of waiting scaling operations
+     * @param timeout the time in milliseconds a request waits for a scaled image
+     */
+    private void initLoader(int threads, int queueSize, int timeout) {
+
+        m_loader = new CmsImageLoader() {
+
+            @Override
+            protected Callable<byte[]> createScalingTask(
+                CmsObject cms,
+                CmsResource resource,
+                CmsImageScaler scaler,
+                String cacheName) {
+
+                return new Callable<byte[]>() {
+
+                    public byte[] call() throws Exception {
+
+                        m_scalings.incrementAndGet();
+                        m_release.await();
+                        return SCALED;
+                    }
+                };
+            }
+        };
+        m_loader.m_scalingTimeout = timeout;
+        m_loader.m_scalingExecutor = new ThreadPoolExecutor(
+            threads,
+            threads,
+            60,
+            TimeUnit.SECONDS,
+            new ArrayBlockingQueue<Runnable>(queueSize));
+        m_loader.m_scalingStatistics = new CmsImageScalingStatistics(m_loader.m_scalingExecutor);
+    }
+
+    /**
+     * Requests the scaled image in a new thread.<p>
+     *
+     * @param image the image to request
+     * @param results the list to add the returned image to
+     * @param wait <code>true</code> to wait for the scaled image like the static export
+     *
+     * @return the started thread
+     */
+    private Thread startRequest(final CmsResource image, final List<CmsFile> results, final boolean wait) {
+
+        Thread thread = new Thread() {
+
+            @Override
+            public void run() {
+
+                try {
+                    results.add(m_loader.getScaledImage(createCms(), image, createScaler(), wait));
+                } catch (Exception e) {
+                    fail(e.getMessage());
+                }
+            }
+        };
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Waits until the given condition is met, and fails after 10 seconds.<p>
+     *
+     * @param condition the condition
+     *
+     * @throws Exception if something goes wrong
+     */
+    private void waitUntil(Callable<Boolean> condition) throws Exception {
+
+        long timeout = System.currentTimeMillis() + 10000;
+        while (!condition.call().booleanValue()) {
+            assertTrue("Timed out waiting for the condition", System.currentTimeMillis() < timeout);
+            Thread.sleep(10);
+        }
+    }
+}
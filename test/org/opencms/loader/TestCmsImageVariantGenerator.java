@@ -0,0 +1,104 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.loader;
+
+import org.opencms.file.CmsResource;
+import org.opencms.test.OpenCmsTestResourceFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the selection of the image variants generated after publishing.<p>
+ */
+public class TestCmsImageVariantGenerator extends TestCase {
+
+    /**
+     * Tests that configured and requested scale parameters are combined without duplicates.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testGetVariants() throws Exception {
+
+        CmsImageVariantGenerator generator = new CmsImageVariantGenerator(
+            null,
+            Arrays.asList("w:100,h:50", "w:200", "w:300,h:150"),
+            0);
+        try {
+            CmsResource image = createImage();
+            generator.recordVariant(image, new CmsImageScaler("w:300,h:150"));
+            generator.recordVariant(image, new CmsImageScaler("w:400,h:200"));
+            generator.recordVariant(createImage(), new CmsImageScaler("w:500,h:250"));
+
+            // without the image size, the variant with only a width is skipped
+            List<String> variants = new ArrayList<String>();
+            for (CmsImageScaler scaler : generator.getVariants(null, image)) {
+                variants.add(scaler.toString());
+            }
+            List<String> expected = new ArrayList<String>();
+            expected.add(new CmsImageScaler("w:100,h:50").toString());
+            expected.add(new CmsImageScaler("w:300,h:150").toString());
+            expected.add(new CmsImageScaler("w:400,h:200").toString());
+            assertEquals(expected, variants);
+        } finally {
+            generator.shutDown();
+        }
+    }
+
+    /**
+     * Tests that only a limited number of requested scale parameters is remembered per image.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testRecordVariantLimit() throws Exception {
+
+        CmsImageVariantGenerator generator = new CmsImageVariantGenerator(null, new ArrayList<String>(), 0);
+        try {
+            CmsResource image = createImage();
+            for (int i = 1; i <= (2 * CmsImageVariantGenerator.MAX_RECORDED_VARIANTS); i++) {
+                generator.recordVariant(image, new CmsImageScaler("w:" + (i * 10) + ",h:" + (i * 5)));
+            }
+            assertEquals(CmsImageVariantGenerator.MAX_RECORDED_VARIANTS, generator.getVariants(null, image).size());
+        } finally {
+            generator.shutDown();
+        }
+    }
+
+    /**
+     * Creates an image resource with a new structure id.<p>
+     *
+     * @return the image resource
+     */
+    private CmsResource createImage() {
+
+        return OpenCmsTestResourceFactory.createResource("/sites/default/image.png");
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.publish;
+
+import org.opencms.file.CmsResource;
+import org.opencms.test.OpenCmsTestResourceFactory;
+import org.opencms.util.CmsUUID;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the overlap detection of publish scopes used to run publish jobs concurrently.<p>
+ */
+public class TestCmsPublishScope extends TestCase {
+
+    /**
+     * Tests that publish jobs in different folders do not overlap.<p>
+     */
+    public void testDisjointScopes() {
+
+        CmsPublishScope scope1 = createScope(
+            createResource("/sites/a/", new CmsUUID()),
+            createResource("/sites/a/index.html", new CmsUUID()));
+        CmsPublishScope scope2 = createScope(
+            createResource("/sites/b/index.html", new CmsUUID()),
+            createResource("/sites/ab/index.html", new CmsUUID()));
+        assertFalse(scope1.overlaps(scope2));
+        assertFalse(scope2.overlaps(scope1));
+    }
+
+    /**
+     * Tests that publish jobs overlap if one contains a parent folder of a resource of the other.<p>
+     */
+    public void testParentFolderOverlap() {
+
+        CmsPublishScope folderScope = createScope(createResource("/sites/a/news/", new CmsUUID()));
+        CmsPublishScope fileScope = createScope(
+            createResource("/sites/b/index.html", new CmsUUID()),
+            createResource("/sites/a/news/2015/article.html", new CmsUUID()));
+        assertTrue(folderScope.overlaps(fileScope));
+        assertTrue(fileScope.overlaps(folderScope));
+
+        CmsPublishScope rootScope = createScope(createResource("/", new CmsUUID()));
+        assertTrue(rootScope.overlaps(fileScope));
+    }
+
+    /**
+     * Tests that publish jobs overlap if they share a resource or a sibling of a resource.<p>
+     */
+    public void testSharedResourceOverlap() {
+
+        CmsPublishScope scope1 = createScope(createResource("/sites/a/index.html", new CmsUUID()));
+        CmsPublishScope scope2 = createScope(createResource("/sites/a/index.html", new CmsUUID()));
+        assertTrue(scope1.overlaps(scope2));
+
+        CmsUUID resourceId = new CmsUUID();
+        CmsPublishScope siblingScope1 = createScope(createResource("/sites/a/index.html", resourceId));
+        CmsPublishScope siblingScope2 = createScope(createResource("/sites/b/sibling.html", resourceId));
+        assertTrue(siblingScope1.overlaps(siblingScope2));
+        assertEquals(1, siblingScope1.size());
+    }
+
+    /**
+     * Creates a resource for the given path.<p>
+     *
+     * @param rootPath the root path
+     * @param resourceId the resource id
+     *
+     * @return the resource
+     */
+    private CmsResource createResource(String rootPath, CmsUUID resourceId) {
+
+        return OpenCmsTestResourceFactory.createResource(resourceId, rootPath);
+    }
+
+    /**
+     * Creates a publish scope for the given resources.<p>
+     *
+     * @param resources the resources
+     *
+     * @return the publish scope
+     */
+    private CmsPublishScope createScope(CmsResource... resources) {
+
+        List<CmsResource> list = new ArrayList<CmsResource>();
+        for (CmsResource resource : resources) {
+            list.add(resource);
+        }
+        return new CmsPublishScope(list);
+    }
+}
@@ -29,6 +29,8 @@ package org.opencms.publish;
 
 import org.opencms.db.CmsLoginMessage;
 import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProperty;
+import org.opencms.file.CmsPropertyDefinition;
 import org.opencms.file.CmsResource;
 import org.opencms.lock.CmsLockException;
 import org.opencms.lock.CmsLockType;
@@ -39,6 +41,7 @@ import org.opencms.security.CmsSecurityException;
 import org.opencms.security.I_CmsPrincipal;
 import org.opencms.test.OpenCmsTestCase;
 import org.opencms.test.OpenCmsTestProperties;
+import org.opencms.util.CmsUUID;
 
 import java.util.Iterator;
 import java.util.List;
@@ -77,6 +80,7 @@ public class TestPublishManager extends OpenCmsTestCase {
         suite.addTest(new TestPublishManager("testPublishReport"));
         suite.addTest(new TestPublishManager("testAbortJob"));
         suite.addTest(new TestPublishManager("testRunning"));
+        suite.addTest(new TestPublishManager("testConcurrentPublishing"));
         suite.addTest(new TestPublishManager("testStop"));
         suite.addTest(new TestPublishManager("testListener"));
         suite.addTest(new TestPublishManager("testInitialization1"));
@@ -538,6 +542,71 @@ public class TestPublishManager extends OpenCmsTestCase {
         assertLock(cms, destination4, CmsLockType.UNLOCKED);
     }
 
+    /**
+     * Tests that publish jobs with disjoint resources run concurrently,
+     * while overlapping publish jobs are published in the order they were enqueued.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testConcurrentPublishing() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing concurrent publishing of disjoint publish jobs");
+
+        CmsPublishManager publishManager = OpenCms.getPublishManager();
+        assertFalse(publishManager.isRunning());
+        // allow concurrent publish jobs
+        publishManager.getEngine().initialize(
+            cms,
+            publishManager.isPublishQueuePersistanceEnabled(),
+            publishManager.getPublishQueueShutdowntime(),
+            4);
+
+        String source = "/folder2/subfolder21/image1.gif";
+        String destination1 = "/folder1/image1_concurrent.gif";
+        String destination2 = "/folder2/image1_concurrent.gif";
+        cms.copyResource(source, destination1, CmsResource.COPY_AS_NEW);
+        cms.copyResource(source, destination2, CmsResource.COPY_AS_NEW);
+        cms.lockResource("/folder1/");
+        cms.writePropertyObject("/folder1/", new CmsProperty(CmsPropertyDefinition.PROPERTY_TITLE, "concurrent", null));
+
+        long startedJobs = publishManager.getPublishJobsStartedCount();
+        long conflicts = publishManager.getPublishConflictCount();
+
+        // stop the publish engine, so that all jobs are waiting in the queue
+        publishManager.stopPublishing();
+        CmsUUID job1 = publishManager.publishResource(cms, destination1);
+        CmsUUID job2 = publishManager.publishResource(cms, destination2);
+        // the folder contains the resource of the first job
+        CmsUUID job3 = publishManager.publishResource(cms, "/folder1/");
+        assertEquals(3, publishManager.getPublishQueue().size());
+
+        publishManager.startPublishing();
+        publishManager.waitWhileRunning();
+
+        assertState(cms, destination1, CmsResource.STATE_UNCHANGED);
+        assertState(cms, destination2, CmsResource.STATE_UNCHANGED);
+        assertState(cms, "/folder1/", CmsResource.STATE_UNCHANGED);
+        assertLock(cms, "/folder1/", CmsLockType.UNLOCKED);
+
+        assertEquals(startedJobs + 3, publishManager.getPublishJobsStartedCount());
+        assertTrue(publishManager.getPeakConcurrentPublishJobs() >= 2);
+        assertTrue(publishManager.getPublishConflictCount() > conflicts);
+        assertTrue(publishManager.getRunningPublishJobs().isEmpty());
+
+        CmsPublishJobFinished finished1 = (CmsPublishJobFinished)publishManager.getJobByPublishHistoryId(job1);
+        CmsPublishJobFinished finished2 = (CmsPublishJobFinished)publishManager.getJobByPublishHistoryId(job2);
+        CmsPublishJobFinished finished3 = (CmsPublishJobFinished)publishManager.getJobByPublishHistoryId(job3);
+        // the disjoint jobs have been running at the same time
+        assertTrue(finished2.getStartTime() < finished1.getFinishTime());
+        // the overlapping job had to wait for the first job
+        assertTrue(finished3.getStartTime() >= finished1.getFinishTime());
+
+        // restore the configured engine settings
+        publishManager.initialize(cms);
+        publishManager.startPublishing();
+    }
+
     /**
      * Test stopping/starting the publish engine.<p>
      *
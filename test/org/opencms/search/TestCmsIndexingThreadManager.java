@@ -0,0 +1,205 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.search;
+
+import org.opencms.db.CmsPublishedResource;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsResource;
+import org.opencms.test.OpenCmsTestResourceFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the management of indexing threads.<p>
+ */
+public class TestCmsIndexingThreadManager extends TestCase {
+
+    /**
+     * Search index that spends a given time on each resource and does not index it.<p>
+     */
+    private static class CmsSlowIndex extends CmsSearchIndex {
+
+        /** The time in milliseconds spent on each resource. */
+        private long m_delay;
+
+        /**
+         * Creates a new slow index.<p>
+         *
+         * @param delay the time in milliseconds spent on each resource
+         */
+        CmsSlowIndex(long delay) {
+
+            m_delay = delay;
+        }
+
+        /**
+         * @see org.opencms.search.CmsSearchIndex#excludeFromIndex(org.opencms.file.CmsObject, org.opencms.file.CmsResource)
+         */
+        @Override
+        protected boolean excludeFromIndex(CmsObject cms, CmsResource resource) {
+
+            try {
+                Thread.sleep(m_delay);
+            } catch (InterruptedException e) {
+                // the thread was abandoned
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Index writer that remembers the deleted resources.<p>
+     */
+    private static class CmsRecordingWriter implements I_CmsIndexWriter {
+
+        /** The root paths of the deleted resources. */
+        List<String> m_deleted = Collections.synchronizedList(new ArrayList<String>());
+
+        /**
+         * @see org.opencms.search.I_CmsIndexWriter#close()
+         */
+        public void close() {
+
+            // noop
+        }
+
+        /**
+         * @see org.opencms.search.I_CmsIndexWriter#commit()
+         */
+        public void commit() {
+
+            // noop
+        }
+
+        /**
+         * @see org.opencms.search.I_CmsIndexWriter#deleteDocument(org.opencms.db.CmsPublishedResource)
+         */
+        public void deleteDocument(CmsPublishedResource resource) {
+
+            m_deleted.add(resource.getRootPath());
+        }
+
+        /**
+         * @see org.opencms.search.I_CmsIndexWriter#optimize()
+         */
+        public void optimize() {
+
+            // noop
+        }
+
+        /**
+         * @see org.opencms.search.I_CmsIndexWriter#updateDocument(java.lang.String, org.opencms.search.I_CmsSearchDocument)
+         */
+        public void updateDocument(String rootPath, I_CmsSearchDocument document) {
+
+            // noop
+        }
+    }
+
+    /**
+     * Tests that the interrupt flag of the calling thread is kept and the running thread is abandoned.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testInterruptFlagRestored() throws Exception {
+
+        CmsIndexingThreadManager manager = new CmsIndexingThreadManager(10000, 100, 1);
+        CmsRecordingWriter writer = new CmsRecordingWriter();
+        Thread.currentThread().interrupt();
+        long start = System.currentTimeMillis();
+        manager.createIndexingThread(createIndexer(5000), writer, createResource("/interrupted.txt"));
+        assertTrue(Thread.interrupted());
+        assertTrue((System.currentTimeMillis() - start) < 5000);
+        // the abandoned resource is removed from the index
+        assertEquals(Collections.singletonList("/interrupted.txt"), writer.m_deleted);
+        assertFalse(manager.isRunning());
+    }
+
+    /**
+     * Tests that a resource is indexed before the method returns if only one thread is allowed.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testSingleThreadIsSynchronous() throws Exception {
+
+        CmsIndexingThreadManager manager = new CmsIndexingThreadManager(10000, 100, 1);
+        CmsRecordingWriter writer = new CmsRecordingWriter();
+        CmsVfsIndexer indexer = createIndexer(200);
+        manager.createIndexingThread(indexer, writer, createResource("/first.txt"));
+        assertEquals(Collections.singletonList("/first.txt"), writer.m_deleted);
+        manager.createIndexingThread(indexer, writer, createResource("/second.txt"));
+        assertEquals(2, writer.m_deleted.size());
+        assertFalse(manager.isRunning());
+    }
+
+    /**
+     * Tests that a thread reaching the timeout is abandoned in single thread mode.<p>
+     *
+     * @throws Exception if something goes wrong
+     */
+    public void testSingleThreadTimeout() throws Exception {
+
+        CmsIndexingThreadManager manager = new CmsIndexingThreadManager(100, 100, 1);
+        CmsRecordingWriter writer = new CmsRecordingWriter();
+        long start = System.currentTimeMillis();
+        manager.createIndexingThread(createIndexer(5000), writer, createResource("/hanging.txt"));
+        assertTrue((System.currentTimeMillis() - start) < 5000);
+        assertEquals(Collections.singletonList("/hanging.txt"), writer.m_deleted);
+        assertFalse(manager.isRunning());
+    }
+
+    /**
+     * Creates an indexer for a slow index.<p>
+     *
+     * @param delay the time in milliseconds spent on each resource
+     *
+     * @return the indexer
+     */
+    private CmsVfsIndexer createIndexer(long delay) {
+
+        CmsVfsIndexer indexer = new CmsVfsIndexer();
+        indexer.m_index = new CmsSlowIndex(delay);
+        return indexer;
+    }
+
+    /**
+     * Creates a file resource.<p>
+     *
+     * @param rootPath the root path of the resource
+     *
+     * @return the resource
+     */
+    private CmsResource createResource(String rootPath) {
+
+        return OpenCmsTestResourceFactory.createResource(rootPath);
+    }
+}
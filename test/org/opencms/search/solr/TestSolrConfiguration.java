@@ -47,6 +47,8 @@ import org.opencms.search.CmsSearchResource;
 import org.opencms.search.documents.CmsExtractionResultCache;
 import org.opencms.search.documents.I_CmsDocumentFactory;
 import org.opencms.search.extractors.CmsExtractionResult;
+import org.opencms.search.fields.CmsSearchField;
+import org.opencms.security.I_CmsPrincipal;
 import org.opencms.test.OpenCmsTestCase;
 import org.opencms.test.OpenCmsTestProperties;
 import org.opencms.util.CmsFileUtil;
@@ -57,7 +59,9 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 
+import org.apache.solr.client.solrj.SolrQuery.ORDER;
 import org.apache.solr.client.solrj.embedded.EmbeddedSolrServer;
+import org.apache.solr.common.params.CursorMarkParams;
 import org.apache.solr.core.CoreContainer;
 import org.apache.solr.core.SolrCore;
 
@@ -97,11 +101,14 @@ public class TestSolrConfiguration extends OpenCmsTestCase {
         TestSuite suite = new TestSuite();
         suite.setName(TestSolrConfiguration.class.getName());
         suite.addTest(new TestSolrConfiguration("testPermissionHandling"));
+        suite.addTest(new TestSolrConfiguration("testPermissionPaging"));
+        suite.addTest(new TestSolrConfiguration("testResultIterator"));
         suite.addTest(new TestSolrConfiguration("testExtractionResults"));
         // suite.addTest(new TestSolrConfiguration("testIndexingPerformance"));
         // suite.addTest(new TestSolrConfiguration("testMultipleIndices"));
         // suite.addTest(new TestSolrConfiguration("testMultipleLanguages"));
         suite.addTest(new TestSolrConfiguration("testReindexPublishedSiblings"));
+        suite.addTest(new TestSolrConfiguration("testPermissionInheritance"));
         suite.addTest(new TestSolrConfiguration("testPostProcessor"));
         suite.addTest(new TestSolrConfiguration("testShutDown"));
 
@@ -205,6 +212,92 @@ public class TestSolrConfiguration extends OpenCmsTestCase {
         assertEquals(52, results.getNumFound());
     }
 
+    /**
+     * Tests that the read permissions stored in the index follow the permission changes of a parent folder.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testPermissionInheritance() throws Throwable {
+
+        echo("Testing the read permissions inherited from a changed folder");
+        CmsObject cms = getCmsObject();
+        CmsSolrIndex index = OpenCms.getSearchManager().getIndexSolr(AllTests.SOLR_ONLINE);
+        assertTrue(index.isPermissionFilter());
+
+        String folder = "/permissionInheritance/";
+        cms.createResource(folder, CmsResourceTypeFolder.getStaticTypeId());
+        for (int i = 1; i <= 3; i++) {
+            cms.createResource(
+                folder + "file" + i + ".txt",
+                CmsResourceTypePlain.getStaticTypeId(),
+                ("Inherited permissions " + i).getBytes(),
+                null);
+        }
+        OpenCms.getPublishManager().publishResource(cms, folder);
+        OpenCms.getPublishManager().waitWhileRunning();
+
+        CmsObject userCms = OpenCms.initCmsObject(cms, new CmsContextInfo("test1"));
+        CmsSolrQuery squery = new CmsSolrQuery(cms, null);
+        squery.setSearchRoots("/sites/default" + folder);
+        squery.setResourceTypes(CmsResourceTypePlain.getStaticTypeName());
+        squery.setRows(new Integer(10));
+        assertEquals(3, index.search(userCms, squery).getNumFound());
+
+        // a changed title does not change the permissions of the files below the folder
+        cms.lockResource(folder);
+        cms.writePropertyObject(folder, new CmsProperty(CmsPropertyDefinition.PROPERTY_TITLE, "Changed title", null));
+        OpenCms.getPublishManager().publishResource(cms, folder);
+        OpenCms.getPublishManager().waitWhileRunning();
+        assertTrue(index.findPermissionChanges(cms, "/sites/default" + folder).isEmpty());
+
+        // the denied permission of the folder is inherited by the files
+        cms.lockResource(folder);
+        cms.chacc(folder, I_CmsPrincipal.PRINCIPAL_USER, "test1", "-r+i");
+        assertTrue(index.findPermissionChanges(cms, "/sites/default" + folder).isEmpty());
+        OpenCms.getPublishManager().publishResource(cms, folder);
+        OpenCms.getPublishManager().waitWhileRunning();
+        assertTrue(index.findPermissionChanges(cms, "/sites/default" + folder).isEmpty());
+        assertEquals(0, index.search(userCms, squery).getNumFound());
+        assertEquals(3, index.search(cms, squery).getNumFound());
+    }
+
+    /**
+     * Tests that the result pages of a user with restricted permissions match the complete result.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testPermissionPaging() throws Throwable {
+
+        echo("Testing result pages filtered by permissions");
+        CmsSolrIndex index = OpenCms.getSearchManager().getIndexSolr(AllTests.SOLR_ONLINE);
+        assertTrue(index.isPermissionFilter());
+        CmsObject cms = OpenCms.initCmsObject(getCmsObject(), new CmsContextInfo("test1"));
+
+        CmsSolrQuery squery = new CmsSolrQuery(getCmsObject(), null);
+        squery.setSearchRoots("/sites/default/");
+        squery.setSort(CmsSearchField.FIELD_PATH, ORDER.asc);
+        squery.setRows(new Integer(100));
+        CmsSolrResultList all = index.search(cms, squery);
+        assertEquals(50, all.getNumFound());
+
+        List<String> paged = new ArrayList<String>();
+        for (int start = 0; start < 50; start += 10) {
+            squery.setStart(new Integer(start));
+            squery.setRows(new Integer(10));
+            CmsSolrResultList page = index.search(cms, squery);
+            assertEquals(50, page.getNumFound());
+            assertEquals(10, page.size());
+            for (CmsSearchResource res : page) {
+                paged.add(res.getRootPath());
+            }
+        }
+        List<String> expected = new ArrayList<String>();
+        for (CmsSearchResource res : all) {
+            expected.add(res.getRootPath());
+        }
+        assertEquals(expected, paged);
+    }
+
     /**
      * Tests the CmsSearch with folder names with upper case letters.<p>
      *
@@ -308,6 +401,42 @@ public class TestSolrConfiguration extends OpenCmsTestCase {
             brotherContent);
     }
 
+    /**
+     * Tests that iterating over all results returns the same results as a search for all rows.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testResultIterator() throws Throwable {
+
+        echo("Testing the iteration over all results");
+        CmsSolrIndex index = OpenCms.getSearchManager().getIndexSolr(AllTests.SOLR_ONLINE);
+        CmsObject cms = OpenCms.initCmsObject(getCmsObject(), new CmsContextInfo("test1"));
+
+        CmsSolrQuery squery = new CmsSolrQuery(getCmsObject(), null);
+        squery.setSearchRoots("/sites/default/");
+        squery.setSort(CmsSearchField.FIELD_PATH, ORDER.asc);
+        squery.setRows(new Integer(100));
+        List<String> expected = new ArrayList<String>();
+        for (CmsSearchResource res : index.search(cms, squery)) {
+            expected.add(res.getRootPath());
+        }
+        assertEquals(50, expected.size());
+
+        // use a batch size that does not divide the number of results
+        CmsSolrResultIterator results = index.iterator(cms, squery, 7, null);
+        assertTrue(results.getNumFound() >= 50);
+        List<String> iterated = new ArrayList<String>();
+        while (results.hasNext()) {
+            iterated.add(results.next().getRootPath());
+        }
+        assertFalse(results.hasNext());
+        assertEquals(expected, iterated);
+
+        // the query itself is not changed
+        assertEquals(100, squery.getRows().intValue());
+        assertNull(squery.get(CursorMarkParams.CURSOR_MARK_PARAM));
+    }
+
     /**
      * Tests shutting down Solr.<p>
      *
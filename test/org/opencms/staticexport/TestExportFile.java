@@ -27,15 +27,22 @@
 
 package org.opencms.staticexport;
 
+import org.opencms.db.CmsPublishedResource;
 import org.opencms.file.CmsObject;
+import org.opencms.file.CmsResource;
+import org.opencms.file.types.CmsResourceTypeFolder;
 import org.opencms.file.types.CmsResourceTypePlain;
 import org.opencms.main.OpenCms;
+import org.opencms.report.CmsStringBufferReport;
 import org.opencms.test.OpenCmsTestCase;
 import org.opencms.test.OpenCmsTestProperties;
 import org.opencms.util.CmsFileUtil;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 
 import junit.extensions.TestSetup;
 import junit.framework.Test;
@@ -69,6 +76,8 @@ public class TestExportFile extends OpenCmsTestCase {
         suite.setName(TestExportFile.class.getName());
 
         suite.addTest(new TestExportFile("testStaticexportFile"));
+        suite.addTest(new TestExportFile("testParallelExport"));
+        suite.addTest(new TestExportFile("testAtomicReplace"));
 
         TestSetup wrapper = new TestSetup(suite) {
 
@@ -88,6 +97,103 @@ public class TestExportFile extends OpenCmsTestCase {
         return wrapper;
     }
 
+    /**
+     * Tests that an exported file is replaced at once, so readers get either the old or the new content.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testAtomicReplace() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the replacement of an exported file");
+        CmsStaticExportManager manager = OpenCms.getStaticExportManager();
+
+        String resourcename = "/replace.txt";
+        cms.createResource(resourcename, CmsResourceTypePlain.getStaticTypeId(), "old content".getBytes(), null);
+        CmsResource resource = cms.readResource(resourcename);
+        String exportPath = manager.getExportPath(resource.getRootPath());
+        manager.writeResource(null, exportPath, resource.getRootPath(), resource, "old content".getBytes());
+        File f = new File(CmsFileUtil.normalizePath(exportPath + resource.getRootPath()));
+
+        FileInputStream oldStream = new FileInputStream(f);
+        try {
+            manager.writeResource(null, exportPath, resource.getRootPath(), resource, "new content".getBytes());
+            // the file opened before the replacement still has the complete old content
+            assertEquals("old content", new String(CmsFileUtil.readFully(oldStream, false)));
+        } finally {
+            oldStream.close();
+        }
+        assertEquals("new content", new String(CmsFileUtil.readFile(f)));
+        assertEquals((resource.getDateLastModified() / 1000) * 1000, f.lastModified());
+
+        // the temporary files are written outside of the export folder and are removed after the replacement
+        for (String name : f.getParentFile().list()) {
+            assertFalse(name, name.endsWith(".tmp"));
+        }
+        File tempFolder = manager.getTempFolder();
+        assertFalse(tempFolder.getAbsolutePath().startsWith(new File(exportPath).getAbsolutePath() + File.separator));
+        assertTrue(tempFolder.getAbsolutePath().startsWith(OpenCms.getSystemInfo().getWebInfRfsPath()));
+        assertEquals(0, tempFolder.list().length);
+
+        // the folder is removed when the export has finished
+        manager.removeTempFolder();
+        assertFalse(tempFolder.exists());
+    }
+
+    /**
+     * Tests the export of non template resources with several threads.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testParallelExport() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the export with several threads");
+        CmsStaticExportManager manager = OpenCms.getStaticExportManager();
+
+        String folder = "/parallel/";
+        cms.createResource(folder, CmsResourceTypeFolder.getStaticTypeId());
+        List<String> resourcenames = new ArrayList<String>();
+        for (int i = 100; i < 120; i++) {
+            String resourcename = folder + "file" + i + ".txt";
+            cms.createResource(
+                resourcename,
+                CmsResourceTypePlain.getStaticTypeId(),
+                ("content " + i).getBytes(),
+                null);
+            resourcenames.add(resourcename);
+        }
+        cms.unlockResource(folder);
+        OpenCms.getPublishManager().publishProject(cms);
+        OpenCms.getPublishManager().waitWhileRunning();
+
+        List<CmsPublishedResource> publishedResources = new ArrayList<CmsPublishedResource>();
+        for (String resourcename : resourcenames) {
+            publishedResources.add(new CmsPublishedResource(cms.readResource(resourcename)));
+        }
+        manager.setExportThreads("4");
+        CmsStringBufferReport report = new CmsStringBufferReport(Locale.ENGLISH);
+        try {
+            CmsObject exportCms = OpenCms.initCmsObject(OpenCms.getDefaultUsers().getUserExport());
+            new CmsAfterPublishStaticExportHandler().exportNonTemplateResources(exportCms, publishedResources, report);
+        } finally {
+            manager.setExportThreads("1");
+        }
+        assertFalse(report.hasError());
+
+        // all files are exported, and reported in the order of the published resources
+        String output = report.toString();
+        int lastPos = -1;
+        for (int i = 0; i < resourcenames.size(); i++) {
+            String rootPath = cms.getRequestContext().addSiteRoot(resourcenames.get(i));
+            int pos = output.indexOf(rootPath);
+            assertTrue(rootPath, pos > lastPos);
+            lastPos = pos;
+            File f = new File(CmsFileUtil.normalizePath(manager.getExportPath(rootPath) + rootPath));
+            assertEquals("content " + (100 + i), new String(CmsFileUtil.readFile(f)));
+        }
+    }
+
     /**
      * Tests the file export.<p>
      *
@@ -0,0 +1,96 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH & Co. KG, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package org.opencms.test;
+
+import org.opencms.file.CmsResource;
+import org.opencms.util.CmsUUID;
+
+/**
+ * Creates resource objects for tests which do not need the resources to exist in the VFS.<p>
+ *
+ * @since 10.5.0
+ */
+public final class OpenCmsTestResourceFactory {
+
+    /**
+     * Hide constructor to prevent generation of class instances.<p>
+     */
+    private OpenCmsTestResourceFactory() {
+
+        // noop
+    }
+
+    /**
+     * Creates an unchanged resource with new structure and resource ids.<p>
+     *
+     * The resource is a folder if the root path ends with a slash, otherwise a plain file.<p>
+     *
+     * @param rootPath the root path of the resource
+     *
+     * @return the resource
+     */
+    public static CmsResource createResource(String rootPath) {
+
+        return createResource(new CmsUUID(), rootPath);
+    }
+
+    /**
+     * Creates an unchanged resource with a new structure id and the given resource id,
+     * e.g. a sibling of another test resource.<p>
+     *
+     * The resource is a folder if the root path ends with a slash, otherwise a plain file.<p>
+     *
+     * @param resourceId the resource id
+     * @param rootPath the root path of the resource
+     *
+     * @return the resource
+     */
+    public static CmsResource createResource(CmsUUID resourceId, String rootPath) {
+
+        long now = System.currentTimeMillis();
+        return new CmsResource(
+            new CmsUUID(),
+            resourceId,
+            rootPath,
+            1,
+            CmsResource.isFolder(rootPath),
+            0,
+            CmsUUID.getNullUUID(),
+            CmsResource.STATE_UNCHANGED,
+            now,
+            CmsUUID.getNullUUID(),
+            now,
+            CmsUUID.getNullUUID(),
+            CmsResource.DATE_RELEASED_DEFAULT,
+            CmsResource.DATE_EXPIRED_DEFAULT,
+            1,
+            0,
+            now,
+            0);
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH & Co. KG (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.test.performance;
+
+import org.opencms.file.CmsObject;
+import org.opencms.file.types.CmsResourceTypeFolder;
+import org.opencms.main.OpenCms;
+import org.opencms.monitor.CmsMemoryMonitor;
+import org.opencms.security.I_CmsPrincipal;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Compares the time needed for computing access control lists with and without the tree
+ * of inherited access control entries.<p>
+ *
+ * The test creates a folder tree with 10 levels. The number of sub folders per folder is read from the
+ * system property <code>opencms.test.acltree.fanout</code>, a fanout of 3 creates about 88.000 folders.<p>
+ */
+public class TestAclTreePermissions extends OpenCmsTestCase {
+
+    /** The number of folder levels. */
+    private static final int DEPTH = 10;
+
+    /** The folder the test tree is created in. */
+    private static final String FOLDER = "/acltreeperf/";
+
+    /** The maximum number of folders the access control lists are computed for per run. */
+    private static final int MAX_CHECKED_FOLDERS = 1000;
+
+    /**
+     * Default JUnit constructor.<p>
+     *
+     * @param arg0 JUnit parameters
+     */
+    public TestAclTreePermissions(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     *
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestAclTreePermissions.class.getName());
+
+        suite.addTest(new TestAclTreePermissions("testDeepTree"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Computes the access control lists of the deepest folders of a large tree with and without the tree.<p>
+     *
+     * @throws Throwable if something goes wrong
+     */
+    public void testDeepTree() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        int fanout = Integer.getInteger("opencms.test.acltree.fanout", 2).intValue();
+        echo("Test computing access control lists in a tree with " + DEPTH + " levels and a fanout of " + fanout);
+
+        // create the tree, with access control entries on the first levels
+        long t = System.currentTimeMillis();
+        cms.createResource(FOLDER, CmsResourceTypeFolder.getStaticTypeId());
+        List<String> level = new ArrayList<String>();
+        level.add(FOLDER);
+        int count = 0;
+        for (int depth = 1; depth <= DEPTH; depth++) {
+            List<String> nextLevel = new ArrayList<String>();
+            for (String parent : level) {
+                for (int i = 0; i < fanout; i++) {
+                    String path = parent + "f" + i + "/";
+                    cms.createResource(path, CmsResourceTypeFolder.getStaticTypeId());
+                    if (depth <= 3) {
+                        cms.chacc(path, I_CmsPrincipal.PRINCIPAL_GROUP, "Users", (i % 2) == 0 ? "+r+v+i" : "-w+i");
+                    }
+                    nextLevel.add(path);
+                    count++;
+                }
+            }
+            level = nextLevel;
+        }
+        cms.unlockResource(FOLDER);
+        t = System.currentTimeMillis() - t;
+        echo(count + " folders created in " + t + " msecs");
+
+        List<String> checkedFolders = level.subList(0, Math.min(level.size(), MAX_CHECKED_FOLDERS));
+        CmsMemoryMonitor monitor = OpenCms.getMemoryMonitor();
+
+        monitor.disableCache(CmsMemoryMonitor.CacheType.ACL_TREE);
+        monitor.flushCache(CmsMemoryMonitor.CacheType.ACL, CmsMemoryMonitor.CacheType.PERMISSION);
+        t = System.currentTimeMillis();
+        for (String path : checkedFolders) {
+            cms.getAccessControlList(path);
+        }
+        t = System.currentTimeMillis() - t;
+        echo(checkedFolders.size() + " access control lists computed without the tree in " + t + " msecs");
+
+        monitor.enableCache(CmsMemoryMonitor.CacheType.ACL_TREE);
+        for (int run = 1; run <= 2; run++) {
+            monitor.flushCache(CmsMemoryMonitor.CacheType.ACL, CmsMemoryMonitor.CacheType.PERMISSION);
+            t = System.currentTimeMillis();
+            for (String path : checkedFolders) {
+                cms.getAccessControlList(path);
+            }
+            t = System.currentTimeMillis() - t;
+            echo(
+                checkedFolders.size()
+                    + " access control lists computed with the tree in "
+                    + t
+                    + " msecs (run "
+                    + run
+                    + ", "
+                    + monitor.getAclTree(false).getReadCount()
+                    + " database reads)");
+        }
+        monitor.disableCache(CmsMemoryMonitor.CacheType.ACL_TREE);
+    }
+}
@@ -85,6 +85,27 @@ public class TestCmsManyToOneMap extends OpenCmsTestCase {
 
     }
 
+    /**
+     * Test for associating a key with another value.<p>
+     */
+    public void testPutOtherValue() {
+
+        CmsManyToOneMap<String, String> map = new CmsManyToOneMap<String, String>();
+        map.put("k1", "v1");
+        map.put("k2", "v1");
+        map.put("k1", "v2");
+
+        assertEquals("v2", map.get("k1"));
+        assertEquals(Sets.newHashSet("k2"), map.getReverseMap().get("v1"));
+        assertEquals(Sets.newHashSet("k1"), map.getReverseMap().get("v2"));
+
+        // removing the old value must not remove the key associated with the new value
+        map.removeValue("v1");
+        assertEquals("v2", map.get("k1"));
+        assertEquals(null, map.get("k2"));
+        assertEquals(1, map.size());
+    }
+
     /**
      * Test for removing keys.<p>
      */
@@ -106,6 +127,36 @@ public class TestCmsManyToOneMap extends OpenCmsTestCase {
 
     }
 
+    /**
+     * Test for replacing the keys of a value.<p>
+     */
+    public void testReplaceKeys() {
+
+        CmsManyToOneMap<String, String> map = new CmsManyToOneMap<String, String>();
+        map.put("k1", "v1");
+        map.put("k2", "v1");
+        map.put("k3", "v2");
+
+        map.replaceKeys("v1", Sets.newHashSet("k2", "k4"));
+        assertEquals(null, map.get("k1"));
+        assertEquals("v1", map.get("k2"));
+        assertEquals("v2", map.get("k3"));
+        assertEquals("v1", map.get("k4"));
+        assertEquals(Sets.newHashSet("k2", "k4"), map.getReverseMap().get("v1"));
+
+        // a key can move to another value
+        map.replaceKeys("v2", Sets.newHashSet("k3", "k4"));
+        assertEquals("v2", map.get("k4"));
+        assertEquals(Sets.newHashSet("k2"), map.getReverseMap().get("v1"));
+        assertEquals(Sets.newHashSet("k3", "k4"), map.getReverseMap().get("v2"));
+
+        map.replaceKeys("v2", Collections.<String> emptySet());
+        assertEquals(null, map.get("k3"));
+        assertEquals(null, map.get("k4"));
+        assertEquals(Collections.emptySet(), map.getReverseMap().get("v2"));
+        assertEquals(1, map.size());
+    }
+
     /**
      * Test for removing values.<p>
      */
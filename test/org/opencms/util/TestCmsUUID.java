@@ -36,6 +36,7 @@ import java.io.FileOutputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.net.URI;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
@@ -207,6 +208,66 @@ public class TestCmsUUID extends OpenCmsTestCase {
         assertFalse(CmsUUID.isValidUUID("kaputt"));
     }
 
+    /**
+     * Tests that the compact UUID representation is compatible with the JUG UUID implementation.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testUUIDCompatibility() throws Exception {
+
+        CmsUUID.init(CmsUUID.getDummyEthernetAddress());
+        int testSize = 1000;
+        CmsUUID[] ids = new CmsUUID[testSize];
+        UUID[] uids = new UUID[testSize];
+        for (int i = 0; i < testSize; i++) {
+            // mix time based and name based UUIDs
+            ids[i] = (i % 3) == 0 ? CmsUUID.getConstantUUID("name" + i) : new CmsUUID();
+            uids[i] = new UUID(ids[i].toString());
+            assertEquals(uids[i].toString(), ids[i].toString());
+            assertTrue(Arrays.equals(uids[i].toByteArray(), ids[i].toByteArray()));
+            assertEquals(ids[i], new CmsUUID(uids[i].toByteArray()));
+            assertEquals(ids[i], new CmsUUID(ids[i].toString().toUpperCase()));
+        }
+        Random r = new Random();
+        for (int i = 0; i < testSize; i++) {
+            int pos1 = r.nextInt(testSize);
+            int pos2 = r.nextInt(testSize);
+            assertEquals(
+                Integer.signum(uids[pos1].compareTo(uids[pos2])),
+                Integer.signum(ids[pos1].compareTo(ids[pos2])));
+        }
+
+        try {
+            new CmsUUID("c300ba5c-01e8-3727-b305-5dcc9ccae1eg");
+            fail("invalid hex digit accepted");
+        } catch (NumberFormatException e) {
+            // expected
+        }
+        try {
+            new CmsUUID("c300ba5c-01e8-3727-b305+5dcc9ccae1ee");
+            fail("invalid separator accepted");
+        } catch (NumberFormatException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Tests the intern pool for UUIDs.<p>
+     *
+     * @throws Exception if the test fails
+     */
+    public void testUUIDIntern() throws Exception {
+
+        CmsUUID id1 = new CmsUUID("c300ba5c-01e8-3727-b305-5dcc9ccae1ee");
+        CmsUUID id2 = new CmsUUID("c300ba5c-01e8-3727-b305-5dcc9ccae1ee");
+        assertNotSame(id1, id2);
+        CmsUUID interned = CmsUUID.intern(id1);
+        assertSame(interned, CmsUUID.intern(id2));
+        assertEquals(id2, interned);
+        assertSame(CmsUUID.getNullUUID(), CmsUUID.intern(new CmsUUID("00000000-0000-0000-0000-000000000000")));
+        assertNull(CmsUUID.intern(null));
+    }
+
     /**
      * De-Serializes an object with the given name from the internal Map.<p>
      *